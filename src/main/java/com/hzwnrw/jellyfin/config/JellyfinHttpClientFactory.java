@@ -0,0 +1,129 @@
+package com.hzwnrw.jellyfin.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds {@link RestClient}s for Jellyfin servers, each server on its own pooled Apache HttpClient
+ * so a slow server cannot hold connections needed for another one.
+ * <p>
+ * Connections are kept alive and reused across calls, and every call is bounded by a connect
+ * timeout, a pool lease timeout and a read timeout that depends on the {@link Operation}.
+ * The client asks for gzip/deflate and decompresses responses transparently.
+ * Pool usage is published under {@code httpcomponents.httpclient.pool.*} with
+ * {@code httpclient=jellyfin-<server-id>}.
+ */
+@Slf4j
+@Component
+public class JellyfinHttpClientFactory {
+
+    /**
+     * Kind of call a client is used for; each gets its own read timeout.
+     */
+    public enum Operation {
+        /** Requests made while a user waits, e.g. toggling an account. */
+        INTERACTIVE,
+        /** Background bulk requests, e.g. downloading /Users during a sync. */
+        SYNC
+    }
+
+    private final int maxConnections;
+    private final Duration connectTimeout;
+    private final Duration connectionRequestTimeout;
+    private final Duration interactiveReadTimeout;
+    private final Duration syncReadTimeout;
+    private final Duration idleTimeout;
+    private final Duration connectionTtl;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CloseableHttpClient> clients = new ConcurrentHashMap<>();
+
+    public JellyfinHttpClientFactory(@Value("${jellyfin.http.max-connections:20}") int maxConnections,
+                                     @Value("${jellyfin.http.connect-timeout:5s}") Duration connectTimeout,
+                                     @Value("${jellyfin.http.connection-request-timeout:5s}") Duration connectionRequestTimeout,
+                                     @Value("${jellyfin.http.read-timeout:10s}") Duration interactiveReadTimeout,
+                                     @Value("${jellyfin.http.sync-read-timeout:2m}") Duration syncReadTimeout,
+                                     @Value("${jellyfin.http.idle-timeout:30s}") Duration idleTimeout,
+                                     @Value("${jellyfin.http.connection-ttl:5m}") Duration connectionTtl,
+                                     MeterRegistry meterRegistry) {
+        this.maxConnections = maxConnections;
+        this.connectTimeout = connectTimeout;
+        this.connectionRequestTimeout = connectionRequestTimeout;
+        this.interactiveReadTimeout = interactiveReadTimeout;
+        this.syncReadTimeout = syncReadTimeout;
+        this.idleTimeout = idleTimeout;
+        this.connectionTtl = connectionTtl;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Creates a client for the Jellyfin server {@code serverId} at {@code baseUrl}, authenticated
+     * with {@code apiKey}. Clients for the same server share one connection pool.
+     */
+    public RestClient create(String serverId, String baseUrl, String apiKey, Operation operation) {
+        HttpComponentsClientHttpRequestFactory requestFactory =
+                new HttpComponentsClientHttpRequestFactory(clients.computeIfAbsent(serverId, this::newHttpClient));
+        requestFactory.setConnectionRequestTimeout(connectionRequestTimeout);
+        requestFactory.setReadTimeout(operation == Operation.SYNC ? syncReadTimeout : interactiveReadTimeout);
+        return RestClient.builder()
+                .requestFactory(requestFactory)
+                .baseUrl(baseUrl)
+                .defaultHeader("X-Emby-Token", apiKey)
+                .build();
+    }
+
+    private CloseableHttpClient newHttpClient(String serverId) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setTimeToLive(TimeValue.of(connectionTtl))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "jellyfin-" + serverId)
+                .bindTo(meterRegistry);
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(connectionRequestTimeout))
+                        .setResponseTimeout(Timeout.of(interactiveReadTimeout))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleTimeout))
+                .build();
+    }
+
+    @PreDestroy
+    public void close() {
+        clients.forEach((serverId, client) -> {
+            try {
+                client.close();
+            } catch (IOException e) {
+                log.warn("Failed to close HTTP client for Jellyfin server {}: {}", serverId, e.getMessage());
+            }
+        });
+        clients.clear();
+    }
+}
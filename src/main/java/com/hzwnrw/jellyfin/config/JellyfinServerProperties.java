@@ -0,0 +1,49 @@
+package com.hzwnrw.jellyfin.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Jellyfin servers this application manages.
+ * <p>
+ * Servers are listed under {@code jellyfin.servers}. A single-server setup may keep using
+ * {@code jellyfin.url} and {@code jellyfin.api-key}, which become the server with id
+ * {@value #DEFAULT_SERVER_ID}; rows created before multi-server support belong to that id.
+ */
+@Data
+@ConfigurationProperties(prefix = "jellyfin")
+public class JellyfinServerProperties {
+
+    public static final String DEFAULT_SERVER_ID = "default";
+
+    private String url;
+    private String apiKey;
+    private List<Server> servers = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Server {
+        private String id;
+        private String url;
+        private String apiKey;
+    }
+
+    /**
+     * Configured servers, falling back to the legacy single-server properties.
+     */
+    public List<Server> resolveServers() {
+        if (!servers.isEmpty()) {
+            return servers;
+        }
+        if (url == null || url.isBlank()) {
+            return List.of();
+        }
+        return List.of(new Server(DEFAULT_SERVER_ID, url, apiKey));
+    }
+}
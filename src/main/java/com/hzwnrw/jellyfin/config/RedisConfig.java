@@ -1,10 +1,19 @@
 package com.hzwnrw.jellyfin.config;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.support.NullValue;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
@@ -12,10 +21,14 @@ import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import java.time.Duration;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 @Configuration
 @EnableCaching
@@ -47,10 +60,49 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * Pub/sub subscriptions; services register their listeners on it.
+     */
     @Bean
-    public RedisCacheManager cacheManager(LettuceConnectionFactory connectionFactory) {
+    public RedisMessageListenerContainer redisMessageListenerContainer(LettuceConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
+    /**
+     * Redis caches with a bounded in-process copy in front; see {@link TwoTierCacheManager}.
+     */
+    @Bean
+    public CacheManager cacheManager(LettuceConnectionFactory connectionFactory,
+                                     StringRedisTemplate stringRedisTemplate,
+                                     RedisMessageListenerContainer redisMessageListenerContainer,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.cache.local.maximum-size:10000}") long localMaximumSize,
+                                     @Value("${app.cache.local.ttl:1m}") Duration localTtl) {
+        TwoTierCacheManager cacheManager = new TwoTierCacheManager(redisCacheManager(connectionFactory),
+                stringRedisTemplate, meterRegistry,
+                Caffeine.newBuilder().maximumSize(localMaximumSize).expireAfterWrite(localTtl));
+        redisMessageListenerContainer.addMessageListener(cacheManager, new ChannelTopic(TwoTierCacheManager.CHANNEL));
+        return cacheManager;
+    }
+
+    RedisCacheManager redisCacheManager(LettuceConnectionFactory connectionFactory) {
         ObjectMapper om = new ObjectMapper();
         om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        om.registerModule(new JavaTimeModule());
+        // Cached values are read back as the types they were written as, limited to our own and JDK value types
+        PolymorphicTypeValidator validator = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("com.hzwnrw.jellyfin.")
+                .allowIfSubType("java.util.")
+                .allowIfSubType("java.time.")
+                .allowIfSubType(Pattern.compile("java\\.lang\\.(String|Boolean|Byte|Short|Integer|Long|Float|Double)"))
+                .allowIfSubType(NullValue.class)
+                .build();
+        om.setDefaultTyping(new CacheTypeResolverBuilder(validator)
+                .init(JsonTypeInfo.Id.CLASS, null)
+                .inclusion(JsonTypeInfo.As.PROPERTY));
+        GenericJackson2JsonRedisSerializer.registerNullValueSerializer(om, null);
         GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(om);
 
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
@@ -58,8 +110,30 @@ public class RedisConfig {
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer));
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager cacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
                 .build();
+        cacheManager.initializeCaches();
+        return cacheManager;
+    }
+
+    /**
+     * Jackson's NON_FINAL default typing, extended to a few final types that are cached as they are:
+     * boxed numbers and booleans, which would otherwise come back as whatever JSON makes of them (a
+     * cached long as an Integer), and the marker Spring caches for null.
+     */
+    static final class CacheTypeResolverBuilder extends ObjectMapper.DefaultTypeResolverBuilder {
+
+        private static final Set<Class<?>> FINAL_TYPES = Set.of(NullValue.class,
+                Boolean.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class);
+
+        CacheTypeResolverBuilder(PolymorphicTypeValidator validator) {
+            super(ObjectMapper.DefaultTyping.NON_FINAL, validator);
+        }
+
+        @Override
+        public boolean useForType(JavaType type) {
+            return super.useForType(type) || FINAL_TYPES.contains(type.getRawClass());
+        }
     }
 }
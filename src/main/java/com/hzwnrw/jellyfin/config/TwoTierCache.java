@@ -0,0 +1,154 @@
+package com.hzwnrw.jellyfin.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * One cache of {@link TwoTierCacheManager}: reads try the in-process copy first and fill it from Redis on a miss;
+ * writes go to both, and evictions are also announced so other replicas drop their in-process copy.
+ */
+class TwoTierCache implements Cache {
+
+    private final CaffeineCache local;
+    private final Cache remote;
+    private final BiConsumer<String, Object> invalidationPublisher;
+
+    final LongAdder localHits = new LongAdder();
+    final LongAdder localMisses = new LongAdder();
+    final LongAdder remoteHits = new LongAdder();
+    final LongAdder remoteMisses = new LongAdder();
+
+    TwoTierCache(CaffeineCache local, Cache remote, BiConsumer<String, Object> invalidationPublisher) {
+        this.local = local;
+        this.remote = remote;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return remote.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    CaffeineCache getLocal() {
+        return local;
+    }
+
+    Cache getRemote() {
+        return remote;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = local.get(key);
+        if (value != null) {
+            localHits.increment();
+            return value;
+        }
+        localMisses.increment();
+        value = remote.get(key);
+        if (value != null) {
+            remoteHits.increment();
+            local.put(key, value.get());
+        } else {
+            remoteMisses.increment();
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value = remote.get(key, valueLoader);
+        local.put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        local.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        local.put(key, existing != null ? existing.get() : value);
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        try {
+            remote.evict(key);
+        } finally {
+            // After Redis, so a concurrent read here cannot refill the local copy from the old entry
+            local.evict(key);
+            invalidationPublisher.accept(getName(), key);
+        }
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        try {
+            return remote.evictIfPresent(key);
+        } finally {
+            local.evict(key);
+            invalidationPublisher.accept(getName(), key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            remote.clear();
+        } finally {
+            local.clear();
+            invalidationPublisher.accept(getName(), null);
+        }
+    }
+
+    @Override
+    public boolean invalidate() {
+        try {
+            return remote.invalidate();
+        } finally {
+            local.invalidate();
+            invalidationPublisher.accept(getName(), null);
+        }
+    }
+
+    /**
+     * Drops the in-process copy of {@code key}, or of every entry when it is null, after another replica evicted it.
+     */
+    void evictLocal(Object key) {
+        if (key != null) {
+            local.evict(key);
+        } else {
+            local.invalidate();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.hzwnrw.jellyfin.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Caches entries in a bounded in-process Caffeine cache (L1) in front of the Redis caches (L2), so repeated
+ * reads skip the round-trip to Redis and the JSON decode. Evictions go to both tiers and are published on a
+ * Redis channel so every other replica drops its in-process copy too. A replica that misses a message, or a
+ * read racing an eviction, can keep a stale copy until the in-process TTL expires it.
+ * <p>
+ * In-process values are shared by all readers, so cached objects must not be modified.
+ */
+@Slf4j
+public class TwoTierCacheManager implements CacheManager, MessageListener {
+
+    static final String CHANNEL = "cache:invalidations";
+
+    private final CacheManager remote;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Caffeine<Object, Object> localSpec;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(CacheManager remote, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                               Caffeine<Object, Object> localSpec) {
+        this.remote = remote;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.localSpec = localSpec;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoTierCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remoteCache = remote.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, key -> create(remoteCache));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoTierCache create(Cache remoteCache) {
+        String name = remoteCache.getName();
+        TwoTierCache cache = new TwoTierCache(new CaffeineCache(name, localSpec.build()), remoteCache, this::publish);
+        registerGets(cache, "l1", "hit", cache.localHits);
+        registerGets(cache, "l1", "miss", cache.localMisses);
+        registerGets(cache, "l2", "hit", cache.remoteHits);
+        registerGets(cache, "l2", "miss", cache.remoteMisses);
+        registerHitRatio(cache, "l1", c -> ratio(c.localHits, c.localMisses));
+        registerHitRatio(cache, "l2", c -> ratio(c.remoteHits, c.remoteMisses));
+        Gauge.builder("jellyfin.cache.local.size", cache, c -> c.getLocal().getNativeCache().estimatedSize())
+                .description("Entries held in the in-process cache")
+                .tag("cache", name)
+                .register(meterRegistry);
+        return cache;
+    }
+
+    private void registerGets(TwoTierCache cache, String tier, String result, LongAdder count) {
+        FunctionCounter.builder("jellyfin.cache.gets", count, LongAdder::sum)
+                .description("Cache lookups per tier; L2 is only asked on an L1 miss")
+                .tags("cache", cache.getName(), "tier", tier, "result", result)
+                .register(meterRegistry);
+    }
+
+    private void registerHitRatio(TwoTierCache cache, String tier, ToDoubleFunction<TwoTierCache> ratio) {
+        Gauge.builder("jellyfin.cache.hit.ratio", cache, ratio)
+                .description("Share of lookups reaching this tier that it answered")
+                .tags("cache", cache.getName(), "tier", tier)
+                .register(meterRegistry);
+    }
+
+    private static double ratio(LongAdder hits, LongAdder misses) {
+        long total = hits.sum() + misses.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    /**
+     * Tells the other replicas to drop {@code key} of one cache, or the whole cache when it is null.
+     */
+    private void publish(String cacheName, Object key) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(
+                    new Invalidation(nodeId, cacheName, key != null ? key.toString() : null)));
+        } catch (Exception e) {
+            // Other replicas keep their copy until it expires
+            log.warn("Failed to publish invalidation of cache {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Invalidation invalidation;
+        try {
+            invalidation = objectMapper.readValue(message.getBody(), Invalidation.class);
+        } catch (IOException e) {
+            log.warn("Ignoring malformed cache invalidation: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(invalidation.node()) || invalidation.cache() == null) {
+            return;
+        }
+        // Nothing is held in-process for a cache this replica has not used yet
+        TwoTierCache cache = caches.get(invalidation.cache());
+        if (cache != null) {
+            log.debug("Dropping in-process {} of cache {}", invalidation.key() != null ? invalidation.key() : "entries",
+                    invalidation.cache());
+            cache.evictLocal(invalidation.key());
+        }
+    }
+
+    /**
+     * Eviction announced by replica {@code node}; a null key clears the cache.
+     */
+    record Invalidation(String node, String cache, String key) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.hzwnrw.jellyfin.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Default timeout of async requests that do not set their own, such as streamed exports.
+ * The servlet container's default of 30 seconds would cut a large export off part way through.
+ */
+@Configuration
+public class WebAsyncConfiguration implements WebMvcConfigurer {
+
+    private final Duration requestTimeout;
+
+    public WebAsyncConfiguration(@Value("${spring.mvc.async.request-timeout:1h}") Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(requestTimeout.toMillis());
+    }
+}
@@ -0,0 +1,34 @@
+package com.hzwnrw.jellyfin.controller;
+
+import com.hzwnrw.jellyfin.service.DashboardUpdateService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@RequiredArgsConstructor
+public class DashboardEventsController {
+
+    private final DashboardUpdateService dashboardUpdateService;
+
+    /**
+     * Stream of status, expiry and sync events for the dashboard; see {@link DashboardUpdateService}.
+     */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(HttpServletResponse response) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        // Keeps nginx from buffering the stream
+        response.setHeader("X-Accel-Buffering", "no");
+        return dashboardUpdateService.connect()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Too many open dashboard streams"));
+    }
+}
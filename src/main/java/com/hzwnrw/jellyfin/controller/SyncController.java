@@ -0,0 +1,35 @@
+package com.hzwnrw.jellyfin.controller;
+
+import com.hzwnrw.jellyfin.dto.SyncScheduleResponse;
+import com.hzwnrw.jellyfin.dto.SyncStatusResponse;
+import com.hzwnrw.jellyfin.scheduler.AdaptiveSyncInterval;
+import com.hzwnrw.jellyfin.scheduler.JellyfinSyncTask;
+import com.hzwnrw.jellyfin.service.SyncCoordinator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+public class SyncController {
+
+    private final SyncCoordinator syncCoordinator;
+    private final JellyfinSyncTask jellyfinSyncTask;
+    private final AdaptiveSyncInterval syncInterval;
+
+    @GetMapping("/status")
+    public ResponseEntity<SyncStatusResponse> getStatus() {
+        return ResponseEntity.ok(syncCoordinator.getStatus());
+    }
+
+    @GetMapping("/schedule")
+    public ResponseEntity<SyncScheduleResponse> getSchedule() {
+        return ResponseEntity.ok(new SyncScheduleResponse(
+                syncInterval.getCurrent().toSeconds(),
+                jellyfinSyncTask.getNextRunAt().orElse(null),
+                syncInterval.getHistory()));
+    }
+}
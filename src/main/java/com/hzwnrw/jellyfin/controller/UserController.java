@@ -1,23 +1,39 @@
 package com.hzwnrw.jellyfin.controller;
 
+import com.hzwnrw.jellyfin.dto.UserDashboardSlice;
+import com.hzwnrw.jellyfin.dto.UserPageCursor;
+import com.hzwnrw.jellyfin.dto.UserSearchFilter;
+import com.hzwnrw.jellyfin.event.UserDataChangedEvent;
 import com.hzwnrw.jellyfin.model.UserExpiration;
+import com.hzwnrw.jellyfin.model.UserExpirationKey;
 import com.hzwnrw.jellyfin.repository.ExpirationRepository;
+import com.hzwnrw.jellyfin.repository.JellyfinUserDashboardRepository;
+import com.hzwnrw.jellyfin.scheduler.ExpirationScheduler;
+import com.hzwnrw.jellyfin.service.DashboardUpdateService;
+import com.hzwnrw.jellyfin.service.DataVersionService;
 import com.hzwnrw.jellyfin.service.JellyfinService;
+import com.hzwnrw.jellyfin.service.PolicyChangeOutbox;
+import com.hzwnrw.jellyfin.service.SyncCoordinator;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.time.ZoneId;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
 import org.springframework.beans.factory.annotation.Value;
 
 @Controller
@@ -27,6 +43,12 @@ public class UserController {
 
     private final JellyfinService jellyfinService;
     private final ExpirationRepository repository;
+    private final SyncCoordinator syncCoordinator;
+    private final PolicyChangeOutbox outbox;
+    private final ExpirationScheduler expirationScheduler;
+    private final DataVersionService dataVersionService;
+    private final DashboardUpdateService dashboardUpdateService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Value("${app.timezone:Asia/Kuala_Lumpur}")
     private String defaultTimezone;
@@ -34,32 +56,52 @@ public class UserController {
     @Value("${app.version:1.3.0}")
     private String appVersion;
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int PAGE_LINK_RADIUS = 2;
+    // The farthest page link seeks from the cursor of the current page and skips the pages in between
+    private static final int MAX_SKIP_PAGES = PAGE_LINK_RADIUS - 1;
+    // Sent by the dashboard script, which patches the page in place instead of following a redirect
+    private static final String IN_PLACE_HEADER = "X-Requested-With=XMLHttpRequest";
+
     @GetMapping("/")
     public String index(Model model, HttpServletResponse response,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "name") String sortBy,
-            @RequestParam(defaultValue = "ASC") Sort.Direction direction) {
-        log.info("Loading index page with user data - page: {}, size: {}, sortBy: {}, direction: {}", page, size, sortBy, direction);
-        
-        // Create Pageable with sorting
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
-        var jellyfinUsersPage = jellyfinService.getAllUsers(pageable);
-        log.debug("Retrieved {} jellyfin users from page {} of {}", jellyfinUsersPage.getContent().size(), page, jellyfinUsersPage.getTotalPages());
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "0") int skip,
+            @Valid @ModelAttribute("filter") UserSearchFilter filter) {
+        log.info("Loading index page with user data - page: {}, size: {}, sortBy: {}, direction: {}, filter: {}",
+                page, size, sortBy, direction, filter);
+        if (!JellyfinUserDashboardRepository.SORT_KEYS.containsKey(sortBy)) {
+            sortBy = "name";
+        }
+        size = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        if (skip < 0 || skip > MAX_SKIP_PAGES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "skip must be between 0 and " + MAX_SKIP_PAGES);
+        }
 
-        var tracked = repository.findAll().stream()
-                .collect(Collectors.toMap(UserExpiration::getJellyfinUserId, u -> u, (a, b) -> a));
-        log.debug("Loaded {} tracked expirations", tracked.size());
+        // Keyset pagination: the cursor marks where the page starts, the page number is only for display
+        UserPageCursor position = UserPageCursor.decode(cursor).orElse(null);
+        var slice = jellyfinService.getDashboardSlice(sortBy, direction, filter, size, position, skip);
+        int currentPage = slice.hasPrevious() ? Math.max(page, 1) : 0;
+        int totalPages = Math.max(currentPage + 1, (int) ((slice.getTotalElements() + size - 1) / size));
+        log.debug("Retrieved {} jellyfin users for page {} of about {}", slice.getContent().size(), currentPage, totalPages);
 
-        // Format expiry dates for display
+        // Format expiry dates of the visible users for display, keyed by "<server id>:<user id>"
+        // as the template builds it for each row
         var trackedFormatted = new java.util.HashMap<String, Map<String, String>>();
-        for (var entry : tracked.entrySet()) {
-            var expiry = entry.getValue();
+        for (var row : slice.getContent()) {
+            if (row.getExpiryDate() == null) {
+                continue;
+            }
             var formatted = new java.util.HashMap<String, String>();
-            formatted.put("username", expiry.getUsername());
+            formatted.put("username", row.getName());
             formatted.put("expiryDateFormatted", com.hzwnrw.jellyfin.utils.TimezoneUtils.formatForDisplay(
-                expiry.getExpiryDate(), defaultTimezone));
-            trackedFormatted.put(entry.getKey(), formatted);
+                row.getExpiryDate(), defaultTimezone));
+            trackedFormatted.put(row.getServerId() + ":" + row.getId(), formatted);
         }
 
         // Format current date in the configured timezone
@@ -71,24 +113,82 @@ public class UserController {
         response.setHeader("Pragma", "no-cache");
         response.setDateHeader("Expires", 0);
 
-        model.addAttribute("users", jellyfinUsersPage.getContent());
+        model.addAttribute("users", slice.getContent());
         model.addAttribute("tracked", trackedFormatted);
         model.addAttribute("timezone", defaultTimezone);
         model.addAttribute("currentDate", currentDateFormatted);
         
         // Add pagination attributes
-        model.addAttribute("currentPage", page);
+        model.addAttribute("currentPage", currentPage);
         model.addAttribute("pageSize", size);
-        model.addAttribute("totalPages", jellyfinUsersPage.getTotalPages());
-        model.addAttribute("totalElements", jellyfinUsersPage.getTotalElements());
+        model.addAttribute("totalPages", totalPages);
+        model.addAttribute("totalElements", slice.getTotalElements());
         model.addAttribute("sortBy", sortBy);
         model.addAttribute("direction", direction.toString());
-        model.addAttribute("hasNext", jellyfinUsersPage.hasNext());
-        model.addAttribute("hasPrevious", jellyfinUsersPage.hasPrevious());
+        model.addAttribute("hasNext", slice.hasNext());
+        model.addAttribute("hasPrevious", slice.hasPrevious());
+        model.addAttribute("nextCursor", slice.hasNext() ? slice.getNextCursor().encode() : null);
+        model.addAttribute("previousCursor", slice.hasPrevious() ? slice.getPreviousCursor().encode() : null);
+
+        // Every pagination link keeps the page size, sort order and search filter
+        UriComponentsBuilder pageUrl = UriComponentsBuilder.fromPath("/")
+                .queryParam("size", size)
+                .queryParam("sortBy", sortBy)
+                .queryParam("direction", direction);
+        addFilterParams(pageUrl, filter);
+        model.addAttribute("firstPageUrl", pageUrl.build().encode().toUriString());
+        model.addAttribute("previousPageUrl", slice.hasPrevious()
+                ? pageUrl(pageUrl, currentPage - 1, slice.getPreviousCursor(), 0) : null);
+        model.addAttribute("nextPageUrl", slice.hasNext()
+                ? pageUrl(pageUrl, currentPage + 1, slice.getNextCursor(), 0) : null);
+        model.addAttribute("pageLinks", pageLinks(pageUrl, slice, currentPage, totalPages));
         
         return "index";
     }
 
+    /**
+     * Links to the pages around the current one. Each seeks from the nearest cursor and skips the
+     * pages in between, so no link reads more than {@link #PAGE_LINK_RADIUS} pages of rows.
+     */
+    private static List<Map<String, Object>> pageLinks(UriComponentsBuilder pageUrl, UserDashboardSlice slice,
+                                                       int currentPage, int totalPages) {
+        var links = new java.util.ArrayList<Map<String, Object>>();
+        int first = slice.hasPrevious() ? Math.max(0, currentPage - PAGE_LINK_RADIUS) : currentPage;
+        int last = slice.hasNext() ? Math.min(totalPages - 1, currentPage + PAGE_LINK_RADIUS) : currentPage;
+        for (int number = first; number <= last; number++) {
+            var link = new java.util.HashMap<String, Object>();
+            link.put("page", number);
+            link.put("current", number == currentPage);
+            if (number < currentPage) {
+                link.put("url", pageUrl(pageUrl, number, slice.getPreviousCursor(), currentPage - number - 1));
+            } else if (number > currentPage) {
+                link.put("url", pageUrl(pageUrl, number, slice.getNextCursor(), number - currentPage - 1));
+            }
+            links.add(link);
+        }
+        return links;
+    }
+
+    private static String pageUrl(UriComponentsBuilder base, int page, UserPageCursor cursor, int skip) {
+        UriComponentsBuilder url = base.cloneBuilder()
+                .queryParam("page", page)
+                .queryParam("cursor", cursor.encode());
+        if (skip > 0) {
+            url.queryParam("skip", skip);
+        }
+        return url.build().encode().toUriString();
+    }
+
+    private static void addFilterParams(UriComponentsBuilder url, UserSearchFilter filter) {
+        if (filter.hasQuery()) {
+            url.queryParam("q", filter.getQ());
+        }
+        url.queryParamIfPresent("match", Optional.ofNullable(filter.getMatch()))
+                .queryParamIfPresent("disabled", Optional.ofNullable(filter.getDisabled()))
+                .queryParamIfPresent("hasExpiry", Optional.ofNullable(filter.getHasExpiry()))
+                .queryParamIfPresent("expiringWithinDays", Optional.ofNullable(filter.getExpiringWithinDays()));
+    }
+
     @GetMapping("/login")
     public String loginPage(Model model) {
         log.info("Serving login page");
@@ -97,10 +197,29 @@ public class UserController {
     }
 
     @PostMapping("/set-expiry")
-    public String setExpiry(@RequestParam String userId, @RequestParam String username, @RequestParam String date) {
-        log.info("Setting expiry for user: {} (ID: {}) to {} (timezone: {})", username, userId, date, defaultTimezone);
+    public String setExpiry(@RequestParam String serverId, @RequestParam String userId,
+                            @RequestParam String username, @RequestParam String date) {
+        saveExpiry(serverId, userId, username, date);
+        return "redirect:/";
+    }
+
+    /**
+     * Same as {@link #setExpiry} for the dashboard script, which shows the new expiry once it
+     * arrives on the event stream instead of reloading the page.
+     */
+    @PostMapping(path = "/set-expiry", headers = IN_PLACE_HEADER)
+    public ResponseEntity<Void> setExpiryInPlace(@RequestParam String serverId, @RequestParam String userId,
+                                                 @RequestParam String username, @RequestParam String date) {
+        saveExpiry(serverId, userId, username, date);
+        return ResponseEntity.noContent().build();
+    }
+
+    private void saveExpiry(String serverId, String userId, String username, String date) {
+        log.info("Setting expiry for user: {} (ID: {}, server: {}) to {} (timezone: {})",
+                username, userId, serverId, date, defaultTimezone);
         
         UserExpiration exp = new UserExpiration();
+        exp.setServerId(serverId);
         exp.setJellyfinUserId(userId);
         exp.setUsername(username);
         
@@ -114,31 +233,51 @@ public class UserController {
         exp.setExpiryDate(utcDateTime);
         exp.setProcessed(false);
         repository.save(exp);
+        dataVersionService.bump();
+        dashboardUpdateService.expiryChanged(serverId, List.of(userId), utcDateTime);
+        expirationScheduler.schedule(exp);
         
         log.info("Expiry set successfully for user: {} | User timezone ({}, {}): {} | Stored in UTC: {}", 
             username, defaultTimezone, userZoneDateTime.getZone(), userZoneDateTime, utcDateTime);
-        return "redirect:/";
     }
 
     @PostMapping("/toggle")
-    public String toggle(@RequestParam String userId, @RequestParam boolean disable) {
-        log.info("Toggling user {}: disable={}", userId, disable);
-        jellyfinService.updateDisableStatus(userId, disable);
+    public String toggle(@RequestParam String serverId, @RequestParam String userId, @RequestParam boolean disable) {
+        queueToggle(serverId, userId, disable);
+        return "redirect:/";
+    }
+
+    /**
+     * Same as {@link #toggle} for the dashboard script. Answers 202, since the change reaches
+     * Jellyfin, and the dashboards through the event stream, only once the outbox dispatches it.
+     */
+    @PostMapping(path = "/toggle", headers = IN_PLACE_HEADER)
+    public ResponseEntity<Void> toggleInPlace(@RequestParam String serverId, @RequestParam String userId,
+                                              @RequestParam boolean disable) {
+        queueToggle(serverId, userId, disable);
+        return ResponseEntity.accepted().build();
+    }
 
-        // If enabling the account, clear the expiry date from database
+    private void queueToggle(String serverId, String userId, boolean disable) {
+        log.info("Toggling user {} on server {}: disable={}", userId, serverId, disable);
+        // Applied to Jellyfin in the background; enabling also clears the expiry date
+        outbox.requestToggle(serverId, userId, disable);
         if (!disable) {
-            repository.deleteById(userId);
-            log.info("Cleared expiry for enabled user: {}", userId);
+            expirationScheduler.cancel(new UserExpirationKey(serverId, userId));
         }
-
-        return "redirect:/";
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "toggle"));
     }
 
     @PostMapping("/sync")
     public String syncUsers() {
         log.info("Manual sync triggered");
-        jellyfinService.syncAndGetAllUsers();
-        log.info("Manual sync completed");
+        try {
+            syncCoordinator.sync("manual");
+            log.info("Manual sync completed");
+        } catch (RuntimeException e) {
+            // Reported to open dashboards and through /api/sync/status
+            log.error("Manual sync failed: {}", e.getMessage());
+        }
         return "redirect:/";
     }
 }
@@ -0,0 +1,67 @@
+package com.hzwnrw.jellyfin.controller;
+
+import com.hzwnrw.jellyfin.dto.UserPageCursor;
+import com.hzwnrw.jellyfin.dto.UserSearchFilter;
+import com.hzwnrw.jellyfin.dto.UserSearchResponse;
+import com.hzwnrw.jellyfin.repository.JellyfinUserDashboardRepository;
+import com.hzwnrw.jellyfin.service.DataVersionService;
+import com.hzwnrw.jellyfin.service.JellyfinService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+public class UserSearchController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final JellyfinService jellyfinService;
+    private final DataVersionService dataVersionService;
+
+    /**
+     * Searches users by name, status and expiry, one keyset-paginated page at a time.
+     * Responses carry a strong ETag of the data version, and a matching If-None-Match is answered
+     * with 304 before the database is read. A response for expiringWithinDays depends on the clock
+     * as well as the data, so it is never validated.
+     */
+    @GetMapping
+    public ResponseEntity<UserSearchResponse> search(
+            @Valid @ModelAttribute UserSearchFilter filter,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "name") String sortBy,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
+        if (!JellyfinUserDashboardRepository.SORT_KEYS.containsKey(sortBy)) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Read before the data: a change in between only makes the next request miss, never serve stale data
+        String etag = filter.getExpiringWithinDays() == null
+                ? dataVersionService.currentVersion().map(version -> "\"users-" + version + "\"").orElse(null)
+                : null;
+        if (etag != null && request.checkNotModified(etag)) {
+            log.debug("User list unchanged at {}", etag);
+            return null;
+        }
+
+        log.debug("Searching users matching {} by {} {}", filter, sortBy, direction);
+        var slice = jellyfinService.getDashboardSlice(sortBy, direction, filter, Math.clamp(size, 1, MAX_PAGE_SIZE),
+                UserPageCursor.decode(cursor).orElse(null), 0);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(etag)
+                .body(UserSearchResponse.from(slice));
+    }
+}
@@ -0,0 +1,59 @@
+package com.hzwnrw.jellyfin.controller;
+
+import com.hzwnrw.jellyfin.dto.BulkStatusRequest;
+import com.hzwnrw.jellyfin.dto.BulkStatusResponse;
+import com.hzwnrw.jellyfin.event.UserDataChangedEvent;
+import com.hzwnrw.jellyfin.model.UserExpirationKey;
+import com.hzwnrw.jellyfin.scheduler.ExpirationScheduler;
+import com.hzwnrw.jellyfin.service.JellyfinService;
+import com.hzwnrw.jellyfin.service.PolicyChangeOutbox;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+public class UserStatusController {
+
+    private final JellyfinService jellyfinService;
+    private final PolicyChangeOutbox outbox;
+    private final ExpirationScheduler expirationScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Enables or disables a list of users of one server and reports the outcome per user.
+     * The changes are applied to Jellyfin right away; queued changes for the updated users are superseded.
+     */
+    @PostMapping("/status")
+    public ResponseEntity<BulkStatusResponse> updateStatus(@Valid @RequestBody BulkStatusRequest request) {
+        BulkStatusResponse response;
+        try {
+            response = jellyfinService.updateDisableStatus(request.getServerId(), request.getUserIds(), request.isDisable());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        List<String> updated = response.getResults().stream()
+                .filter(result -> result.outcome() == BulkStatusResponse.Outcome.UPDATED)
+                .map(BulkStatusResponse.UserStatusResult::userId)
+                .toList();
+        if (updated.isEmpty()) {
+            return ResponseEntity.ok(response);
+        }
+        eventPublisher.publishEvent(new UserDataChangedEvent(updated, "bulk-status"));
+        outbox.recordApplied(request.getServerId(), updated, request.isDisable());
+        // Same as a single toggle: enabled accounts no longer expire
+        if (!request.isDisable()) {
+            updated.forEach(userId -> expirationScheduler.cancel(new UserExpirationKey(request.getServerId(), userId)));
+        }
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,70 @@
+package com.hzwnrw.jellyfin.controller;
+
+import com.hzwnrw.jellyfin.dto.JellyfinWebhookEvent;
+import com.hzwnrw.jellyfin.service.JellyfinWebhookService;
+import com.hzwnrw.jellyfin.service.UserChangeQueue.Offer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+
+/**
+ * Receives notifications from the Jellyfin webhook plugin. Callers authenticate with the
+ * shared secret from {@code jellyfin.webhook.secret} in the {@value #SECRET_HEADER} header;
+ * the endpoint is disabled while no secret is configured.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/webhooks")
+public class WebhookController {
+
+    static final String SECRET_HEADER = "X-Webhook-Secret";
+
+    private final JellyfinWebhookService webhookService;
+    private final byte[] secret;
+
+    public WebhookController(JellyfinWebhookService webhookService,
+                             @Value("${jellyfin.webhook.secret:}") String secret) {
+        this.webhookService = webhookService;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PostMapping("/jellyfin/{serverId}")
+    public ResponseEntity<Void> receive(@PathVariable String serverId,
+                                        @RequestHeader(value = SECRET_HEADER, required = false) String providedSecret,
+                                        @RequestBody JellyfinWebhookEvent event) {
+        if (secret.length == 0) {
+            return ResponseEntity.notFound().build();
+        }
+        if (providedSecret == null
+                || !MessageDigest.isEqual(secret, providedSecret.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Rejected Jellyfin webhook for server {} with missing or wrong secret", serverId);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Optional<Offer> offer;
+        try {
+            offer = webhookService.submit(serverId, event);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+        if (offer.isPresent() && offer.get() == Offer.REJECTED) {
+            // Anything dropped here is reconciled by the next sync
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+}
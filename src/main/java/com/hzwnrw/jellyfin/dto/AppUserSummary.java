@@ -0,0 +1,24 @@
+package com.hzwnrw.jellyfin.dto;
+
+import com.hzwnrw.jellyfin.model.AppUser;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An app user without the password hash, as kept in the appUsers cache.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AppUserSummary {
+    private Long id;
+    private String username;
+    private String name;
+    private String email;
+    private String roles;
+
+    public static AppUserSummary from(AppUser user) {
+        return new AppUserSummary(user.getId(), user.getUsername(), user.getName(), user.getEmail(), user.getRoles());
+    }
+}
@@ -0,0 +1,20 @@
+package com.hzwnrw.jellyfin.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkStatusRequest {
+    @NotBlank(message = "Server ID is required")
+    private String serverId;
+
+    @NotEmpty(message = "At least one user ID is required")
+    @Size(max = 500, message = "At most 500 users can be updated at once")
+    private List<@NotBlank String> userIds;
+
+    private boolean disable;
+}
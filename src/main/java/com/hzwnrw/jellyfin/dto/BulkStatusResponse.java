@@ -0,0 +1,29 @@
+package com.hzwnrw.jellyfin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk enable/disable, with one entry per requested user in request order.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkStatusResponse {
+    private boolean disable;
+    private int updated;
+    private int failed;
+    private List<UserStatusResult> results;
+
+    public enum Outcome {
+        UPDATED,
+        NOT_FOUND,
+        FAILED
+    }
+
+    public record UserStatusResult(String userId, Outcome outcome, String error) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.hzwnrw.jellyfin.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * A change pushed to open dashboards, sent as one server-sent event named after its type.
+ * STATUS and EXPIRY carry the new state of some users of one server; SYNC reports a finished sync.
+ *
+ * @param type    what changed
+ * @param serverId server of the changed users, null for SYNC
+ * @param users   changed users, null for SYNC
+ * @param phase   final phase of the sync, null unless SYNC
+ * @param summary rows written by the sync, null unless SYNC or when it failed
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record DashboardUpdate(Type type, String serverId, List<UserState> users, String phase, SyncSummary summary) {
+
+    public enum Type {
+        STATUS,
+        EXPIRY,
+        SYNC;
+
+        public String eventName() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * New state of one user. For STATUS only {@code disabled} is set; for EXPIRY the expiry,
+     * formatted in the configured timezone, or neither when the expiry was cleared.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record UserState(String userId, Boolean disabled, String expiryDate, String expiryDateFormatted) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.hzwnrw.jellyfin.dto;
+
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.UserPolicy;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Lightweight view of a user read from the Jellyfin /Users payload.
+ * Only carries the fields we persist; the policy is kept as its raw JSON document.
+ */
+public record JellyfinUserRecord(
+        String id,
+        String name,
+        boolean isDisabled,
+        String authenticationProviderId,
+        String passwordResetProviderId,
+        String policyJson
+) {
+    public JellyfinUser toEntity(String serverId) {
+        UserPolicy policy = new UserPolicy();
+        policy.setDisabled(isDisabled);
+        policy.setAuthenticationProviderId(authenticationProviderId);
+        policy.setPasswordResetProviderId(passwordResetProviderId);
+
+        JellyfinUser user = new JellyfinUser();
+        user.setServerId(serverId);
+        user.setId(id);
+        user.setName(name);
+        user.setPolicy(policy);
+        user.setPolicyJson(policyJson);
+        user.setPolicySyncedAt(ZonedDateTime.now(ZoneOffset.UTC));
+        user.setContentHash(user.computeContentHash(policyJson));
+        return user;
+    }
+}
@@ -0,0 +1,16 @@
+package com.hzwnrw.jellyfin.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Body of a Jellyfin webhook-plugin notification. Only the fields needed to locate the
+ * affected user are read; configure the plugin's template to send at least these.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record JellyfinWebhookEvent(
+        @JsonProperty("NotificationType") String notificationType,
+        @JsonProperty("UserId") String userId,
+        @JsonProperty("NotificationUsername") String username
+) {
+}
@@ -0,0 +1,21 @@
+package com.hzwnrw.jellyfin.dto;
+
+import com.hzwnrw.jellyfin.scheduler.AdaptiveSyncInterval;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Current scheduled sync interval, when the next sync runs and the most recent interval decisions.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SyncScheduleResponse {
+    private long intervalSeconds;
+    private Instant nextRunAt;
+    private List<AdaptiveSyncInterval.DecisionRecord> recentDecisions;
+}
@@ -0,0 +1,28 @@
+package com.hzwnrw.jellyfin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * State of the running sync (if any) and the outcome of the last finished one.
+ * {@code serverPhases} holds the phase of each Jellyfin server in the running sync,
+ * or in the last one when nothing is running.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SyncStatusResponse {
+    private boolean running;
+    private String trigger;
+    private Instant startedAt;
+    private String phase;
+    private int processedUsers;
+    private Instant lastFinishedAt;
+    private String lastPhase;
+    private SyncSummary lastSummary;
+    private Map<String, String> serverPhases;
+}
@@ -0,0 +1,34 @@
+package com.hzwnrw.jellyfin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a Jellyfin user sync: how many rows were written, and why.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SyncSummary {
+    private int added;
+    private int changed;
+    private int removed;
+    private int unchanged;
+
+    public static SyncSummary empty() {
+        return new SyncSummary();
+    }
+
+    /**
+     * Sum of this summary and {@code other}, e.g. to combine the results of several servers.
+     */
+    public SyncSummary plus(SyncSummary other) {
+        return new SyncSummary(added + other.added, changed + other.changed,
+                removed + other.removed, unchanged + other.unchanged);
+    }
+
+    public boolean hasChanges() {
+        return added > 0 || changed > 0 || removed > 0;
+    }
+}
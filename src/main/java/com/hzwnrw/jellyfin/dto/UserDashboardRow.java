@@ -0,0 +1,21 @@
+package com.hzwnrw.jellyfin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.ZonedDateTime;
+
+/**
+ * One row of the user dashboard: a Jellyfin user with its scheduled expiry, if any.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserDashboardRow {
+    private String serverId;
+    private String id;
+    private String name;
+    private boolean disabled;
+    private ZonedDateTime expiryDate;  // UTC, null when no expiry is set
+}
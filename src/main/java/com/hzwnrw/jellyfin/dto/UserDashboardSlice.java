@@ -0,0 +1,26 @@
+package com.hzwnrw.jellyfin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One keyset-paginated page of the user dashboard with the cursors of its neighbours.
+ */
+@Data
+@AllArgsConstructor
+public class UserDashboardSlice {
+    private List<UserDashboardRow> content;
+    private UserPageCursor nextCursor;      // null on the last page
+    private UserPageCursor previousCursor;  // null on the first page
+    private long totalElements;             // cached, may briefly lag behind syncs
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+}
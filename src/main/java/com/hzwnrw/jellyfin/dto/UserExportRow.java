@@ -0,0 +1,13 @@
+package com.hzwnrw.jellyfin.dto;
+
+import java.time.Instant;
+
+/**
+ * One row of the user export: a Jellyfin user with its expiry, if any.
+ *
+ * @param expiryDate      null when no expiry is set
+ * @param expiryProcessed whether Jellyfin has accepted the expiry's disable, null when no expiry is set
+ */
+public record UserExportRow(String serverId, String id, String name, boolean disabled,
+                            Instant expiryDate, Boolean expiryProcessed) {
+}
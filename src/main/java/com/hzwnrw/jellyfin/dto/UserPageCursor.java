@@ -0,0 +1,75 @@
+package com.hzwnrw.jellyfin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Position in the sorted user list: the sort key of the first or last row of a page.
+ * Handed to the browser as an opaque URL-safe token.
+ */
+@Data
+@AllArgsConstructor
+public class UserPageCursor {
+    private static final int VERSION = 1;
+
+    private String sortBy;
+    private Sort.Direction direction;
+    private boolean before;     // true: the rows before keyValues, false: the rows after them
+    private List<String> keyValues;
+
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(sortBy);
+            out.writeBoolean(direction.isAscending());
+            out.writeBoolean(before);
+            out.writeByte(keyValues.size());
+            for (String value : keyValues) {
+                out.writeUTF(value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Empty for a blank, tampered or outdated token, which callers treat as the first page.
+     */
+    public static Optional<UserPageCursor> decode(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (in.readByte() != VERSION) {
+                return Optional.empty();
+            }
+            String sortBy = in.readUTF();
+            Sort.Direction direction = in.readBoolean() ? Sort.Direction.ASC : Sort.Direction.DESC;
+            boolean before = in.readBoolean();
+            int size = in.readByte();
+            List<String> keyValues = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                keyValues.add(in.readUTF());
+            }
+            return in.read() == -1
+                    ? Optional.of(new UserPageCursor(sortBy, direction, before, keyValues))
+                    : Optional.empty();
+        } catch (IOException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
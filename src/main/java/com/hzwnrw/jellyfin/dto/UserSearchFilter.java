@@ -0,0 +1,35 @@
+package com.hzwnrw.jellyfin.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Optional criteria for the user list, bound from query parameters. Unset fields do not filter.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSearchFilter {
+    public enum Match { PREFIX, CONTAINS }
+
+    @Size(max = 255)
+    private String q;                       // user name to search for
+    private Match match;                    // how q is matched, PREFIX when unset
+    private Boolean disabled;
+    private Boolean hasExpiry;
+    @Min(0)
+    @Max(3650)
+    private Integer expiringWithinDays;     // unprocessed expiry at most this many days from now
+
+    public boolean hasQuery() {
+        return q != null && !q.isBlank();
+    }
+
+    public boolean isEmpty() {
+        return !hasQuery() && disabled == null && hasExpiry == null && expiringWithinDays == null;
+    }
+}
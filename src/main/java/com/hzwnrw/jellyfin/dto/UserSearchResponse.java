@@ -0,0 +1,27 @@
+package com.hzwnrw.jellyfin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of a user search for the REST API. Pass a cursor back as {@code cursor} to get the neighbouring page.
+ */
+@Data
+@AllArgsConstructor
+public class UserSearchResponse {
+    private List<UserDashboardRow> content;
+    private long totalElements;
+    private String nextCursor;      // null on the last page
+    private String previousCursor;  // null on the first page
+
+    public static UserSearchResponse from(UserDashboardSlice slice) {
+        return new UserSearchResponse(
+                slice.getContent(),
+                slice.getTotalElements(),
+                slice.hasNext() ? slice.getNextCursor().encode() : null,
+                slice.hasPrevious() ? slice.getPreviousCursor().encode() : null
+        );
+    }
+}
@@ -0,0 +1,17 @@
+package com.hzwnrw.jellyfin.event;
+
+import java.util.List;
+
+/**
+ * Published when users are changed from this application rather than discovered by a sync,
+ * e.g. an admin toggling an account. A bulk change publishes one event for all of its users.
+ *
+ * @param userIds Jellyfin ids of the changed users
+ * @param source short description of what made the change
+ */
+public record UserDataChangedEvent(List<String> userIds, String source) {
+
+    public UserDataChangedEvent(String userId, String source) {
+        this(List.of(userId), source);
+    }
+}
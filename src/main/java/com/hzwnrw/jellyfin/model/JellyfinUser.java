@@ -1,29 +1,98 @@
 package com.hzwnrw.jellyfin.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.hzwnrw.jellyfin.utils.ContentHashUtils;
+import com.hzwnrw.jellyfin.utils.PolicyDocumentUtils;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Embedded;
 import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Data;
 
+import java.time.ZonedDateTime;
+
 @Entity
 @Data
-@Table(name = "jellyfin_user")
+@Table(name = "jellyfin_user", indexes = {
+        @Index(name = "idx_jellyfin_user_name", columnList = "deleted, name, server_id, id"),
+        @Index(name = "idx_jellyfin_user_id", columnList = "deleted, id, server_id"),
+        @Index(name = "idx_jellyfin_user_disabled", columnList = "deleted, policy_is_disabled, name, server_id, id")})
+@IdClass(JellyfinUserKey.class)
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class JellyfinUser {
+    // Jellyfin server this user lives on; not part of the Jellyfin API payload
+    @Id
+    @Column(name = "server_id", nullable = false, length = 64)
+    private String serverId;
+
     @Id
     @Column(name = "id", nullable = false, length = 255)
     @JsonProperty("Id")
     private String id;
 
-    @Column(name = "name", length = 255)
+    @Column(name = "name", nullable = false, length = 255)
     @JsonProperty("Name")
     private String name;
 
     @Embedded
     @JsonProperty("Policy")
     private UserPolicy policy = new UserPolicy();
+
+    // Complete Jellyfin policy document as gzip-compressed JSON, so a toggle can post it back without reading it first
+    @Column(name = "policy_document", columnDefinition = "BLOB")
+    @JsonIgnore
+    private byte[] policyDocument;
+
+    // When policy_document was last read from Jellyfin
+    @Column(name = "policy_synced_at")
+    @JsonIgnore
+    private ZonedDateTime policySyncedAt;
+
+    // Hash of the synced content, used to skip writes for unchanged users
+    @Column(name = "content_hash", length = 64)
+    @JsonIgnore
+    private String contentHash;
+
+    // Set when the user no longer exists in Jellyfin
+    @Column(name = "deleted", nullable = false)
+    @JsonIgnore
+    private boolean deleted = false;
+
+    @JsonIgnore
+    public String getPolicyJson() {
+        return policyDocument == null ? null : PolicyDocumentUtils.decompress(policyDocument);
+    }
+
+    @JsonIgnore
+    public void setPolicyJson(String policyJson) {
+        this.policyDocument = policyJson == null ? null : PolicyDocumentUtils.compress(policyJson);
+    }
+
+    /**
+     * Hash over every field that is synced from Jellyfin.
+     */
+    public String computeContentHash() {
+        return computeContentHash(getPolicyJson());
+    }
+
+    /**
+     * Same as {@link #computeContentHash()} for a caller that still has the uncompressed policy document.
+     */
+    public String computeContentHash(String policyJson) {
+        if (policy == null) {
+            return ContentHashUtils.sha256Hex(name, null, null, null, policyJson);
+        }
+        return ContentHashUtils.sha256Hex(
+                name,
+                Boolean.toString(policy.isDisabled()),
+                policy.getAuthenticationProviderId(),
+                policy.getPasswordResetProviderId(),
+                policyJson
+        );
+    }
 }
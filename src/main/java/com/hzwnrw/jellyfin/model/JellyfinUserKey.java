@@ -0,0 +1,18 @@
+package com.hzwnrw.jellyfin.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Primary key of {@link JellyfinUser}: user ids are only unique within one Jellyfin server.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JellyfinUserKey implements Serializable {
+    private String serverId;
+    private String id;
+}
@@ -0,0 +1,70 @@
+package com.hzwnrw.jellyfin.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.ZonedDateTime;
+
+/**
+ * A disable or enable that still has to reach Jellyfin. Written in the same transaction as the
+ * change that caused it and dispatched in the background, so an unreachable Jellyfin delays the
+ * change instead of losing it.
+ */
+@Entity
+@Data
+@Table(name = "policy_change_outbox",
+        indexes = @Index(name = "idx_policy_change_outbox_due", columnList = "status, next_attempt_at, id"))
+public class PolicyChange {
+
+    public enum Status {
+        PENDING,
+        DONE,
+        // Replaced by a later change for the same user before it was dispatched
+        SUPERSEDED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "server_id", nullable = false, length = 64)
+    private String serverId;
+
+    @Column(name = "jellyfin_user_id", nullable = false, length = 255)
+    private String jellyfinUserId;
+
+    @Column(name = "target_disabled", nullable = false)
+    private boolean targetDisabled;
+
+    // What asked for the change, e.g. "toggle" or "expiration"
+    @Column(name = "source", nullable = false, length = 32)
+    private String source;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16, columnDefinition = "VARCHAR(16)")
+    private Status status = Status.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private ZonedDateTime nextAttemptAt;  // Always stored in UTC
+
+    @Column(name = "created_at", nullable = false)
+    private ZonedDateTime createdAt;  // Always stored in UTC
+
+    @Column(name = "dispatched_at")
+    private ZonedDateTime dispatchedAt;
+
+    @Column(name = "last_error", length = 512)
+    private String lastError;
+}
@@ -2,15 +2,23 @@ package com.hzwnrw.jellyfin.model;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
 import jakarta.persistence.Column;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Data;
 import java.time.ZonedDateTime;
 
 @Entity
 @Data
-@Table(name = "user_expiration")
+@Table(name = "user_expiration",
+        indexes = @Index(name = "idx_user_expiration_due", columnList = "processed, expiry_date, server_id, jellyfin_user_id"))
+@IdClass(UserExpirationKey.class)
 public class UserExpiration {
+    @Id
+    @Column(name = "server_id", nullable = false, length = 64)
+    private String serverId;
+
     @Id
     @Column(name = "jellyfin_user_id", nullable = false, length = 255)
     private String jellyfinUserId;
@@ -22,5 +30,8 @@ public class UserExpiration {
     private ZonedDateTime expiryDate;  // Always stored in UTC
 
     @Column(name = "processed", nullable = false)
-    private boolean processed = false;
+    private boolean processed = false;  // Set once Jellyfin has accepted the disable
+
+    @Column(name = "disable_queued", nullable = false)
+    private boolean disableQueued = false;  // A disable is in the outbox and not yet accepted
 }
@@ -0,0 +1,18 @@
+package com.hzwnrw.jellyfin.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Primary key of {@link UserExpiration}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserExpirationKey implements Serializable {
+    private String serverId;
+    private String jellyfinUserId;
+}
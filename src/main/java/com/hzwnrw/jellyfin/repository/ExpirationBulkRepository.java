@@ -0,0 +1,15 @@
+package com.hzwnrw.jellyfin.repository;
+
+import com.hzwnrw.jellyfin.model.UserExpiration;
+
+import java.util.Collection;
+
+/**
+ * Bulk write operations for user_expiration that bypass JPA's per-row merge.
+ */
+public interface ExpirationBulkRepository {
+    /**
+     * Insert or update all given expirations using batched INSERT ... ON DUPLICATE KEY UPDATE
+     */
+    void upsertAll(Collection<UserExpiration> expirations);
+}
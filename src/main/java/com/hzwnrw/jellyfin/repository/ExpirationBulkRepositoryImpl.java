@@ -0,0 +1,54 @@
+package com.hzwnrw.jellyfin.repository;
+
+import com.hzwnrw.jellyfin.model.UserExpiration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
+
+@Slf4j
+public class ExpirationBulkRepositoryImpl implements ExpirationBulkRepository {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO user_expiration (server_id, jellyfin_user_id, username, expiry_date, processed, disable_queued)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                username = VALUES(username),
+                expiry_date = VALUES(expiry_date),
+                processed = VALUES(processed),
+                disable_queued = VALUES(disable_queued)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public ExpirationBulkRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                        @Value("${app.persistence.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void upsertAll(Collection<UserExpiration> expirations) {
+        if (expirations.isEmpty()) {
+            return;
+        }
+        log.debug("Upserting {} expirations in batches of {}", expirations.size(), batchSize);
+        jdbcTemplate.batchUpdate(UPSERT_SQL, expirations, batchSize, (ps, expiration) -> {
+            ps.setString(1, expiration.getServerId());
+            ps.setString(2, expiration.getJellyfinUserId());
+            ps.setString(3, expiration.getUsername());
+            // Bound the same way Hibernate binds ZonedDateTime to a TIMESTAMP column
+            if (expiration.getExpiryDate() != null) {
+                ps.setTimestamp(4, Timestamp.from(expiration.getExpiryDate().toInstant()));
+            } else {
+                ps.setNull(4, Types.TIMESTAMP);
+            }
+            ps.setBoolean(5, expiration.isProcessed());
+            ps.setBoolean(6, expiration.isDisableQueued());
+        });
+    }
+}
@@ -1,12 +1,95 @@
 package com.hzwnrw.jellyfin.repository;
 
 import com.hzwnrw.jellyfin.model.UserExpiration;
+import com.hzwnrw.jellyfin.model.UserExpirationKey;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Predicate;
 
-public interface ExpirationRepository extends JpaRepository<UserExpiration, String> {
-    List<UserExpiration> findByProcessedFalse();
-    List<UserExpiration> findByProcessedFalseAndExpiryDateLessThanEqual(ZonedDateTime expiryDate);
+public interface ExpirationRepository extends JpaRepository<UserExpiration, UserExpirationKey>, ExpirationBulkRepository {
+    /**
+     * First page of unprocessed expirations due by the given time whose disable is not queued yet,
+     * in (expiry date, key) order.
+     * Served by idx_user_expiration_due; the constant processed column leads the ORDER BY so the
+     * database reads rows in index order instead of sorting the whole due range.
+     */
+    @Query("SELECT e FROM UserExpiration e WHERE e.processed = false AND e.expiryDate <= :dueBy "
+            + "AND e.disableQueued = false "
+            + "ORDER BY e.processed, e.expiryDate, e.serverId, e.jellyfinUserId")
+    List<UserExpiration> findFirstDue(@Param("dueBy") ZonedDateTime dueBy, Pageable pageable);
+
+    /**
+     * Next page of unprocessed expirations due by the given time whose disable is not queued yet,
+     * after the given (expiry date, key) position
+     */
+    @Query("SELECT e FROM UserExpiration e WHERE e.processed = false AND e.expiryDate <= :dueBy "
+            + "AND e.disableQueued = false "
+            // The redundant >= bound lets the database seek the index instead of evaluating the OR per row
+            + "AND e.expiryDate >= :afterDate "
+            + "AND (e.expiryDate > :afterDate OR (e.expiryDate = :afterDate AND (e.serverId > :afterServerId "
+            + "OR (e.serverId = :afterServerId AND e.jellyfinUserId > :afterUserId)))) "
+            + "ORDER BY e.processed, e.expiryDate, e.serverId, e.jellyfinUserId")
+    List<UserExpiration> findDueAfter(@Param("dueBy") ZonedDateTime dueBy,
+                                      @Param("afterDate") ZonedDateTime afterDate,
+                                      @Param("afterServerId") String afterServerId,
+                                      @Param("afterUserId") String afterUserId,
+                                      Pageable pageable);
+
+    /**
+     * Reads unprocessed expirations due by the given time whose disable is not queued yet in keyset-paginated chunks of {@code chunkSize},
+     * so memory use does not grow with the backlog. Stops early when {@code chunkConsumer} returns false.
+     */
+    default void forEachDueChunk(ZonedDateTime dueBy, int chunkSize, Predicate<List<UserExpiration>> chunkConsumer) {
+        Pageable page = PageRequest.ofSize(chunkSize);
+        List<UserExpiration> chunk = findFirstDue(dueBy, page);
+        while (!chunk.isEmpty() && chunkConsumer.test(chunk) && chunk.size() == chunkSize) {
+            UserExpiration last = chunk.getLast();
+            chunk = findDueAfter(dueBy, last.getExpiryDate(), last.getServerId(), last.getJellyfinUserId(), page);
+        }
+    }
+
+    /**
+     * Marks the given expirations of one server as having a queued disable if they are still unprocessed,
+     * not queued and expire at {@code expiryDate}, so an expiry moved since it was read is left for its new date
+     */
+    @Modifying
+    @Query("UPDATE UserExpiration e SET e.disableQueued = true "
+            + "WHERE e.serverId = :serverId AND e.jellyfinUserId IN :ids "
+            + "AND e.expiryDate = :expiryDate AND e.processed = false AND e.disableQueued = false")
+    int markDisableQueued(@Param("serverId") String serverId, @Param("ids") Collection<String> ids,
+                          @Param("expiryDate") ZonedDateTime expiryDate);
+
+    /**
+     * Ids among the given ones of expirations of one server that have a queued disable and expire at {@code expiryDate}
+     */
+    @Query("SELECT e.jellyfinUserId FROM UserExpiration e "
+            + "WHERE e.serverId = :serverId AND e.jellyfinUserId IN :ids "
+            + "AND e.expiryDate = :expiryDate AND e.disableQueued = true")
+    List<String> findDisableQueuedIds(@Param("serverId") String serverId, @Param("ids") Collection<String> ids,
+                                      @Param("expiryDate") ZonedDateTime expiryDate);
+
+    /**
+     * Marks the given expirations of one server processed if their disable is still queued. An expiry
+     * re-dated in the meantime was saved without the flag and is left for its new date.
+     */
+    @Modifying
+    @Query("UPDATE UserExpiration e SET e.processed = true, e.disableQueued = false "
+            + "WHERE e.serverId = :serverId AND e.jellyfinUserId IN :ids AND e.disableQueued = true")
+    int markDisableApplied(@Param("serverId") String serverId, @Param("ids") Collection<String> ids);
+
+    /**
+     * Clears the queued disable of the given expirations of one server, so the next expiration run queues them again
+     */
+    @Modifying
+    @Query("UPDATE UserExpiration e SET e.disableQueued = false "
+            + "WHERE e.serverId = :serverId AND e.jellyfinUserId IN :ids AND e.disableQueued = true")
+    int reopenDisableQueued(@Param("serverId") String serverId, @Param("ids") Collection<String> ids);
 }
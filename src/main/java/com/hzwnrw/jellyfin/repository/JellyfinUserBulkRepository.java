@@ -0,0 +1,15 @@
+package com.hzwnrw.jellyfin.repository;
+
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+
+import java.util.Collection;
+
+/**
+ * Bulk write operations for jellyfin_user that bypass JPA's per-row merge.
+ */
+public interface JellyfinUserBulkRepository {
+    /**
+     * Insert or update all given users using batched INSERT ... ON DUPLICATE KEY UPDATE
+     */
+    void upsertAll(Collection<JellyfinUser> users);
+}
@@ -0,0 +1,61 @@
+package com.hzwnrw.jellyfin.repository;
+
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.UserPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+
+@Slf4j
+public class JellyfinUserBulkRepositoryImpl implements JellyfinUserBulkRepository {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO jellyfin_user (server_id, id, name, policy_is_disabled, policy_authentication_provider_id,
+                                       policy_password_reset_provider_id, policy_document, policy_synced_at,
+                                       content_hash, deleted)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                name = VALUES(name),
+                policy_is_disabled = VALUES(policy_is_disabled),
+                policy_authentication_provider_id = VALUES(policy_authentication_provider_id),
+                policy_password_reset_provider_id = VALUES(policy_password_reset_provider_id),
+                policy_document = VALUES(policy_document),
+                policy_synced_at = VALUES(policy_synced_at),
+                content_hash = VALUES(content_hash),
+                deleted = VALUES(deleted)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public JellyfinUserBulkRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                          @Value("${app.persistence.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void upsertAll(Collection<JellyfinUser> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        log.debug("Upserting {} Jellyfin users in batches of {}", users.size(), batchSize);
+        jdbcTemplate.batchUpdate(UPSERT_SQL, users, batchSize, (ps, user) -> {
+            UserPolicy policy = user.getPolicy() != null ? user.getPolicy() : new UserPolicy();
+            ps.setString(1, user.getServerId());
+            ps.setString(2, user.getId());
+            ps.setString(3, user.getName());
+            ps.setBoolean(4, policy.isDisabled());
+            ps.setString(5, policy.getAuthenticationProviderId());
+            ps.setString(6, policy.getPasswordResetProviderId());
+            ps.setBytes(7, user.getPolicyDocument());
+            ps.setTimestamp(8, user.getPolicySyncedAt() != null
+                    ? Timestamp.from(user.getPolicySyncedAt().toInstant()) : null);
+            ps.setString(9, user.getContentHash());
+            ps.setBoolean(10, user.isDeleted());
+        });
+    }
+}
@@ -0,0 +1,45 @@
+package com.hzwnrw.jellyfin.repository;
+
+import com.hzwnrw.jellyfin.dto.UserDashboardRow;
+import com.hzwnrw.jellyfin.dto.UserPageCursor;
+import com.hzwnrw.jellyfin.dto.UserSearchFilter;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset (seek) pagination and search over the user dashboard, so a page costs the same however deep it is.
+ */
+public interface JellyfinUserDashboardRepository {
+    /**
+     * Columns the dashboard can be sorted by, each with the key that orders it uniquely
+     */
+    Map<String, List<String>> SORT_KEYS = Map.of(
+            "name", List.of("name", "serverId", "id"),
+            "id", List.of("id", "serverId"));
+
+    /**
+     * Up to {@code limit} users that still exist in Jellyfin and match the filter, each with its expiry,
+     * in {@code sortBy} order. Without a cursor the list starts at the top; otherwise it starts next to
+     * the cursor position and {@code skip} rows beyond it. Rows before a cursor are returned nearest-first.
+     */
+    List<UserDashboardRow> findDashboardSlice(String sortBy, Sort.Direction direction, UserSearchFilter filter,
+                                              UserPageCursor cursor, int skip, int limit);
+
+    /**
+     * Number of users that still exist in Jellyfin and match the filter
+     */
+    long countDashboard(UserSearchFilter filter);
+
+    /**
+     * Values of the sort key of a row, in {@link #SORT_KEYS} order
+     */
+    static List<String> keyValues(String sortBy, UserDashboardRow row) {
+        return switch (sortBy) {
+            case "name" -> List.of(row.getName(), row.getServerId(), row.getId());
+            case "id" -> List.of(row.getId(), row.getServerId());
+            default -> throw new IllegalArgumentException("Unsupported sort column: " + sortBy);
+        };
+    }
+}
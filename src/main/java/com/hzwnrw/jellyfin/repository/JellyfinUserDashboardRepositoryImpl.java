@@ -0,0 +1,120 @@
+package com.hzwnrw.jellyfin.repository;
+
+import com.hzwnrw.jellyfin.dto.UserDashboardRow;
+import com.hzwnrw.jellyfin.dto.UserPageCursor;
+import com.hzwnrw.jellyfin.dto.UserSearchFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Sort;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class JellyfinUserDashboardRepositoryImpl implements JellyfinUserDashboardRepository {
+
+    private static final String SELECT = "SELECT new com.hzwnrw.jellyfin.dto.UserDashboardRow(u.serverId, u.id, "
+            + "u.name, u.policy.isDisabled, e.expiryDate) FROM JellyfinUser u";
+    private static final String EXPIRATION_JOIN =
+            " UserExpiration e ON e.serverId = u.serverId AND e.jellyfinUserId = u.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UserDashboardRow> findDashboardSlice(String sortBy, Sort.Direction direction, UserSearchFilter filter,
+                                                     UserPageCursor cursor, int skip, int limit) {
+        List<String> key = SORT_KEYS.get(sortBy);
+        if (key == null) {
+            throw new IllegalArgumentException("Unsupported sort column: " + sortBy);
+        }
+        // Reading the rows before a cursor walks the index the other way
+        boolean ascending = direction.isAscending() != (cursor != null && cursor.isBefore());
+        String order = ascending ? " ASC" : " DESC";
+
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder jpql = new StringBuilder(SELECT).append(joinClause(filter)).append(whereClause(filter, parameters));
+        if (cursor != null) {
+            String op = ascending ? " > " : " < ";
+            // The redundant bound on the leading column lets the database seek the index instead of
+            // evaluating the OR per row. A user without a name is stored with an empty one, so no key column is null.
+            jpql.append(" AND u.").append(key.getFirst()).append(ascending ? " >= " : " <= ").append(":k0")
+                    .append(" AND ").append(seekCondition(key, 0, op));
+            for (int i = 0; i < key.size(); i++) {
+                parameters.put("k" + i, cursor.getKeyValues().get(i));
+            }
+        }
+        // The constant deleted column leads the ORDER BY so the rows come straight from the index
+        jpql.append(" ORDER BY u.deleted").append(order)
+                .append(key.stream().map(column -> ", u." + column + order).collect(Collectors.joining()));
+
+        TypedQuery<UserDashboardRow> query = entityManager.createQuery(jpql.toString(), UserDashboardRow.class);
+        parameters.forEach(query::setParameter);
+        return query.setFirstResult(skip).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public long countDashboard(UserSearchFilter filter) {
+        Map<String, Object> parameters = new HashMap<>();
+        boolean joinExpirations = filter.getHasExpiry() != null || filter.getExpiringWithinDays() != null;
+        String jpql = "SELECT COUNT(u) FROM JellyfinUser u" + (joinExpirations ? joinClause(filter) : "")
+                + whereClause(filter, parameters);
+        TypedQuery<Long> query = entityManager.createQuery(jpql, Long.class);
+        parameters.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    /**
+     * An inner join when the filter needs an expiry, so the database can start from idx_user_expiration_due.
+     * A name prefix is the narrower start, and the outer join keeps the users as the driving table.
+     */
+    private static String joinClause(UserSearchFilter filter) {
+        boolean requiresExpiry = Boolean.TRUE.equals(filter.getHasExpiry()) || filter.getExpiringWithinDays() != null;
+        boolean namePrefix = filter.hasQuery() && filter.getMatch() != UserSearchFilter.Match.CONTAINS;
+        return (requiresExpiry && !namePrefix ? " JOIN" : " LEFT JOIN") + EXPIRATION_JOIN;
+    }
+
+    private static String whereClause(UserSearchFilter filter, Map<String, Object> parameters) {
+        StringBuilder where = new StringBuilder(" WHERE u.deleted = false");
+        if (filter.hasQuery()) {
+            // A prefix is a range of idx_jellyfin_user_name; a substring has to scan it.
+            // Case-insensitive through the column's collation on MariaDB.
+            String pattern = escapeLike(filter.getQ().strip()) + "%";
+            where.append(" AND u.name LIKE :name ESCAPE '!'");
+            parameters.put("name", filter.getMatch() == UserSearchFilter.Match.CONTAINS ? "%" + pattern : pattern);
+        }
+        if (filter.getDisabled() != null) {
+            where.append(" AND u.policy.isDisabled = :disabled");
+            parameters.put("disabled", filter.getDisabled());
+        }
+        if (filter.getHasExpiry() != null) {
+            where.append(filter.getHasExpiry() ? " AND e.serverId IS NOT NULL" : " AND e.serverId IS NULL");
+        }
+        if (filter.getExpiringWithinDays() != null) {
+            where.append(" AND e.processed = false AND e.expiryDate <= :expiringBy");
+            parameters.put("expiringBy", ZonedDateTime.now(ZoneOffset.UTC).plusDays(filter.getExpiringWithinDays()));
+        }
+        return where.toString();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    /**
+     * (a, b, c) > (:k0, :k1, :k2) spelled out, since JPQL has no row value comparison
+     */
+    private static String seekCondition(List<String> key, int index, String op) {
+        String column = "u." + key.get(index);
+        String param = ":k" + index;
+        if (index == key.size() - 1) {
+            return column + op + param;
+        }
+        return "(" + column + op + param + " OR (" + column + " = " + param + " AND "
+                + seekCondition(key, index + 1, op) + "))";
+    }
+}
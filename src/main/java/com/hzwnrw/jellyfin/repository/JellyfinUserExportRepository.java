@@ -0,0 +1,16 @@
+package com.hzwnrw.jellyfin.repository;
+
+import com.hzwnrw.jellyfin.dto.UserExportRow;
+
+import java.util.function.Consumer;
+
+/**
+ * Full read of jellyfin_user with user_expiration for exports, bypassing the persistence context.
+ */
+public interface JellyfinUserExportRepository {
+    /**
+     * Hand every user that still exists in Jellyfin, with its expiry, to {@code sink} in primary key order
+     * as rows arrive from a forward-only cursor, and return how many there were
+     */
+    long streamExport(Consumer<UserExportRow> sink);
+}
@@ -0,0 +1,58 @@
+package com.hzwnrw.jellyfin.repository;
+
+import com.hzwnrw.jellyfin.dto.UserExportRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Slf4j
+public class JellyfinUserExportRepositoryImpl implements JellyfinUserExportRepository {
+
+    private static final String EXPORT_SQL = """
+            SELECT u.server_id, u.id, u.name, u.policy_is_disabled, e.expiry_date, e.processed
+            FROM jellyfin_user u
+            LEFT JOIN user_expiration e ON e.server_id = u.server_id AND e.jellyfin_user_id = u.id
+            WHERE u.deleted = FALSE
+            ORDER BY u.server_id, u.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    public JellyfinUserExportRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                            @Value("${app.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public long streamExport(Consumer<UserExportRow> sink) {
+        AtomicLong rows = new AtomicLong();
+        // With a fetch size, MariaDB Connector/J reads the result set in chunks instead of buffering all of it
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            Timestamp expiryDate = rs.getTimestamp("expiry_date");
+            sink.accept(new UserExportRow(
+                    rs.getString("server_id"),
+                    rs.getString("id"),
+                    rs.getString("name"),
+                    rs.getBoolean("policy_is_disabled"),
+                    expiryDate != null ? expiryDate.toInstant() : null,
+                    rs.getObject("processed", Boolean.class)));
+            rows.incrementAndGet();
+        });
+        log.debug("Exported {} Jellyfin users", rows.get());
+        return rows.get();
+    }
+}
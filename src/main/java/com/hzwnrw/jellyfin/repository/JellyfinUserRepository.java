@@ -1,15 +1,66 @@
 package com.hzwnrw.jellyfin.repository;
 
 import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.JellyfinUserKey;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
 
-public interface JellyfinUserRepository extends JpaRepository<JellyfinUser, String> {
+import java.util.Collection;
+import java.util.List;
+
+public interface JellyfinUserRepository extends JpaRepository<JellyfinUser, JellyfinUserKey>, JellyfinUserBulkRepository,
+        JellyfinUserDashboardRepository, JellyfinUserExportRepository {
     /**
      * Find all users with pagination and sorting support
      */
     @NonNull
     Page<JellyfinUser> findAll(@NonNull Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * Find users that still exist in Jellyfin, with pagination and sorting support
+     */
+    Page<JellyfinUser> findByDeletedFalse(Pageable pageable);
+
+    /**
+     * Number of users that still exist in Jellyfin
+     */
+    long countByDeletedFalse();
+
+    /**
+     * Find all users that still exist in Jellyfin
+     */
+    List<JellyfinUser> findByDeletedFalse();
+
+    /**
+     * Lightweight view of the given rows of one server (including soft-deleted ones) used to diff a sync batch
+     */
+    @Query("SELECT u.id AS id, u.contentHash AS contentHash, u.deleted AS deleted FROM JellyfinUser u "
+            + "WHERE u.serverId = :serverId AND u.id IN :ids")
+    List<SyncSnapshot> findSyncSnapshotByIdIn(@Param("serverId") String serverId, @Param("ids") Collection<String> ids);
+
+    /**
+     * IDs of users of one server that still exist in Jellyfin
+     */
+    @Query("SELECT u.id FROM JellyfinUser u WHERE u.serverId = :serverId AND u.deleted = false")
+    List<String> findActiveIds(@Param("serverId") String serverId);
+
+    /**
+     * Soft-delete users of one server that are no longer returned by Jellyfin
+     */
+    @Modifying
+    @Query("UPDATE JellyfinUser u SET u.deleted = true WHERE u.serverId = :serverId AND u.id IN :ids")
+    int markDeleted(@Param("serverId") String serverId, @Param("ids") Collection<String> ids);
+
+    interface SyncSnapshot {
+        String getId();
+
+        String getContentHash();
+
+        boolean isDeleted();
+    }
+}
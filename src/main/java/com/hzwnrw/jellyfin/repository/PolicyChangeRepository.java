@@ -0,0 +1,53 @@
+package com.hzwnrw.jellyfin.repository;
+
+import com.hzwnrw.jellyfin.model.PolicyChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface PolicyChangeRepository extends JpaRepository<PolicyChange, Long> {
+
+    /**
+     * Pending changes whose next attempt is due, oldest first
+     */
+    @Query("""
+            SELECT c FROM PolicyChange c
+            WHERE c.status = com.hzwnrw.jellyfin.model.PolicyChange.Status.PENDING AND c.nextAttemptAt <= :now
+            ORDER BY c.id""")
+    List<PolicyChange> findDue(@Param("now") ZonedDateTime now, Pageable pageable);
+
+    /**
+     * Marks pending changes for the same user that are older than {@code beforeId} as superseded.
+     */
+    @Modifying
+    @Query("""
+            UPDATE PolicyChange c SET c.status = com.hzwnrw.jellyfin.model.PolicyChange.Status.SUPERSEDED
+            WHERE c.status = com.hzwnrw.jellyfin.model.PolicyChange.Status.PENDING
+              AND c.serverId = :serverId AND c.jellyfinUserId = :userId AND c.id < :beforeId""")
+    int supersedeOlder(@Param("serverId") String serverId, @Param("userId") String userId,
+                       @Param("beforeId") long beforeId);
+
+    /**
+     * Marks every pending change for the given users of one server as superseded.
+     */
+    @Modifying
+    @Query("""
+            UPDATE PolicyChange c SET c.status = com.hzwnrw.jellyfin.model.PolicyChange.Status.SUPERSEDED
+            WHERE c.status = com.hzwnrw.jellyfin.model.PolicyChange.Status.PENDING
+              AND c.serverId = :serverId AND c.jellyfinUserId IN :userIds""")
+    int supersedePending(@Param("serverId") String serverId, @Param("userIds") Collection<String> userIds);
+
+    /**
+     * Removes finished changes created before the given time
+     */
+    @Modifying
+    @Query("DELETE FROM PolicyChange c WHERE c.status IN :statuses AND c.createdAt < :before")
+    int deleteFinishedBefore(@Param("statuses") Collection<PolicyChange.Status> statuses,
+                             @Param("before") ZonedDateTime before);
+}
@@ -0,0 +1,126 @@
+package com.hzwnrw.jellyfin.scheduler;
+
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides how long to wait before the next scheduled sync.
+ * <p>
+ * Every sync that finds no changes multiplies the interval by the backoff factor, up to
+ * the maximum. A sync that finds changes, or a change made from this application, drops
+ * it back to the minimum. Failed or skipped runs keep the current interval.
+ */
+@Slf4j
+@Component
+public class AdaptiveSyncInterval {
+
+    static final int HISTORY_SIZE = 20;
+
+    public enum Decision { LENGTHEN, SHORTEN, HOLD }
+
+    public record DecisionRecord(Instant at, Decision decision, String reason, Duration interval) {
+    }
+
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final double backoffMultiplier;
+    private final Map<Decision, Counter> decisionCounters = new EnumMap<>(Decision.class);
+    private final Deque<DecisionRecord> history = new ArrayDeque<>();
+
+    private Duration current;
+
+    public AdaptiveSyncInterval(@Value("${jellyfin.sync.interval.initial:10m}") Duration initialInterval,
+                                @Value("${jellyfin.sync.interval.min:1m}") Duration minInterval,
+                                @Value("${jellyfin.sync.interval.max:30m}") Duration maxInterval,
+                                @Value("${jellyfin.sync.interval.backoff-multiplier:2.0}") double backoffMultiplier,
+                                MeterRegistry meterRegistry) {
+        if (minInterval.compareTo(maxInterval) > 0) {
+            throw new IllegalArgumentException("jellyfin.sync.interval.min must not exceed jellyfin.sync.interval.max");
+        }
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.backoffMultiplier = Math.max(1.0, backoffMultiplier);
+        this.current = clamp(initialInterval);
+
+        Gauge.builder("jellyfin.sync.interval", this, interval -> interval.getCurrent().toMillis() / 1000.0)
+                .description("Delay before the next scheduled Jellyfin sync")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        for (Decision decision : Decision.values()) {
+            decisionCounters.put(decision, Counter.builder("jellyfin.sync.interval.decisions")
+                    .description("Adjustments made to the scheduled sync interval")
+                    .tag("decision", decision.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    public synchronized Duration getCurrent() {
+        return current;
+    }
+
+    public synchronized List<DecisionRecord> getHistory() {
+        return List.copyOf(history);
+    }
+
+    /**
+     * Adjusts the interval after a completed sync and returns the new one.
+     */
+    public synchronized Duration onSyncCompleted(SyncSummary summary) {
+        if (summary.hasChanges()) {
+            return decide(Decision.SHORTEN, minInterval, "sync applied changes: " + summary);
+        }
+        Duration lengthened = clamp(Duration.ofMillis((long) (current.toMillis() * backoffMultiplier)));
+        if (lengthened.equals(current)) {
+            return decide(Decision.HOLD, current, "no changes, already at maximum");
+        }
+        return decide(Decision.LENGTHEN, lengthened, "no changes");
+    }
+
+    /**
+     * Keeps the current interval after a run that produced no usable result.
+     */
+    public synchronized Duration onSyncNotCompleted(String reason) {
+        return decide(Decision.HOLD, current, reason);
+    }
+
+    /**
+     * Drops the interval to the minimum after a change made from this application,
+     * so the next sync confirms it soon.
+     */
+    public synchronized Duration onLocalChange(String source) {
+        return decide(Decision.SHORTEN, minInterval, "local change: " + source);
+    }
+
+    private Duration decide(Decision decision, Duration next, String reason) {
+        if (!next.equals(current)) {
+            log.info("Sync interval {} -> {} ({})", current, next, reason);
+        }
+        current = next;
+        decisionCounters.get(decision).increment();
+        history.addFirst(new DecisionRecord(Instant.now(), decision, reason, next));
+        while (history.size() > HISTORY_SIZE) {
+            history.removeLast();
+        }
+        return next;
+    }
+
+    private Duration clamp(Duration interval) {
+        if (interval.compareTo(minInterval) < 0) {
+            return minInterval;
+        }
+        return interval.compareTo(maxInterval) > 0 ? maxInterval : interval;
+    }
+}
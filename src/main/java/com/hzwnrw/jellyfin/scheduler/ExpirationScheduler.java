@@ -0,0 +1,178 @@
+package com.hzwnrw.jellyfin.scheduler;
+
+import com.hzwnrw.jellyfin.model.UserExpiration;
+import com.hzwnrw.jellyfin.model.UserExpirationKey;
+import com.hzwnrw.jellyfin.repository.ExpirationRepository;
+import com.hzwnrw.jellyfin.service.WorkerThread;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires {@link ExpirationTask#processDue()} within moments of each pending expiry instead of
+ * waiting for the reconciliation cron. Deadlines are kept in memory, loaded from the database
+ * at startup and on every reload, and updated as expiries are set or cleared on this replica.
+ */
+@Component
+@Slf4j
+public class ExpirationScheduler {
+
+    private static final int RELOAD_CHUNK_SIZE = 1000;
+
+    private final ExpirationRepository repository;
+    private final ExpirationTask expirationTask;
+    private final Duration lookahead;
+    private final Duration lockRetryDelay;
+
+    private final DelayQueue<Deadline> deadlines = new DelayQueue<>();
+    private final Map<UserExpirationKey, Deadline> scheduled = new ConcurrentHashMap<>();
+    private final WorkerThread worker = new WorkerThread("expiration-timer", this::fireNext);
+
+    public ExpirationScheduler(ExpirationRepository repository,
+                               ExpirationTask expirationTask,
+                               @Value("${app.expiration.reload-interval:15m}") Duration reloadInterval,
+                               @Value("${app.expiration.lock-retry-delay:5s}") Duration lockRetryDelay,
+                               MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.expirationTask = expirationTask;
+        // Two reload intervals, so a deadline is loaded at least one reload before it is due
+        this.lookahead = reloadInterval.multipliedBy(2);
+        this.lockRetryDelay = lockRetryDelay;
+        Gauge.builder("jellyfin.expiration.scheduled", scheduled, Map::size)
+                .description("Pending user expirations with an in-memory deadline")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        worker.stop();
+    }
+
+    /**
+     * Loads the pending expiries due within the lookahead window from the database and drops
+     * deadlines in that window that are no longer pending, picking up expiries set or cleared on
+     * other replicas. Later expiries are loaded by a later reload, keeping the queue small.
+     */
+    @Scheduled(fixedDelayString = "${app.expiration.reload-interval:15m}",
+            initialDelayString = "${app.expiration.reload-interval:15m}")
+    public void reload() {
+        Instant horizon = Instant.now().plus(lookahead);
+        Set<UserExpirationKey> pending = new HashSet<>();
+        repository.forEachDueChunk(horizon.atZone(ZoneId.of("UTC")), RELOAD_CHUNK_SIZE, chunk -> {
+            for (UserExpiration expiration : chunk) {
+                pending.add(keyOf(expiration));
+                schedule(expiration);
+            }
+            return true;
+        });
+        scheduled.values().stream()
+                .filter(deadline -> !deadline.at().isAfter(horizon) && !pending.contains(deadline.key()))
+                .toList()
+                .forEach(deadline -> cancel(deadline.key()));
+        log.debug("Loaded {} pending expirations due by {}", pending.size(), horizon);
+    }
+
+    /**
+     * Schedules, moves or, for processed entries, removes the deadline of one expiry.
+     */
+    public void schedule(UserExpiration expiration) {
+        UserExpirationKey key = keyOf(expiration);
+        if (expiration.isProcessed() || expiration.getExpiryDate() == null) {
+            cancel(key);
+            return;
+        }
+        Instant at = expiration.getExpiryDate().toInstant();
+        Deadline current = scheduled.get(key);
+        if (current != null && current.at().equals(at)) {
+            return;
+        }
+        Deadline deadline = new Deadline(key, at);
+        Deadline replaced = scheduled.put(key, deadline);
+        if (replaced != null) {
+            deadlines.remove(replaced);
+        }
+        deadlines.add(deadline);
+    }
+
+    public void cancel(UserExpirationKey key) {
+        Deadline removed = scheduled.remove(key);
+        if (removed != null) {
+            deadlines.remove(removed);
+        }
+    }
+
+    int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * Waits for the next deadline and fires it together with any others already due.
+     */
+    private void fireNext() throws InterruptedException {
+        List<Deadline> due = new ArrayList<>();
+        due.add(deadlines.take());
+        deadlines.drainTo(due);
+        // Cancelled or moved deadlines are no longer the scheduled one for their key
+        due.removeIf(deadline -> !scheduled.remove(deadline.key(), deadline));
+        if (!due.isEmpty()) {
+            fire(due);
+        }
+    }
+
+    private void fire(List<Deadline> due) {
+        log.debug("{} expiration deadlines reached", due.size());
+        if (expirationTask.processDue()) {
+            return;
+        }
+        // Another replica is processing expirations; check again shortly in case it started before these were due
+        Instant retryAt = Instant.now().plus(lockRetryDelay);
+        for (Deadline deadline : due) {
+            Deadline retry = new Deadline(deadline.key(), retryAt);
+            if (scheduled.putIfAbsent(deadline.key(), retry) == null) {
+                deadlines.add(retry);
+            }
+        }
+    }
+
+    private static UserExpirationKey keyOf(UserExpiration expiration) {
+        return new UserExpirationKey(expiration.getServerId(), expiration.getJellyfinUserId());
+    }
+
+    private record Deadline(UserExpirationKey key, Instant at) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(Instant.now(), at));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return at.compareTo(((Deadline) other).at);
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.hzwnrw.jellyfin.scheduler;
 
+import com.hzwnrw.jellyfin.model.UserExpiration;
 import com.hzwnrw.jellyfin.repository.ExpirationRepository;
-import com.hzwnrw.jellyfin.service.JellyfinService;
+import com.hzwnrw.jellyfin.service.ClusterLockService;
+import com.hzwnrw.jellyfin.service.LockLease;
+import com.hzwnrw.jellyfin.service.PolicyChangeOutbox;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,38 +20,71 @@ import java.util.List;
 @Slf4j
 public class ExpirationTask {
 
+    static final String LOCK_NAME = "expiration-check";
+
     private final ExpirationRepository repository;
-    private final JellyfinService jellyfinService;
+    private final PolicyChangeOutbox outbox;
+    private final ClusterLockService clusterLockService;
 
     @Value("${app.timezone:Asia/Kuala_Lumpur}")
     private String appTimezone;
 
-    @Scheduled(cron = "0 0 0 * * *", zone = "${app.timezone:Asia/Kuala_Lumpur}")
+    // Expirations read and queued per transaction
+    @Value("${app.expiration.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * Reconciliation sweep. Expiries normally fire on time through {@link ExpirationScheduler};
+     * this catches any it missed, e.g. ones set on a replica that went down.
+     */
+    @Scheduled(cron = "${app.expiration.reconcile-cron:0 0 * * * *}", zone = "${app.timezone:Asia/Kuala_Lumpur}")
     public void checkExpirations() {
+        processDue();
+    }
+
+    /**
+     * Disables every user whose expiry has passed, on whichever replica holds the expiration lock.
+     * Returns {@code false} if another replica holds it.
+     */
+    public boolean processDue() {
+        if (!clusterLockService.runExclusively(LOCK_NAME, this::processExpirations)) {
+            log.debug("Skipping expiration check, lock {} is held elsewhere", LOCK_NAME);
+            return false;
+        }
+        return true;
+    }
+
+    private void processExpirations(LockLease lease) {
         ZoneId appZone = ZoneId.of(appTimezone);
         ZonedDateTime nowUtc = ZonedDateTime.now(ZoneId.of("UTC"));
         ZonedDateTime nowLocal = nowUtc.withZoneSameInstant(appZone);
-        List<com.hzwnrw.jellyfin.model.UserExpiration> pending =
-                repository.findByProcessedFalseAndExpiryDateLessThanEqual(nowUtc);
-
-        if (pending.isEmpty()) {
-            log.debug("No expirations due at local midnight {} ({})", nowLocal, appTimezone);
-            return;
-        }
+        int[] queued = {0};
+        repository.forEachDueChunk(nowUtc, batchSize, batch -> {
+            if (!lease.isHeld()) {
+                log.warn("Lost lock {} (fencing token {}), leaving remaining expirations to the new holder",
+                        LOCK_NAME, lease.getFencingToken());
+                return false;
+            }
+            for (UserExpiration entry : batch) {
+                ZonedDateTime expiryLocal = entry.getExpiryDate().withZoneSameInstant(appZone);
+                log.info(
+                        "User {} on server {} has expired. Disabling account. Expiry UTC: {} | Expiry {}: {} | Checked UTC: {}",
+                        entry.getUsername(),
+                        entry.getServerId(),
+                        entry.getExpiryDate(),
+                        appTimezone,
+                        expiryLocal,
+                        nowUtc
+                );
+            }
+            // Flagged as queued together with the disables, which the outbox pushes to Jellyfin in
+            // parallel and retries; the expiries count as processed once Jellyfin accepts them
+            queued[0] += outbox.requestExpiries(batch).size();
+            return true;
+        });
 
-        for (var entry : pending) {
-            ZonedDateTime expiryLocal = entry.getExpiryDate().withZoneSameInstant(appZone);
-            log.info(
-                    "User {} has expired. Disabling account. Expiry UTC: {} | Expiry {}: {} | Checked UTC: {}",
-                    entry.getUsername(),
-                    entry.getExpiryDate(),
-                    appTimezone,
-                    expiryLocal,
-                    nowUtc
-            );
-            jellyfinService.updateDisableStatus(entry.getJellyfinUserId(), true);
-            entry.setProcessed(true);
-            repository.save(entry);
+        if (queued[0] == 0) {
+            log.debug("No expirations due at {} ({})", nowLocal, appTimezone);
         }
     }
 }
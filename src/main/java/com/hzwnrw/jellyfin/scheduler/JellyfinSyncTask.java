@@ -1,30 +1,142 @@
 package com.hzwnrw.jellyfin.scheduler;
 
-import com.hzwnrw.jellyfin.service.JellyfinService;
-import lombok.RequiredArgsConstructor;
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import com.hzwnrw.jellyfin.event.UserDataChangedEvent;
+import com.hzwnrw.jellyfin.service.ClusterLockService;
+import com.hzwnrw.jellyfin.service.SyncCoordinator;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class JellyfinSyncTask {
 
-    private final JellyfinService jellyfinService;
+    static final String LOCK_NAME = "jellyfin-sync";
+
+    private final SyncCoordinator syncCoordinator;
+    private final ClusterLockService clusterLockService;
+    private final AdaptiveSyncInterval syncInterval;
+    private final TaskScheduler taskScheduler;
+    private final Duration initialDelay;
+
+    private ScheduledFuture<?> scheduledRun;
+    private Instant nextRunAt;
+    private boolean running;
+
+    public JellyfinSyncTask(SyncCoordinator syncCoordinator,
+                            ClusterLockService clusterLockService,
+                            AdaptiveSyncInterval syncInterval,
+                            TaskScheduler taskScheduler,
+                            @Value("${jellyfin.sync.initial-delay:5s}") Duration initialDelay) {
+        this.syncCoordinator = syncCoordinator;
+        this.clusterLockService = clusterLockService;
+        this.syncInterval = syncInterval;
+        this.taskScheduler = taskScheduler;
+        this.initialDelay = initialDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduleIn(initialDelay);
+    }
 
     /**
-     * Periodically sync Jellyfin users to the database.
-     * Runs every 10 minutes (600000 ms)
+     * Brings the next sync forward after a change made from this application, on every replica.
+     */
+    @EventListener
+    public synchronized void onUserDataChanged(UserDataChangedEvent event) {
+        Duration interval = syncInterval.onLocalChange(event.source());
+        Instant candidate = Instant.now().plus(interval);
+        clusterLockService.bringNextRunForward(LOCK_NAME, candidate);
+        if (!running && nextRunAt != null && candidate.isBefore(nextRunAt) && scheduledRun.cancel(false)) {
+            scheduleIn(interval);
+        }
+    }
+
+    /**
+     * Periodically sync Jellyfin users to the database, once per interval across the cluster. Every replica
+     * ticks; the one that holds the sync lock once the recorded due time has passed runs the sync and records
+     * the next due time, which comes from {@link AdaptiveSyncInterval}.
      */
-    @Scheduled(fixedDelay = 600000, initialDelay = 5000)
     public void syncJellyfinUsers() {
-        log.info("Starting scheduled sync with Jellyfin");
+        synchronized (this) {
+            running = true;
+            nextRunAt = null;
+        }
+        Duration next = syncInterval.getCurrent();
         try {
-            jellyfinService.syncAndGetAllUsers();
-            log.info("Jellyfin sync completed successfully");
-        } catch (Exception e) {
-            log.error("Error during Jellyfin sync: {}", e.getMessage(), e);
+            next = runLocked();
+        } finally {
+            synchronized (this) {
+                running = false;
+                scheduleIn(next);
+            }
         }
     }
+
+    public synchronized Optional<Instant> getNextRunAt() {
+        return Optional.ofNullable(nextRunAt);
+    }
+
+    /**
+     * Runs the sync if it is due and returns the delay until this replica's next tick.
+     */
+    private Duration runLocked() {
+        Duration[] next = new Duration[1];
+        boolean ran = clusterLockService.runExclusively(LOCK_NAME, lease -> {
+            Instant now = Instant.now();
+            Optional<Instant> dueAt = clusterLockService.getNextRunAt(LOCK_NAME);
+            if (dueAt.isPresent() && now.isBefore(dueAt.get())) {
+                // Another replica already ran it this interval; tick again when it is due
+                log.debug("Skipping scheduled sync, next due at {}", dueAt.get());
+                next[0] = Duration.between(now, dueAt.get());
+                return;
+            }
+            log.info("Starting scheduled sync with Jellyfin (fencing token {})", lease.getFencingToken());
+            SyncSummary summary = null;
+            try {
+                summary = syncCoordinator.sync("scheduler");
+                log.info("Jellyfin sync completed successfully: {}", summary);
+            } catch (Exception e) {
+                log.error("Error during Jellyfin sync: {}", e.getMessage(), e);
+            }
+            next[0] = summary != null
+                    ? syncInterval.onSyncCompleted(summary)
+                    : syncInterval.onSyncNotCompleted("sync did not complete on this node");
+            clusterLockService.setNextRunAt(LOCK_NAME, Instant.now().plus(next[0]));
+        });
+        if (!ran) {
+            // The holder decides the next interval and records when it is due; nothing ran here to decide on
+            log.debug("Skipping scheduled sync, lock {} is held elsewhere", LOCK_NAME);
+            return untilRecordedRun();
+        }
+        return next[0];
+    }
+
+    /**
+     * Delay until the due time recorded by the replica that last ran the sync, or the current interval
+     * while none is recorded or that time has passed because the sync is running right now.
+     */
+    private Duration untilRecordedRun() {
+        Instant now = Instant.now();
+        return clusterLockService.getNextRunAt(LOCK_NAME)
+                .filter(now::isBefore)
+                .map(dueAt -> Duration.between(now, dueAt))
+                .orElseGet(syncInterval::getCurrent);
+    }
+
+    private synchronized void scheduleIn(Duration delay) {
+        nextRunAt = Instant.now().plus(delay);
+        scheduledRun = taskScheduler.schedule(this::syncJellyfinUsers, nextRunAt);
+        log.debug("Next Jellyfin sync scheduled at {}", nextRunAt);
+    }
 }
@@ -0,0 +1,185 @@
+package com.hzwnrw.jellyfin.scheduler;
+
+import com.hzwnrw.jellyfin.dto.BulkStatusResponse.UserStatusResult;
+import com.hzwnrw.jellyfin.model.PolicyChange;
+import com.hzwnrw.jellyfin.service.ClusterLockService;
+import com.hzwnrw.jellyfin.service.JellyfinService;
+import com.hzwnrw.jellyfin.service.LockLease;
+import com.hzwnrw.jellyfin.service.PolicyChangeOutbox;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pushes queued policy changes to Jellyfin, on whichever replica holds the outbox lock.
+ * A change that fails is retried with exponential backoff until {@code max-attempts},
+ * so Jellyfin sees at most {@code batch-size} changes per round regardless of how fast they are queued.
+ */
+@Component
+@Slf4j
+public class PolicyChangeDispatcher {
+
+    static final String LOCK_NAME = "policy-outbox";
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    private final PolicyChangeOutbox outbox;
+    private final JellyfinService jellyfinService;
+    private final ClusterLockService clusterLockService;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration retention;
+
+    public PolicyChangeDispatcher(PolicyChangeOutbox outbox,
+                                  JellyfinService jellyfinService,
+                                  ClusterLockService clusterLockService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${jellyfin.outbox.batch-size:50}") int batchSize,
+                                  @Value("${jellyfin.outbox.max-attempts:10}") int maxAttempts,
+                                  @Value("${jellyfin.outbox.initial-backoff:5s}") Duration initialBackoff,
+                                  @Value("${jellyfin.outbox.max-backoff:15m}") Duration maxBackoff,
+                                  @Value("${jellyfin.outbox.retention:7d}") Duration retention) {
+        this.outbox = outbox;
+        this.jellyfinService = jellyfinService;
+        this.clusterLockService = clusterLockService;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${jellyfin.outbox.poll-interval:1s}")
+    public void dispatchPending() {
+        if (!clusterLockService.runExclusively(LOCK_NAME, this::drain)) {
+            log.debug("Skipping outbox dispatch, lock {} is held elsewhere", LOCK_NAME);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jellyfin.outbox.purge-interval:1h}",
+            initialDelayString = "${jellyfin.outbox.purge-interval:1h}")
+    public void purgeFinished() {
+        int purged = outbox.purgeFinished(ZonedDateTime.now(ZoneId.of("UTC")).minus(retention));
+        if (purged > 0) {
+            log.info("Purged {} finished policy changes older than {}", purged, retention);
+        }
+    }
+
+    void drain(LockLease lease) {
+        while (lease.isHeld()) {
+            List<PolicyChange> batch = outbox.nextBatch(batchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<PolicyChange> exhaustedDisables = dispatch(batch);
+            // Changes already pushed are pushed again if this fails; setting the same state twice is harmless
+            outbox.complete(batch, exhaustedDisables);
+        }
+        log.warn("Lost lock {} (fencing token {}), leaving remaining policy changes to the new holder",
+                LOCK_NAME, lease.getFencingToken());
+    }
+
+    /**
+     * Pushes one batch and records the outcome on each change. Returns the disables that ran out
+     * of attempts, whose queued expiries have to be processed again.
+     */
+    private List<PolicyChange> dispatch(List<PolicyChange> batch) {
+        Map<String, List<PolicyChange>> byServer = new LinkedHashMap<>();
+        for (PolicyChange change : batch) {
+            byServer.computeIfAbsent(change.getServerId(), id -> new ArrayList<>()).add(change);
+        }
+
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.of("UTC"));
+        List<PolicyChange> exhaustedDisables = new ArrayList<>();
+        byServer.forEach((serverId, changes) -> {
+            Map<String, Boolean> targets = new LinkedHashMap<>();
+            changes.forEach(change -> targets.put(change.getJellyfinUserId(), change.isTargetDisabled()));
+
+            Map<String, UserStatusResult> results = new HashMap<>();
+            try {
+                jellyfinService.applyDisableStatus(serverId, targets)
+                        .forEach(result -> results.put(result.userId(), result));
+            } catch (IllegalArgumentException e) {
+                changes.forEach(change -> giveUp(change, now, "Unknown Jellyfin server " + serverId));
+                return;
+            }
+
+            for (PolicyChange change : changes) {
+                UserStatusResult result = results.get(change.getJellyfinUserId());
+                change.setAttempts(change.getAttempts() + 1);
+                if (result == null) {
+                    retry(change, now, "No result returned", exhaustedDisables);
+                    continue;
+                }
+                switch (result.outcome()) {
+                    case UPDATED -> {
+                        change.setStatus(PolicyChange.Status.DONE);
+                        change.setDispatchedAt(now);
+                        change.setLastError(null);
+                        count("done");
+                    }
+                    case NOT_FOUND -> giveUp(change, now, "User not found in Jellyfin");
+                    case FAILED -> retry(change, now, result.error(), exhaustedDisables);
+                }
+            }
+        });
+        return exhaustedDisables;
+    }
+
+    private void retry(PolicyChange change, ZonedDateTime now, String error, List<PolicyChange> exhaustedDisables) {
+        if (change.getAttempts() >= maxAttempts) {
+            giveUp(change, now, error);
+            // A toggle may have superseded the expiry's own change, so any disable counts
+            if (change.isTargetDisabled()) {
+                exhaustedDisables.add(change);
+            }
+            return;
+        }
+        Duration delay = backoff(change.getAttempts());
+        change.setNextAttemptAt(now.plus(delay));
+        change.setLastError(truncate(error));
+        count("retry");
+        log.warn("Policy change {} for user {} on server {} failed (attempt {}), retrying in {}: {}",
+                change.getId(), change.getJellyfinUserId(), change.getServerId(), change.getAttempts(), delay, error);
+    }
+
+    private void giveUp(PolicyChange change, ZonedDateTime now, String error) {
+        change.setStatus(PolicyChange.Status.FAILED);
+        change.setDispatchedAt(now);
+        change.setLastError(truncate(error));
+        count("failed");
+        log.error("Giving up on policy change {} ({} user {} on server {}) after {} attempts: {}",
+                change.getId(), change.isTargetDisabled() ? "disable" : "enable",
+                change.getJellyfinUserId(), change.getServerId(), change.getAttempts(), error);
+    }
+
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("jellyfin.outbox.dispatched", "outcome", outcome).increment();
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -1,7 +1,9 @@
 package com.hzwnrw.jellyfin.security;
 
+import com.hzwnrw.jellyfin.dto.AppUserSummary;
 import com.hzwnrw.jellyfin.model.AppUser;
 import com.hzwnrw.jellyfin.repository.AppUserRepository;
+import com.hzwnrw.jellyfin.service.AppUserCacheService;
 import com.hzwnrw.jellyfin.utils.JwtUtils;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -25,6 +27,7 @@ import java.util.UUID;
 public class OAuth2AuthenticationSuccessHandler implements AuthenticationSuccessHandler {
 
     private final AppUserRepository appUserRepository;
+    private final AppUserCacheService appUserCacheService;
     private final JwtUtils jwtUtils;
     private final PasswordEncoder passwordEncoder;
 
@@ -48,8 +51,8 @@ public class OAuth2AuthenticationSuccessHandler implements AuthenticationSuccess
             return;
         }
 
-        AppUser appUser = findOrCreateUser(email, name);
-        String jwt = jwtUtils.generateToken(appUser.getUsername());
+        String username = findOrCreateUser(email, name);
+        String jwt = jwtUtils.generateToken(username);
 
         ResponseCookie jwtCookie = ResponseCookie.from("jwt_token", jwt)
                 .httpOnly(true)
@@ -64,10 +67,13 @@ public class OAuth2AuthenticationSuccessHandler implements AuthenticationSuccess
         response.sendRedirect("/");
     }
 
-    private AppUser findOrCreateUser(String email, String name) {
-        Optional<AppUser> existing = appUserRepository.findByEmail(email);
+    /**
+     * Username of the app user with the given email, created on first login
+     */
+    private String findOrCreateUser(String email, String name) {
+        Optional<AppUserSummary> existing = appUserCacheService.getUserByEmail(email);
         if (existing.isPresent()) {
-            return existing.get();
+            return existing.get().getUsername();
         }
 
         String username = email.substring(0, email.indexOf('@'));
@@ -80,6 +86,6 @@ public class OAuth2AuthenticationSuccessHandler implements AuthenticationSuccess
 
         appUserRepository.save(newUser);
         log.info("Created new app user from Google OAuth2: {} ({})", username, email);
-        return newUser;
+        return username;
     }
 }
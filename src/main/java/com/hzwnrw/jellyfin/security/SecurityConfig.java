@@ -21,6 +21,7 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.LoginUrlAuthenticationEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.authentication.logout.LogoutHandler;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.Cookie;
 
 @Configuration
@@ -88,13 +89,19 @@ public class SecurityConfig {
         csrfTokenRepository.setCookiePath("/");
 
         http
-                .csrf(csrf -> csrf.csrfTokenRepository(csrfTokenRepository))
+                .csrf(csrf -> csrf
+                        .csrfTokenRepository(csrfTokenRepository)
+                        // Webhooks authenticate with a shared secret, not a browser session
+                        .ignoringRequestMatchers("/api/webhooks/**"))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Async dispatches, e.g. closing a dashboard event stream, belong to a request already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/login",
                                 "/logout",
                                 "/api/auth/**",
+                                "/api/webhooks/**",
                                 "/oauth2/**",
                                 "/favicon.ico",
                                 "/app.css",
@@ -1,15 +1,23 @@
 package com.hzwnrw.jellyfin.service;
 
+import com.hzwnrw.jellyfin.dto.AppUserSummary;
 import com.hzwnrw.jellyfin.model.AppUser;
 import com.hzwnrw.jellyfin.repository.AppUserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
 
+/**
+ * Cached lookups of app users for the profile page and OAuth2 login. Unknown users are not cached,
+ * so a user created after a failed lookup is found right away. The cache holds {@link AppUserSummary}
+ * copies without the password hash, since entries are kept in Redis and in each replica's heap; password
+ * login and changes load the user from {@link AppUserRepository}.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -20,13 +28,34 @@ public class AppUserCacheService {
 
     private static final String CACHE_NAME = "appUsers";
     private static final String USER_BY_USERNAME_CACHE = "userByUsername";
+    private static final String USER_BY_EMAIL_CACHE = "userByEmail";
+    private static final String USER_BY_ID_CACHE = "userById";
 
     /**
      * Get user by username with caching
      */
-    public Optional<AppUser> getUserByUsername(String username) {
+    @Cacheable(value = CACHE_NAME, key = "'" + USER_BY_USERNAME_CACHE + "::' + #username", unless = "#result == null")
+    public Optional<AppUserSummary> getUserByUsername(String username) {
         log.debug("Fetching user: {} from cache or database", username);
-        return appUserRepository.findByUsername(username);
+        return appUserRepository.findByUsername(username).map(AppUserSummary::from);
+    }
+
+    /**
+     * Get user by email with caching
+     */
+    @Cacheable(value = CACHE_NAME, key = "'" + USER_BY_EMAIL_CACHE + "::' + #email", unless = "#result == null")
+    public Optional<AppUserSummary> getUserByEmail(String email) {
+        log.debug("Fetching user with email: {}", email);
+        return appUserRepository.findByEmail(email).map(AppUserSummary::from);
+    }
+
+    /**
+     * Get user by ID with caching
+     */
+    @Cacheable(value = CACHE_NAME, key = "'" + USER_BY_ID_CACHE + "::' + #id", unless = "#result == null")
+    public Optional<AppUserSummary> getUserById(Long id) {
+        log.debug("Fetching user with ID: {}", id);
+        return appUserRepository.findById(id).map(AppUserSummary::from);
     }
 
     /**
@@ -41,21 +70,31 @@ public class AppUserCacheService {
     }
 
     /**
-     * Invalidate all user cache
+     * Invalidate every cached lookup of a user, including the one by {@code previousEmail} when the email changed
      */
-    public void invalidateAllUserCache() {
-        log.info("Invalidating all user cache");
+    public void invalidateUserCache(AppUser user, String previousEmail) {
+        log.info("Invalidating cache for user: {}", user.getUsername());
         Cache cache = cacheManager.getCache(CACHE_NAME);
         if (cache != null) {
-            cache.clear();
+            cache.evict(USER_BY_USERNAME_CACHE + "::" + user.getUsername());
+            cache.evict(USER_BY_ID_CACHE + "::" + user.getId());
+            if (previousEmail != null) {
+                cache.evict(USER_BY_EMAIL_CACHE + "::" + previousEmail);
+            }
+            if (user.getEmail() != null && !user.getEmail().equals(previousEmail)) {
+                cache.evict(USER_BY_EMAIL_CACHE + "::" + user.getEmail());
+            }
         }
     }
 
     /**
-     * Get user by ID with caching
+     * Invalidate all user cache
      */
-    public Optional<AppUser> getUserById(Long id) {
-        log.debug("Fetching user with ID: {}", id);
-        return appUserRepository.findById(id);
+    public void invalidateAllUserCache() {
+        log.info("Invalidating all user cache");
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null) {
+            cache.clear();
+        }
     }
 }
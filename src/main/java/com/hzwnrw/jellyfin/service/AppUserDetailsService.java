@@ -21,6 +21,9 @@ public class AppUserDetailsService implements UserDetailsService {
 
     private final AppUserRepository appUserRepository;
 
+    /**
+     * Reads the user from the database rather than {@link AppUserCacheService}, which does not cache password hashes.
+     */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         log.debug("Loading user details for: {}", username);
@@ -0,0 +1,216 @@
+package com.hzwnrw.jellyfin.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Redis lease locks that let exactly one replica run each scheduled job.
+ * <p>
+ * A lock is a key holding {@code <node-id>:<fencing-token>} with a short TTL. The holder
+ * renews it in the background every third of the lease, so a crashed node's lock expires
+ * within one lease and another node takes over on its next tick. Renewal and release only
+ * touch the key while it still carries the holder's own value.
+ * <p>
+ * A lock only keeps runs from overlapping. A job that should run once per interval across the
+ * cluster also records when it is next due, and every replica's tick before then is skipped.
+ */
+@Slf4j
+@Service
+public class ClusterLockService {
+
+    static final String LOCK_KEY_PREFIX = "cluster_lock:";
+    static final String FENCE_KEY_SUFFIX = ":fence";
+    static final String NEXT_RUN_KEY_SUFFIX = ":next_run";
+
+    static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    static final RedisScript<Long> BRING_FORWARD_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('get', KEYS[1]) "
+                    + "if not current or tonumber(current) > tonumber(ARGV[1]) then "
+                    + "redis.call('set', KEYS[1], ARGV[1]) return 1 else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration leaseTime;
+    private final String nodeId;
+    private final ScheduledExecutorService renewer;
+
+    public ClusterLockService(StringRedisTemplate redisTemplate,
+                              @Value("${app.cluster.lock.lease-time:30s}") Duration leaseTime,
+                              @Value("${app.cluster.node-id:}") String nodeId) {
+        this(redisTemplate, leaseTime, nodeId, Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("cluster-lock-renewer").daemon().factory()));
+    }
+
+    ClusterLockService(StringRedisTemplate redisTemplate, Duration leaseTime, String nodeId,
+                       ScheduledExecutorService renewer) {
+        this.redisTemplate = redisTemplate;
+        this.leaseTime = leaseTime;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.renewer = renewer;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Runs {@code job} only if this node can take the named lock. Returns {@code false}
+     * when another node holds it or Redis is unreachable, in which case the tick is skipped.
+     */
+    public boolean runExclusively(String name, Consumer<LockLease> job) {
+        Optional<LockLease> acquired = tryAcquire(name);
+        if (acquired.isEmpty()) {
+            return false;
+        }
+        try (LockLease lease = acquired.get()) {
+            job.accept(lease);
+        }
+        return true;
+    }
+
+    /**
+     * Attempts to take the named lock and starts renewing it.
+     */
+    public Optional<LockLease> tryAcquire(String name) {
+        String key = lockKey(name);
+        try {
+            Long token = redisTemplate.opsForValue().increment(key + FENCE_KEY_SUFFIX);
+            if (token == null) {
+                return Optional.empty();
+            }
+            String value = nodeId + ":" + token;
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(key, value, leaseTime);
+            if (!Boolean.TRUE.equals(acquired)) {
+                log.debug("Lock {} is held by another node", name);
+                return Optional.empty();
+            }
+            LockLease lease = new LockLease(name, token, value, this);
+            long period = Math.max(1, leaseTime.toMillis() / 3);
+            lease.setRenewal(renewer.scheduleAtFixedRate(() -> renew(lease), period, period, TimeUnit.MILLISECONDS));
+            log.debug("Acquired lock {} with fencing token {}", name, token);
+            return Optional.of(lease);
+        } catch (Exception e) {
+            log.warn("Failed to acquire lock {}: {}", name, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * When the named job is next due on any replica. Empty if none was recorded or Redis is
+     * unreachable, and the job is then treated as due.
+     */
+    public Optional<Instant> getNextRunAt(String name) {
+        try {
+            String value = redisTemplate.opsForValue().get(nextRunKey(name));
+            return value == null ? Optional.empty() : Optional.of(Instant.ofEpochMilli(Long.parseLong(value)));
+        } catch (Exception e) {
+            log.warn("Failed to read next run of {}: {}", name, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Records when the named job is next due, for every replica. Call while holding its lock.
+     */
+    public void setNextRunAt(String name, Instant at) {
+        try {
+            redisTemplate.opsForValue().set(nextRunKey(name), String.valueOf(at.toEpochMilli()));
+        } catch (Exception e) {
+            log.warn("Failed to record next run of {}: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Moves the named job's due time forward to {@code at}, unless it is already due earlier.
+     */
+    public void bringNextRunForward(String name, Instant at) {
+        try {
+            redisTemplate.execute(BRING_FORWARD_SCRIPT, List.of(nextRunKey(name)), String.valueOf(at.toEpochMilli()));
+        } catch (Exception e) {
+            log.warn("Failed to bring next run of {} forward: {}", name, e.getMessage());
+        }
+    }
+
+    void renew(LockLease lease) {
+        try {
+            Long renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(lockKey(lease.getName())),
+                    lease.value, String.valueOf(leaseTime.toMillis()));
+            if (renewed == null || renewed == 0L) {
+                log.warn("Lost lock {} (fencing token {})", lease.getName(), lease.getFencingToken());
+                lease.markLost();
+            }
+        } catch (Exception e) {
+            // Keep trying until the lease would have expired anyway; isHeld() reports the outcome
+            log.warn("Failed to renew lock {}: {}", lease.getName(), e.getMessage());
+        }
+    }
+
+    boolean owns(LockLease lease) {
+        try {
+            return lease.value.equals(redisTemplate.opsForValue().get(lockKey(lease.getName())));
+        } catch (Exception e) {
+            log.warn("Failed to verify lock {}: {}", lease.getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    void release(LockLease lease) {
+        lease.cancelRenewal();
+        if (lease.isLost()) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(lockKey(lease.getName())), lease.value);
+        } catch (Exception e) {
+            log.warn("Failed to release lock {}, it will expire on its own: {}", lease.getName(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renewer.shutdownNow();
+    }
+
+    private static String lockKey(String name) {
+        return LOCK_KEY_PREFIX + name;
+    }
+
+    private static String nextRunKey(String name) {
+        return lockKey(name) + NEXT_RUN_KEY_SUFFIX;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
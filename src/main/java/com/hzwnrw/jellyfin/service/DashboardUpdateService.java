@@ -0,0 +1,288 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hzwnrw.jellyfin.dto.DashboardUpdate;
+import com.hzwnrw.jellyfin.dto.DashboardUpdate.UserState;
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import com.hzwnrw.jellyfin.utils.TimezoneUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Pushes user changes to open dashboards as server-sent events.
+ * <p>
+ * Changes are published to a Redis channel once their transaction commits, and every replica
+ * forwards what it receives to the dashboards connected to it, so a toggle applied by the
+ * outbox dispatcher on one replica reaches a browser connected to another. Connections are
+ * async requests; each has its own bounded queue drained in order by its own virtual thread,
+ * so a dashboard behind a slow link only ever holds up itself. One that lets its queue fill up,
+ * or stays stuck in a single write past {@code send-timeout}, is dropped and the browser reconnects.
+ */
+@Slf4j
+@Service
+public class DashboardUpdateService implements MessageListener {
+
+    static final String CHANNEL = "dashboard:updates";
+
+    private static final ChannelTopic TOPIC = new ChannelTopic(CHANNEL);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ThreadFactory writers = Thread.ofVirtual().name("dashboard-events-", 0).factory();
+    private final ConcurrentMap<SseEmitter, Connection> connections = new ConcurrentHashMap<>();
+    private final Duration timeout;
+    private final Duration sendTimeout;
+    private final int queueCapacity;
+    private final int maxConnections;
+    private final String timezone;
+
+    public DashboardUpdateService(StringRedisTemplate redisTemplate,
+                                  RedisMessageListenerContainer listenerContainer,
+                                  @Value("${app.dashboard.events.timeout:30m}") Duration timeout,
+                                  @Value("${app.dashboard.events.send-timeout:10s}") Duration sendTimeout,
+                                  @Value("${app.dashboard.events.queue-capacity:64}") int queueCapacity,
+                                  @Value("${app.dashboard.events.max-connections:500}") int maxConnections,
+                                  @Value("${app.timezone:Asia/Kuala_Lumpur}") String timezone) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.timeout = timeout;
+        this.sendTimeout = sendTimeout;
+        this.queueCapacity = queueCapacity;
+        this.maxConnections = maxConnections;
+        this.timezone = timezone;
+    }
+
+    @PostConstruct
+    void start() {
+        listenerContainer.addMessageListener(this, TOPIC);
+    }
+
+    @PreDestroy
+    void stop() {
+        listenerContainer.removeMessageListener(this, TOPIC);
+        connections.values().forEach(this::drop);
+    }
+
+    /**
+     * Opens a stream for one dashboard, or returns empty when {@code max-connections} are already open.
+     */
+    public Optional<SseEmitter> connect() {
+        if (connections.size() >= maxConnections) {
+            log.warn("Refusing dashboard stream, {} already open", connections.size());
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        emitter.onTimeout(emitter::complete);
+        register(emitter);
+        return Optional.of(emitter);
+    }
+
+    void register(SseEmitter emitter) {
+        Connection connection = new Connection(emitter);
+        emitter.onCompletion(() -> forget(connection));
+        emitter.onError(error -> forget(connection));
+        connections.put(emitter, connection);
+        // Commits the response right away, so the browser sees the stream open
+        connection.offer(SseEmitter.event().comment("connected"));
+        connection.writer.start();
+        log.debug("Dashboard stream opened, {} open", connections.size());
+    }
+
+    /**
+     * The new disabled flag of each given user of one server.
+     */
+    public void statusChanged(String serverId, Map<String, Boolean> disabledByUserId) {
+        if (disabledByUserId.isEmpty()) {
+            return;
+        }
+        List<UserState> users = new ArrayList<>(disabledByUserId.size());
+        disabledByUserId.forEach((userId, disabled) -> users.add(new UserState(userId, disabled, null, null)));
+        publish(new DashboardUpdate(DashboardUpdate.Type.STATUS, serverId, users, null, null));
+    }
+
+    /**
+     * The new expiry of the given users of one server, null when it was cleared.
+     */
+    public void expiryChanged(String serverId, Collection<String> userIds, ZonedDateTime expiryDate) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String iso = expiryDate != null ? expiryDate.toOffsetDateTime().toString() : null;
+        String formatted = expiryDate != null ? TimezoneUtils.formatForDisplay(expiryDate, timezone) : null;
+        List<UserState> users = userIds.stream()
+                .map(userId -> new UserState(userId, null, iso, formatted))
+                .toList();
+        publish(new DashboardUpdate(DashboardUpdate.Type.EXPIRY, serverId, users, null, null));
+    }
+
+    /**
+     * A sync finished in {@code phase}; {@code summary} is null if it failed.
+     */
+    public void syncFinished(String phase, SyncSummary summary) {
+        publish(new DashboardUpdate(DashboardUpdate.Type.SYNC, null, null, phase, summary));
+    }
+
+    /**
+     * Publishes once the current transaction commits, or right away outside of one.
+     */
+    void publish(DashboardUpdate update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    relay(update);
+                }
+            });
+        } else {
+            relay(update);
+        }
+    }
+
+    private void relay(DashboardUpdate update) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(update);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize dashboard update {}: {}", update.type(), e.getMessage());
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, body);
+        } catch (Exception e) {
+            // Other replicas miss this one; dashboards connected here still get it
+            log.warn("Failed to publish dashboard update to Redis, delivering locally only: {}", e.getMessage());
+            deliver(update.type().eventName(), body);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            String type = objectMapper.readTree(body).path("type").asText();
+            deliver(DashboardUpdate.Type.valueOf(type).eventName(), body);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Ignoring malformed dashboard update: {}", e.getMessage());
+        }
+    }
+
+    private void deliver(String eventName, String body) {
+        connections.values().forEach(connection -> connection.offer(SseEmitter.event().name(eventName).data(body)));
+    }
+
+    /**
+     * Keeps idle streams open, and drops the ones stuck in a write for longer than {@code send-timeout}.
+     */
+    @Scheduled(fixedRateString = "${app.dashboard.events.heartbeat-interval:20s}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        connections.values().forEach(connection -> {
+            if (connection.stalledSince(now).compareTo(sendTimeout) > 0) {
+                log.debug("Dropping dashboard stream stuck in a write for over {}", sendTimeout);
+                drop(connection);
+            } else {
+                connection.offer(SseEmitter.event().comment("heartbeat"));
+            }
+        });
+    }
+
+    int openConnections() {
+        return connections.size();
+    }
+
+    private void drop(Connection connection) {
+        if (connections.remove(connection.emitter, connection)) {
+            connection.close();
+        }
+    }
+
+    /**
+     * The container already ended the request, so there is nothing left to complete.
+     */
+    private void forget(Connection connection) {
+        if (connections.remove(connection.emitter, connection)) {
+            connection.writer.interrupt();
+        }
+    }
+
+    /**
+     * One open stream and the virtual thread writing its events in order.
+     */
+    private final class Connection {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final Thread writer;
+        /** When the write in progress started, by {@link System#nanoTime()}; 0 while waiting for an event. */
+        private volatile long sendingSince;
+
+        Connection(SseEmitter emitter) {
+            this.emitter = emitter;
+            this.writer = writers.newThread(this::write);
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (!queue.offer(event)) {
+                log.debug("Dropping dashboard stream that fell {} events behind", queueCapacity);
+                drop(this);
+            }
+        }
+
+        Duration stalledSince(long now) {
+            long since = sendingSince;
+            return since == 0 ? Duration.ZERO : Duration.ofNanos(now - since);
+        }
+
+        private void write() {
+            try {
+                while (true) {
+                    SseEmitter.SseEventBuilder event = queue.take();
+                    sendingSince = System.nanoTime();
+                    emitter.send(event);
+                    sendingSince = 0;
+                }
+            } catch (InterruptedException e) {
+                // Closed
+            } catch (IOException | IllegalStateException e) {
+                // The browser went away; the container reports the error and completes the request
+                log.debug("Dropping dashboard stream: {}", e.getMessage());
+                drop(this);
+            }
+        }
+
+        void close() {
+            writer.interrupt();
+            // A writer stuck on a dead socket holds the emitter's lock, so complete it off this thread
+            Thread.ofVirtual().start(emitter::complete);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.hzwnrw.jellyfin.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+/**
+ * Cluster-wide version of the user data served by the API, kept as a counter in Redis.
+ * Every change to users or their expirations bumps it, so an unchanged version means an
+ * unchanged response and clients can revalidate with an ETag instead of a database read.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DataVersionService {
+
+    static final String VERSION_KEY = "data_version:users";
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * Current version, or empty when Redis cannot be read and responses must not be validated against it.
+     */
+    public Optional<Long> currentVersion() {
+        try {
+            String value = redisTemplate.opsForValue().get(VERSION_KEY);
+            if (value == null) {
+                initialize();
+                value = redisTemplate.opsForValue().get(VERSION_KEY);
+            }
+            return Optional.ofNullable(value).map(Long::parseLong);
+        } catch (Exception e) {
+            log.warn("Failed to read data version from Redis: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Bumps the version once the current transaction commits, or right away outside of one,
+     * so no client can pair the new version with data from before the change.
+     */
+    public void bump() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment();
+                }
+            });
+        } else {
+            increment();
+        }
+    }
+
+    private void increment() {
+        try {
+            if (!initialize()) {
+                redisTemplate.opsForValue().increment(VERSION_KEY);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to bump data version in Redis: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Starts a missing counter from the clock rather than from zero, so a counter lost with Redis
+     * data never repeats a version that clients may still hold.
+     */
+    private boolean initialize() {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(VERSION_KEY, Long.toString(System.currentTimeMillis())));
+    }
+}
@@ -0,0 +1,137 @@
+package com.hzwnrw.jellyfin.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Wraps every outbound Jellyfin API call. Each Jellyfin server gets its own bulkhead,
+ * circuit breaker and retry, so one failing server does not affect calls to the others.
+ * <p>
+ * A semaphore bulkhead caps the number of calls in flight, and a circuit breaker fails fast
+ * while a server keeps timing out or answering with 5xx. Reads are also retried with
+ * exponential backoff and jitter. Writes are not retried here: policy changes go through the
+ * outbox, whose dispatcher retries them with its own backoff and re-posts the full policy document.
+ * 4xx responses count as successful calls for the breaker and are not retried.
+ * State is published under {@code resilience4j.*} with {@code name=<server-id>}.
+ */
+@Slf4j
+@Component
+public class JellyfinApiGuard {
+
+    private record Guards(Bulkhead bulkhead, CircuitBreaker circuitBreaker, Retry retry) {
+    }
+
+    private final BulkheadRegistry bulkheadRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final RetryRegistry retryRegistry;
+    private final Map<String, Guards> guards = new ConcurrentHashMap<>();
+
+    public JellyfinApiGuard(@Value("${jellyfin.resilience.retry.max-attempts:3}") int maxAttempts,
+                            @Value("${jellyfin.resilience.retry.initial-backoff:200ms}") Duration initialBackoff,
+                            @Value("${jellyfin.resilience.retry.multiplier:2.0}") double backoffMultiplier,
+                            @Value("${jellyfin.resilience.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+                            @Value("${jellyfin.resilience.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+                            @Value("${jellyfin.resilience.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                            @Value("${jellyfin.resilience.circuit-breaker.open-duration:30s}") Duration openDuration,
+                            @Value("${jellyfin.resilience.bulkhead.max-concurrent-calls:10}") int maxConcurrentCalls,
+                            @Value("${jellyfin.resilience.bulkhead.max-wait:1s}") Duration maxWait,
+                            MeterRegistry meterRegistry) {
+        this.bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWait)
+                .build());
+        this.circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(openDuration)
+                .permittedNumberOfCallsInHalfOpenState(1)
+                .recordException(JellyfinApiGuard::isTransient)
+                .build());
+        this.retryRegistry = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(maxAttempts)
+                .intervalFunction(IntervalFunction.ofExponentialRandomBackoff(initialBackoff, backoffMultiplier))
+                .retryOnException(JellyfinApiGuard::isTransient)
+                .build());
+
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+        TaggedRetryMetrics.ofRetryRegistry(retryRegistry).bindTo(meterRegistry);
+    }
+
+    /**
+     * Runs an idempotent call (GET) against the given server, retrying transient failures.
+     */
+    public <T> T read(String serverId, Supplier<T> call) {
+        return Retry.decorateSupplier(guardsFor(serverId).retry(), guarded(serverId, call)).get();
+    }
+
+    /**
+     * Runs a write (POST/DELETE) against the given server once; retrying it is up to the caller.
+     */
+    public <T> T write(String serverId, Supplier<T> call) {
+        return guarded(serverId, call).get();
+    }
+
+    public CircuitBreaker.State getCircuitState(String serverId) {
+        return guardsFor(serverId).circuitBreaker().getState();
+    }
+
+    private <T> Supplier<T> guarded(String serverId, Supplier<T> call) {
+        Guards server = guardsFor(serverId);
+        return CircuitBreaker.decorateSupplier(server.circuitBreaker(),
+                Bulkhead.decorateSupplier(server.bulkhead(), call));
+    }
+
+    private Guards guardsFor(String serverId) {
+        return guards.computeIfAbsent(serverId, id -> {
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(id);
+            Retry retry = retryRegistry.retry(id);
+            circuitBreaker.getEventPublisher().onStateTransition(event ->
+                    log.warn("Circuit breaker for Jellyfin server {}: {}", id, event.getStateTransition()));
+            retry.getEventPublisher().onRetry(event ->
+                    log.info("Retrying call to Jellyfin server {} (attempt {}) after {}: {}", id,
+                            event.getNumberOfRetryAttempts(), event.getWaitInterval(),
+                            event.getLastThrowable().getMessage()));
+            return new Guards(bulkheadRegistry.bulkhead(id), circuitBreaker, retry);
+        });
+    }
+
+    /**
+     * Timeouts, connection failures, 5xx and 429 are worth retrying and count against the breaker.
+     * Rejections by the breaker or bulkhead themselves are not retried.
+     */
+    static boolean isTransient(Throwable throwable) {
+        if (throwable instanceof CallNotPermittedException || throwable instanceof BulkheadFullException) {
+            return false;
+        }
+        if (throwable instanceof RestClientResponseException response) {
+            return response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429;
+        }
+        return throwable instanceof ResourceAccessException;
+    }
+}
@@ -0,0 +1,13 @@
+package com.hzwnrw.jellyfin.service;
+
+import org.springframework.web.client.RestClient;
+
+/**
+ * REST clients for one configured Jellyfin server.
+ *
+ * @param id         server id used in {@code jellyfin_user.server_id}
+ * @param restClient client for interactive calls
+ * @param syncClient client for the /Users sync download, with the longer read timeout
+ */
+public record JellyfinServerClient(String id, RestClient restClient, RestClient syncClient) {
+}
@@ -0,0 +1,62 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.config.JellyfinHttpClientFactory;
+import com.hzwnrw.jellyfin.config.JellyfinServerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds a {@link JellyfinServerClient} for every configured Jellyfin server.
+ */
+@Slf4j
+@Component
+public class JellyfinServerRegistry {
+
+    private final Map<String, JellyfinServerClient> servers = new LinkedHashMap<>();
+
+    public JellyfinServerRegistry(JellyfinServerProperties properties, JellyfinHttpClientFactory httpClientFactory) {
+        for (JellyfinServerProperties.Server server : properties.resolveServers()) {
+            if (server.getId() == null || server.getId().isBlank()) {
+                throw new IllegalStateException("Every entry in jellyfin.servers needs an id");
+            }
+            JellyfinServerClient client = new JellyfinServerClient(
+                    server.getId(),
+                    httpClientFactory.create(server.getId(), server.getUrl(), server.getApiKey(),
+                            JellyfinHttpClientFactory.Operation.INTERACTIVE),
+                    httpClientFactory.create(server.getId(), server.getUrl(), server.getApiKey(),
+                            JellyfinHttpClientFactory.Operation.SYNC));
+            if (servers.putIfAbsent(server.getId(), client) != null) {
+                throw new IllegalStateException("Duplicate Jellyfin server id: " + server.getId());
+            }
+        }
+        if (servers.isEmpty()) {
+            throw new IllegalStateException("No Jellyfin server configured; set jellyfin.url or jellyfin.servers");
+        }
+        log.info("Managing {} Jellyfin server(s): {}", servers.size(), servers.keySet());
+    }
+
+    JellyfinServerRegistry(Collection<JellyfinServerClient> clients) {
+        clients.forEach(client -> servers.put(client.id(), client));
+    }
+
+    public Collection<JellyfinServerClient> getAll() {
+        return servers.values();
+    }
+
+    /**
+     * Client for the given server id.
+     *
+     * @throws IllegalArgumentException if no such server is configured
+     */
+    public JellyfinServerClient get(String serverId) {
+        JellyfinServerClient client = servers.get(serverId);
+        if (client == null) {
+            throw new IllegalArgumentException("Unknown Jellyfin server: " + serverId);
+        }
+        return client;
+    }
+}
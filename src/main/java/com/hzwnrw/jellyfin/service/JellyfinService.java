@@ -1,66 +1,234 @@
 package com.hzwnrw.jellyfin.service;
 
+import com.hzwnrw.jellyfin.dto.BulkStatusResponse;
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import com.hzwnrw.jellyfin.dto.UserDashboardRow;
+import com.hzwnrw.jellyfin.dto.UserDashboardSlice;
+import com.hzwnrw.jellyfin.dto.UserPageCursor;
+import com.hzwnrw.jellyfin.dto.UserSearchFilter;
 import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.JellyfinUserKey;
+import com.hzwnrw.jellyfin.repository.JellyfinUserDashboardRepository;
 import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
+import com.hzwnrw.jellyfin.utils.ContentHashUtils;
+import com.hzwnrw.jellyfin.utils.PolicyDocumentUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 @Service
 @Slf4j
 public class JellyfinService {
 
-    private final RestClient restClient;
+    private final JellyfinServerRegistry serverRegistry;
     private final JellyfinUserRepository jellyfinUserRepository;
     private final JellyfinUserCacheService jellyfinUserCacheService;
+    private final JellyfinUserSyncService jellyfinUserSyncService;
+    private final JellyfinUserStreamReader jellyfinUserStreamReader;
+    private final SyncFingerprintService syncFingerprintService;
+    private final JellyfinApiGuard apiGuard;
+    private final DashboardUpdateService dashboardUpdateService;
+    private final int syncBatchSize;
+    private final int bulkConcurrency;
+    private final Duration policyMaxAge;
 
-    public JellyfinService(@Value("${jellyfin.url}") String baseUrl,
-                           @Value("${jellyfin.api-key}") String apiKey,
+    public JellyfinService(@Value("${jellyfin.sync.batch-size:500}") int syncBatchSize,
+                           @Value("${jellyfin.bulk.max-concurrency:4}") int bulkConcurrency,
+                           @Value("${jellyfin.policy.max-age:15m}") Duration policyMaxAge,
+                           JellyfinServerRegistry serverRegistry,
                            JellyfinUserRepository jellyfinUserRepository,
-                           JellyfinUserCacheService jellyfinUserCacheService) {
-        this.restClient = RestClient.builder()
-                .baseUrl(baseUrl)
-                .defaultHeader("X-Emby-Token", apiKey)
-                .build();
+                           JellyfinUserCacheService jellyfinUserCacheService,
+                           JellyfinUserSyncService jellyfinUserSyncService,
+                           JellyfinUserStreamReader jellyfinUserStreamReader,
+                           SyncFingerprintService syncFingerprintService,
+                           JellyfinApiGuard apiGuard,
+                           DashboardUpdateService dashboardUpdateService) {
+        this.serverRegistry = serverRegistry;
         this.jellyfinUserRepository = jellyfinUserRepository;
         this.jellyfinUserCacheService = jellyfinUserCacheService;
+        this.jellyfinUserSyncService = jellyfinUserSyncService;
+        this.jellyfinUserStreamReader = jellyfinUserStreamReader;
+        this.syncFingerprintService = syncFingerprintService;
+        this.apiGuard = apiGuard;
+        this.dashboardUpdateService = dashboardUpdateService;
+        this.syncBatchSize = syncBatchSize;
+        this.bulkConcurrency = bulkConcurrency;
+        this.policyMaxAge = policyMaxAge;
+    }
+
+    /**
+     * Streams all users from every configured Jellyfin server and writes only the users that
+     * changed since the last sync, one batch at a time. Servers are synced concurrently on
+     * virtual threads, so the sync takes about as long as the slowest server. Returns a summary
+     * of what was written across all servers, and throws if every server failed so the run is not
+     * mistaken for one that found nothing to change.
+     * If a server's payload is byte-for-byte identical to the last applied one, nothing of it is
+     * parsed or written.
+     * Callers should go through {@link SyncCoordinator} so only one sync runs at a time.
+     */
+    public SyncSummary syncUsers(SyncProgress progress) {
+        Collection<JellyfinServerClient> servers = serverRegistry.getAll();
+        log.info("Syncing users from {} Jellyfin server(s) (triggered by {})", servers.size(), progress.getTrigger());
+        progress.enter(SyncProgress.Phase.DOWNLOADING);
+
+        List<ServerSyncResult> results;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<ServerSyncResult>> pending = servers.stream()
+                    .map(server -> CompletableFuture.supplyAsync(() -> syncServer(server, progress), executor))
+                    .toList();
+            results = pending.stream().map(CompletableFuture::join).toList();
+        }
+
+        SyncSummary total = results.stream()
+                .map(ServerSyncResult::summary)
+                .reduce(SyncSummary.empty(), SyncSummary::plus);
+        if (total.hasChanges()) {
+            jellyfinUserCacheService.clearAllJellyfinUserCache();
+        }
+        SyncProgress.Phase phase = overallPhase(results);
+        progress.enter(phase);
+        if (phase == SyncProgress.Phase.FAILED) {
+            throw new IllegalStateException("Sync failed on every Jellyfin server");
+        }
+        return total;
+    }
+
+    private record ServerSyncResult(SyncProgress.Phase phase, SyncSummary summary) {
     }
 
     /**
-     * Fetches all users from Jellyfin and saves/updates them in the database.
-     * Returns the saved users from the database.
+     * Syncs one server. Never throws, so a failing server does not stop the others;
+     * on failure the summary covers whatever batches were committed before the error.
      */
-    @CacheEvict(value = "jellyfinUsers", allEntries = true)
-    public List<JellyfinUser> syncAndGetAllUsers() {
-        log.info("Syncing users from Jellyfin API");
+    private ServerSyncResult syncServer(JellyfinServerClient server, SyncProgress progress) {
+        String serverId = server.id();
+        Path payload = null;
+        SyncRun run = null;
         try {
-            List<JellyfinUser> users = restClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/Users")
-                            .queryParam("includePolicy", true)
-                            .build())
-                    .retrieve()
-                    .body(new ParameterizedTypeReference<List<JellyfinUser>>() {});
-            
-            if (users != null && !users.isEmpty()) {
-                jellyfinUserRepository.saveAll(users);
-                log.info("Successfully synced {} users to database", users.size());
-            } else {
-                log.warn("No users returned from Jellyfin API");
+            progress.enter(serverId, SyncProgress.Phase.DOWNLOADING);
+            payload = Files.createTempFile("jellyfin-users-" + serverId + "-", ".json");
+            String fingerprint = downloadUsers(server, payload);
+
+            if (syncFingerprintService.getFingerprint(serverId).filter(fingerprint::equals).isPresent()) {
+                syncFingerprintService.recordUnchanged(serverId);
+                progress.enter(serverId, SyncProgress.Phase.SKIPPED);
+                log.info("User payload of Jellyfin server {} unchanged since last sync, skipping", serverId);
+                return new ServerSyncResult(SyncProgress.Phase.SKIPPED, SyncSummary.empty());
+            }
+
+            progress.enter(serverId, SyncProgress.Phase.APPLYING);
+            SyncRun serverRun = new SyncRun(serverId);
+            run = serverRun;
+            int fetched;
+            try (InputStream body = Files.newInputStream(payload)) {
+                fetched = jellyfinUserStreamReader.read(body, syncBatchSize, batch -> {
+                    jellyfinUserSyncService.applyBatch(batch, serverRun);
+                    progress.addProcessed(batch.size());
+                });
+            }
+
+            if (fetched == 0) {
+                log.warn("No users returned from Jellyfin server {}", serverId);
+                progress.enter(serverId, SyncProgress.Phase.COMPLETED);
+                return new ServerSyncResult(SyncProgress.Phase.COMPLETED, SyncSummary.empty());
             }
+
+            progress.enter(serverId, SyncProgress.Phase.REMOVING);
+            jellyfinUserSyncService.removeMissing(serverRun);
+            syncFingerprintService.recordApplied(serverId, fingerprint);
+            progress.enter(serverId, SyncProgress.Phase.COMPLETED);
+            log.info("Successfully synced {} users of Jellyfin server {} to database", fetched, serverId);
+            return new ServerSyncResult(SyncProgress.Phase.COMPLETED, serverRun.getSummary());
         } catch (Exception e) {
-            log.error("Error syncing users from Jellyfin: {}", e.getMessage());
+            progress.enter(serverId, SyncProgress.Phase.FAILED);
+            log.error("Error syncing users from Jellyfin server {}: {}", serverId, e.getMessage());
+            return new ServerSyncResult(SyncProgress.Phase.FAILED,
+                    run != null ? run.getSummary() : SyncSummary.empty());
+        } finally {
+            deleteQuietly(payload);
+        }
+    }
+
+    /**
+     * FAILED if every server failed, SKIPPED if every server was unchanged, otherwise COMPLETED.
+     */
+    private static SyncProgress.Phase overallPhase(List<ServerSyncResult> results) {
+        if (!results.isEmpty() && results.stream().allMatch(r -> r.phase() == SyncProgress.Phase.FAILED)) {
+            return SyncProgress.Phase.FAILED;
+        }
+        if (!results.isEmpty() && results.stream().allMatch(r -> r.phase() == SyncProgress.Phase.SKIPPED)) {
+            return SyncProgress.Phase.SKIPPED;
+        }
+        return SyncProgress.Phase.COMPLETED;
+    }
+
+    /**
+     * Spools the /Users response to a file while hashing it, so the payload can be
+     * compared with the last sync before any of it is parsed. Returns the SHA-256 hex.
+     * A retried download overwrites the partial file of the failed attempt.
+     */
+    private String downloadUsers(JellyfinServerClient server, Path target) {
+        return apiGuard.read(server.id(), () -> server.syncClient().get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/Users")
+                        .queryParam("includePolicy", true)
+                        .build())
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isError()) {
+                        throw new RestClientResponseException("Failed to fetch users from Jellyfin server " + server.id(),
+                                response.getStatusCode(), response.getStatusText(),
+                                response.getHeaders(), null, null);
+                    }
+                    MessageDigest digest = ContentHashUtils.newSha256();
+                    try (InputStream body = new DigestInputStream(response.getBody(), digest)) {
+                        Files.copy(body, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    return HexFormat.of().formatHex(digest.digest());
+                }));
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary sync payload {}: {}", path, e.getMessage());
         }
-        
-        return jellyfinUserRepository.findAll();
     }
 
     /**
@@ -69,7 +237,7 @@ public class JellyfinService {
     @Cacheable(value = "jellyfinUsers", key = "'allUsers'")
     public List<JellyfinUser> getAllUsers() {
         log.debug("Retrieving all users from database");
-        return jellyfinUserRepository.findAll();
+        return jellyfinUserRepository.findByDeletedFalse();
     }
 
     /**
@@ -78,43 +246,240 @@ public class JellyfinService {
     //@Cacheable(value = "jellyfinUsers", key = "'page::' + #pageable.pageNumber + '::' + #pageable.pageSize + '::' + #pageable.sort.toString()")
     public Page<JellyfinUser> getAllUsers(Pageable pageable) {
         log.debug("Retrieving paginated users from database with sort: {}", pageable.getSort());
-        return jellyfinUserRepository.findAll(pageable);
+        return jellyfinUserRepository.findByDeletedFalse(pageable);
+    }
+
+    /**
+     * Returns one keyset-paginated page of the users matching the filter, each with its expiry, from the local
+     * database. Starts at the top without a cursor; otherwise {@code skipPages} jumps that many further pages
+     * past it. A cursor for another sort order or without one value per sort key column, or one that no longer
+     * leads to any row, restarts at the top.
+     */
+    public UserDashboardSlice getDashboardSlice(String sortBy, Sort.Direction direction, UserSearchFilter filter,
+                                                int size, UserPageCursor cursor, int skipPages) {
+        if (cursor != null && (!cursor.getSortBy().equals(sortBy) || cursor.getDirection() != direction
+                || cursor.getKeyValues().size() != JellyfinUserDashboardRepository.SORT_KEYS
+                        .getOrDefault(sortBy, List.of()).size())) {
+            cursor = null;
+        }
+        // Skipping is only for jumps of a few pages from a cursor, never an offset scan from the top
+        long skipRows = cursor == null ? 0 : (long) Math.max(0, skipPages) * size;
+        if (skipRows > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot skip " + skipPages + " pages of " + size + " rows");
+        }
+        int skip = (int) skipRows;
+        log.debug("Retrieving dashboard slice by {} {} matching {} from {} skipping {} rows",
+                sortBy, direction, filter, cursor, skip);
+        List<UserDashboardRow> rows = new ArrayList<>(jellyfinUserRepository.findDashboardSlice(
+                sortBy, direction, filter, cursor, skip, size + 1));
+        // The extra row only tells whether there is more in the direction of travel
+        boolean more = rows.size() > size;
+        if (more) {
+            rows.removeLast();
+        }
+
+        boolean backward = cursor != null && cursor.isBefore();
+        if (cursor != null && (rows.isEmpty() || (backward && !more))) {
+            // Walked off the end, or back to the top with a short page: show a full first page instead
+            return getDashboardSlice(sortBy, direction, filter, size, null, 0);
+        }
+        if (backward) {
+            Collections.reverse(rows);
+        }
+
+        boolean hasNext = backward || more;
+        boolean hasPrevious = backward ? more : cursor != null;
+        // Only the unfiltered total is cached; a search counts its matches
+        long total = filter.isEmpty()
+                ? jellyfinUserCacheService.countActiveUsers()
+                : jellyfinUserRepository.countDashboard(filter);
+        return new UserDashboardSlice(
+                rows,
+                hasNext ? pageCursor(sortBy, direction, false, rows.getLast()) : null,
+                hasPrevious ? pageCursor(sortBy, direction, true, rows.getFirst()) : null,
+                total);
+    }
+
+    private static UserPageCursor pageCursor(String sortBy, Sort.Direction direction, boolean before,
+                                             UserDashboardRow row) {
+        return new UserPageCursor(sortBy, direction, before, JellyfinUserDashboardRepository.keyValues(sortBy, row));
     }
 
-    public void updateDisableStatus(String userId, boolean disable) {
-        log.info("Updating disable status for user ID: {} to {}", userId, disable);
+    /**
+     * Reads one user, including its policy, straight from Jellyfin.
+     * Empty if the server no longer knows the user.
+     */
+    public Optional<JellyfinUser> fetchUser(String serverId, String userId) {
+        JellyfinServerClient server = serverRegistry.get(serverId);
+        String body;
         try {
-            // Fetch from Jellyfin
-            JellyfinUser user = restClient.get()
+            body = apiGuard.read(serverId, () -> server.restClient().get()
                     .uri("/Users/{id}", userId)
                     .retrieve()
-                    .body(JellyfinUser.class);
-
-            if (user != null && user.getPolicy() != null) {
-                // Update the policy object
-                user.getPolicy().setDisabled(disable);
-
-                // Post the updated policy back to Jellyfin
-                restClient.post()
-                        .uri("/Users/{id}/Policy", userId)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .body(user.getPolicy())
-                        .retrieve()
-                        .toBodilessEntity();
-
-                // Sync to database
-                jellyfinUserRepository.save(user);
-                
-                // Invalidate user cache
-                jellyfinUserCacheService.invalidateUserCache(userId);
-                jellyfinUserCacheService.invalidateAllUsersCache();
-                
-                log.info("Successfully updated disable status for user ID: {} and synced to database", userId);
-            } else {
-                log.warn("Failed to update disable status: user or policy is null for ID: {}", userId);
+                    .body(String.class));
+        } catch (HttpClientErrorException.NotFound e) {
+            return Optional.empty();
+        }
+        if (body == null || body.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(jellyfinUserStreamReader.readUser(body).toEntity(serverId));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid user payload from Jellyfin server " + serverId, e);
+        }
+    }
+
+    /**
+     * Enables or disables many users of one server. At most {@code jellyfin.bulk.max-concurrency}
+     * users are updated in Jellyfin at a time, each on its own virtual thread; the updated users
+     * are then saved in one batched write, the cache is invalidated once and open dashboards are told.
+     * A failure for one user does not stop the others and is reported in the result.
+     *
+     * @throws IllegalArgumentException if the server id is not configured
+     */
+    public BulkStatusResponse updateDisableStatus(String serverId, List<String> userIds, boolean disable) {
+        Map<String, Boolean> targets = new LinkedHashMap<>();
+        userIds.forEach(userId -> targets.putIfAbsent(userId, disable));
+        List<BulkStatusResponse.UserStatusResult> results = applyDisableStatus(serverId, targets);
+        int updated = (int) results.stream()
+                .filter(result -> result.outcome() == BulkStatusResponse.Outcome.UPDATED)
+                .count();
+        return new BulkStatusResponse(disable, updated, results.size() - updated, results);
+    }
+
+    /**
+     * Sets each given user of one server to its target disabled state, as described for
+     * {@link #updateDisableStatus(String, List, boolean)}. Returns one result per user in the order given.
+     *
+     * @throws IllegalArgumentException if the server id is not configured
+     */
+    public List<BulkStatusResponse.UserStatusResult> applyDisableStatus(String serverId, Map<String, Boolean> targets) {
+        serverRegistry.get(serverId);
+        log.info("Updating disable status of {} users on server {}", targets.size(), serverId);
+
+        Semaphore permits = new Semaphore(bulkConcurrency);
+        List<BulkItem> items;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<BulkItem>> pending = targets.entrySet().stream()
+                    .map(target -> CompletableFuture.supplyAsync(
+                            () -> updateOne(serverId, target.getKey(), target.getValue(), permits), executor))
+                    .toList();
+            items = pending.stream().map(CompletableFuture::join).toList();
+        }
+
+        List<JellyfinUser> updated = items.stream().map(BulkItem::user).filter(Objects::nonNull).toList();
+        if (!updated.isEmpty()) {
+            try {
+                jellyfinUserSyncService.applyUserChanges(updated, List.of());
+            } catch (RuntimeException e) {
+                // Jellyfin already has the new state; the next sync brings the database in line
+                log.error("Failed to save {} updated users of server {}: {}", updated.size(), serverId, e.getMessage());
+            }
+            jellyfinUserCacheService.invalidateUsers(serverId, updated.stream().map(JellyfinUser::getId).toList());
+            Map<String, Boolean> updatedStatus = new LinkedHashMap<>();
+            updated.forEach(user -> updatedStatus.put(user.getId(), targets.get(user.getId())));
+            dashboardUpdateService.statusChanged(serverId, updatedStatus);
+        }
+
+        log.info("Disable status update on server {}: {} updated, {} failed",
+                serverId, updated.size(), items.size() - updated.size());
+        return items.stream().map(BulkItem::result).toList();
+    }
+
+    private record BulkItem(BulkStatusResponse.UserStatusResult result, JellyfinUser user) {
+    }
+
+    private BulkItem updateOne(String serverId, String userId, boolean disable, Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(userId, "interrupted");
+        }
+        try {
+            JellyfinUser user = pushDisableStatus(serverId, userId, disable);
+            if (user == null) {
+                return new BulkItem(new BulkStatusResponse.UserStatusResult(userId,
+                        BulkStatusResponse.Outcome.NOT_FOUND, null), null);
             }
+            return new BulkItem(new BulkStatusResponse.UserStatusResult(userId,
+                    BulkStatusResponse.Outcome.UPDATED, null), user);
         } catch (Exception e) {
-            log.error("Error updating disable status for user ID: {}: {}", userId, e.getMessage());
+            log.warn("Error updating disable status for user ID: {} on server {}: {}", userId, serverId, e.getMessage());
+            return failed(userId, e.getMessage());
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static BulkItem failed(String userId, String error) {
+        return new BulkItem(new BulkStatusResponse.UserStatusResult(userId,
+                BulkStatusResponse.Outcome.FAILED, error), null);
+    }
+
+    /**
+     * Flips the user's disabled flag and posts the complete policy back to Jellyfin.
+     * The policy comes from the local copy when it is recent enough, otherwise it is read from Jellyfin first.
+     * Returns the updated user ready to be saved, or null if Jellyfin has no such user or policy.
+     */
+    private JellyfinUser pushDisableStatus(String serverId, String userId, boolean disable) {
+        JellyfinServerClient server = serverRegistry.get(serverId);
+        JellyfinUser user = findLocalCopyWithinMaxAge(serverId, userId)
+                .or(() -> fetchUser(serverId, userId))
+                .orElse(null);
+        String policyJson = user != null ? user.getPolicyJson() : null;
+        if (policyJson == null) {
+            return null;
+        }
+
+        // Update the policy document
+        String updatedPolicy = PolicyDocumentUtils.withDisabled(policyJson, disable);
+
+        // Post the updated policy back to Jellyfin
+        apiGuard.write(serverId, () -> server.restClient().post()
+                .uri("/Users/{id}/Policy", userId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(updatedPolicy)
+                .retrieve()
+                .toBodilessEntity());
+
+        user.getPolicy().setDisabled(disable);
+        user.setPolicyJson(updatedPolicy);
+        user.setPolicySyncedAt(ZonedDateTime.now(ZoneOffset.UTC));
+        user.setContentHash(user.computeContentHash(updatedPolicy));
+        return user;
+    }
+
+    /**
+     * The stored user if its policy document is known to match Jellyfin as of less than
+     * {@code jellyfin.policy.max-age} ago: either the row was written from Jellyfin since then,
+     * or a sync of its server completed since then and found the row unchanged.
+     * <p>
+     * This is a bounded-staleness read, not an optimistic check: nothing is compared with Jellyfin
+     * before the policy is posted back, so a policy edited in Jellyfin within the max-age can be
+     * overwritten by a toggle. Set the max-age to 0 to always read the policy from Jellyfin first.
+     */
+    private Optional<JellyfinUser> findLocalCopyWithinMaxAge(String serverId, String userId) {
+        if (policyMaxAge.isZero()) {
+            return Optional.empty();
+        }
+        Optional<JellyfinUser> local = jellyfinUserRepository.findById(new JellyfinUserKey(serverId, userId))
+                .filter(user -> !user.isDeleted() && user.getPolicyDocument() != null);
+        if (local.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Instant verifiedAt = syncFingerprintService.getLastSyncAt(serverId).orElse(Instant.EPOCH);
+        ZonedDateTime syncedAt = local.get().getPolicySyncedAt();
+        if (syncedAt != null && syncedAt.toInstant().isAfter(verifiedAt)) {
+            verifiedAt = syncedAt.toInstant();
+        }
+        if (verifiedAt.isBefore(Instant.now().minus(policyMaxAge))) {
+            log.debug("Local policy of user {} on server {} last verified at {}, reading it from Jellyfin",
+                    userId, serverId, verifiedAt);
+            return Optional.empty();
         }
+        return local;
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.hzwnrw.jellyfin.service;
 
 import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.JellyfinUserKey;
 import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +12,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,16 +23,18 @@ public class JellyfinUserCacheService {
 
     private final JellyfinUserRepository jellyfinUserRepository;
     private final CacheManager cacheManager;
+    private final DataVersionService dataVersionService;
 
     private static final String CACHE_NAME = "jellyfinUsers";
 
     /**
      * Get user by ID with caching
      */
-    @Cacheable(value = "jellyfinUsers", key = "'userId::' + #userId")
-    public Optional<JellyfinUser> getUserById(String userId) {
-        log.debug("Fetching Jellyfin user with ID: {}", userId);
-        return jellyfinUserRepository.findById(userId);
+    @Cacheable(value = "jellyfinUsers", key = "'userId::' + #serverId + '::' + #userId")
+    public Optional<JellyfinUser> getUserById(String serverId, String userId) {
+        log.debug("Fetching Jellyfin user with ID: {} on server {}", userId, serverId);
+        return jellyfinUserRepository.findById(new JellyfinUserKey(serverId, userId))
+                .filter(user -> !user.isDeleted());
     }
 
     /**
@@ -39,7 +43,16 @@ public class JellyfinUserCacheService {
     @Cacheable(value = "jellyfinUsers", key = "'allUsers'")
     public List<JellyfinUser> getAllUsers() {
         log.debug("Fetching all Jellyfin users");
-        return jellyfinUserRepository.findAll();
+        return jellyfinUserRepository.findByDeletedFalse();
+    }
+
+    /**
+     * Number of users that still exist in Jellyfin, cached until the next sync or webhook changes the user list
+     */
+    @Cacheable(value = "jellyfinUsers", key = "'activeUserCount'")
+    public long countActiveUsers() {
+        log.debug("Counting active Jellyfin users");
+        return jellyfinUserRepository.countByDeletedFalse();
     }
 
     /**
@@ -47,18 +60,33 @@ public class JellyfinUserCacheService {
      */
     public Page<JellyfinUser> getPaginatedUsers(Pageable pageable) {
         log.debug("Fetching paginated Jellyfin users");
-        return jellyfinUserRepository.findAll(pageable);
+        return jellyfinUserRepository.findByDeletedFalse(pageable);
     }
 
     /**
      * Invalidate cache for a specific user
      */
-    public void invalidateUserCache(String userId) {
-        log.info("Invalidating cache for Jellyfin user: {}", userId);
+    public void invalidateUserCache(String serverId, String userId) {
+        log.info("Invalidating cache for Jellyfin user: {} on server {}", userId, serverId);
         Cache cache = cacheManager.getCache(CACHE_NAME);
         if (cache != null) {
-            cache.evict("userId::" + userId);
+            cache.evict("userId::" + serverId + "::" + userId);
+        }
+    }
+
+    /**
+     * Invalidate cache for several users of one server and the user lists containing them.
+     * Like the other list invalidations, this also moves the data version served to API clients on.
+     */
+    public void invalidateUsers(String serverId, Collection<String> userIds) {
+        log.info("Invalidating cache for {} Jellyfin users on server {}", userIds.size(), serverId);
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null) {
+            userIds.forEach(userId -> cache.evict("userId::" + serverId + "::" + userId));
+            cache.evict("allUsers");
+            cache.evict("allUsersWithPolicy");
         }
+        dataVersionService.bump();
     }
 
     /**
@@ -70,7 +98,9 @@ public class JellyfinUserCacheService {
         if (cache != null) {
             cache.evict("allUsers");
             cache.evict("allUsersWithPolicy");
+            cache.evict("activeUserCount");
         }
+        dataVersionService.bump();
     }
 
     /**
@@ -82,5 +112,6 @@ public class JellyfinUserCacheService {
         if (cache != null) {
             cache.clear();
         }
+        dataVersionService.bump();
     }
 }
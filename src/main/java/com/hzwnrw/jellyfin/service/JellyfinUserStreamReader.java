@@ -0,0 +1,120 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hzwnrw.jellyfin.dto.JellyfinUserRecord;
+import com.hzwnrw.jellyfin.model.UserPolicy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads a Jellyfin /Users response token by token and hands users to a sink
+ * in fixed-size batches, so the full payload is never held in memory.
+ * Only each user's policy object is materialized, to keep it as a JSON document.
+ */
+@Component
+public class JellyfinUserStreamReader {
+
+    private static final String DEFAULT_AUTHENTICATION_PROVIDER_ID = new UserPolicy().getAuthenticationProviderId();
+    private static final String DEFAULT_PASSWORD_RESET_PROVIDER_ID = new UserPolicy().getPasswordResetProviderId();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Parses a JSON array of users and passes them to the sink in batches of at most batchSize.
+     * Returns the number of users read.
+     */
+    public int read(InputStream body, int batchSize, Consumer<List<JellyfinUserRecord>> sink) throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+
+        int total = 0;
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of users but got " + parser.currentToken());
+            }
+
+            List<JellyfinUserRecord> batch = new ArrayList<>(batchSize);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                batch.add(readUser(parser));
+                total++;
+                if (batch.size() == batchSize) {
+                    sink.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new IOException("Unexpected token in users array: " + parser.currentToken());
+            }
+            if (!batch.isEmpty()) {
+                sink.accept(batch);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Parses a single user object, as returned by /Users/{id}.
+     */
+    public JellyfinUserRecord readUser(String body) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON user object but got " + parser.currentToken());
+            }
+            return readUser(parser);
+        }
+    }
+
+    private JellyfinUserRecord readUser(JsonParser parser) throws IOException {
+        String id = null;
+        String name = null;
+        boolean isDisabled = false;
+        String authenticationProviderId = DEFAULT_AUTHENTICATION_PROVIDER_ID;
+        String passwordResetProviderId = DEFAULT_PASSWORD_RESET_PROVIDER_ID;
+        String policyJson = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "Id" -> id = textOrNull(parser);
+                case "Name" -> name = textOrNull(parser);
+                case "Policy" -> {
+                    if (value != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    JsonNode policy = objectMapper.readTree(parser);
+                    isDisabled = policy.path("IsDisabled").asBoolean(false);
+                    if (policy.has("AuthenticationProviderId")) {
+                        authenticationProviderId = textOrNull(policy.get("AuthenticationProviderId"));
+                    }
+                    if (policy.has("PasswordResetProviderId")) {
+                        passwordResetProviderId = textOrNull(policy.get("PasswordResetProviderId"));
+                    }
+                    policyJson = objectMapper.writeValueAsString(policy);
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        // The dashboard pages on the name, so a user without one is stored with an empty name rather than null
+        return new JellyfinUserRecord(id, name != null ? name : "", isDisabled, authenticationProviderId, passwordResetProviderId,
+                policyJson);
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return node.isNull() ? null : node.asText();
+    }
+
+    private String textOrNull(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+    }
+}
@@ -0,0 +1,107 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.dto.JellyfinUserRecord;
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.JellyfinUserKey;
+import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
+import com.hzwnrw.jellyfin.repository.JellyfinUserRepository.SyncSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Diffs batches of fetched Jellyfin users against the local jellyfin_user table
+ * and writes only the rows that actually differ.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JellyfinUserSyncService {
+
+    private final JellyfinUserRepository jellyfinUserRepository;
+
+    /**
+     * Inserts new users and updates changed or previously removed users of one batch.
+     * Unchanged rows are not touched. Each batch commits in its own transaction.
+     */
+    @Transactional
+    public void applyBatch(List<JellyfinUserRecord> batch, SyncRun run) {
+        List<JellyfinUserRecord> fresh = new ArrayList<>(batch.size());
+        for (JellyfinUserRecord user : batch) {
+            if (user.id() != null && run.markSeen(user.id())) {
+                fresh.add(user);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        Map<String, SyncSnapshot> snapshot = new HashMap<>();
+        for (SyncSnapshot row : jellyfinUserRepository.findSyncSnapshotByIdIn(run.getServerId(),
+                fresh.stream().map(JellyfinUserRecord::id).toList())) {
+            snapshot.put(row.getId(), row);
+        }
+
+        SyncSummary summary = run.getSummary();
+        List<JellyfinUser> toSave = new ArrayList<>();
+        for (JellyfinUserRecord record : fresh) {
+            JellyfinUser user = record.toEntity(run.getServerId());
+            SyncSnapshot existing = snapshot.get(user.getId());
+            if (existing == null) {
+                summary.setAdded(summary.getAdded() + 1);
+                toSave.add(user);
+            } else if (existing.isDeleted() || !user.getContentHash().equals(existing.getContentHash())) {
+                summary.setChanged(summary.getChanged() + 1);
+                toSave.add(user);
+            } else {
+                summary.setUnchanged(summary.getUnchanged() + 1);
+            }
+        }
+
+        if (!toSave.isEmpty()) {
+            jellyfinUserRepository.upsertAll(toSave);
+        }
+    }
+
+    /**
+     * Writes a batch of single-user changes, such as those received by webhook, in one transaction.
+     * Every given user is written regardless of its content hash, and deletions are soft.
+     */
+    @Transactional
+    public void applyUserChanges(List<JellyfinUser> upserts, List<JellyfinUserKey> deletions) {
+        if (!upserts.isEmpty()) {
+            jellyfinUserRepository.upsertAll(upserts);
+        }
+        deletions.stream()
+                .collect(Collectors.groupingBy(JellyfinUserKey::getServerId,
+                        Collectors.mapping(JellyfinUserKey::getId, Collectors.toList())))
+                .forEach(jellyfinUserRepository::markDeleted);
+    }
+
+    /**
+     * Soft-deletes users that were not seen in any batch of the run.
+     * Must only be called once the whole payload has been read.
+     */
+    @Transactional
+    public void removeMissing(SyncRun run) {
+        List<String> removed = jellyfinUserRepository.findActiveIds(run.getServerId()).stream()
+                .filter(id -> !run.wasSeen(id))
+                .toList();
+        if (!removed.isEmpty()) {
+            jellyfinUserRepository.markDeleted(run.getServerId(), removed);
+        }
+        run.getSummary().setRemoved(removed.size());
+
+        SyncSummary summary = run.getSummary();
+        log.info("Sync diff applied for server {}: {} added, {} changed, {} removed, {} unchanged",
+                run.getServerId(), summary.getAdded(), summary.getChanged(), summary.getRemoved(), summary.getUnchanged());
+    }
+}
@@ -0,0 +1,181 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.dto.JellyfinWebhookEvent;
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.JellyfinUserKey;
+import com.hzwnrw.jellyfin.service.UserChangeQueue.ChangeType;
+import com.hzwnrw.jellyfin.service.UserChangeQueue.Offer;
+import com.hzwnrw.jellyfin.service.UserChangeQueue.PendingChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Applies Jellyfin webhook notifications to jellyfin_user as they arrive, so the
+ * dashboard does not have to wait for the next full sync.
+ * <p>
+ * Notifications go through a bounded {@link UserChangeQueue} and are applied by a single
+ * worker thread in batches: each user in a batch is re-read from Jellyfin, the batch is
+ * committed in one transaction, and only the affected users' cache entries are evicted.
+ * Open dashboards get the new status of the re-read users.
+ * Anything dropped or failed here is picked up by the scheduled sync.
+ */
+@Slf4j
+@Service
+public class JellyfinWebhookService {
+
+    private static final Map<String, ChangeType> CHANGE_TYPES = Map.of(
+            "UserCreated", ChangeType.REFRESH,
+            "UserUpdated", ChangeType.REFRESH,
+            "UserLockedOut", ChangeType.REFRESH,
+            "UserPasswordChanged", ChangeType.REFRESH,
+            "UserDeleted", ChangeType.DELETE);
+
+    private final JellyfinServerRegistry serverRegistry;
+    private final JellyfinService jellyfinService;
+    private final JellyfinUserSyncService jellyfinUserSyncService;
+    private final JellyfinUserCacheService jellyfinUserCacheService;
+    private final DashboardUpdateService dashboardUpdateService;
+    private final UserChangeQueue queue;
+    private final int batchSize;
+    private final Map<Offer, Counter> offerCounters = new EnumMap<>(Offer.class);
+    private final Counter ignoredCounter;
+    private final Counter failedCounter;
+
+    private final WorkerThread worker = new WorkerThread("jellyfin-webhook", this::drainOnce);
+
+    public JellyfinWebhookService(JellyfinServerRegistry serverRegistry,
+                                  JellyfinService jellyfinService,
+                                  JellyfinUserSyncService jellyfinUserSyncService,
+                                  JellyfinUserCacheService jellyfinUserCacheService,
+                                  DashboardUpdateService dashboardUpdateService,
+                                  @Value("${jellyfin.webhook.queue-capacity:1000}") int queueCapacity,
+                                  @Value("${jellyfin.webhook.batch-size:50}") int batchSize,
+                                  MeterRegistry meterRegistry) {
+        this.serverRegistry = serverRegistry;
+        this.jellyfinService = jellyfinService;
+        this.jellyfinUserSyncService = jellyfinUserSyncService;
+        this.jellyfinUserCacheService = jellyfinUserCacheService;
+        this.dashboardUpdateService = dashboardUpdateService;
+        this.queue = new UserChangeQueue(queueCapacity);
+        this.batchSize = batchSize;
+
+        for (Offer offer : Offer.values()) {
+            offerCounters.put(offer, eventCounter(meterRegistry, offer.name().toLowerCase()));
+        }
+        this.ignoredCounter = eventCounter(meterRegistry, "ignored");
+        this.failedCounter = eventCounter(meterRegistry, "failed");
+        Gauge.builder("jellyfin.webhook.queue.size", queue, UserChangeQueue::size)
+                .description("User changes received by webhook and not yet applied")
+                .register(meterRegistry);
+    }
+
+    private static Counter eventCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("jellyfin.webhook.events")
+                .description("Jellyfin webhook notifications by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        worker.stop();
+    }
+
+    /**
+     * Queues the change described by a notification.
+     * Returns empty for notifications that are not about a user account.
+     *
+     * @throws IllegalArgumentException if the server id is not configured
+     */
+    public Optional<Offer> submit(String serverId, JellyfinWebhookEvent event) {
+        serverRegistry.get(serverId);
+        ChangeType type = CHANGE_TYPES.get(event.notificationType());
+        if (type == null || event.userId() == null || event.userId().isBlank()) {
+            ignoredCounter.increment();
+            log.debug("Ignoring Jellyfin webhook {} from server {}", event.notificationType(), serverId);
+            return Optional.empty();
+        }
+        Offer offer = queue.offer(new PendingChange(serverId, normalizeId(event.userId()), type));
+        offerCounters.get(offer).increment();
+        if (offer == Offer.REJECTED) {
+            log.warn("Webhook queue full ({} pending), dropping {} for user {} on server {}",
+                    queue.getCapacity(), event.notificationType(), event.userId(), serverId);
+        }
+        return Optional.of(offer);
+    }
+
+    private void drainOnce() throws InterruptedException {
+        List<PendingChange> batch = queue.drain(batchSize, Duration.ofSeconds(1));
+        if (!batch.isEmpty()) {
+            apply(batch);
+        }
+    }
+
+    /**
+     * Re-reads the changed users from Jellyfin and commits the whole batch at once.
+     * A user that cannot be read is skipped and left to the next sync.
+     */
+    void apply(List<PendingChange> batch) {
+        List<JellyfinUser> upserts = new ArrayList<>();
+        List<JellyfinUserKey> deletions = new ArrayList<>();
+        for (PendingChange change : batch) {
+            JellyfinUserKey key = new JellyfinUserKey(change.serverId(), change.userId());
+            if (change.type() == ChangeType.DELETE) {
+                deletions.add(key);
+                continue;
+            }
+            try {
+                jellyfinService.fetchUser(change.serverId(), change.userId())
+                        .ifPresentOrElse(upserts::add, () -> deletions.add(key));
+            } catch (RuntimeException e) {
+                failedCounter.increment();
+                log.warn("Could not read user {} from Jellyfin server {}, leaving it to the next sync: {}",
+                        change.userId(), change.serverId(), e.getMessage());
+            }
+        }
+        if (upserts.isEmpty() && deletions.isEmpty()) {
+            return;
+        }
+
+        jellyfinUserSyncService.applyUserChanges(upserts, deletions);
+        upserts.forEach(user -> jellyfinUserCacheService.invalidateUserCache(user.getServerId(), user.getId()));
+        deletions.forEach(key -> jellyfinUserCacheService.invalidateUserCache(key.getServerId(), key.getId()));
+        jellyfinUserCacheService.invalidateAllUsersCache();
+
+        Map<String, Map<String, Boolean>> statusByServer = new LinkedHashMap<>();
+        upserts.forEach(user -> statusByServer.computeIfAbsent(user.getServerId(), id -> new LinkedHashMap<>())
+                .put(user.getId(), user.getPolicy().isDisabled()));
+        statusByServer.forEach(dashboardUpdateService::statusChanged);
+        log.info("Applied {} webhook change(s): {} upserted, {} deleted", batch.size(), upserts.size(), deletions.size());
+    }
+
+    int pendingChanges() {
+        return queue.size();
+    }
+
+    /**
+     * The webhook plugin formats ids with dashes while /Users returns them without.
+     */
+    private static String normalizeId(String userId) {
+        return userId.replace("-", "").toLowerCase();
+    }
+}
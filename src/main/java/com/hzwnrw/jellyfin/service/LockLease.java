@@ -0,0 +1,69 @@
+package com.hzwnrw.jellyfin.service;
+
+import lombok.Getter;
+
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * A cluster lock held by this node. The fencing token increases on every acquisition of
+ * the same lock, so a holder that stalled past its lease can tell that another node has
+ * taken over and must stop writing.
+ */
+public class LockLease implements AutoCloseable {
+
+    @Getter
+    private final String name;
+    @Getter
+    private final long fencingToken;
+    final String value;
+
+    private final ClusterLockService lockService;
+    private volatile boolean lost;
+    private volatile ScheduledFuture<?> renewal;
+
+    LockLease(String name, long fencingToken, String value, ClusterLockService lockService) {
+        this.name = name;
+        this.fencingToken = fencingToken;
+        this.value = value;
+        this.lockService = lockService;
+    }
+
+    /**
+     * Confirms with Redis that this lease still owns the lock. Call before each
+     * externally visible side effect of a long-running job.
+     */
+    public boolean isHeld() {
+        if (lost) {
+            return false;
+        }
+        if (!lockService.owns(this)) {
+            markLost();
+        }
+        return !lost;
+    }
+
+    @Override
+    public void close() {
+        lockService.release(this);
+    }
+
+    void markLost() {
+        lost = true;
+        cancelRenewal();
+    }
+
+    boolean isLost() {
+        return lost;
+    }
+
+    void setRenewal(ScheduledFuture<?> renewal) {
+        this.renewal = renewal;
+    }
+
+    void cancelRenewal() {
+        ScheduledFuture<?> current = renewal;
+        if (current != null) {
+            current.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.model.PolicyChange;
+import com.hzwnrw.jellyfin.model.UserExpiration;
+import com.hzwnrw.jellyfin.model.UserExpirationKey;
+import com.hzwnrw.jellyfin.repository.ExpirationRepository;
+import com.hzwnrw.jellyfin.repository.PolicyChangeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Records disable/enable requests in the policy_change_outbox table together with the local
+ * state change that goes with them. {@code PolicyChangeDispatcher} pushes them to Jellyfin.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PolicyChangeOutbox {
+
+    public static final String SOURCE_TOGGLE = "toggle";
+    public static final String SOURCE_EXPIRATION = "expiration";
+
+    private final PolicyChangeRepository policyChangeRepository;
+    private final ExpirationRepository expirationRepository;
+    private final DataVersionService dataVersionService;
+    private final DashboardUpdateService dashboardUpdateService;
+
+    /**
+     * Queues a manual enable or disable. Enabling also clears the user's expiry.
+     */
+    @Transactional
+    public PolicyChange requestToggle(String serverId, String userId, boolean disable) {
+        PolicyChange change = enqueue(serverId, userId, disable, SOURCE_TOGGLE);
+        if (!disable) {
+            expirationRepository.deleteById(new UserExpirationKey(serverId, userId));
+            dashboardUpdateService.expiryChanged(serverId, List.of(userId), null);
+            log.info("Cleared expiry for enabled user: {}", userId);
+        }
+        dataVersionService.bump();
+        return change;
+    }
+
+    /**
+     * Records an enable or disable that was applied to the given users in Jellyfin directly rather
+     * than through the outbox. Their pending changes are superseded, so an older toggle or expiry
+     * dispatched afterwards cannot undo it. Disabling settles their queued expiry disables, and
+     * enabling clears their expiries.
+     */
+    @Transactional
+    public void recordApplied(String serverId, List<String> userIds, boolean disable) {
+        int superseded = policyChangeRepository.supersedePending(serverId, userIds);
+        if (superseded > 0) {
+            log.info("Superseded {} pending changes on server {} by a direct {}",
+                    superseded, serverId, disable ? "disable" : "enable");
+        }
+        if (disable) {
+            if (expirationRepository.markDisableApplied(serverId, userIds) > 0) {
+                dataVersionService.bump();
+            }
+        } else {
+            expirationRepository.deleteAllById(userIds.stream()
+                    .map(userId -> new UserExpirationKey(serverId, userId))
+                    .toList());
+            dashboardUpdateService.expiryChanged(serverId, userIds, null);
+            dataVersionService.bump();
+            log.info("Cleared expiry for {} enabled users", userIds.size());
+        }
+    }
+
+    /**
+     * Queues the disable of each expired user and flags its expiry as queued, all in one transaction.
+     * The expiry only counts as processed once Jellyfin accepts the disable, see {@link #complete}.
+     * Expiries moved or cleared since they were read are skipped and stay pending, so only the
+     * expiries that were actually flagged get a disable. Returns the queued changes.
+     */
+    @Transactional
+    public List<PolicyChange> requestExpiries(List<UserExpiration> expirations) {
+        List<UserExpiration> queued = new ArrayList<>(expirations.size());
+        expirations.stream()
+                .collect(Collectors.groupingBy(expiration -> new DueGroup(expiration.getServerId(),
+                        expiration.getExpiryDate()), LinkedHashMap::new, Collectors.toList()))
+                .forEach((group, members) -> queued.addAll(markDisableQueued(group, members)));
+        if (queued.size() < expirations.size()) {
+            log.info("Skipped {} expiries changed since they were read", expirations.size() - queued.size());
+        }
+        if (queued.isEmpty()) {
+            return List.of();
+        }
+
+        List<PolicyChange> changes = new ArrayList<>(queued.size());
+        for (UserExpiration expiration : queued) {
+            changes.add(newChange(expiration.getServerId(), expiration.getJellyfinUserId(), true, SOURCE_EXPIRATION));
+            expiration.setDisableQueued(true);
+        }
+        List<PolicyChange> saved = policyChangeRepository.saveAll(changes);
+        dataVersionService.bump();
+        log.info("Queued disable of {} expired users", saved.size());
+        return saved;
+    }
+
+    /**
+     * Returns up to {@code size} due changes, at most one per user. Older pending changes for a
+     * returned user are marked superseded, since only the latest intent has to reach Jellyfin.
+     */
+    @Transactional
+    public List<PolicyChange> nextBatch(int size) {
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.of("UTC"));
+        Map<String, PolicyChange> latest = new LinkedHashMap<>();
+        for (PolicyChange change : policyChangeRepository.findDue(now, PageRequest.ofSize(size))) {
+            latest.put(change.getServerId() + ":" + change.getJellyfinUserId(), change);
+        }
+        List<PolicyChange> batch = new ArrayList<>(latest.values());
+        for (PolicyChange change : batch) {
+            int superseded = policyChangeRepository.supersedeOlder(
+                    change.getServerId(), change.getJellyfinUserId(), change.getId());
+            if (superseded > 0) {
+                log.debug("Superseded {} older changes for user {} on server {}",
+                        superseded, change.getJellyfinUserId(), change.getServerId());
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Stores the outcome of dispatched changes. A disable that finished, including one for a user or
+     * server Jellyfin no longer knows, marks the queued expiry of its user processed. The expiries
+     * behind {@code exhaustedDisables}, disables that Jellyfin never accepted, are released instead
+     * so the next expiration run queues them anew rather than leaving those users enabled.
+     */
+    @Transactional
+    public void complete(List<PolicyChange> changes, List<PolicyChange> exhaustedDisables) {
+        policyChangeRepository.saveAll(changes);
+        Set<Long> exhaustedIds = exhaustedDisables.stream().map(PolicyChange::getId).collect(Collectors.toSet());
+        List<PolicyChange> settledDisables = changes.stream()
+                .filter(change -> change.isTargetDisabled() && change.getStatus() != PolicyChange.Status.PENDING
+                        && !exhaustedIds.contains(change.getId()))
+                .toList();
+        int updated = 0;
+        for (Map.Entry<String, List<String>> entry : byServer(settledDisables).entrySet()) {
+            updated += expirationRepository.markDisableApplied(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, List<String>> entry : byServer(exhaustedDisables).entrySet()) {
+            int reopened = expirationRepository.reopenDisableQueued(entry.getKey(), entry.getValue());
+            if (reopened > 0) {
+                log.warn("Reopened {} expirations on server {} whose disable could not be applied",
+                        reopened, entry.getKey());
+            }
+            updated += reopened;
+        }
+        if (updated > 0) {
+            dataVersionService.bump();
+        }
+    }
+
+    /**
+     * Deletes done and superseded changes created before the given time. Failed ones are kept for inspection.
+     */
+    @Transactional
+    public int purgeFinished(ZonedDateTime before) {
+        return policyChangeRepository.deleteFinishedBefore(
+                Set.of(PolicyChange.Status.DONE, PolicyChange.Status.SUPERSEDED), before);
+    }
+
+    /**
+     * Flags one server's expiries that share an expiry date as queued with a single update and
+     * returns the ones it matched. Only when some did not match are the matched ones read back.
+     */
+    private List<UserExpiration> markDisableQueued(DueGroup group, List<UserExpiration> members) {
+        List<String> userIds = members.stream().map(UserExpiration::getJellyfinUserId).toList();
+        int updated = expirationRepository.markDisableQueued(group.serverId(), userIds, group.expiryDate());
+        if (updated == members.size()) {
+            return members;
+        }
+        Set<String> queued = Set.copyOf(
+                expirationRepository.findDisableQueuedIds(group.serverId(), userIds, group.expiryDate()));
+        return members.stream().filter(expiration -> queued.contains(expiration.getJellyfinUserId())).toList();
+    }
+
+    private static Map<String, List<String>> byServer(List<PolicyChange> changes) {
+        return changes.stream().collect(Collectors.groupingBy(PolicyChange::getServerId,
+                Collectors.mapping(PolicyChange::getJellyfinUserId, Collectors.toList())));
+    }
+
+    private record DueGroup(String serverId, ZonedDateTime expiryDate) {
+    }
+
+    private PolicyChange enqueue(String serverId, String userId, boolean disable, String source) {
+        PolicyChange saved = policyChangeRepository.save(newChange(serverId, userId, disable, source));
+        log.info("Queued {} of user {} on server {} ({})", disable ? "disable" : "enable", userId, serverId, source);
+        return saved;
+    }
+
+    private static PolicyChange newChange(String serverId, String userId, boolean disable, String source) {
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.of("UTC"));
+        PolicyChange change = new PolicyChange();
+        change.setServerId(serverId);
+        change.setJellyfinUserId(userId);
+        change.setTargetDisabled(disable);
+        change.setSource(source);
+        change.setCreatedAt(now);
+        change.setNextAttemptAt(now);
+        return change;
+    }
+}
@@ -1,5 +1,6 @@
 package com.hzwnrw.jellyfin.service;
 
+import com.hzwnrw.jellyfin.dto.AppUserSummary;
 import com.hzwnrw.jellyfin.dto.PasswordChangeRequest;
 import com.hzwnrw.jellyfin.dto.ProfileResponse;
 import com.hzwnrw.jellyfin.dto.ProfileUpdateRequest;
@@ -7,8 +8,6 @@ import com.hzwnrw.jellyfin.model.AppUser;
 import com.hzwnrw.jellyfin.repository.AppUserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -20,11 +19,11 @@ public class ProfileService {
 
     private final AppUserRepository appUserRepository;
     private final PasswordEncoder passwordEncoder;
-    private final CacheManager cacheManager;
+    private final AppUserCacheService appUserCacheService;
 
     public ProfileResponse getProfile(String username) {
         log.info("Fetching profile for user: {}", username);
-        AppUser appUser = appUserRepository.findByUsername(username)
+        AppUserSummary appUser = appUserCacheService.getUserByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
         return mapToProfileResponse(appUser);
     }
@@ -34,15 +33,16 @@ public class ProfileService {
         AppUser appUser = appUserRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
+        String previousEmail = appUser.getEmail();
         appUser.setName(updateRequest.getName());
         appUser.setEmail(updateRequest.getEmail());
         appUserRepository.save(appUser);
 
         // Invalidate user cache
-        invalidateUserCache(username);
+        invalidateUserCache(appUser, previousEmail);
 
         log.info("Profile updated successfully for user: {}", username);
-        return mapToProfileResponse(appUser);
+        return mapToProfileResponse(AppUserSummary.from(appUser));
     }
 
     public void changePassword(String username, PasswordChangeRequest passwordChangeRequest) {
@@ -71,20 +71,17 @@ public class ProfileService {
         appUserRepository.save(appUser);
 
         // Invalidate user cache after password change
-        invalidateUserCache(username);
+        invalidateUserCache(appUser, appUser.getEmail());
 
         log.info("Password changed successfully for user: {}", username);
     }
 
-    private void invalidateUserCache(String username) {
-        log.debug("Invalidating cache for user: {}", username);
-        Cache cache = cacheManager.getCache("appUsers");
-        if (cache != null) {
-            cache.evict("userByUsername::" + username);
-        }
+    private void invalidateUserCache(AppUser appUser, String previousEmail) {
+        log.debug("Invalidating cache for user: {}", appUser.getUsername());
+        appUserCacheService.invalidateUserCache(appUser, previousEmail);
     }
 
-    private ProfileResponse mapToProfileResponse(AppUser appUser) {
+    private ProfileResponse mapToProfileResponse(AppUserSummary appUser) {
         return new ProfileResponse(
                 appUser.getId(),
                 appUser.getUsername(),
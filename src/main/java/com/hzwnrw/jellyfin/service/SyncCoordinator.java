@@ -0,0 +1,92 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.dto.SyncStatusResponse;
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Allows at most one Jellyfin sync at a time. A caller that arrives while a sync
+ * is running waits for that sync and gets its result instead of starting another.
+ * Open dashboards are told when a sync finishes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SyncCoordinator {
+
+    private final JellyfinService jellyfinService;
+    private final DashboardUpdateService dashboardUpdateService;
+
+    private final AtomicReference<InFlight> current = new AtomicReference<>();
+    private volatile InFlight last;
+
+    /**
+     * Runs a sync, or joins the one already in flight.
+     */
+    public SyncSummary sync(String trigger) {
+        InFlight mine = new InFlight(new SyncProgress(trigger), new CompletableFuture<>());
+        InFlight running = current.compareAndExchange(null, mine);
+        if (running != null) {
+            log.info("Sync requested by {} joined running sync started by {} at {}",
+                    trigger, running.progress().getTrigger(), running.progress().getStartedAt());
+            return running.result().join();
+        }
+
+        SyncSummary summary = null;
+        try {
+            summary = jellyfinService.syncUsers(mine.progress());
+            mine.result().complete(summary);
+            return summary;
+        } catch (RuntimeException e) {
+            mine.progress().enter(SyncProgress.Phase.FAILED);
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            last = mine;
+            current.set(null);
+            dashboardUpdateService.syncFinished(mine.progress().getPhase().name(), summary);
+        }
+    }
+
+    public SyncStatusResponse getStatus() {
+        InFlight running = current.get();
+        InFlight finished = last;
+        SyncStatusResponse status = new SyncStatusResponse();
+        if (running != null) {
+            SyncProgress progress = running.progress();
+            status.setRunning(true);
+            status.setTrigger(progress.getTrigger());
+            status.setStartedAt(progress.getStartedAt());
+            status.setPhase(progress.getPhase().name());
+            status.setProcessedUsers(progress.getProcessedUsers());
+            status.setServerPhases(phaseNames(progress));
+        }
+        if (finished != null) {
+            status.setLastFinishedAt(finished.progress().getFinishedAt());
+            status.setLastPhase(finished.progress().getPhase().name());
+            if (running == null) {
+                status.setServerPhases(phaseNames(finished.progress()));
+            }
+            if (!finished.result().isCompletedExceptionally()) {
+                status.setLastSummary(finished.result().getNow(null));
+            }
+        }
+        return status;
+    }
+
+    private static Map<String, String> phaseNames(SyncProgress progress) {
+        Map<String, String> phases = new LinkedHashMap<>();
+        progress.getServerPhases().forEach((serverId, phase) -> phases.put(serverId, phase.name()));
+        return phases;
+    }
+
+    private record InFlight(SyncProgress progress, CompletableFuture<SyncSummary> result) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.hzwnrw.jellyfin.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Remembers the fingerprint of the last applied /Users payload of each Jellyfin server in Redis,
+ * so a sync cycle that fetches an identical payload can skip all mapping and database work.
+ */
+@Slf4j
+@Service
+public class SyncFingerprintService {
+
+    static final String STATE_KEY_PREFIX = "jellyfin_sync:state:";
+    static final String FINGERPRINT_FIELD = "fingerprint";
+    static final String LAST_SYNC_AT_FIELD = "lastSyncAt";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration fingerprintTtl;
+
+    public SyncFingerprintService(StringRedisTemplate redisTemplate,
+                                  @Value("${jellyfin.sync.fingerprint-ttl:6h}") Duration fingerprintTtl) {
+        this.redisTemplate = redisTemplate;
+        this.fingerprintTtl = fingerprintTtl;
+    }
+
+    /**
+     * Fingerprint of the last applied payload, if still known.
+     * Redis errors are treated as "unknown" so the sync falls back to a full diff.
+     */
+    public Optional<String> getFingerprint(String serverId) {
+        try {
+            Object value = redisTemplate.opsForHash().get(stateKey(serverId), FINGERPRINT_FIELD);
+            return Optional.ofNullable(value).map(Object::toString);
+        } catch (Exception e) {
+            log.warn("Failed to read sync fingerprint of server {} from Redis: {}", serverId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public Optional<Instant> getLastSyncAt(String serverId) {
+        try {
+            Object value = redisTemplate.opsForHash().get(stateKey(serverId), LAST_SYNC_AT_FIELD);
+            return Optional.ofNullable(value).map(v -> Instant.parse(v.toString()));
+        } catch (Exception e) {
+            log.warn("Failed to read last sync time of server {} from Redis: {}", serverId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores the fingerprint of a payload that has been fully applied.
+     * The fingerprint expires after the configured TTL, which forces a periodic full diff
+     * even when the payload never changes.
+     */
+    public void recordApplied(String serverId, String fingerprint) {
+        try {
+            redisTemplate.opsForHash().putAll(stateKey(serverId), Map.of(
+                    FINGERPRINT_FIELD, fingerprint,
+                    LAST_SYNC_AT_FIELD, Instant.now().toString()
+            ));
+            redisTemplate.expire(stateKey(serverId), fingerprintTtl);
+        } catch (Exception e) {
+            log.warn("Failed to store sync fingerprint of server {} in Redis: {}", serverId, e.getMessage());
+        }
+    }
+
+    /**
+     * Records a sync cycle that was skipped because the payload was unchanged.
+     * Does not extend the fingerprint TTL.
+     */
+    public void recordUnchanged(String serverId) {
+        try {
+            redisTemplate.opsForHash().put(stateKey(serverId), LAST_SYNC_AT_FIELD, Instant.now().toString());
+        } catch (Exception e) {
+            log.warn("Failed to update last sync time of server {} in Redis: {}", serverId, e.getMessage());
+        }
+    }
+
+    private static String stateKey(String serverId) {
+        return STATE_KEY_PREFIX + serverId;
+    }
+}
@@ -0,0 +1,75 @@
+package com.hzwnrw.jellyfin.service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live progress of one sync, updated by the syncing threads and read by the status endpoint.
+ * The overall phase covers the whole sync; each Jellyfin server also reports its own phase.
+ */
+public class SyncProgress {
+
+    public enum Phase {
+        STARTING,
+        DOWNLOADING,
+        APPLYING,
+        REMOVING,
+        COMPLETED,
+        SKIPPED,
+        FAILED
+    }
+
+    private final String trigger;
+    private final Instant startedAt;
+    private final AtomicInteger processedUsers = new AtomicInteger();
+    private final Map<String, Phase> serverPhases = new ConcurrentHashMap<>();
+    private volatile Phase phase = Phase.STARTING;
+    private volatile Instant finishedAt;
+
+    public SyncProgress(String trigger) {
+        this.trigger = trigger;
+        this.startedAt = Instant.now();
+    }
+
+    public void enter(Phase phase) {
+        this.phase = phase;
+        if (phase == Phase.COMPLETED || phase == Phase.SKIPPED || phase == Phase.FAILED) {
+            this.finishedAt = Instant.now();
+        }
+    }
+
+    public void enter(String serverId, Phase phase) {
+        serverPhases.put(serverId, phase);
+    }
+
+    public void addProcessed(int users) {
+        processedUsers.addAndGet(users);
+    }
+
+    public String getTrigger() {
+        return trigger;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public int getProcessedUsers() {
+        return processedUsers.get();
+    }
+
+    public Map<String, Phase> getServerPhases() {
+        return new TreeMap<>(serverPhases);
+    }
+}
@@ -0,0 +1,44 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * State carried across the batches of a single streaming sync of one Jellyfin server.
+ * Only user IDs are retained between batches, never user payloads.
+ */
+public class SyncRun {
+
+    private final String serverId;
+    private final Set<String> seenIds = new HashSet<>();
+    private final SyncSummary summary = SyncSummary.empty();
+
+    public SyncRun(String serverId) {
+        this.serverId = serverId;
+    }
+
+    public String getServerId() {
+        return serverId;
+    }
+
+    /**
+     * Records a user ID as present in this sync. Returns false if it was already seen.
+     */
+    boolean markSeen(String id) {
+        return seenIds.add(id);
+    }
+
+    boolean wasSeen(String id) {
+        return seenIds.contains(id);
+    }
+
+    public int getSeenCount() {
+        return seenIds.size();
+    }
+
+    public SyncSummary getSummary() {
+        return summary;
+    }
+}
@@ -0,0 +1,109 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.model.JellyfinUserKey;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded FIFO of pending user changes holding at most one entry per user.
+ * <p>
+ * A change for a user that is already queued replaces the queued change in place, so
+ * duplicate notifications collapse into one and the latest one wins. With a single consumer
+ * this keeps changes for the same user in arrival order.
+ */
+public class UserChangeQueue {
+
+    public enum ChangeType {
+        /** Re-read the user from Jellyfin and store it. */
+        REFRESH,
+        /** The user was removed from Jellyfin. */
+        DELETE
+    }
+
+    public enum Offer {
+        ACCEPTED,
+        COALESCED,
+        REJECTED
+    }
+
+    public record PendingChange(String serverId, String userId, ChangeType type) {
+    }
+
+    private final int capacity;
+    private final Map<JellyfinUserKey, PendingChange> pending = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    public UserChangeQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Queues a change without blocking. Rejected only when the queue is full and the
+     * user has no queued change to coalesce with.
+     */
+    public Offer offer(PendingChange change) {
+        JellyfinUserKey key = new JellyfinUserKey(change.serverId(), change.userId());
+        lock.lock();
+        try {
+            if (pending.containsKey(key)) {
+                pending.put(key, change);
+                return Offer.COALESCED;
+            }
+            if (pending.size() >= capacity) {
+                return Offer.REJECTED;
+            }
+            pending.put(key, change);
+            notEmpty.signal();
+            return Offer.ACCEPTED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes up to {@code max} changes in queue order, waiting up to {@code wait} for the
+     * first one. Returns an empty list if nothing arrived in time.
+     */
+    public List<PendingChange> drain(int max, Duration wait) throws InterruptedException {
+        long remaining = wait.toNanos();
+        lock.lockInterruptibly();
+        try {
+            while (pending.isEmpty()) {
+                if (remaining <= 0) {
+                    return List.of();
+                }
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            List<PendingChange> batch = new ArrayList<>(Math.min(max, pending.size()));
+            Iterator<PendingChange> it = pending.values().iterator();
+            while (it.hasNext() && batch.size() < max) {
+                batch.add(it.next());
+                it.remove();
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,214 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.hzwnrw.jellyfin.dto.UserExportRow;
+import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes every user with its expiry as CSV or NDJSON, straight from the database cursor to the response.
+ * Each row is written as it is read, so memory stays flat however many users there are and the
+ * download starts before the query has finished. Exports hold a connection for as long as the client
+ * takes to read them, so only {@code max-concurrent} run at once.
+ */
+@Slf4j
+@Service
+public class UserExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "server_id,user_id,name,disabled,expiry_date,expiry_processed\r\n";
+
+    public enum Format {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        /**
+         * Format named {@code name}, ignoring case.
+         */
+        public static Optional<Format> parse(String name) {
+            return Arrays.stream(values()).filter(format -> format.name().equalsIgnoreCase(name)).findFirst();
+        }
+    }
+
+    private final JellyfinUserRepository jellyfinUserRepository;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Semaphore permits;
+    private final int maxConcurrent;
+
+    public UserExportService(JellyfinUserRepository jellyfinUserRepository,
+                             @Value("${app.export.max-concurrent:2}") int maxConcurrent) {
+        this.jellyfinUserRepository = jellyfinUserRepository;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Response body writing the export, gzip-compressed if asked, or empty when {@code max-concurrent}
+     * exports are already running. The slot is held until the body has been written or closed.
+     */
+    public Optional<Export> open(Format format, boolean gzip) {
+        if (!permits.tryAcquire()) {
+            log.warn("Refusing user export, {} already running", maxConcurrent);
+            return Optional.empty();
+        }
+        return Optional.of(new Export(format, gzip));
+    }
+
+    /**
+     * An export holding one of the {@code max-concurrent} slots. The slot is released once the body has
+     * been written, or on {@link #close()} if the request ends before the body runs, whichever comes first.
+     */
+    public final class Export implements StreamingResponseBody, AutoCloseable {
+
+        private final Format format;
+        private final boolean gzip;
+        private final AtomicBoolean open = new AtomicBoolean(true);
+
+        private Export(Format format, boolean gzip) {
+            this.format = format;
+            this.gzip = gzip;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            try {
+                write(format, gzip, out);
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (open.compareAndSet(true, false)) {
+                permits.release();
+            }
+        }
+    }
+
+    void write(Format format, boolean gzip, OutputStream out) throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(compressed != null ? compressed : out,
+                StandardCharsets.UTF_8), BUFFER_SIZE);
+        long rows;
+        try {
+            rows = switch (format) {
+                case CSV -> writeCsv(writer);
+                case NDJSON -> writeNdjson(writer);
+            };
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; closing the cursor early discards the rest of the result
+            throw e.getCause();
+        }
+        writer.flush();
+        if (compressed != null) {
+            compressed.finish();
+        }
+        log.info("Exported {} users as {}{}", rows, format, gzip ? " (gzip)" : "");
+    }
+
+    private long writeCsv(Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        return jellyfinUserRepository.streamExport(row -> {
+            try {
+                writer.write(csvField(row.serverId()));
+                writer.write(',');
+                writer.write(csvField(row.id()));
+                writer.write(',');
+                writer.write(csvField(row.name()));
+                writer.write(',');
+                writer.write(Boolean.toString(row.disabled()));
+                writer.write(',');
+                writer.write(row.expiryDate() != null ? row.expiryDate().toString() : "");
+                writer.write(',');
+                writer.write(row.expiryProcessed() != null ? row.expiryProcessed().toString() : "");
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private long writeNdjson(Writer writer) throws IOException {
+        try (JsonGenerator json = jsonFactory.createGenerator(writer)) {
+            // The writer is flushed and closed by the caller, not per generator call
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            // One object per line instead of Jackson's space between root values
+            json.setRootValueSeparator(null);
+            return jellyfinUserRepository.streamExport(row -> {
+                try {
+                    writeJson(json, row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static void writeJson(JsonGenerator json, UserExportRow row) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("serverId", row.serverId());
+        json.writeStringField("userId", row.id());
+        json.writeStringField("name", row.name());
+        json.writeBooleanField("disabled", row.disabled());
+        json.writeStringField("expiryDate", row.expiryDate() != null ? row.expiryDate().toString() : null);
+        json.writeFieldName("expiryProcessed");
+        if (row.expiryProcessed() != null) {
+            json.writeBoolean(row.expiryProcessed());
+        } else {
+            json.writeNull();
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    /**
+     * Quotes a CSV field when needed, and neutralizes values a spreadsheet would run as a formula.
+     */
+    static String csvField(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        if ("=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,59 @@
+package com.hzwnrw.jellyfin.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A daemon thread that repeats one blocking step until it is stopped.
+ * <p>
+ * A step that throws is logged and the loop carries on. Stopping interrupts the thread, and a
+ * thread that is no longer the current one leaves its loop, so a stop followed by a start never
+ * leaves two loops running.
+ */
+@Slf4j
+public class WorkerThread {
+
+    /**
+     * One pass of the loop, typically waiting for work and handling it.
+     */
+    @FunctionalInterface
+    public interface Step {
+        void run() throws InterruptedException;
+    }
+
+    private final String name;
+    private final Step step;
+    private volatile Thread current;
+
+    public WorkerThread(String name, Step step) {
+        this.name = name;
+        this.step = step;
+    }
+
+    public void start() {
+        Thread thread = Thread.ofPlatform().name(name).daemon().unstarted(this::loop);
+        // Published before the thread runs, or its first check would find it is not the current one
+        current = thread;
+        thread.start();
+    }
+
+    public void stop() {
+        Thread running = current;
+        current = null;
+        if (running != null) {
+            running.interrupt();
+        }
+    }
+
+    private void loop() {
+        while (current == Thread.currentThread()) {
+            try {
+                step.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Worker {} failed: {}", name, e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.hzwnrw.jellyfin.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Utility class for computing stable content hashes.
+ * Used by the Jellyfin sync to detect rows whose content actually changed.
+ */
+public class ContentHashUtils {
+
+    private static final byte NULL_MARKER = 0x00;
+    private static final byte VALUE_MARKER = 0x01;
+
+    /**
+     * SHA-256 over the given parts, returned as lowercase hex.
+     * Each part is length-prefixed so ("ab", "c") and ("a", "bc") never collide,
+     * and null is distinguished from the empty string.
+     */
+    public static String sha256Hex(String... parts) {
+        MessageDigest digest = newSha256();
+        for (String part : parts) {
+            if (part == null) {
+                digest.update(NULL_MARKER);
+                continue;
+            }
+            byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+            digest.update(VALUE_MARKER);
+            digest.update(intToBytes(bytes.length));
+            digest.update(bytes);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * New SHA-256 digest; every JVM is required to provide it.
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static byte[] intToBytes(int value) {
+        return new byte[]{
+            (byte) (value >>> 24),
+            (byte) (value >>> 16),
+            (byte) (value >>> 8),
+            (byte) value
+        };
+    }
+}
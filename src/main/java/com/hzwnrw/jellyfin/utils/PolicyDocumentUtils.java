@@ -0,0 +1,53 @@
+package com.hzwnrw.jellyfin.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utility class for the locally mirrored Jellyfin policy documents.
+ * Policies are stored gzip-compressed; a typical 1.5 KB policy shrinks to about 400 bytes.
+ */
+public class PolicyDocumentUtils {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public static byte[] compress(String json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length() / 3);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static String decompress(byte[] compressed) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copy of the policy document with IsDisabled set, leaving every other field as it was.
+     */
+    public static String withDisabled(String policyJson, boolean disabled) {
+        try {
+            ObjectNode policy = (ObjectNode) OBJECT_MAPPER.readTree(policyJson);
+            policy.put("IsDisabled", disabled);
+            return OBJECT_MAPPER.writeValueAsString(policy);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid policy document", e);
+        }
+    }
+}
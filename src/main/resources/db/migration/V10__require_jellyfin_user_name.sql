@@ -0,0 +1,3 @@
+-- The dashboard pages on (name, server_id, id), so the name can no longer be null; users without one get an empty name.
+UPDATE jellyfin_user SET name = '' WHERE name IS NULL;
+ALTER TABLE jellyfin_user MODIFY name VARCHAR(255) NOT NULL;
@@ -0,0 +1,2 @@
+-- An expiry now counts as processed only once Jellyfin accepts its disable; until then disable_queued keeps it from being queued twice.
+ALTER TABLE user_expiration ADD COLUMN IF NOT EXISTS disable_queued BIT(1) NOT NULL DEFAULT 0;
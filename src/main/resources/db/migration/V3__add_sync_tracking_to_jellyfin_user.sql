@@ -0,0 +1,3 @@
+ALTER TABLE jellyfin_user
+    ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64) NULL,
+    ADD COLUMN IF NOT EXISTS deleted BIT(1) NOT NULL DEFAULT b'0';
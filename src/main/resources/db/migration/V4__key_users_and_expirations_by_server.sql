@@ -0,0 +1,9 @@
+ALTER TABLE jellyfin_user
+    ADD COLUMN IF NOT EXISTS server_id VARCHAR(64) NOT NULL DEFAULT 'default' FIRST,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (server_id, id);
+
+ALTER TABLE user_expiration
+    ADD COLUMN IF NOT EXISTS server_id VARCHAR(64) NOT NULL DEFAULT 'default' FIRST,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (server_id, jellyfin_user_id);
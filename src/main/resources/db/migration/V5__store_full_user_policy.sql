@@ -0,0 +1,3 @@
+ALTER TABLE jellyfin_user
+    ADD COLUMN IF NOT EXISTS policy_document BLOB NULL,
+    ADD COLUMN IF NOT EXISTS policy_synced_at TIMESTAMP NULL;
@@ -0,0 +1,15 @@
+CREATE TABLE IF NOT EXISTS policy_change_outbox (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    server_id VARCHAR(64) NOT NULL,
+    jellyfin_user_id VARCHAR(255) NOT NULL,
+    target_disabled BIT(1) NOT NULL,
+    source VARCHAR(32) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    dispatched_at TIMESTAMP NULL,
+    last_error VARCHAR(512) NULL,
+    PRIMARY KEY (id),
+    INDEX idx_policy_change_outbox_due (status, next_attempt_at, id)
+);
@@ -0,0 +1,4 @@
+-- Serves the expiration sweep: processed = false AND expiry_date <= ? in (expiry_date, server_id, jellyfin_user_id) order.
+-- The key columns make the keyset tie-break an index range too; InnoDB stores them in the index anyway.
+CREATE INDEX IF NOT EXISTS idx_user_expiration_due
+    ON user_expiration (processed, expiry_date, server_id, jellyfin_user_id);
@@ -0,0 +1,6 @@
+-- Serve the dashboard's keyset pagination: deleted = false in (name, server_id, id) or (id, server_id) order,
+-- read forwards or backwards from the cursor position without sorting.
+CREATE INDEX IF NOT EXISTS idx_jellyfin_user_name
+    ON jellyfin_user (deleted, name, server_id, id);
+CREATE INDEX IF NOT EXISTS idx_jellyfin_user_id
+    ON jellyfin_user (deleted, id, server_id);
@@ -0,0 +1,4 @@
+-- Serve the dashboard's disabled filter in (name, server_id, id) order; name prefix search uses idx_jellyfin_user_name
+-- and the expiry filters start from idx_user_expiration_due.
+CREATE INDEX IF NOT EXISTS idx_jellyfin_user_disabled
+    ON jellyfin_user (deleted, policy_is_disabled, name, server_id, id);
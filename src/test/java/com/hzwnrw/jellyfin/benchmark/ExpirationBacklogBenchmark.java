@@ -0,0 +1,156 @@
+package com.hzwnrw.jellyfin.benchmark;
+
+import com.hzwnrw.jellyfin.model.UserExpiration;
+import com.hzwnrw.jellyfin.repository.ExpirationRepository;
+import com.hzwnrw.jellyfin.support.JpaTestConfig;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reads the due expiration backlog from a seeded user_expiration table, comparing the former
+ * unbounded query without an index against keyset-paginated chunks with idx_user_expiration_due.
+ * Reports total query latency, the slowest single query, the most rows held in memory at once and
+ * the bytes allocated by the read. H2 keeps the table in the same heap, which makes retained-heap
+ * readings too noisy to compare, so rows held stands in for the heap the read pins.
+ *
+ * Run with: mvn test -Pbenchmark -Dtest=ExpirationBacklogBenchmark [-Dbenchmark.rows=1000000]
+ */
+@Tag("benchmark")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@ContextConfiguration(classes = JpaTestConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ExpirationBacklogBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    // One row in twenty is due and unprocessed, the rest are processed or in the future
+    private static final int DUE_EVERY = 20;
+    private static final int CHUNK_SIZE = 500;
+    private static final ZonedDateTime NOW = ZonedDateTime.of(2026, 10, 18, 0, 0, 0, 0, ZoneId.of("UTC"));
+
+    @Autowired
+    private ExpirationRepository expirationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("DELETE FROM user_expiration");
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < ROWS; i++) {
+            boolean due = i % DUE_EVERY == 0;
+            ZonedDateTime expiry = due || i % 2 == 0 ? NOW.minusMinutes(i % 100_000) : NOW.plusMinutes(i % 100_000);
+            batch.add(new Object[]{"home", "%032x".formatted(i), "user-" + i,
+                    Timestamp.from(expiry.toInstant()), !due && i % 2 == 0});
+            if (batch.size() == 10_000) {
+                insert(batch);
+                batch.clear();
+            }
+        }
+        insert(batch);
+        System.out.printf("%nSeeded %d rows, %d due%n", ROWS, expectedDue());
+        System.out.printf("%-26s | %-10s | %-13s | %-9s | %-12s%n",
+                "scenario", "total", "slowest query", "rows held", "allocated");
+    }
+
+    @Test
+    void compareBacklogReads() {
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_user_expiration_due");
+        report("unbounded list, no index", this::readUnbounded);
+        report("keyset chunks, no index", this::readKeyset);
+
+        jdbcTemplate.execute("CREATE INDEX idx_user_expiration_due "
+                + "ON user_expiration (processed, expiry_date, server_id, jellyfin_user_id)");
+        report("unbounded list, index", this::readUnbounded);
+        report("keyset chunks, index", this::readKeyset);
+    }
+
+    /**
+     * The query ExpirationTask used before: every due row materialized at once.
+     */
+    private Result readUnbounded() {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        List<UserExpiration> due = entityManager.createQuery(
+                        "SELECT e FROM UserExpiration e WHERE e.processed = false AND e.expiryDate <= :now",
+                        UserExpiration.class)
+                .setParameter("now", NOW)
+                .getResultList();
+        long elapsed = System.nanoTime() - start;
+        return new Result(due.size(), due.size(), elapsed, elapsed, allocatedBytes() - allocatedBefore);
+    }
+
+    private Result readKeyset() {
+        long allocatedBefore = allocatedBytes();
+        AtomicInteger rows = new AtomicInteger();
+        AtomicInteger largestChunk = new AtomicInteger();
+        AtomicLong total = new AtomicLong();
+        AtomicLong slowest = new AtomicLong();
+        long[] queryStart = {System.nanoTime()};
+        expirationRepository.forEachDueChunk(NOW, CHUNK_SIZE, chunk -> {
+            long queryTime = System.nanoTime() - queryStart[0];
+            total.addAndGet(queryTime);
+            slowest.accumulateAndGet(queryTime, Math::max);
+            rows.addAndGet(chunk.size());
+            largestChunk.accumulateAndGet(chunk.size(), Math::max);
+            queryStart[0] = System.nanoTime();
+            return true;
+        });
+        return new Result(rows.get(), largestChunk.get(), total.get(), slowest.get(),
+                allocatedBytes() - allocatedBefore);
+    }
+
+    private void report(String scenario, Supplier<Result> read) {
+        read.get();
+        Result result = read.get();
+        assertEquals(expectedDue(), result.rows());
+        System.out.printf("%-26s | %7d ms | %10d ms | %9d | %9d MB%n", scenario,
+                result.totalNanos() / 1_000_000, result.slowestNanos() / 1_000_000,
+                result.rowsHeld(), result.allocatedBytes() / (1024 * 1024));
+    }
+
+    private void insert(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO user_expiration (server_id, jellyfin_user_id, username, expiry_date, processed, "
+                + "disable_queued) VALUES (?, ?, ?, ?, ?, false)", batch);
+    }
+
+    private static int expectedDue() {
+        return (ROWS + DUE_EVERY - 1) / DUE_EVERY;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private record Result(int rows, int rowsHeld, long totalNanos, long slowestNanos, long allocatedBytes) {
+    }
+}
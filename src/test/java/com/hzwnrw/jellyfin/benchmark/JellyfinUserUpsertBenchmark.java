@@ -0,0 +1,103 @@
+package com.hzwnrw.jellyfin.benchmark;
+
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
+import com.hzwnrw.jellyfin.support.JpaTestConfig;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares JPA saveAll (merge per row) with the JDBC batched upsert for jellyfin_user.
+ * Each scenario first inserts N fresh rows, then rewrites the same N rows with new content.
+ *
+ * Run with: mvn test -Pbenchmark -Dtest=JellyfinUserUpsertBenchmark
+ */
+@Tag("benchmark")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@ContextConfiguration(classes = JpaTestConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class JellyfinUserUpsertBenchmark {
+
+    @Autowired
+    private JellyfinUserRepository jellyfinUserRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeAll
+    void warmUp() {
+        run(2_000, false);
+        System.out.printf("%n%-8s | %-12s | %-12s | %-12s | %-12s%n",
+                "rows", "saveAll ins", "saveAll upd", "upsert ins", "upsert upd");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000, 10_000, 100_000})
+    void saveAllVersusUpsertAll(int rows) {
+        run(rows, true);
+    }
+
+    private void run(int rows, boolean report) {
+        jdbcTemplate.update("DELETE FROM jellyfin_user");
+        long saveAllInsert = time(() -> jellyfinUserRepository.saveAll(buildUsers(rows, "v1")));
+        long saveAllUpdate = time(() -> jellyfinUserRepository.saveAll(buildUsers(rows, "v2")));
+        assertEquals(rows, jellyfinUserRepository.count());
+
+        jdbcTemplate.update("DELETE FROM jellyfin_user");
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long upsertInsert = time(() -> tx.executeWithoutResult(status ->
+                jellyfinUserRepository.upsertAll(buildUsers(rows, "v1"))));
+        long upsertUpdate = time(() -> tx.executeWithoutResult(status ->
+                jellyfinUserRepository.upsertAll(buildUsers(rows, "v2"))));
+        assertEquals(rows, jellyfinUserRepository.count());
+
+        if (report) {
+            System.out.printf("%-8d | %9d ms | %9d ms | %9d ms | %9d ms%n",
+                    rows, saveAllInsert, saveAllUpdate, upsertInsert, upsertUpdate);
+        }
+    }
+
+    private static long time(Runnable action) {
+        long start = System.nanoTime();
+        action.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static List<JellyfinUser> buildUsers(int rows, String version) {
+        List<JellyfinUser> users = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            JellyfinUser user = new JellyfinUser();
+            user.setServerId("home");
+            user.setId("%032x".formatted(i));
+            user.setName("user-" + i + "-" + version);
+            user.getPolicy().setDisabled(i % 7 == 0);
+            user.setContentHash(user.computeContentHash());
+            users.add(user);
+        }
+        return users;
+    }
+}
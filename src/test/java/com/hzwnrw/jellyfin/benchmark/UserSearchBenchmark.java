@@ -0,0 +1,152 @@
+package com.hzwnrw.jellyfin.benchmark;
+
+import com.hzwnrw.jellyfin.dto.UserDashboardRow;
+import com.hzwnrw.jellyfin.dto.UserPageCursor;
+import com.hzwnrw.jellyfin.dto.UserSearchFilter;
+import com.hzwnrw.jellyfin.repository.JellyfinUserDashboardRepository;
+import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
+import com.hzwnrw.jellyfin.support.JpaTestConfig;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Times one dashboard search response (the page query plus its match count) against a seeded
+ * jellyfin_user table, for each kind of filter, and fails when a median exceeds the budget.
+ * Substring search is reported but not held to the budget: LIKE '%x%' cannot use an index and
+ * scans idx_jellyfin_user_name, so its cost grows with the user count.
+ *
+ * Run with: mvn test -Pbenchmark -Dtest=UserSearchBenchmark [-Dbenchmark.users=100000]
+ */
+@Tag("benchmark")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@ContextConfiguration(classes = JpaTestConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserSearchBenchmark {
+
+    private static final int USERS = Integer.getInteger("benchmark.users", 100_000);
+    private static final int PAGE_SIZE = 10;
+    private static final int RUNS = 50;
+    private static final long BUDGET_MILLIS = 20;
+    // One user in ten is disabled, one in twenty has an expiry, spread over the next 200 days
+    private static final int DISABLED_EVERY = 10;
+    private static final int EXPIRY_EVERY = 20;
+    private static final ZonedDateTime NOW = ZonedDateTime.now(ZoneId.of("UTC"));
+    private static final String[] NAMES = {"alex", "blake", "casey", "devon", "emery", "finley", "harper", "jordan",
+            "kendall", "logan", "morgan", "parker", "quinn", "riley", "sawyer", "taylor"};
+
+    @Autowired
+    private JellyfinUserRepository jellyfinUserRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("DELETE FROM user_expiration");
+        jdbcTemplate.update("DELETE FROM jellyfin_user");
+        List<Object[]> users = new ArrayList<>(10_000);
+        List<Object[]> expirations = new ArrayList<>(1_000);
+        for (int i = 0; i < USERS; i++) {
+            String id = "%032x".formatted(i);
+            users.add(new Object[]{"home", id, NAMES[i % NAMES.length] + "." + i, i % DISABLED_EVERY == 0});
+            if (i % EXPIRY_EVERY == 0) {
+                expirations.add(new Object[]{"home", id, "user-" + i,
+                        Timestamp.from(NOW.plusHours(i % (200 * 24)).toInstant())});
+            }
+            if (users.size() == 10_000) {
+                insert(users, expirations);
+            }
+        }
+        insert(users, expirations);
+        jdbcTemplate.execute("ANALYZE");
+        System.out.printf("%nSeeded %d users%n", USERS);
+        System.out.printf("%-30s | %-8s | %-8s | %-8s%n", "scenario", "median", "p95", "matches");
+    }
+
+    @Test
+    void searchResponsesStayWithinBudget() {
+        List<String> overBudget = new ArrayList<>();
+        check(overBudget, "first page", new UserSearchFilter(), null);
+        check(overBudget, "deep page (cursor)", new UserSearchFilter(),
+                new UserPageCursor("name", Sort.Direction.ASC, false, List.of("sawyer.50000", "home", "")));
+        check(overBudget, "prefix, many matches", new UserSearchFilter("riley", null, null, null, null), null);
+        check(overBudget, "prefix, one match", new UserSearchFilter("riley.4541", null, null, null, null), null);
+        check(overBudget, "disabled", new UserSearchFilter(null, null, true, null, null), null);
+        check(overBudget, "has expiry", new UserSearchFilter(null, null, null, true, null), null);
+        check(overBudget, "expiring within 7 days", new UserSearchFilter(null, null, null, null, 7), null);
+        check(overBudget, "disabled + 30 days", new UserSearchFilter(null, null, true, null, 30), null);
+        check(overBudget, "prefix + disabled + 30 days", new UserSearchFilter("alex", null, true, null, 30), null);
+        check(overBudget, "prefix + has expiry", new UserSearchFilter("alex", null, null, true, null), null);
+        report("substring, many matches", new UserSearchFilter("ley.", UserSearchFilter.Match.CONTAINS,
+                null, null, null), null);
+        report("substring, no match", new UserSearchFilter("zzz", UserSearchFilter.Match.CONTAINS,
+                null, null, null), null);
+
+        assertTrue(overBudget.isEmpty(), "over " + BUDGET_MILLIS + " ms: " + overBudget);
+    }
+
+    private void check(List<String> overBudget, String scenario, UserSearchFilter filter, UserPageCursor cursor) {
+        if (report(scenario, filter, cursor) > BUDGET_MILLIS * 1_000_000) {
+            overBudget.add(scenario);
+        }
+    }
+
+    /**
+     * Prints the latency of one search response and returns its median in nanoseconds
+     */
+    private long report(String scenario, UserSearchFilter filter, UserPageCursor cursor) {
+        Supplier<Long> response = () -> {
+            List<UserDashboardRow> page = jellyfinUserRepository.findDashboardSlice(
+                    "name", Sort.Direction.ASC, filter, cursor, 0, PAGE_SIZE + 1);
+            return filter.isEmpty() ? page.size() : jellyfinUserRepository.countDashboard(filter);
+        };
+        long matches = 0;
+        for (int i = 0; i < 5; i++) {
+            matches = response.get();
+        }
+        long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            response.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        long median = nanos[RUNS / 2];
+        System.out.printf("%-30s | %5.1f ms | %5.1f ms | %8d%n", scenario,
+                median / 1e6, nanos[RUNS * 95 / 100] / 1e6, matches);
+        return median;
+    }
+
+    private void insert(List<Object[]> users, List<Object[]> expirations) {
+        jdbcTemplate.batchUpdate("INSERT INTO jellyfin_user (server_id, id, name, policy_is_disabled, deleted) "
+                + "VALUES (?, ?, ?, ?, false)", users);
+        jdbcTemplate.batchUpdate("INSERT INTO user_expiration (server_id, jellyfin_user_id, username, expiry_date, "
+                + "processed, disable_queued) VALUES (?, ?, ?, ?, false, false)", expirations);
+        users.clear();
+        expirations.clear();
+    }
+}
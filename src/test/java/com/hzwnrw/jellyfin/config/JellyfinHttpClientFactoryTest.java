@@ -0,0 +1,127 @@
+package com.hzwnrw.jellyfin.config;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JellyfinHttpClientFactoryTest {
+
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private JellyfinHttpClientFactory factory;
+    private final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+    private final AtomicReference<String> apiKey = new AtomicReference<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/System/Info", exchange -> {
+            acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            apiKey.set(exchange.getRequestHeaders().getFirst("X-Emby-Token"));
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = gzip("{\"ServerName\":\"jellyfin\"}");
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/Slow", exchange -> {
+            try {
+                Thread.sleep(1500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        factory = new JellyfinHttpClientFactory(4, Duration.ofSeconds(2), Duration.ofSeconds(2),
+                Duration.ofMillis(500), Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(5),
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        factory.close();
+        server.stop(0);
+    }
+
+    @Test
+    void clientNegotiatesGzipAndSendsApiKey() {
+        RestClient client = factory.create("main", baseUrl(), "secret", JellyfinHttpClientFactory.Operation.INTERACTIVE);
+
+        String body = client.get().uri("/System/Info").retrieve().body(String.class);
+
+        assertEquals("{\"ServerName\":\"jellyfin\"}", body);
+        assertNotNull(acceptEncoding.get());
+        assertTrue(acceptEncoding.get().contains("gzip"));
+        assertEquals("secret", apiKey.get());
+    }
+
+    @Test
+    void connectionsAreKeptAliveAndReused() {
+        RestClient client = factory.create("main", baseUrl(), "secret", JellyfinHttpClientFactory.Operation.INTERACTIVE);
+
+        for (int i = 0; i < 5; i++) {
+            client.get().uri("/System/Info").retrieve().body(String.class);
+        }
+
+        assertEquals(1, clientPorts.size());
+        assertEquals(1.0, meterRegistry.get("httpcomponents.httpclient.pool.total.connections")
+                .tag("httpclient", "jellyfin-main").tag("state", "available").gauge().value());
+        assertEquals(0.0, meterRegistry.get("httpcomponents.httpclient.pool.total.connections")
+                .tag("state", "leased").gauge().value());
+        assertEquals(0.0, meterRegistry.get("httpcomponents.httpclient.pool.total.pending").gauge().value());
+        assertEquals(4.0, meterRegistry.get("httpcomponents.httpclient.pool.total.max").gauge().value());
+    }
+
+    @Test
+    void interactiveReadTimeoutBoundsSlowResponses() {
+        RestClient client = factory.create("main", baseUrl(), "secret", JellyfinHttpClientFactory.Operation.INTERACTIVE);
+
+        assertThrows(ResourceAccessException.class,
+                () -> client.get().uri("/Slow").retrieve().toBodilessEntity());
+    }
+
+    @Test
+    void syncReadTimeoutAllowsSlowResponses() {
+        RestClient client = factory.create("main", baseUrl(), "secret", JellyfinHttpClientFactory.Operation.SYNC);
+
+        assertEquals(204, client.get().uri("/Slow").retrieve().toBodilessEntity().getStatusCode().value());
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private static byte[] gzip(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
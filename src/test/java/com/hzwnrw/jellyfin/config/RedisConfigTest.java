@@ -1,16 +1,30 @@
 package com.hzwnrw.jellyfin.config;
 
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NullValue;
 import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 class RedisConfigTest {
 
@@ -61,7 +75,7 @@ class RedisConfigTest {
         RedisConfig redisConfig = new RedisConfig();
         LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory("localhost", 6379);
 
-        RedisCacheManager cacheManager = redisConfig.cacheManager(connectionFactory);
+        RedisCacheManager cacheManager = redisConfig.redisCacheManager(connectionFactory);
         RedisCache cache = (RedisCache) cacheManager.getCache("users");
 
         assertNotNull(cache);
@@ -74,4 +88,62 @@ class RedisConfigTest {
         assertNotNull(configuration.getKeySerializationPair());
         assertNotNull(configuration.getValueSerializationPair());
     }
+
+    @Test
+    void cachedValuesComeBackAsTheirOwnTypes() {
+        RedisConfig redisConfig = new RedisConfig();
+        RedisCacheManager cacheManager = redisConfig.redisCacheManager(new LettuceConnectionFactory("localhost", 6379));
+        RedisSerializationContext.SerializationPair<Object> values =
+                ((RedisCache) cacheManager.getCache("jellyfinUsers")).getCacheConfiguration().getValueSerializationPair();
+        JellyfinUser user = new JellyfinUser();
+        user.setServerId("home");
+        user.setId("user-1");
+        user.setName("Alice");
+        user.getPolicy().setDisabled(true);
+
+        JellyfinUser cachedUser = assertInstanceOf(JellyfinUser.class, values.read(values.write(user)));
+        List<?> cachedList = assertInstanceOf(List.class, values.read(values.write(new ArrayList<>(List.of(user)))));
+
+        assertEquals("home", cachedUser.getServerId());
+        assertTrue(cachedUser.getPolicy().isDisabled());
+        assertEquals(user, cachedList.getFirst());
+        assertInstanceOf(NullValue.class, values.read(values.write(NullValue.INSTANCE)));
+    }
+
+    @Test
+    void cachedCountComesBackAsALong() {
+        RedisConfig redisConfig = new RedisConfig();
+        RedisCacheManager cacheManager = redisConfig.redisCacheManager(new LettuceConnectionFactory("localhost", 6379));
+        RedisSerializationContext.SerializationPair<Object> values =
+                ((RedisCache) cacheManager.getCache("jellyfinUsers")).getCacheConfiguration().getValueSerializationPair();
+
+        assertEquals(42L, values.read(values.write(42L)));
+        assertEquals(Boolean.TRUE, values.read(values.write(true)));
+    }
+
+    @Test
+    void cachedValuesOfTypesOutsideTheAllowListAreRejected() {
+        RedisConfig redisConfig = new RedisConfig();
+        RedisCacheManager cacheManager = redisConfig.redisCacheManager(new LettuceConnectionFactory("localhost", 6379));
+        RedisSerializationContext.SerializationPair<Object> values =
+                ((RedisCache) cacheManager.getCache("jellyfinUsers")).getCacheConfiguration().getValueSerializationPair();
+
+        assertThrows(SerializationException.class, () -> values.read(ByteBuffer.wrap(
+                "{\"@class\":\"javax.management.openmbean.CompositeDataSupport\"}".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void cacheManagerPutsLocalCacheInFrontOfRedisAndSubscribesToInvalidations() {
+        RedisConfig redisConfig = new RedisConfig();
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory("localhost", 6379);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+
+        CacheManager cacheManager = redisConfig.cacheManager(connectionFactory, mock(StringRedisTemplate.class),
+                container, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+
+        assertInstanceOf(TwoTierCacheManager.class, cacheManager);
+        assertInstanceOf(RedisCache.class, ((TwoTierCache) cacheManager.getCache("users")).getRemote());
+        verify(container).addMessageListener((TwoTierCacheManager) cacheManager,
+                new ChannelTopic(TwoTierCacheManager.CHANNEL));
+    }
 }
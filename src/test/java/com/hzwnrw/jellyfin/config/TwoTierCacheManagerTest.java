@@ -0,0 +1,198 @@
+package com.hzwnrw.jellyfin.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TwoTierCacheManagerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Stands in for the Redis caches
+    private final ConcurrentMapCacheManager remote = new ConcurrentMapCacheManager();
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private TwoTierCacheManager cacheManager;
+    private TwoTierCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new TwoTierCacheManager(remote, redisTemplate, meterRegistry,
+                Caffeine.newBuilder().maximumSize(100).expireAfterWrite(Duration.ofMinutes(1)));
+        cache = (TwoTierCache) cacheManager.getCache("jellyfinUsers");
+    }
+
+    @Test
+    void localMissIsFilledFromRedisAndServedLocallyAfterwards() {
+        remoteCache().put("allUsers", "from-redis");
+
+        assertEquals("from-redis", cache.get("allUsers").get());
+        remoteCache().put("allUsers", "changed-behind-our-back");
+        assertEquals("from-redis", cache.get("allUsers").get());
+
+        assertEquals(1, gets("l1", "hit"));
+        assertEquals(1, gets("l1", "miss"));
+        assertEquals(1, gets("l2", "hit"));
+        assertEquals(0.5, meterRegistry.get("jellyfin.cache.hit.ratio").tags("tier", "l1").gauge().value());
+        assertEquals(1, meterRegistry.get("jellyfin.cache.local.size").gauge().value());
+    }
+
+    @Test
+    void cachedNullIsALocalHit() {
+        cache.put("userId::home::gone", null);
+
+        assertNull(cache.get("userId::home::gone").get());
+        assertEquals(1, gets("l1", "hit"));
+    }
+
+    @Test
+    void missInBothTiersReturnsNull() {
+        assertNull(cache.get("allUsers"));
+
+        assertEquals(1, gets("l2", "miss"));
+    }
+
+    @Test
+    void putWritesBothTiers() {
+        cache.put("allUsers", "fresh");
+
+        assertEquals("fresh", remoteCache().get("allUsers").get());
+        assertEquals("fresh", cache.getLocal().get("allUsers").get());
+    }
+
+    @Test
+    void valueLoaderRunsOnceAndFillsBothTiers() {
+        assertEquals("loaded", cache.get("activeUserCount", () -> "loaded"));
+        assertEquals("loaded", cache.get("activeUserCount", () -> fail("loaded twice")));
+
+        assertEquals("loaded", remoteCache().get("activeUserCount").get());
+    }
+
+    @Test
+    void evictDropsBothTiersAndTellsOtherReplicas() throws Exception {
+        cache.put("userId::home::user-1", "alice");
+
+        cache.evict("userId::home::user-1");
+
+        assertNull(remoteCache().get("userId::home::user-1"));
+        assertNull(cache.getLocal().get("userId::home::user-1"));
+        JsonNode invalidation = publishedInvalidation();
+        assertEquals("jellyfinUsers", invalidation.get("cache").asText());
+        assertEquals("userId::home::user-1", invalidation.get("key").asText());
+    }
+
+    @Test
+    void clearIsPublishedWithoutKey() throws Exception {
+        cache.put("allUsers", "list");
+
+        cache.clear();
+
+        assertNull(cache.get("allUsers"));
+        assertTrue(publishedInvalidation().get("key").isNull());
+    }
+
+    @Test
+    void invalidationFromAnotherReplicaDropsOnlyTheLocalCopy() {
+        cache.put("allUsers", "stale");
+        cache.put("activeUserCount", 3L);
+
+        cacheManager.onMessage(message("""
+                {"node":"other","cache":"jellyfinUsers","key":"allUsers"}"""), null);
+
+        assertNull(cache.getLocal().get("allUsers"));
+        assertNotNull(cache.getLocal().get("activeUserCount"));
+        assertEquals("stale", remoteCache().get("allUsers").get());
+    }
+
+    @Test
+    void clearFromAnotherReplicaDropsAllLocalCopies() {
+        cache.put("allUsers", "stale");
+        cache.put("activeUserCount", 3L);
+
+        cacheManager.onMessage(message("""
+                {"node":"other","cache":"jellyfinUsers","key":null}"""), null);
+
+        assertNull(cache.getLocal().get("allUsers"));
+        assertNull(cache.getLocal().get("activeUserCount"));
+    }
+
+    @Test
+    void ownInvalidationsAreNotAppliedTwice() throws Exception {
+        cache.evict("allUsers");
+        String published = publishedInvalidationBody();
+        cache.put("allUsers", "fresh");
+
+        cacheManager.onMessage(message(published), null);
+
+        assertEquals("fresh", cache.getLocal().get("allUsers").get());
+    }
+
+    @Test
+    void malformedInvalidationIsIgnored() {
+        cache.put("allUsers", "list");
+
+        assertDoesNotThrow(() -> cacheManager.onMessage(message("not json"), null));
+        assertNotNull(cache.getLocal().get("allUsers"));
+    }
+
+    @Test
+    void evictStillWorksLocallyWhenPublishFails() {
+        doThrow(new RedisConnectionFailureException("down"))
+                .when(redisTemplate).convertAndSend(eq(TwoTierCacheManager.CHANNEL), anyString());
+        cache.put("allUsers", "list");
+
+        assertDoesNotThrow(() -> cache.evict("allUsers"));
+        assertNull(cache.get("allUsers"));
+    }
+
+    @Test
+    void sameCacheIsReturnedForAName() {
+        assertSame(cache, cacheManager.getCache("jellyfinUsers"));
+        assertTrue(cacheManager.getCacheNames().contains("jellyfinUsers"));
+    }
+
+    private Cache remoteCache() {
+        return remote.getCache("jellyfinUsers");
+    }
+
+    private double gets(String tier, String result) {
+        return meterRegistry.get("jellyfin.cache.gets").tags("tier", tier, "result", result).functionCounter().count();
+    }
+
+    private JsonNode publishedInvalidation() throws Exception {
+        return objectMapper.readTree(publishedInvalidationBody());
+    }
+
+    private String publishedInvalidationBody() {
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq(TwoTierCacheManager.CHANNEL), body.capture());
+        return body.getValue();
+    }
+
+    private DefaultMessage message(String body) {
+        return new DefaultMessage(new byte[0], body.getBytes(StandardCharsets.UTF_8));
+    }
+}
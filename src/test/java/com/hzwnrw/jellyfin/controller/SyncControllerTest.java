@@ -0,0 +1,81 @@
+package com.hzwnrw.jellyfin.controller;
+
+import com.hzwnrw.jellyfin.dto.SyncStatusResponse;
+import com.hzwnrw.jellyfin.scheduler.AdaptiveSyncInterval;
+import com.hzwnrw.jellyfin.scheduler.JellyfinSyncTask;
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import com.hzwnrw.jellyfin.service.SyncCoordinator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class SyncControllerTest {
+
+    @Mock
+    private SyncCoordinator syncCoordinator;
+
+    @Mock
+    private JellyfinSyncTask jellyfinSyncTask;
+
+    @Mock
+    private AdaptiveSyncInterval syncInterval;
+
+    @InjectMocks
+    private SyncController syncController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(syncController).build();
+    }
+
+    @Test
+    void getStatusReturnsCoordinatorState() throws Exception {
+        SyncStatusResponse status = new SyncStatusResponse(true, "manual", Instant.parse("2026-10-18T10:00:00Z"),
+                "APPLYING", 1500, null, "COMPLETED", new SyncSummary(1, 2, 0, 3),
+                Map.of("home", "APPLYING"));
+        when(syncCoordinator.getStatus()).thenReturn(status);
+
+        mockMvc.perform(get("/api/sync/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.running").value(true))
+                .andExpect(jsonPath("$.trigger").value("manual"))
+                .andExpect(jsonPath("$.phase").value("APPLYING"))
+                .andExpect(jsonPath("$.processedUsers").value(1500))
+                .andExpect(jsonPath("$.serverPhases.home").value("APPLYING"))
+                .andExpect(jsonPath("$.lastSummary.changed").value(2));
+    }
+
+    @Test
+    void getScheduleReturnsIntervalNextRunAndDecisions() throws Exception {
+        Instant at = Instant.parse("2026-10-18T10:00:00Z");
+        when(syncInterval.getCurrent()).thenReturn(Duration.ofMinutes(20));
+        when(syncInterval.getHistory()).thenReturn(List.of(new AdaptiveSyncInterval.DecisionRecord(
+                at, AdaptiveSyncInterval.Decision.LENGTHEN, "no changes", Duration.ofMinutes(20))));
+        when(jellyfinSyncTask.getNextRunAt()).thenReturn(Optional.of(at.plus(Duration.ofMinutes(20))));
+
+        mockMvc.perform(get("/api/sync/schedule"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.intervalSeconds").value(1200))
+                .andExpect(jsonPath("$.nextRunAt").exists())
+                .andExpect(jsonPath("$.recentDecisions[0].decision").value("LENGTHEN"))
+                .andExpect(jsonPath("$.recentDecisions[0].reason").value("no changes"));
+    }
+}
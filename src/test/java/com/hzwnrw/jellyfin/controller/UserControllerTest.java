@@ -1,9 +1,20 @@
 package com.hzwnrw.jellyfin.controller;
 
-import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.dto.UserDashboardRow;
+import com.hzwnrw.jellyfin.dto.UserDashboardSlice;
+import com.hzwnrw.jellyfin.dto.UserPageCursor;
+import com.hzwnrw.jellyfin.dto.UserSearchFilter;
+import com.hzwnrw.jellyfin.event.UserDataChangedEvent;
 import com.hzwnrw.jellyfin.model.UserExpiration;
+import com.hzwnrw.jellyfin.model.UserExpirationKey;
 import com.hzwnrw.jellyfin.repository.ExpirationRepository;
+import com.hzwnrw.jellyfin.scheduler.ExpirationScheduler;
+import com.hzwnrw.jellyfin.service.DashboardUpdateService;
+import com.hzwnrw.jellyfin.service.DataVersionService;
 import com.hzwnrw.jellyfin.service.JellyfinService;
+import com.hzwnrw.jellyfin.service.PolicyChangeOutbox;
+import com.hzwnrw.jellyfin.service.SyncCoordinator;
+import com.hzwnrw.jellyfin.utils.TimezoneUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,8 +23,8 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -25,6 +36,8 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -42,6 +55,24 @@ class UserControllerTest {
     @Mock
     private ExpirationRepository repository;
 
+    @Mock
+    private SyncCoordinator syncCoordinator;
+
+    @Mock
+    private PolicyChangeOutbox outbox;
+
+    @Mock
+    private ExpirationScheduler expirationScheduler;
+
+    @Mock
+    private DataVersionService dataVersionService;
+
+    @Mock
+    private DashboardUpdateService dashboardUpdateService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserController userController;
 
@@ -62,17 +93,12 @@ class UserControllerTest {
 
     @Test
     void indexReturnsViewWithPaginationAndTrackingModel() throws Exception {
-        JellyfinUser user = new JellyfinUser();
-        user.setId("user-1");
-        user.setName("Alice");
-        UserExpiration expiration = new UserExpiration();
-        expiration.setJellyfinUserId("user-1");
-        expiration.setUsername("Alice");
-        expiration.setExpiryDate(ZonedDateTime.of(2026, 4, 15, 17, 0, 0, 0, ZoneId.of("UTC")));
-
-        when(jellyfinService.getAllUsers(any(PageRequest.class)))
-                .thenReturn(new PageImpl<>(List.of(user), PageRequest.of(0, 10), 1));
-        when(repository.findAll()).thenReturn(List.of(expiration));
+        UserDashboardRow tracked = new UserDashboardRow("home", "user-1", "Alice", false,
+                ZonedDateTime.of(2026, 4, 15, 17, 0, 0, 0, ZoneId.of("UTC")));
+        UserDashboardRow untracked = new UserDashboardRow("home", "user-2", "Bob", true, null);
+
+        when(jellyfinService.getDashboardSlice("name", Sort.Direction.ASC, new UserSearchFilter(), 10, null, 0))
+                .thenReturn(new UserDashboardSlice(List.of(tracked, untracked), null, null, 2));
 
         MvcResult result = mockMvc.perform(get("/")
                         .param("page", "0")
@@ -86,9 +112,105 @@ class UserControllerTest {
                 .andReturn();
 
         ModelAndViewAssert.assertModelAttributeAvailable(result.getModelAndView(), "tracked");
+        Map<?, ?> trackedModel = (Map<?, ?>) result.getModelAndView().getModel().get("tracked");
+        assertEquals(Set.of("home:user-1"), trackedModel.keySet());
+        assertEquals(TimezoneUtils.formatForDisplay(tracked.getExpiryDate(), "Asia/Kuala_Lumpur"),
+                ((Map<?, ?>) trackedModel.get("home:user-1")).get("expiryDateFormatted"));
+        verifyNoInteractions(repository);
         assertEquals("Asia/Kuala_Lumpur", result.getModelAndView().getModel().get("timezone"));
     }
 
+    @Test
+    void indexSeeksFromCursorAndLinksAWindowOfPages() throws Exception {
+        UserPageCursor previous = new UserPageCursor("id", Sort.Direction.DESC, true, List.of("user-40", "home"));
+        UserPageCursor next = new UserPageCursor("id", Sort.Direction.DESC, false, List.of("user-31", "home"));
+        UserPageCursor requested = new UserPageCursor("id", Sort.Direction.DESC, false, List.of("user-41", "home"));
+        when(jellyfinService.getDashboardSlice("id", Sort.Direction.DESC, new UserSearchFilter(), 10, requested, 0))
+                .thenReturn(new UserDashboardSlice(List.of(), next, previous, 1000));
+
+        MvcResult result = mockMvc.perform(get("/")
+                        .param("page", "6")
+                        .param("sortBy", "id")
+                        .param("direction", "DESC")
+                        .param("cursor", requested.encode()))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Map<String, Object> model = result.getModelAndView().getModel();
+        assertEquals(6, model.get("currentPage"));
+        assertEquals(100, model.get("totalPages"));
+        assertEquals(next.encode(), model.get("nextCursor"));
+        assertEquals(previous.encode(), model.get("previousCursor"));
+
+        List<?> links = (List<?>) model.get("pageLinks");
+        assertEquals(List.of(4, 5, 6, 7, 8), links.stream().map(link -> ((Map<?, ?>) link).get("page")).toList());
+        assertEquals("/?size=10&sortBy=id&direction=DESC&page=4&cursor=" + previous.encode() + "&skip=1",
+                ((Map<?, ?>) links.getFirst()).get("url"));
+        assertEquals("/?size=10&sortBy=id&direction=DESC&page=7&cursor=" + next.encode(),
+                ((Map<?, ?>) links.get(3)).get("url"));
+        assertEquals("/?size=10&sortBy=id&direction=DESC&page=8&cursor=" + next.encode() + "&skip=1",
+                ((Map<?, ?>) links.getLast()).get("url"));
+    }
+
+    @Test
+    void indexPassesSearchFilterToServiceAndKeepsItInPageLinks() throws Exception {
+        UserSearchFilter filter = new UserSearchFilter("al ice", UserSearchFilter.Match.CONTAINS, true, null, 7);
+        UserPageCursor next = new UserPageCursor("name", Sort.Direction.ASC, false, List.of("Bob", "home", "user-2"));
+        when(jellyfinService.getDashboardSlice("name", Sort.Direction.ASC, filter, 10, null, 0))
+                .thenReturn(new UserDashboardSlice(List.of(), next, null, 25));
+
+        MvcResult result = mockMvc.perform(get("/")
+                        .param("q", "al ice")
+                        .param("match", "CONTAINS")
+                        .param("disabled", "true")
+                        .param("hasExpiry", "")
+                        .param("expiringWithinDays", "7"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Map<String, Object> model = result.getModelAndView().getModel();
+        assertEquals(filter, model.get("filter"));
+        assertEquals(25L, model.get("totalElements"));
+        assertEquals("/?size=10&sortBy=name&direction=ASC&q=al%20ice&match=CONTAINS&disabled=true"
+                + "&expiringWithinDays=7&page=1&cursor=" + next.encode(), model.get("nextPageUrl"));
+    }
+
+    @Test
+    void indexRejectsOutOfRangeFilter() throws Exception {
+        mockMvc.perform(get("/").param("expiringWithinDays", "-1"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(jellyfinService);
+    }
+
+    @Test
+    void indexRejectsSkipBeyondThePageLinks() throws Exception {
+        mockMvc.perform(get("/").param("cursor", "anything").param("skip", "2"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/").param("skip", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/").param("skip", "-1"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(jellyfinService);
+    }
+
+    @Test
+    void indexFallsBackToNameSortAndFirstPageForUnknownInput() throws Exception {
+        when(jellyfinService.getDashboardSlice("name", Sort.Direction.ASC, new UserSearchFilter(), 10, null, 0))
+                .thenReturn(new UserDashboardSlice(List.of(), null, null, 0));
+
+        MvcResult result = mockMvc.perform(get("/")
+                        .param("page", "3")
+                        .param("sortBy", "policyDocument")
+                        .param("cursor", "garbage"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals(0, result.getModelAndView().getModel().get("currentPage"));
+        assertEquals("name", result.getModelAndView().getModel().get("sortBy"));
+    }
+
     @Test
     void loginPageReturnsLoginView() {
         org.springframework.ui.Model model = new org.springframework.ui.ConcurrentModel();
@@ -98,6 +220,7 @@ class UserControllerTest {
     @Test
     void setExpiryConvertsConfiguredTimezoneToUtcAndSavesEntry() throws Exception {
         mockMvc.perform(post("/set-expiry")
+                        .param("serverId", "home")
                         .param("userId", "user-1")
                         .param("username", "alice")
                         .param("date", "2026-04-16T01:00"))
@@ -108,43 +231,87 @@ class UserControllerTest {
         verify(repository).save(captor.capture());
         UserExpiration saved = captor.getValue();
 
+        assertEquals("home", saved.getServerId());
         assertEquals("user-1", saved.getJellyfinUserId());
         assertEquals("alice", saved.getUsername());
         assertEquals(ZonedDateTime.of(2026, 4, 15, 17, 0, 0, 0, ZoneId.of("UTC")), saved.getExpiryDate());
         assertFalse(saved.isProcessed());
+        verify(expirationScheduler).schedule(saved);
+        verify(dataVersionService).bump();
+        verify(dashboardUpdateService).expiryChanged("home", List.of("user-1"), saved.getExpiryDate());
+    }
+
+    @Test
+    void setExpiryFromDashboardScriptAnswersWithoutRedirect() throws Exception {
+        mockMvc.perform(post("/set-expiry")
+                        .header("X-Requested-With", "XMLHttpRequest")
+                        .param("serverId", "home")
+                        .param("userId", "user-1")
+                        .param("username", "alice")
+                        .param("date", "2026-04-16T01:00"))
+                .andExpect(status().isNoContent());
+
+        verify(repository).save(any(UserExpiration.class));
+        verify(dashboardUpdateService).expiryChanged(eq("home"), eq(List.of("user-1")), any(ZonedDateTime.class));
     }
 
     @Test
-    void toggleDisablesUserWithoutDeletingExpiry() throws Exception {
+    void toggleQueuesDisableWithoutCallingJellyfin() throws Exception {
         mockMvc.perform(post("/toggle")
+                        .param("serverId", "home")
                         .param("userId", "user-1")
                         .param("disable", "true"))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/"));
 
-        verify(jellyfinService).updateDisableStatus("user-1", true);
-        verify(repository, never()).deleteById(any());
+        verify(outbox).requestToggle("home", "user-1", true);
+        verify(eventPublisher).publishEvent(new UserDataChangedEvent("user-1", "toggle"));
+        verifyNoInteractions(jellyfinService, repository, expirationScheduler);
     }
 
     @Test
-    void toggleEnablesUserAndDeletesExpiry() throws Exception {
+    void toggleQueuesEnableAndCancelsScheduledExpiry() throws Exception {
         mockMvc.perform(post("/toggle")
+                        .param("serverId", "home")
                         .param("userId", "user-1")
                         .param("disable", "false"))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/"));
 
-        verify(jellyfinService).updateDisableStatus("user-1", false);
-        verify(repository).deleteById("user-1");
+        verify(outbox).requestToggle("home", "user-1", false);
+        verify(expirationScheduler).cancel(new UserExpirationKey("home", "user-1"));
+        verifyNoInteractions(jellyfinService);
     }
 
     @Test
-    void syncUsersDelegatesToService() throws Exception {
+    void toggleFromDashboardScriptIsAcceptedWithoutRedirect() throws Exception {
+        mockMvc.perform(post("/toggle")
+                        .header("X-Requested-With", "XMLHttpRequest")
+                        .param("serverId", "home")
+                        .param("userId", "user-1")
+                        .param("disable", "true"))
+                .andExpect(status().isAccepted());
+
+        verify(outbox).requestToggle("home", "user-1", true);
+        verify(eventPublisher).publishEvent(new UserDataChangedEvent("user-1", "toggle"));
+    }
+
+    @Test
+    void syncUsersGoesThroughSyncCoordinator() throws Exception {
         mockMvc.perform(post("/sync"))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/"));
 
-        verify(jellyfinService).syncAndGetAllUsers();
+        verify(syncCoordinator).sync("manual");
+    }
+
+    @Test
+    void failedManualSyncStillRedirectsToDashboard() throws Exception {
+        when(syncCoordinator.sync("manual")).thenThrow(new IllegalStateException("Sync failed on every Jellyfin server"));
+
+        mockMvc.perform(post("/sync"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/"));
     }
 
 }
@@ -0,0 +1,129 @@
+package com.hzwnrw.jellyfin.controller;
+
+import com.hzwnrw.jellyfin.dto.UserDashboardRow;
+import com.hzwnrw.jellyfin.dto.UserDashboardSlice;
+import com.hzwnrw.jellyfin.dto.UserPageCursor;
+import com.hzwnrw.jellyfin.dto.UserSearchFilter;
+import com.hzwnrw.jellyfin.service.DataVersionService;
+import com.hzwnrw.jellyfin.service.JellyfinService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class UserSearchControllerTest {
+
+    @Mock
+    private JellyfinService jellyfinService;
+
+    @Mock
+    private DataVersionService dataVersionService;
+
+    @InjectMocks
+    private UserSearchController userSearchController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(userSearchController).build();
+    }
+
+    @Test
+    void searchReturnsMatchingPageWithCursors() throws Exception {
+        UserPageCursor after = new UserPageCursor("name", Sort.Direction.ASC, false, List.of("Al", "home", "user-0"));
+        UserPageCursor next = new UserPageCursor("name", Sort.Direction.ASC, false, List.of("Alice", "home", "user-1"));
+        UserPageCursor previous = new UserPageCursor("name", Sort.Direction.ASC, true, List.of("Alice", "home", "user-1"));
+        UserSearchFilter filter = new UserSearchFilter("Ali", null, false, true, null);
+        when(dataVersionService.currentVersion()).thenReturn(Optional.of(42L));
+        when(jellyfinService.getDashboardSlice("name", Sort.Direction.ASC, filter, 1, after, 0))
+                .thenReturn(new UserDashboardSlice(List.of(new UserDashboardRow("home", "user-1", "Alice", false, null)),
+                        next, previous, 2));
+
+        mockMvc.perform(get("/api/users")
+                        .param("q", "Ali")
+                        .param("disabled", "false")
+                        .param("hasExpiry", "true")
+                        .param("size", "1")
+                        .param("cursor", after.encode()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"users-42\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andExpect(jsonPath("$.content[0].name").value("Alice"))
+                .andExpect(jsonPath("$.content[0].expiryDate").value(nullValue()))
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.nextCursor").value(next.encode()))
+                .andExpect(jsonPath("$.previousCursor").value(previous.encode()));
+    }
+
+    @Test
+    void searchRejectsUnknownSortColumnAndInvalidFilter() throws Exception {
+        mockMvc.perform(get("/api/users").param("sortBy", "policyDocument"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/users").param("expiringWithinDays", "5000"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(jellyfinService);
+    }
+
+    @Test
+    void searchAnswersMatchingVersionWithNotModifiedWithoutReadingUsers() throws Exception {
+        when(dataVersionService.currentVersion()).thenReturn(Optional.of(42L));
+
+        mockMvc.perform(get("/api/users").param("q", "Ali").header("If-None-Match", "\"users-42\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"users-42\""));
+
+        verifyNoInteractions(jellyfinService);
+    }
+
+    @Test
+    void searchServesFreshBodyOnceVersionMovesOn() throws Exception {
+        when(dataVersionService.currentVersion()).thenReturn(Optional.of(43L));
+        when(jellyfinService.getDashboardSlice(eq("name"), eq(Sort.Direction.ASC), any(), eq(20), isNull(), eq(0)))
+                .thenReturn(new UserDashboardSlice(List.of(), null, null, 0));
+
+        mockMvc.perform(get("/api/users").header("If-None-Match", "\"users-42\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"users-43\""));
+    }
+
+    @Test
+    void searchSkipsValidationForClockDependentFilterAndWhenVersionIsUnavailable() throws Exception {
+        when(jellyfinService.getDashboardSlice(eq("name"), eq(Sort.Direction.ASC), any(), anyInt(), isNull(), eq(0)))
+                .thenReturn(new UserDashboardSlice(List.of(), null, null, 0));
+
+        mockMvc.perform(get("/api/users").param("expiringWithinDays", "7").header("If-None-Match", "\"users-42\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"));
+        verify(dataVersionService, never()).currentVersion();
+
+        when(dataVersionService.currentVersion()).thenReturn(Optional.empty());
+        mockMvc.perform(get("/api/users").header("If-None-Match", "\"users-42\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"));
+    }
+}
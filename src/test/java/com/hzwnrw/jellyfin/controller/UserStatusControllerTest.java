@@ -0,0 +1,153 @@
+package com.hzwnrw.jellyfin.controller;
+
+import com.hzwnrw.jellyfin.dto.BulkStatusResponse;
+import com.hzwnrw.jellyfin.dto.BulkStatusResponse.Outcome;
+import com.hzwnrw.jellyfin.dto.BulkStatusResponse.UserStatusResult;
+import com.hzwnrw.jellyfin.event.UserDataChangedEvent;
+import com.hzwnrw.jellyfin.model.UserExpirationKey;
+import com.hzwnrw.jellyfin.scheduler.ExpirationScheduler;
+import com.hzwnrw.jellyfin.service.JellyfinService;
+import com.hzwnrw.jellyfin.service.PolicyChangeOutbox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserStatusControllerTest {
+
+    @Mock
+    private JellyfinService jellyfinService;
+
+    @Mock
+    private PolicyChangeOutbox outbox;
+
+    @Mock
+    private ExpirationScheduler expirationScheduler;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private UserStatusController userStatusController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(userStatusController).build();
+    }
+
+    @Test
+    void disableReturnsPerUserReportAndSupersedesQueuedChangesOfUpdatedUsers() throws Exception {
+        when(jellyfinService.updateDisableStatus("home", List.of("user-1", "user-2"), true))
+                .thenReturn(new BulkStatusResponse(true, 1, 1, List.of(
+                        new UserStatusResult("user-1", Outcome.UPDATED, null),
+                        new UserStatusResult("user-2", Outcome.FAILED, "timeout"))));
+
+        mockMvc.perform(post("/api/users/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"serverId":"home","userIds":["user-1","user-2"],"disable":true}"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[1].outcome").value("FAILED"))
+                .andExpect(jsonPath("$.results[1].error").value("timeout"));
+
+        verify(eventPublisher).publishEvent(new UserDataChangedEvent(List.of("user-1"), "bulk-status"));
+        verifyNoMoreInteractions(eventPublisher);
+        verify(outbox).recordApplied("home", List.of("user-1"), true);
+        verifyNoInteractions(expirationScheduler);
+    }
+
+    @Test
+    void enableClearsExpirationsOfUpdatedUsers() throws Exception {
+        when(jellyfinService.updateDisableStatus("home", List.of("user-1", "user-2"), false))
+                .thenReturn(new BulkStatusResponse(false, 1, 1, List.of(
+                        new UserStatusResult("user-1", Outcome.UPDATED, null),
+                        new UserStatusResult("user-2", Outcome.NOT_FOUND, null))));
+
+        mockMvc.perform(post("/api/users/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"serverId":"home","userIds":["user-1","user-2"],"disable":false}"""))
+                .andExpect(status().isOk());
+
+        verify(outbox).recordApplied("home", List.of("user-1"), false);
+        verify(expirationScheduler).cancel(new UserExpirationKey("home", "user-1"));
+        verifyNoMoreInteractions(expirationScheduler);
+    }
+
+    @Test
+    void updatedUsersArePublishedInOneEvent() throws Exception {
+        when(jellyfinService.updateDisableStatus("home", List.of("user-1", "user-2", "user-3"), true))
+                .thenReturn(new BulkStatusResponse(true, 3, 0, List.of(
+                        new UserStatusResult("user-1", Outcome.UPDATED, null),
+                        new UserStatusResult("user-2", Outcome.UPDATED, null),
+                        new UserStatusResult("user-3", Outcome.UPDATED, null))));
+
+        mockMvc.perform(post("/api/users/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"serverId":"home","userIds":["user-1","user-2","user-3"],"disable":true}"""))
+                .andExpect(status().isOk());
+
+        verify(eventPublisher).publishEvent(
+                new UserDataChangedEvent(List.of("user-1", "user-2", "user-3"), "bulk-status"));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
+    @Test
+    void nothingIsRecordedWhenNoUserWasUpdated() throws Exception {
+        when(jellyfinService.updateDisableStatus("home", List.of("user-1"), false))
+                .thenReturn(new BulkStatusResponse(false, 0, 1, List.of(
+                        new UserStatusResult("user-1", Outcome.FAILED, "timeout"))));
+
+        mockMvc.perform(post("/api/users/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"serverId":"home","userIds":["user-1"],"disable":false}"""))
+                .andExpect(status().isOk());
+
+        verifyNoInteractions(outbox, expirationScheduler, eventPublisher);
+    }
+
+    @Test
+    void emptyUserListIsRejected() throws Exception {
+        mockMvc.perform(post("/api/users/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"serverId":"home","userIds":[],"disable":true}"""))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(jellyfinService);
+    }
+
+    @Test
+    void unknownServerReturnsNotFound() throws Exception {
+        when(jellyfinService.updateDisableStatus(anyString(), anyList(), anyBoolean()))
+                .thenThrow(new IllegalArgumentException("Unknown Jellyfin server: nope"));
+
+        mockMvc.perform(post("/api/users/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"serverId":"nope","userIds":["user-1"],"disable":true}"""))
+                .andExpect(status().isNotFound());
+    }
+}
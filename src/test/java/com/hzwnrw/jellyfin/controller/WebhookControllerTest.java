@@ -0,0 +1,101 @@
+package com.hzwnrw.jellyfin.controller;
+
+import com.hzwnrw.jellyfin.dto.JellyfinWebhookEvent;
+import com.hzwnrw.jellyfin.service.JellyfinWebhookService;
+import com.hzwnrw.jellyfin.service.UserChangeQueue.Offer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookControllerTest {
+
+    private static final String BODY = """
+            {"NotificationType":"UserUpdated","UserId":"user-1","NotificationUsername":"alice","ServerName":"home"}""";
+
+    @Mock
+    private JellyfinWebhookService webhookService;
+
+    private MockMvc mockMvc(String secret) {
+        return MockMvcBuilders.standaloneSetup(new WebhookController(webhookService, secret)).build();
+    }
+
+    @Test
+    void acceptsEventWithMatchingSecret() throws Exception {
+        JellyfinWebhookEvent event = new JellyfinWebhookEvent("UserUpdated", "user-1", "alice");
+        when(webhookService.submit("home", event)).thenReturn(Optional.of(Offer.ACCEPTED));
+
+        mockMvc("s3cret").perform(post("/api/webhooks/jellyfin/home")
+                        .header(WebhookController.SECRET_HEADER, "s3cret")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(status().isAccepted());
+
+        verify(webhookService).submit("home", event);
+    }
+
+    @Test
+    void rejectsWrongOrMissingSecret() throws Exception {
+        MockMvc mockMvc = mockMvc("s3cret");
+
+        mockMvc.perform(post("/api/webhooks/jellyfin/home")
+                        .header(WebhookController.SECRET_HEADER, "guess")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/api/webhooks/jellyfin/home")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(status().isUnauthorized());
+
+        verify(webhookService, never()).submit(anyString(), any());
+    }
+
+    @Test
+    void endpointIsDisabledWithoutConfiguredSecret() throws Exception {
+        mockMvc("").perform(post("/api/webhooks/jellyfin/home")
+                        .header(WebhookController.SECRET_HEADER, "")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(status().isNotFound());
+
+        verifyNoInteractions(webhookService);
+    }
+
+    @Test
+    void unknownServerReturnsNotFound() throws Exception {
+        when(webhookService.submit(eq("nope"), any())).thenThrow(new IllegalArgumentException("Unknown"));
+
+        mockMvc("s3cret").perform(post("/api/webhooks/jellyfin/nope")
+                        .header(WebhookController.SECRET_HEADER, "s3cret")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void fullQueueAsksCallerToRetryLater() throws Exception {
+        when(webhookService.submit(eq("home"), any())).thenReturn(Optional.of(Offer.REJECTED));
+
+        mockMvc("s3cret").perform(post("/api/webhooks/jellyfin/home")
+                        .header(WebhookController.SECRET_HEADER, "s3cret")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
+    }
+}
@@ -0,0 +1,104 @@
+package com.hzwnrw.jellyfin.repository;
+
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.JellyfinUserKey;
+import com.hzwnrw.jellyfin.model.UserExpiration;
+import com.hzwnrw.jellyfin.model.UserExpirationKey;
+import com.hzwnrw.jellyfin.support.JpaTestConfig;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@ContextConfiguration(classes = JpaTestConfig.class)
+class BulkUpsertRepositoryTest {
+
+    @Autowired
+    private JellyfinUserRepository jellyfinUserRepository;
+
+    @Autowired
+    private ExpirationRepository expirationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void upsertAllInsertsNewUsersAndUpdatesExistingOnes() {
+        jellyfinUserRepository.saveAndFlush(buildUser("user-1", "Alice", false));
+        entityManager.clear();
+
+        JellyfinUser renamed = buildUser("user-1", "Alice Cooper", true);
+        renamed.setDeleted(true);
+        renamed.setPolicyJson("{\"IsDisabled\":true,\"EnableAllFolders\":false}");
+        renamed.setPolicySyncedAt(ZonedDateTime.of(2026, 10, 18, 9, 30, 0, 0, ZoneId.of("UTC")));
+        jellyfinUserRepository.upsertAll(List.of(renamed, buildUser("user-2", "Bob", false)));
+        entityManager.clear();
+
+        JellyfinUser alice = jellyfinUserRepository.findById(new JellyfinUserKey("home", "user-1")).orElseThrow();
+        assertEquals("Alice Cooper", alice.getName());
+        assertTrue(alice.getPolicy().isDisabled());
+        assertTrue(alice.isDeleted());
+        assertEquals(renamed.getContentHash(), alice.getContentHash());
+        assertEquals("{\"IsDisabled\":true,\"EnableAllFolders\":false}", alice.getPolicyJson());
+        assertEquals(renamed.getPolicySyncedAt().toInstant(), alice.getPolicySyncedAt().toInstant());
+
+        JellyfinUser bob = jellyfinUserRepository.findById(new JellyfinUserKey("home", "user-2")).orElseThrow();
+        assertEquals("Bob", bob.getName());
+        assertFalse(bob.getPolicy().isDisabled());
+        assertNull(bob.getPolicyJson());
+        assertEquals(2, jellyfinUserRepository.count());
+    }
+
+    @Test
+    void upsertAllInsertsAndUpdatesExpirations() {
+        ZonedDateTime expiry = ZonedDateTime.of(2026, 4, 15, 17, 0, 0, 0, ZoneId.of("UTC"));
+        expirationRepository.saveAndFlush(buildExpiration("user-1", "alice", expiry, false));
+        entityManager.clear();
+
+        expirationRepository.upsertAll(List.of(
+                buildExpiration("user-1", "alice", expiry.plusDays(1), true),
+                buildExpiration("user-2", "bob", expiry, false)
+        ));
+        entityManager.clear();
+
+        UserExpiration alice = expirationRepository.findById(new UserExpirationKey("home", "user-1")).orElseThrow();
+        assertEquals(expiry.plusDays(1).toInstant(), alice.getExpiryDate().toInstant());
+        assertTrue(alice.isProcessed());
+
+        UserExpiration bob = expirationRepository.findById(new UserExpirationKey("home", "user-2")).orElseThrow();
+        assertEquals(expiry.toInstant(), bob.getExpiryDate().toInstant());
+        assertFalse(bob.isProcessed());
+    }
+
+    private JellyfinUser buildUser(String id, String name, boolean disabled) {
+        JellyfinUser user = new JellyfinUser();
+        user.setServerId("home");
+        user.setId(id);
+        user.setName(name);
+        user.getPolicy().setDisabled(disabled);
+        user.setContentHash(user.computeContentHash());
+        return user;
+    }
+
+    private UserExpiration buildExpiration(String userId, String username, ZonedDateTime expiry, boolean processed) {
+        UserExpiration expiration = new UserExpiration();
+        expiration.setServerId("home");
+        expiration.setJellyfinUserId(userId);
+        expiration.setUsername(username);
+        expiration.setExpiryDate(expiry);
+        expiration.setProcessed(processed);
+        return expiration;
+    }
+}
@@ -0,0 +1,114 @@
+package com.hzwnrw.jellyfin.repository;
+
+import com.hzwnrw.jellyfin.model.UserExpiration;
+import com.hzwnrw.jellyfin.support.JpaTestConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@ContextConfiguration(classes = JpaTestConfig.class)
+class ExpirationRepositoryTest {
+
+    private static final ZonedDateTime NOW = ZonedDateTime.of(2026, 10, 18, 12, 0, 0, 0, ZoneId.of("UTC"));
+
+    @Autowired
+    private ExpirationRepository expirationRepository;
+
+    @Test
+    void forEachDueChunkPagesThroughDueEntriesInExpiryOrder() {
+        // Several entries share an expiry time, so paging has to fall back to the key
+        expirationRepository.saveAllAndFlush(List.of(
+                buildExpiration("cabin", "user-1", NOW.minusHours(1), false),
+                buildExpiration("home", "user-2", NOW.minusHours(1), false),
+                buildExpiration("home", "user-1", NOW.minusHours(1), false),
+                buildExpiration("home", "user-3", NOW.minusHours(2), false),
+                buildExpiration("home", "user-4", NOW.minusMinutes(1), false),
+                buildExpiration("home", "done", NOW.minusHours(3), true),
+                buildExpiration("home", "later", NOW.plusMinutes(1), false)));
+
+        List<List<String>> chunks = new ArrayList<>();
+        expirationRepository.forEachDueChunk(NOW, 2, chunk -> {
+            chunks.add(chunk.stream().map(e -> e.getServerId() + ":" + e.getJellyfinUserId()).toList());
+            return true;
+        });
+
+        assertEquals(List.of(
+                List.of("home:user-3", "cabin:user-1"),
+                List.of("home:user-1", "home:user-2"),
+                List.of("home:user-4")), chunks);
+    }
+
+    @Test
+    void forEachDueChunkStopsWhenTheConsumerDeclines() {
+        expirationRepository.saveAllAndFlush(List.of(
+                buildExpiration("home", "user-1", NOW.minusHours(2), false),
+                buildExpiration("home", "user-2", NOW.minusHours(1), false)));
+
+        List<UserExpiration> seen = new ArrayList<>();
+        expirationRepository.forEachDueChunk(NOW, 1, chunk -> {
+            seen.addAll(chunk);
+            return false;
+        });
+
+        assertEquals(1, seen.size());
+    }
+
+    @Test
+    void forEachDueChunkSkipsExpiriesWithAQueuedDisable() {
+        UserExpiration queued = buildExpiration("home", "user-1", NOW.minusDays(1), false);
+        queued.setDisableQueued(true);
+        expirationRepository.saveAllAndFlush(List.of(queued, buildExpiration("home", "user-2", NOW.minusDays(1), false)));
+
+        List<UserExpiration> seen = new ArrayList<>();
+        expirationRepository.forEachDueChunk(NOW, 10, seen::addAll);
+
+        assertEquals(List.of("user-2"), seen.stream().map(UserExpiration::getJellyfinUserId).toList());
+    }
+
+    @Test
+    void markDisableAppliedOnlyTouchesQueuedExpiriesOfTheGivenServer() {
+        UserExpiration queued = buildExpiration("home", "user-1", NOW, false);
+        queued.setDisableQueued(true);
+        UserExpiration otherServer = buildExpiration("cabin", "user-1", NOW, false);
+        otherServer.setDisableQueued(true);
+        expirationRepository.saveAllAndFlush(List.of(queued, otherServer,
+                buildExpiration("home", "user-2", NOW, false)));
+
+        assertEquals(1, expirationRepository.markDisableApplied("home", List.of("user-1", "user-2")));
+    }
+
+    @Test
+    void reopenDisableQueuedOnlyTouchesQueuedExpiriesOfTheGivenServer() {
+        UserExpiration queued = buildExpiration("home", "user-1", NOW, false);
+        queued.setDisableQueued(true);
+        UserExpiration otherServer = buildExpiration("cabin", "user-1", NOW, false);
+        otherServer.setDisableQueued(true);
+        expirationRepository.saveAllAndFlush(List.of(queued, otherServer,
+                buildExpiration("home", "user-2", NOW, false)));
+
+        assertEquals(1, expirationRepository.reopenDisableQueued("home", List.of("user-1", "user-2")));
+    }
+
+    private UserExpiration buildExpiration(String serverId, String userId, ZonedDateTime expiry, boolean processed) {
+        UserExpiration expiration = new UserExpiration();
+        expiration.setServerId(serverId);
+        expiration.setJellyfinUserId(userId);
+        expiration.setUsername(userId);
+        expiration.setExpiryDate(expiry);
+        expiration.setProcessed(processed);
+        return expiration;
+    }
+}
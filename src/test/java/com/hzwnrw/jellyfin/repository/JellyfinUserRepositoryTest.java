@@ -0,0 +1,222 @@
+package com.hzwnrw.jellyfin.repository;
+
+import com.hzwnrw.jellyfin.dto.UserDashboardRow;
+import com.hzwnrw.jellyfin.dto.UserExportRow;
+import com.hzwnrw.jellyfin.dto.UserPageCursor;
+import com.hzwnrw.jellyfin.dto.UserSearchFilter;
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.UserExpiration;
+import com.hzwnrw.jellyfin.support.JpaTestConfig;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@ContextConfiguration(classes = JpaTestConfig.class)
+class JellyfinUserRepositoryTest {
+
+    private static final UserSearchFilter NO_FILTER = new UserSearchFilter();
+    private static final ZonedDateTime EXPIRY = ZonedDateTime.of(2026, 11, 1, 0, 0, 0, 0, ZoneId.of("UTC"));
+
+    @Autowired
+    private JellyfinUserRepository jellyfinUserRepository;
+
+    @Autowired
+    private ExpirationRepository expirationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void findDashboardSliceJoinsExpiriesAndSkipsDeletedUsers() {
+        jellyfinUserRepository.saveAll(List.of(
+                buildUser("home", "user-1", "Alice", false, false),
+                buildUser("home", "user-2", "Bob", true, false),
+                buildUser("cabin", "user-1", "Carol", false, false),
+                buildUser("home", "user-3", "Dave", false, true)));
+        // Same user id on another server must not leak into home:user-1
+        expirationRepository.saveAll(List.of(
+                buildExpiration("cabin", "user-1", EXPIRY),
+                buildExpiration("home", "user-2", EXPIRY.plusDays(1))));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<UserDashboardRow> rows = jellyfinUserRepository.findDashboardSlice(
+                "name", Sort.Direction.ASC, NO_FILTER, null, 0, 10);
+
+        assertEquals(List.of("Alice", "Bob", "Carol"), rows.stream().map(UserDashboardRow::getName).toList());
+        assertNull(rows.get(0).getExpiryDate());
+        assertTrue(rows.get(1).isDisabled());
+        assertEquals(EXPIRY.plusDays(1).toInstant(), rows.get(1).getExpiryDate().toInstant());
+        assertEquals("cabin", rows.get(2).getServerId());
+        assertEquals(EXPIRY.toInstant(), rows.get(2).getExpiryDate().toInstant());
+        assertEquals(3, jellyfinUserRepository.countByDeletedFalse());
+    }
+
+    @Test
+    void findDashboardSliceSeeksPastDuplicateSortValuesInBothDirections() {
+        // Duplicate names and ids across servers exercise every column of the keyset tie-break,
+        // and a user Jellyfin has no name for is stored with an empty one
+        jellyfinUserRepository.saveAll(List.of(
+                buildUser("cabin", "user-3", "", false, false),
+                buildUser("home", "user-1", "Alice", false, false),
+                buildUser("cabin", "user-2", "Alice", false, false),
+                buildUser("home", "user-2", "Alice", false, false),
+                buildUser("cabin", "user-1", "Bob", false, false),
+                buildUser("home", "user-3", "Carol", false, false),
+                buildUser("home", "user-4", "Carol", false, true)));
+        entityManager.flush();
+        entityManager.clear();
+
+        for (String sortBy : List.of("name", "id")) {
+            for (Sort.Direction direction : Sort.Direction.values()) {
+                List<UserDashboardRow> all = jellyfinUserRepository.findDashboardSlice(
+                        sortBy, direction, NO_FILTER, null, 0, 10);
+                assertEquals(6, all.size());
+
+                // Forward two rows at a time from each page's last row
+                List<String> walked = new ArrayList<>();
+                List<UserDashboardRow> page = jellyfinUserRepository.findDashboardSlice(
+                        sortBy, direction, NO_FILTER, null, 0, 2);
+                while (!page.isEmpty()) {
+                    page.forEach(row -> walked.add(key(row)));
+                    UserPageCursor after = new UserPageCursor(sortBy, direction, false,
+                            JellyfinUserDashboardRepository.keyValues(sortBy, page.getLast()));
+                    page = jellyfinUserRepository.findDashboardSlice(sortBy, direction, NO_FILTER, after, 0, 2);
+                }
+                assertEquals(all.stream().map(this::key).toList(), walked, sortBy + " " + direction);
+
+                // Backwards from the last row returns the rows before it, nearest first
+                UserPageCursor before = new UserPageCursor(sortBy, direction, true,
+                        JellyfinUserDashboardRepository.keyValues(sortBy, all.getLast()));
+                List<UserDashboardRow> previous = jellyfinUserRepository.findDashboardSlice(
+                        sortBy, direction, NO_FILTER, before, 1, 2);
+                assertEquals(List.of(key(all.get(3)), key(all.get(2))), previous.stream().map(this::key).toList());
+            }
+        }
+    }
+
+    @Test
+    void findDashboardSliceRunsOneQuery() {
+        jellyfinUserRepository.saveAll(List.of(
+                buildUser("home", "user-1", "Alice", false, false),
+                buildUser("home", "user-2", "Bob", false, false),
+                buildUser("home", "user-3", "Carol", false, false)));
+        expirationRepository.save(buildExpiration("home", "user-1", EXPIRY));
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        UserPageCursor after = new UserPageCursor("name", Sort.Direction.ASC, false, List.of("Alice", "home", "user-1"));
+        jellyfinUserRepository.findDashboardSlice("name", Sort.Direction.ASC, NO_FILTER, after, 0, 2);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findDashboardSliceAndCountApplyTheSearchFilter() {
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.of("UTC"));
+        jellyfinUserRepository.saveAll(List.of(
+                buildUser("home", "user-1", "Alice", false, false),
+                buildUser("home", "user-2", "Alicia", true, false),
+                buildUser("home", "user-3", "Malice", false, false),
+                buildUser("home", "user-4", "Bob", true, false),
+                buildUser("home", "user-5", "Al_x", false, false),
+                buildUser("home", "user-6", "Alan", true, true)));
+        UserExpiration processed = buildExpiration("home", "user-4", now.minusDays(1));
+        processed.setProcessed(true);
+        expirationRepository.saveAll(List.of(
+                buildExpiration("home", "user-1", now.plusDays(3)),
+                buildExpiration("home", "user-3", now.plusDays(30)),
+                processed));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertMatches(new UserSearchFilter("Ali", null, null, null, null), "Alice", "Alicia");
+        assertMatches(new UserSearchFilter("lic", UserSearchFilter.Match.CONTAINS, null, null, null),
+                "Alice", "Alicia", "Malice");
+        // LIKE wildcards in the search text are matched literally
+        assertMatches(new UserSearchFilter("Al_", null, null, null, null), "Al_x");
+        assertMatches(new UserSearchFilter(null, null, true, null, null), "Alicia", "Bob");
+        assertMatches(new UserSearchFilter(null, null, null, true, null), "Alice", "Bob", "Malice");
+        assertMatches(new UserSearchFilter(null, null, null, false, null), "Al_x", "Alicia");
+        // Processed expirations have already been applied
+        assertMatches(new UserSearchFilter(null, null, null, null, 7), "Alice");
+        assertMatches(new UserSearchFilter("Ali", null, false, null, 60), "Alice");
+        assertMatches(new UserSearchFilter("Ali", null, null, true, null), "Alice");
+        assertMatches(new UserSearchFilter("lic", UserSearchFilter.Match.CONTAINS, null, true, null), "Alice", "Malice");
+    }
+
+    @Test
+    void streamExportJoinsExpiriesInKeyOrderAndSkipsDeletedUsers() {
+        jellyfinUserRepository.saveAll(List.of(
+                buildUser("home", "user-2", "Bob", true, false),
+                buildUser("home", "user-1", "Alice", false, false),
+                buildUser("cabin", "user-1", "Carol", false, false),
+                buildUser("home", "user-3", "Dave", false, true)));
+        UserExpiration processed = buildExpiration("home", "user-2", EXPIRY);
+        processed.setProcessed(true);
+        expirationRepository.saveAll(List.of(processed, buildExpiration("cabin", "user-1", EXPIRY.plusDays(1))));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<UserExportRow> rows = new ArrayList<>();
+        long count = jellyfinUserRepository.streamExport(rows::add);
+
+        assertEquals(3, count);
+        assertEquals(List.of(
+                new UserExportRow("cabin", "user-1", "Carol", false, EXPIRY.plusDays(1).toInstant(), false),
+                new UserExportRow("home", "user-1", "Alice", false, null, null),
+                new UserExportRow("home", "user-2", "Bob", true, EXPIRY.toInstant(), true)), rows);
+    }
+
+    private void assertMatches(UserSearchFilter filter, String... names) {
+        List<String> found = jellyfinUserRepository.findDashboardSlice("name", Sort.Direction.ASC, filter, null, 0, 10)
+                .stream().map(UserDashboardRow::getName).toList();
+        assertEquals(List.of(names), found, filter.toString());
+        assertEquals(names.length, jellyfinUserRepository.countDashboard(filter), filter.toString());
+    }
+
+    private String key(UserDashboardRow row) {
+        return row.getServerId() + ":" + row.getId();
+    }
+
+    private JellyfinUser buildUser(String serverId, String id, String name, boolean disabled, boolean deleted) {
+        JellyfinUser user = new JellyfinUser();
+        user.setServerId(serverId);
+        user.setId(id);
+        user.setName(name);
+        user.getPolicy().setDisabled(disabled);
+        user.setDeleted(deleted);
+        return user;
+    }
+
+    private UserExpiration buildExpiration(String serverId, String userId, ZonedDateTime expiry) {
+        UserExpiration expiration = new UserExpiration();
+        expiration.setServerId(serverId);
+        expiration.setJellyfinUserId(userId);
+        expiration.setUsername(userId);
+        expiration.setExpiryDate(expiry);
+        return expiration;
+    }
+}
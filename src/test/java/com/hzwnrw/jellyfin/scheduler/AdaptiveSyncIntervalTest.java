@@ -0,0 +1,82 @@
+package com.hzwnrw.jellyfin.scheduler;
+
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveSyncIntervalTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdaptiveSyncInterval interval;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        interval = new AdaptiveSyncInterval(Duration.ofMinutes(10), Duration.ofMinutes(1),
+                Duration.ofMinutes(30), 2.0, meterRegistry);
+    }
+
+    @Test
+    void unchangedSyncsLengthenIntervalUpToMaximum() {
+        assertEquals(Duration.ofMinutes(20), interval.onSyncCompleted(SyncSummary.empty()));
+        assertEquals(Duration.ofMinutes(30), interval.onSyncCompleted(SyncSummary.empty()));
+        assertEquals(Duration.ofMinutes(30), interval.onSyncCompleted(SyncSummary.empty()));
+
+        assertEquals(AdaptiveSyncInterval.Decision.HOLD, interval.getHistory().get(0).decision());
+        assertEquals(2.0, decisions("lengthen"));
+        assertEquals(1.0, decisions("hold"));
+    }
+
+    @Test
+    void syncWithChangesDropsToMinimum() {
+        interval.onSyncCompleted(SyncSummary.empty());
+
+        assertEquals(Duration.ofMinutes(1), interval.onSyncCompleted(new SyncSummary(0, 3, 0, 10)));
+        assertEquals(1.0, decisions("shorten"));
+    }
+
+    @Test
+    void localChangeDropsToMinimum() {
+        assertEquals(Duration.ofMinutes(1), interval.onLocalChange("toggle"));
+        assertEquals("local change: toggle", interval.getHistory().get(0).reason());
+    }
+
+    @Test
+    void failedSyncKeepsCurrentInterval() {
+        assertEquals(Duration.ofMinutes(10), interval.onSyncNotCompleted("jellyfin down"));
+        assertEquals(Duration.ofMinutes(10), interval.getCurrent());
+    }
+
+    @Test
+    void intervalGaugeReportsCurrentIntervalInSeconds() {
+        interval.onSyncCompleted(SyncSummary.empty());
+
+        assertEquals(1200.0, meterRegistry.get("jellyfin.sync.interval").gauge().value());
+    }
+
+    @Test
+    void historyIsBounded() {
+        for (int i = 0; i < AdaptiveSyncInterval.HISTORY_SIZE + 5; i++) {
+            interval.onSyncNotCompleted("skipped");
+        }
+
+        assertEquals(AdaptiveSyncInterval.HISTORY_SIZE, interval.getHistory().size());
+    }
+
+    @Test
+    void initialIntervalIsClampedToBounds() {
+        AdaptiveSyncInterval clamped = new AdaptiveSyncInterval(Duration.ofHours(2), Duration.ofMinutes(1),
+                Duration.ofMinutes(30), 2.0, new SimpleMeterRegistry());
+
+        assertEquals(Duration.ofMinutes(30), clamped.getCurrent());
+    }
+
+    private double decisions(String decision) {
+        return meterRegistry.get("jellyfin.sync.interval.decisions").tag("decision", decision).counter().count();
+    }
+}
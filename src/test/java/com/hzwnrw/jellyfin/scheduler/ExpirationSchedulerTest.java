@@ -0,0 +1,143 @@
+package com.hzwnrw.jellyfin.scheduler;
+
+import com.hzwnrw.jellyfin.model.UserExpiration;
+import com.hzwnrw.jellyfin.model.UserExpirationKey;
+import com.hzwnrw.jellyfin.repository.ExpirationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpirationSchedulerTest {
+
+    @Mock
+    private ExpirationRepository repository;
+
+    @Mock
+    private ExpirationTask expirationTask;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExpirationScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new ExpirationScheduler(repository, expirationTask, Duration.ofMinutes(30),
+                Duration.ofMillis(200), meterRegistry);
+        lenient().doCallRealMethod().when(repository).forEachDueChunk(any(), anyInt(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.stop();
+    }
+
+    @Test
+    void startLoadsPendingExpirationsAndFiresThemWhenDue() {
+        when(repository.findFirstDue(any(), any())).thenReturn(List.of(
+                expiration("user-1", Duration.ofMillis(300)),
+                expiration("user-2", Duration.ofHours(1))));
+        when(expirationTask.processDue()).thenReturn(true);
+
+        scheduler.start();
+        assertEquals(2, scheduler.size());
+        assertEquals(2.0, meterRegistry.get("jellyfin.expiration.scheduled").gauge().value());
+
+        verify(expirationTask, timeout(2000)).processDue();
+        assertEquals(1, scheduler.size());
+    }
+
+    @Test
+    void overdueEntriesFireTogetherOnce() {
+        when(repository.findFirstDue(any(), any())).thenReturn(List.of(
+                expiration("user-1", Duration.ofMinutes(-5)),
+                expiration("user-2", Duration.ofMinutes(-1))));
+        when(expirationTask.processDue()).thenReturn(true);
+
+        scheduler.start();
+
+        verify(expirationTask, timeout(2000)).processDue();
+        assertEquals(0, scheduler.size());
+        verify(expirationTask, after(300).times(1)).processDue();
+    }
+
+    @Test
+    void rescheduledAndCancelledEntriesDoNotFireEarly() {
+        when(repository.findFirstDue(any(), any())).thenReturn(List.of());
+        scheduler.start();
+
+        UserExpiration moved = expiration("user-1", Duration.ofMillis(100));
+        scheduler.schedule(moved);
+        moved.setExpiryDate(moved.getExpiryDate().plusHours(1));
+        scheduler.schedule(moved);
+        scheduler.schedule(expiration("user-2", Duration.ofMillis(100)));
+        scheduler.cancel(new UserExpirationKey("home", "user-2"));
+
+        verify(expirationTask, after(500).never()).processDue();
+        assertEquals(1, scheduler.size());
+    }
+
+    @Test
+    void processedEntriesAreRemoved() {
+        UserExpiration expiration = expiration("user-1", Duration.ofHours(1));
+        scheduler.schedule(expiration);
+        expiration.setProcessed(true);
+        scheduler.schedule(expiration);
+
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void reloadDropsEntriesInTheWindowThatAreNoLongerPending() {
+        scheduler.schedule(expiration("user-1", Duration.ofMinutes(30)));
+        scheduler.schedule(expiration("user-2", Duration.ofMinutes(30)));
+        scheduler.schedule(expiration("user-3", Duration.ofDays(3)));
+        when(repository.findFirstDue(any(), any())).thenReturn(List.of(expiration("user-2", Duration.ofMinutes(40))));
+
+        scheduler.reload();
+
+        // user-3 is beyond the one-hour window and stays until a later reload covers it
+        assertEquals(2, scheduler.size());
+        ArgumentCaptor<ZonedDateTime> dueBy = ArgumentCaptor.forClass(ZonedDateTime.class);
+        verify(repository).findFirstDue(dueBy.capture(), eq(PageRequest.ofSize(1000)));
+        assertTrue(dueBy.getValue().isBefore(ZonedDateTime.now(ZoneId.of("UTC")).plusMinutes(61)));
+    }
+
+    @Test
+    void deadlinesAreRetriedWhenAnotherReplicaHoldsTheLock() {
+        when(repository.findFirstDue(any(), any())).thenReturn(List.of(expiration("user-1", Duration.ofMillis(100))));
+        when(expirationTask.processDue()).thenReturn(false, true);
+
+        scheduler.start();
+
+        verify(expirationTask, timeout(2000).times(2)).processDue();
+        assertEquals(0, scheduler.size());
+    }
+
+    private UserExpiration expiration(String userId, Duration fromNow) {
+        UserExpiration expiration = new UserExpiration();
+        expiration.setServerId("home");
+        expiration.setJellyfinUserId(userId);
+        expiration.setUsername(userId);
+        expiration.setExpiryDate(ZonedDateTime.now(ZoneId.of("UTC")).plus(fromNow));
+        return expiration;
+    }
+}
@@ -2,10 +2,12 @@ package com.hzwnrw.jellyfin.scheduler;
 
 import com.hzwnrw.jellyfin.model.UserExpiration;
 import com.hzwnrw.jellyfin.repository.ExpirationRepository;
-import com.hzwnrw.jellyfin.service.JellyfinService;
+import com.hzwnrw.jellyfin.service.ClusterLockService;
+import com.hzwnrw.jellyfin.service.LockLease;
+import com.hzwnrw.jellyfin.service.PolicyChangeOutbox;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -14,9 +16,12 @@ import org.springframework.test.util.ReflectionTestUtils;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,51 +31,86 @@ class ExpirationTaskTest {
     private ExpirationRepository repository;
 
     @Mock
-    private JellyfinService jellyfinService;
+    private PolicyChangeOutbox outbox;
+
+    @Mock
+    private ClusterLockService clusterLockService;
+
+    @Mock
+    private LockLease lease;
 
     @InjectMocks
     private ExpirationTask expirationTask;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(clusterLockService.runExclusively(eq("expiration-check"), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<LockLease>>getArgument(1).accept(lease);
+            return true;
+        });
+        lenient().when(lease.isHeld()).thenReturn(true);
+        lenient().doCallRealMethod().when(repository).forEachDueChunk(any(), anyInt(), any());
+    }
+
     @Test
     void checkExpirationsDoesNothingWhenNoPendingEntriesExist() {
         ReflectionTestUtils.setField(expirationTask, "appTimezone", "Asia/Kuala_Lumpur");
-        when(repository.findByProcessedFalseAndExpiryDateLessThanEqual(any(ZonedDateTime.class)))
-                .thenReturn(List.of());
+        when(repository.findFirstDue(any(ZonedDateTime.class), any())).thenReturn(List.of());
 
         expirationTask.checkExpirations();
 
-        verify(repository).findByProcessedFalseAndExpiryDateLessThanEqual(any(ZonedDateTime.class));
-        verifyNoInteractions(jellyfinService);
-        verify(repository, never()).save(any(UserExpiration.class));
+        verify(repository).findFirstDue(any(ZonedDateTime.class), any());
+        verifyNoInteractions(outbox);
     }
 
     @Test
-    void checkExpirationsDisablesAndMarksEachDueEntryProcessed() {
+    void checkExpirationsQueuesDisableForEachDueEntry() {
         ReflectionTestUtils.setField(expirationTask, "appTimezone", "Asia/Kuala_Lumpur");
 
         UserExpiration first = buildExpiration("user-1", "alice");
         UserExpiration second = buildExpiration("user-2", "bob");
 
-        when(repository.findByProcessedFalseAndExpiryDateLessThanEqual(any(ZonedDateTime.class)))
-                .thenReturn(List.of(first, second));
-        when(repository.save(any(UserExpiration.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(repository.findFirstDue(any(ZonedDateTime.class), any())).thenReturn(List.of(first, second));
 
         expirationTask.checkExpirations();
 
-        verify(jellyfinService).updateDisableStatus("user-1", true);
-        verify(jellyfinService).updateDisableStatus("user-2", true);
+        verify(outbox).requestExpiries(List.of(first, second));
+        verifyNoMoreInteractions(outbox);
+    }
+
+    @Test
+    void checkExpirationsSkipsWhenAnotherNodeHoldsTheLock() {
+        reset(clusterLockService);
+        when(clusterLockService.runExclusively(eq("expiration-check"), any())).thenReturn(false);
+
+        expirationTask.checkExpirations();
 
-        ArgumentCaptor<UserExpiration> savedEntries = ArgumentCaptor.forClass(UserExpiration.class);
-        verify(repository, times(2)).save(savedEntries.capture());
+        assertFalse(expirationTask.processDue());
+        verifyNoInteractions(repository, outbox);
+    }
+
+    @Test
+    void checkExpirationsStopsWhenTheLeaseIsLost() {
+        ReflectionTestUtils.setField(expirationTask, "appTimezone", "Asia/Kuala_Lumpur");
+
+        UserExpiration first = buildExpiration("user-1", "alice");
+        UserExpiration second = buildExpiration("user-2", "bob");
+
+        ReflectionTestUtils.setField(expirationTask, "batchSize", 1);
+        when(repository.findFirstDue(any(ZonedDateTime.class), any())).thenReturn(List.of(first));
+        when(repository.findDueAfter(any(ZonedDateTime.class), eq(first.getExpiryDate()), eq("home"), eq("user-1"), any()))
+                .thenReturn(List.of(second));
+        when(lease.isHeld()).thenReturn(true, false);
+
+        expirationTask.checkExpirations();
 
-        assertEquals(List.of("user-1", "user-2"),
-                savedEntries.getAllValues().stream().map(UserExpiration::getJellyfinUserId).toList());
-        assertTrue(first.isProcessed());
-        assertTrue(second.isProcessed());
+        verify(outbox).requestExpiries(List.of(first));
+        verifyNoMoreInteractions(outbox);
     }
 
     private UserExpiration buildExpiration(String userId, String username) {
         UserExpiration expiration = new UserExpiration();
+        expiration.setServerId("home");
         expiration.setJellyfinUserId(userId);
         expiration.setUsername(username);
         expiration.setExpiryDate(ZonedDateTime.now(ZoneId.of("UTC")).minusMinutes(5));
@@ -0,0 +1,269 @@
+package com.hzwnrw.jellyfin.scheduler;
+
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import com.hzwnrw.jellyfin.event.UserDataChangedEvent;
+import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
+import com.hzwnrw.jellyfin.service.ClusterLockService;
+import com.hzwnrw.jellyfin.service.DashboardUpdateService;
+import com.hzwnrw.jellyfin.service.JellyfinApiGuard;
+import com.hzwnrw.jellyfin.service.JellyfinServerClient;
+import com.hzwnrw.jellyfin.service.JellyfinServerRegistry;
+import com.hzwnrw.jellyfin.service.JellyfinService;
+import com.hzwnrw.jellyfin.service.JellyfinUserCacheService;
+import com.hzwnrw.jellyfin.service.JellyfinUserStreamReader;
+import com.hzwnrw.jellyfin.service.JellyfinUserSyncService;
+import com.hzwnrw.jellyfin.service.LockLease;
+import com.hzwnrw.jellyfin.service.SyncCoordinator;
+import com.hzwnrw.jellyfin.service.SyncFingerprintService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JellyfinSyncTaskTest {
+
+    @Mock
+    private SyncCoordinator syncCoordinator;
+
+    @Mock
+    private ClusterLockService clusterLockService;
+
+    @Mock
+    private AdaptiveSyncInterval syncInterval;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Mock
+    private ScheduledFuture<Object> scheduledRun;
+
+    @Mock
+    private LockLease lease;
+
+    private JellyfinSyncTask jellyfinSyncTask;
+
+    @BeforeEach
+    void setUp() {
+        jellyfinSyncTask = new JellyfinSyncTask(syncCoordinator, clusterLockService, syncInterval,
+                taskScheduler, Duration.ofSeconds(5));
+        lenient().doReturn(scheduledRun).when(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    void syncRunsWhileHoldingTheSyncLockAndSchedulesNextRunFromInterval() {
+        SyncSummary summary = new SyncSummary(1, 0, 0, 0);
+        when(clusterLockService.runExclusively(eq("jellyfin-sync"), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<LockLease>>getArgument(1).accept(lease);
+            return true;
+        });
+        when(syncCoordinator.sync("scheduler")).thenReturn(summary);
+        when(syncInterval.onSyncCompleted(summary)).thenReturn(Duration.ofMinutes(1));
+
+        Instant before = Instant.now();
+        jellyfinSyncTask.syncJellyfinUsers();
+
+        ArgumentCaptor<Instant> next = ArgumentCaptor.forClass(Instant.class);
+        verify(taskScheduler).schedule(any(Runnable.class), next.capture());
+        assertFalse(next.getValue().isBefore(before.plus(Duration.ofMinutes(1))));
+        assertEquals(next.getValue(), jellyfinSyncTask.getNextRunAt().orElseThrow());
+        verify(clusterLockService).setNextRunAt(eq("jellyfin-sync"),
+                argThat(at -> !at.isBefore(before.plus(Duration.ofMinutes(1)))));
+    }
+
+    @Test
+    void syncIsSkippedUntilTheRecordedDueTime() {
+        when(clusterLockService.runExclusively(eq("jellyfin-sync"), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<LockLease>>getArgument(1).accept(lease);
+            return true;
+        });
+        Instant dueAt = Instant.now().plus(Duration.ofMinutes(7));
+        when(clusterLockService.getNextRunAt("jellyfin-sync")).thenReturn(Optional.of(dueAt));
+
+        jellyfinSyncTask.syncJellyfinUsers();
+
+        verifyNoInteractions(syncCoordinator);
+        verify(clusterLockService, never()).setNextRunAt(any(), any());
+        verify(syncInterval, never()).onSyncNotCompleted(any());
+        assertFalse(jellyfinSyncTask.getNextRunAt().orElseThrow().isAfter(dueAt.plusSeconds(1)));
+    }
+
+    @Test
+    void twoReplicasTickingInOneIntervalSyncOnce() {
+        StringRedisTemplate redis = inMemoryRedis();
+        SyncSummary summary = new SyncSummary(0, 0, 0, 0);
+        when(syncCoordinator.sync("scheduler")).thenReturn(summary);
+        when(syncInterval.onSyncCompleted(summary)).thenReturn(Duration.ofMinutes(10));
+        when(syncInterval.getCurrent()).thenReturn(Duration.ofMinutes(10));
+        JellyfinSyncTask replicaA = new JellyfinSyncTask(syncCoordinator,
+                new ClusterLockService(redis, Duration.ofSeconds(30), "node-a"), syncInterval, taskScheduler,
+                Duration.ofSeconds(5));
+        JellyfinSyncTask replicaB = new JellyfinSyncTask(syncCoordinator,
+                new ClusterLockService(redis, Duration.ofSeconds(30), "node-b"), syncInterval, taskScheduler,
+                Duration.ofSeconds(5));
+
+        replicaA.syncJellyfinUsers();
+        replicaB.syncJellyfinUsers();
+        replicaA.syncJellyfinUsers();
+
+        verify(syncCoordinator, times(1)).sync("scheduler");
+        // The replicas that skipped tick again when the sync is next due, not a full interval later
+        Instant dueAt = Instant.ofEpochMilli(
+                Long.parseLong(redis.opsForValue().get("cluster_lock:jellyfin-sync:next_run")));
+        assertFalse(replicaB.getNextRunAt().orElseThrow().isAfter(dueAt.plusSeconds(1)));
+    }
+
+    @Test
+    void syncIsSkippedWhenAnotherNodeHoldsTheLock() {
+        when(clusterLockService.runExclusively(eq("jellyfin-sync"), any())).thenReturn(false);
+        Instant dueAt = Instant.now().plus(Duration.ofMinutes(7));
+        when(clusterLockService.getNextRunAt("jellyfin-sync")).thenReturn(Optional.of(dueAt));
+
+        jellyfinSyncTask.syncJellyfinUsers();
+
+        verifyNoInteractions(syncCoordinator);
+        // The interval and its history describe syncs that ran on this node
+        verify(syncInterval, never()).onSyncCompleted(any());
+        verify(syncInterval, never()).onSyncNotCompleted(any());
+        Instant next = jellyfinSyncTask.getNextRunAt().orElseThrow();
+        assertFalse(next.isAfter(dueAt.plusSeconds(1)));
+        assertTrue(next.isAfter(dueAt.minusSeconds(1)));
+    }
+
+    @Test
+    void lockHeldElsewhereWithoutARecordedDueTimeTicksAfterTheCurrentInterval() {
+        when(clusterLockService.runExclusively(eq("jellyfin-sync"), any())).thenReturn(false);
+        when(clusterLockService.getNextRunAt("jellyfin-sync")).thenReturn(Optional.empty());
+        when(syncInterval.getCurrent()).thenReturn(Duration.ofMinutes(10));
+
+        Instant before = Instant.now();
+        jellyfinSyncTask.syncJellyfinUsers();
+
+        verify(syncInterval, never()).onSyncNotCompleted(any());
+        assertFalse(jellyfinSyncTask.getNextRunAt().orElseThrow().isBefore(before.plus(Duration.ofMinutes(10))));
+    }
+
+    @Test
+    void failedSyncKeepsTheIntervalAndStillSchedulesNextRun() {
+        when(clusterLockService.runExclusively(eq("jellyfin-sync"), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<LockLease>>getArgument(1).accept(lease);
+            return true;
+        });
+        when(syncCoordinator.sync("scheduler")).thenThrow(new IllegalStateException("jellyfin down"));
+        when(syncInterval.onSyncNotCompleted(any())).thenReturn(Duration.ofMinutes(10));
+
+        jellyfinSyncTask.syncJellyfinUsers();
+
+        verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    void syncFailingOnEveryServerDoesNotLengthenTheInterval() {
+        RestClient failingClient = mock(RestClient.class);
+        when(failingClient.get()).thenThrow(new IllegalStateException("connection refused"));
+        JellyfinServerRegistry registry = mock(JellyfinServerRegistry.class);
+        when(registry.getAll()).thenReturn(List.of(new JellyfinServerClient("home", failingClient, failingClient)));
+        JellyfinService jellyfinService = new JellyfinService(2, 4, Duration.ZERO, registry,
+                mock(JellyfinUserRepository.class), mock(JellyfinUserCacheService.class),
+                mock(JellyfinUserSyncService.class), new JellyfinUserStreamReader(),
+                mock(SyncFingerprintService.class),
+                new JellyfinApiGuard(1, Duration.ofMillis(1), 1.0, 100, 100, 100, Duration.ofSeconds(1),
+                        100, Duration.ofSeconds(1), new SimpleMeterRegistry()),
+                mock(DashboardUpdateService.class));
+        AdaptiveSyncInterval interval = new AdaptiveSyncInterval(Duration.ofMinutes(10), Duration.ofMinutes(1),
+                Duration.ofMinutes(30), 2.0, new SimpleMeterRegistry());
+        when(clusterLockService.runExclusively(eq("jellyfin-sync"), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<LockLease>>getArgument(1).accept(lease);
+            return true;
+        });
+        JellyfinSyncTask task = new JellyfinSyncTask(
+                new SyncCoordinator(jellyfinService, mock(DashboardUpdateService.class)),
+                clusterLockService, interval, taskScheduler, Duration.ofSeconds(5));
+
+        task.syncJellyfinUsers();
+        task.syncJellyfinUsers();
+
+        assertEquals(Duration.ofMinutes(10), interval.getCurrent());
+        assertTrue(interval.getHistory().stream()
+                .allMatch(record -> record.decision() == AdaptiveSyncInterval.Decision.HOLD));
+    }
+
+    @Test
+    void localChangeBringsNextRunForward() {
+        jellyfinSyncTask.start();
+        when(syncInterval.onLocalChange("toggle")).thenReturn(Duration.ofMillis(1));
+        when(scheduledRun.cancel(false)).thenReturn(true);
+
+        jellyfinSyncTask.onUserDataChanged(new UserDataChangedEvent("user-1", "toggle"));
+
+        verify(scheduledRun).cancel(false);
+        verify(clusterLockService).bringNextRunForward(eq("jellyfin-sync"), any(Instant.class));
+        verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    void localChangeKeepsEarlierScheduledRun() {
+        jellyfinSyncTask.start();
+        when(syncInterval.onLocalChange("toggle")).thenReturn(Duration.ofMinutes(1));
+
+        jellyfinSyncTask.onUserDataChanged(new UserDataChangedEvent("user-1", "toggle"));
+
+        verify(scheduledRun, never()).cancel(anyBoolean());
+        verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    /**
+     * One Redis shared by several lock services, backed by a map.
+     */
+    @SuppressWarnings("unchecked")
+    private static StringRedisTemplate inMemoryRedis() {
+        Map<String, String> data = new ConcurrentHashMap<>();
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.increment(anyString())).thenAnswer(invocation -> Long.parseLong(
+                data.merge(invocation.getArgument(0), "1", (old, one) -> String.valueOf(Long.parseLong(old) + 1))));
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenAnswer(invocation ->
+                data.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+        when(values.get(anyString())).thenAnswer(invocation -> data.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> data.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(values).set(anyString(), anyString());
+        // Release and bring-forward; renewal does not come round within a test
+        when(redis.execute(any(RedisScript.class), anyList(), any())).thenAnswer(invocation -> {
+            String script = invocation.<RedisScript<Long>>getArgument(0).getScriptAsString();
+            String key = invocation.<List<String>>getArgument(1).getFirst();
+            String arg = invocation.getArgument(2);
+            if (script.contains("'del'")) {
+                return data.remove(key, arg) ? 1L : 0L;
+            }
+            data.merge(key, arg, (current, at) -> Long.parseLong(current) > Long.parseLong(at) ? at : current);
+            return 1L;
+        });
+        return redis;
+    }
+}
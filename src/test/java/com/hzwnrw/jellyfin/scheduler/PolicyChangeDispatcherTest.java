@@ -0,0 +1,172 @@
+package com.hzwnrw.jellyfin.scheduler;
+
+import com.hzwnrw.jellyfin.dto.BulkStatusResponse.Outcome;
+import com.hzwnrw.jellyfin.dto.BulkStatusResponse.UserStatusResult;
+import com.hzwnrw.jellyfin.model.PolicyChange;
+import com.hzwnrw.jellyfin.service.ClusterLockService;
+import com.hzwnrw.jellyfin.service.JellyfinService;
+import com.hzwnrw.jellyfin.service.LockLease;
+import com.hzwnrw.jellyfin.service.PolicyChangeOutbox;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PolicyChangeDispatcherTest {
+
+    @Mock
+    private PolicyChangeOutbox outbox;
+
+    @Mock
+    private JellyfinService jellyfinService;
+
+    @Mock
+    private ClusterLockService clusterLockService;
+
+    @Mock
+    private LockLease lease;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PolicyChangeDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new PolicyChangeDispatcher(outbox, jellyfinService, clusterLockService, meterRegistry,
+                50, 3, Duration.ofSeconds(5), Duration.ofSeconds(15), Duration.ofDays(7));
+        lenient().when(clusterLockService.runExclusively(eq("policy-outbox"), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<LockLease>>getArgument(1).accept(lease);
+            return true;
+        });
+        lenient().when(lease.isHeld()).thenReturn(true);
+    }
+
+    @Test
+    void dispatchPendingAppliesEachServersChangesInOneCall() {
+        PolicyChange first = change(1L, "home", "user-1", true);
+        PolicyChange second = change(2L, "cabin", "user-2", false);
+        PolicyChange third = change(3L, "home", "user-3", true);
+        when(outbox.nextBatch(50)).thenReturn(List.of(first, second, third)).thenReturn(List.of());
+        when(jellyfinService.applyDisableStatus(eq("home"), any())).thenReturn(List.of(
+                new UserStatusResult("user-1", Outcome.UPDATED, null),
+                new UserStatusResult("user-3", Outcome.UPDATED, null)));
+        when(jellyfinService.applyDisableStatus(eq("cabin"), any())).thenReturn(List.of(
+                new UserStatusResult("user-2", Outcome.UPDATED, null)));
+
+        dispatcher.dispatchPending();
+
+        Map<String, Boolean> homeTargets = new LinkedHashMap<>();
+        homeTargets.put("user-1", true);
+        homeTargets.put("user-3", true);
+        verify(jellyfinService).applyDisableStatus("home", homeTargets);
+        verify(jellyfinService).applyDisableStatus("cabin", Map.of("user-2", false));
+        verify(outbox).complete(List.of(first, second, third), List.of());
+        for (PolicyChange change : List.of(first, second, third)) {
+            assertEquals(PolicyChange.Status.DONE, change.getStatus());
+            assertEquals(1, change.getAttempts());
+            assertNotNull(change.getDispatchedAt());
+        }
+        assertEquals(3.0, meterRegistry.counter("jellyfin.outbox.dispatched", "outcome", "done").count());
+    }
+
+    @Test
+    void dispatchPendingRetriesFailuresAndReopensExpiriesThatRunOutOfAttempts() {
+        PolicyChange retried = change(1L, "home", "user-1", true);
+        PolicyChange exhausted = change(2L, "home", "user-2", true);
+        exhausted.setAttempts(2);
+        exhausted.setSource("expiration");
+        when(outbox.nextBatch(50)).thenReturn(List.of(retried, exhausted)).thenReturn(List.of());
+        when(jellyfinService.applyDisableStatus(eq("home"), any())).thenReturn(List.of(
+                new UserStatusResult("user-1", Outcome.FAILED, "Connection refused"),
+                new UserStatusResult("user-2", Outcome.FAILED, "Connection refused")));
+
+        ZonedDateTime before = ZonedDateTime.now(ZoneId.of("UTC"));
+        dispatcher.dispatchPending();
+
+        assertEquals(PolicyChange.Status.PENDING, retried.getStatus());
+        assertEquals(1, retried.getAttempts());
+        assertEquals("Connection refused", retried.getLastError());
+        assertFalse(retried.getNextAttemptAt().isBefore(before.plusSeconds(5)));
+
+        assertEquals(PolicyChange.Status.FAILED, exhausted.getStatus());
+        assertEquals(3, exhausted.getAttempts());
+        verify(outbox).complete(List.of(retried, exhausted), List.of(exhausted));
+    }
+
+    @Test
+    void dispatchPendingFailsChangesForMissingUsersAndUnknownServers() {
+        PolicyChange missing = change(1L, "home", "user-1", true);
+        PolicyChange orphaned = change(2L, "gone", "user-2", true);
+        when(outbox.nextBatch(50)).thenReturn(List.of(missing, orphaned)).thenReturn(List.of());
+        when(jellyfinService.applyDisableStatus(eq("home"), any())).thenReturn(List.of(
+                new UserStatusResult("user-1", Outcome.NOT_FOUND, null)));
+        when(jellyfinService.applyDisableStatus(eq("gone"), any()))
+                .thenThrow(new IllegalArgumentException("Unknown Jellyfin server: gone"));
+
+        dispatcher.dispatchPending();
+
+        assertEquals(PolicyChange.Status.FAILED, missing.getStatus());
+        assertEquals(PolicyChange.Status.FAILED, orphaned.getStatus());
+        assertEquals(2.0, meterRegistry.counter("jellyfin.outbox.dispatched", "outcome", "failed").count());
+    }
+
+    @Test
+    void dispatchPendingStopsWhenTheLeaseIsLost() {
+        when(lease.isHeld()).thenReturn(true, false);
+        when(outbox.nextBatch(50)).thenReturn(List.of(change(1L, "home", "user-1", true)));
+        when(jellyfinService.applyDisableStatus(eq("home"), any())).thenReturn(List.of(
+                new UserStatusResult("user-1", Outcome.UPDATED, null)));
+
+        dispatcher.dispatchPending();
+
+        verify(outbox, times(1)).nextBatch(anyInt());
+        verify(outbox).complete(any(), any());
+    }
+
+    @Test
+    void dispatchPendingSkipsWhenAnotherNodeHoldsTheLock() {
+        reset(clusterLockService);
+        when(clusterLockService.runExclusively(eq("policy-outbox"), any())).thenReturn(false);
+
+        dispatcher.dispatchPending();
+
+        verifyNoInteractions(outbox, jellyfinService);
+    }
+
+    @Test
+    void backoffDoublesUpToTheMaximum() {
+        assertEquals(Duration.ofSeconds(5), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(10), dispatcher.backoff(2));
+        assertEquals(Duration.ofSeconds(15), dispatcher.backoff(3));
+        assertEquals(Duration.ofSeconds(15), dispatcher.backoff(40));
+    }
+
+    private PolicyChange change(long id, String serverId, String userId, boolean disable) {
+        PolicyChange change = new PolicyChange();
+        change.setId(id);
+        change.setServerId(serverId);
+        change.setJellyfinUserId(userId);
+        change.setTargetDisabled(disable);
+        change.setSource("toggle");
+        change.setCreatedAt(ZonedDateTime.now(ZoneId.of("UTC")));
+        change.setNextAttemptAt(change.getCreatedAt());
+        return change;
+    }
+}
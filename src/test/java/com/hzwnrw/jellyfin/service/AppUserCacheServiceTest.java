@@ -1,5 +1,6 @@
 package com.hzwnrw.jellyfin.service;
 
+import com.hzwnrw.jellyfin.dto.AppUserSummary;
 import com.hzwnrw.jellyfin.model.AppUser;
 import com.hzwnrw.jellyfin.repository.AppUserRepository;
 import org.junit.jupiter.api.Test;
@@ -31,14 +32,20 @@ class AppUserCacheServiceTest {
     private AppUserCacheService appUserCacheService;
 
     @Test
-    void getUserByUsernameDelegatesToRepository() {
+    void getUserByUsernameDelegatesToRepositoryAndLeavesOutThePassword() {
         AppUser user = new AppUser();
+        user.setId(7L);
         user.setUsername("alice");
+        user.setPassword("encoded-password");
+        user.setName("Alice");
+        user.setEmail("alice@example.com");
+        user.setRoles("ROLE_USER");
         when(appUserRepository.findByUsername("alice")).thenReturn(Optional.of(user));
 
-        Optional<AppUser> result = appUserCacheService.getUserByUsername("alice");
+        Optional<AppUserSummary> result = appUserCacheService.getUserByUsername("alice");
 
-        assertEquals(Optional.of(user), result);
+        // Everything but the password hash
+        assertEquals(Optional.of(new AppUserSummary(7L, "alice", "Alice", "alice@example.com", "ROLE_USER")), result);
     }
 
     @Test
@@ -47,9 +54,36 @@ class AppUserCacheServiceTest {
         user.setId(7L);
         when(appUserRepository.findById(7L)).thenReturn(Optional.of(user));
 
-        Optional<AppUser> result = appUserCacheService.getUserById(7L);
+        Optional<AppUserSummary> result = appUserCacheService.getUserById(7L);
+
+        assertEquals(7L, result.orElseThrow().getId());
+    }
+
+    @Test
+    void getUserByEmailDelegatesToRepository() {
+        AppUser user = new AppUser();
+        user.setEmail("alice@example.com");
+        when(appUserRepository.findByEmail("alice@example.com")).thenReturn(Optional.of(user));
+
+        Optional<AppUserSummary> result = appUserCacheService.getUserByEmail("alice@example.com");
+
+        assertEquals("alice@example.com", result.orElseThrow().getEmail());
+    }
 
-        assertEquals(Optional.of(user), result);
+    @Test
+    void invalidateUserCacheForUserEvictsEveryLookupIncludingPreviousEmail() {
+        AppUser user = new AppUser();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setEmail("new@example.com");
+        when(cacheManager.getCache("appUsers")).thenReturn(cache);
+
+        appUserCacheService.invalidateUserCache(user, "old@example.com");
+
+        verify(cache).evict("userByUsername::alice");
+        verify(cache).evict("userById::7");
+        verify(cache).evict("userByEmail::old@example.com");
+        verify(cache).evict("userByEmail::new@example.com");
     }
 
     @Test
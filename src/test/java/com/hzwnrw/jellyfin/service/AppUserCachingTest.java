@@ -0,0 +1,147 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hzwnrw.jellyfin.config.PasswordConfig;
+import com.hzwnrw.jellyfin.config.TwoTierCacheManager;
+import com.hzwnrw.jellyfin.dto.ProfileUpdateRequest;
+import com.hzwnrw.jellyfin.model.AppUser;
+import com.hzwnrw.jellyfin.repository.AppUserRepository;
+import com.hzwnrw.jellyfin.support.JpaTestConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Counts the SQL statements behind app user lookups through the real caching proxy, with a map standing in for Redis.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@ContextConfiguration(classes = {JpaTestConfig.class, AppUserCachingTest.CachingConfig.class})
+class AppUserCachingTest {
+
+    @Configuration
+    @EnableCaching
+    @Import({AppUserCacheService.class, AppUserDetailsService.class, ProfileService.class, PasswordConfig.class})
+    static class CachingConfig {
+        @Bean
+        CacheManager cacheManager() {
+            return new TwoTierCacheManager(new ConcurrentMapCacheManager(), mock(StringRedisTemplate.class),
+                    new SimpleMeterRegistry(), Caffeine.newBuilder().maximumSize(100));
+        }
+    }
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private AppUserCacheService appUserCacheService;
+
+    @Autowired
+    private AppUserDetailsService appUserDetailsService;
+
+    @Autowired
+    private ProfileService profileService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private AppUser alice;
+
+    @BeforeEach
+    void setUp() {
+        // The cache outlives each test's rolled-back transaction
+        appUserCacheService.invalidateAllUserCache();
+        alice = appUserRepository.save(buildUser("alice", "alice@example.com"));
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    void repeatLookupsByUsernameEmailAndIdQueryOnce() {
+        assertTrue(appUserCacheService.getUserByUsername("alice").isPresent());
+        assertTrue(appUserCacheService.getUserByUsername("alice").isPresent());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        assertTrue(appUserCacheService.getUserByEmail("alice@example.com").isPresent());
+        assertTrue(appUserCacheService.getUserByEmail("alice@example.com").isPresent());
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        // Otherwise findById is answered from the persistence context without SQL either way
+        entityManager.clear();
+        assertTrue(appUserCacheService.getUserById(alice.getId()).isPresent());
+        assertTrue(appUserCacheService.getUserById(alice.getId()).isPresent());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void passwordLoginReadsTheDatabaseWhileProfileLookupsAreCached() {
+        assertEquals("encoded-password", appUserDetailsService.loadUserByUsername("alice").getPassword());
+        assertEquals("encoded-password", appUserDetailsService.loadUserByUsername("alice").getPassword());
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        assertEquals("alice@example.com", profileService.getProfile("alice").getEmail());
+        assertEquals("alice@example.com", profileService.getProfile("alice").getEmail());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void unknownUsersAreNotCached() {
+        assertTrue(appUserCacheService.getUserByUsername("bob").isEmpty());
+        appUserRepository.saveAndFlush(buildUser("bob", "bob@example.com"));
+
+        assertTrue(appUserCacheService.getUserByUsername("bob").isPresent());
+    }
+
+    @Test
+    void profileUpdateEvictsEveryLookupOfTheUser() {
+        appUserCacheService.getUserByUsername("alice");
+        appUserCacheService.getUserByEmail("alice@example.com");
+        appUserCacheService.getUserById(alice.getId());
+
+        profileService.updateProfile("alice", new ProfileUpdateRequest("Alice Cooper", "cooper@example.com"));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        assertEquals("Alice Cooper", appUserCacheService.getUserByUsername("alice").orElseThrow().getName());
+        entityManager.clear();
+        assertEquals("Alice Cooper", appUserCacheService.getUserById(alice.getId()).orElseThrow().getName());
+        assertTrue(appUserCacheService.getUserByEmail("alice@example.com").isEmpty());
+        assertTrue(appUserCacheService.getUserByEmail("cooper@example.com").isPresent());
+        assertEquals(4, statistics.getPrepareStatementCount());
+    }
+
+    private AppUser buildUser(String username, String email) {
+        AppUser user = new AppUser();
+        user.setUsername(username);
+        user.setPassword("encoded-password");
+        user.setName(username);
+        user.setEmail(email);
+        user.setRoles("ROLE_USER");
+        return user;
+    }
+}
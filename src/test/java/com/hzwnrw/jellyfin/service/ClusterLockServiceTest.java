@@ -0,0 +1,160 @@
+package com.hzwnrw.jellyfin.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClusterLockServiceTest {
+
+    private static final Duration LEASE = Duration.ofSeconds(30);
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private ScheduledExecutorService renewer;
+
+    @Mock
+    private ScheduledFuture<Object> renewal;
+
+    private ClusterLockService clusterLockService;
+
+    @BeforeEach
+    void setUp() {
+        clusterLockService = new ClusterLockService(redisTemplate, LEASE, "node-a", renewer);
+    }
+
+    @Test
+    void tryAcquireTakesLockWithNextFencingTokenAndSchedulesRenewal() {
+        stubAcquire(7L, true);
+
+        Optional<LockLease> lease = clusterLockService.tryAcquire("job");
+
+        assertTrue(lease.isPresent());
+        assertEquals(7L, lease.get().getFencingToken());
+        verify(valueOperations).setIfAbsent("cluster_lock:job", "node-a:7", LEASE);
+        verify(renewer).scheduleAtFixedRate(any(Runnable.class), eq(10_000L), eq(10_000L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void tryAcquireReturnsEmptyWhenLockIsHeldElsewhere() {
+        stubAcquire(8L, false);
+
+        assertTrue(clusterLockService.tryAcquire("job").isEmpty());
+        verifyNoInteractions(renewer);
+    }
+
+    @Test
+    void tryAcquireReturnsEmptyWhenRedisFails() {
+        when(redisTemplate.opsForValue()).thenThrow(new RuntimeException("redis down"));
+
+        assertTrue(clusterLockService.tryAcquire("job").isEmpty());
+    }
+
+    @Test
+    void runExclusivelyRunsJobAndReleasesOwnLock() {
+        stubAcquire(3L, true);
+        AtomicBoolean ran = new AtomicBoolean();
+
+        boolean result = clusterLockService.runExclusively("job", lease -> ran.set(true));
+
+        assertTrue(result);
+        assertTrue(ran.get());
+        verify(renewal).cancel(false);
+        verify(redisTemplate).execute(ClusterLockService.RELEASE_SCRIPT, List.of("cluster_lock:job"), "node-a:3");
+    }
+
+    @Test
+    void runExclusivelySkipsJobWhenLockIsNotAcquired() {
+        stubAcquire(4L, false);
+        AtomicBoolean ran = new AtomicBoolean();
+
+        assertFalse(clusterLockService.runExclusively("job", lease -> ran.set(true)));
+        assertFalse(ran.get());
+    }
+
+    @Test
+    void renewMarksLeaseLostWhenAnotherNodeOwnsTheKey() {
+        stubAcquire(5L, true);
+        LockLease lease = clusterLockService.tryAcquire("job").orElseThrow();
+        when(redisTemplate.execute(ClusterLockService.RENEW_SCRIPT, List.of("cluster_lock:job"), "node-a:5", "30000"))
+                .thenReturn(0L);
+
+        clusterLockService.renew(lease);
+
+        assertFalse(lease.isHeld());
+        verify(renewal).cancel(false);
+        lease.close();
+        verify(redisTemplate, never()).execute(eq(ClusterLockService.RELEASE_SCRIPT), anyList(), any());
+    }
+
+    @Test
+    void isHeldChecksTheStoredFencingValue() {
+        stubAcquire(6L, true);
+        LockLease lease = clusterLockService.tryAcquire("job").orElseThrow();
+        when(valueOperations.get("cluster_lock:job")).thenReturn("node-a:6", "node-b:9");
+
+        assertTrue(lease.isHeld());
+        assertFalse(lease.isHeld());
+    }
+
+    @Test
+    void nextRunIsStoredAsEpochMillis() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("cluster_lock:job:next_run")).thenReturn("1760000000000");
+
+        clusterLockService.setNextRunAt("job", Instant.ofEpochMilli(1760000600000L));
+
+        verify(valueOperations).set("cluster_lock:job:next_run", "1760000600000");
+        assertEquals(Optional.of(Instant.ofEpochMilli(1760000000000L)), clusterLockService.getNextRunAt("job"));
+    }
+
+    @Test
+    void nextRunIsEmptyWhenRedisFails() {
+        when(redisTemplate.opsForValue()).thenThrow(new RuntimeException("redis down"));
+
+        assertTrue(clusterLockService.getNextRunAt("job").isEmpty());
+    }
+
+    @Test
+    void bringNextRunForwardOnlyLowersTheDueTimeInRedis() {
+        clusterLockService.bringNextRunForward("job", Instant.ofEpochMilli(1760000000000L));
+
+        verify(redisTemplate).execute(ClusterLockService.BRING_FORWARD_SCRIPT, List.of("cluster_lock:job:next_run"),
+                "1760000000000");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubAcquire(long token, boolean acquired) {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment("cluster_lock:job:fence")).thenReturn(token);
+        when(valueOperations.setIfAbsent("cluster_lock:job", "node-a:" + token, LEASE)).thenReturn(acquired);
+        if (acquired) {
+            doReturn(renewal).when(renewer).scheduleAtFixedRate(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+        }
+    }
+}
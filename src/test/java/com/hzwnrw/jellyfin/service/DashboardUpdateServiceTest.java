@@ -0,0 +1,306 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hzwnrw.jellyfin.controller.DashboardEventsController;
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardUpdateServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private DashboardUpdateService dashboardUpdateService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        dashboardUpdateService = new DashboardUpdateService(redisTemplate, listenerContainer, Duration.ofMinutes(1),
+                Duration.ofMillis(100), 4, 2, "Asia/Kuala_Lumpur");
+        dashboardUpdateService.start();
+        mockMvc = MockMvcBuilders.standaloneSetup(new DashboardEventsController(dashboardUpdateService)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dashboardUpdateService.stop();
+    }
+
+    @Test
+    void subscribesToUpdateChannelOnStartAndLeavesItOnStop() {
+        verify(listenerContainer).addMessageListener(dashboardUpdateService,
+                new ChannelTopic(DashboardUpdateService.CHANNEL));
+
+        dashboardUpdateService.stop();
+
+        verify(listenerContainer).removeMessageListener(dashboardUpdateService,
+                new ChannelTopic(DashboardUpdateService.CHANNEL));
+    }
+
+    @Test
+    void statusChangePublishesOneMessagePerServer() throws Exception {
+        Map<String, Boolean> status = new LinkedHashMap<>();
+        status.put("user-1", true);
+        status.put("user-2", false);
+
+        dashboardUpdateService.statusChanged("home", status);
+
+        JsonNode update = publishedUpdate();
+        assertEquals("STATUS", update.get("type").asText());
+        assertEquals("home", update.get("serverId").asText());
+        assertEquals("user-1", update.at("/users/0/userId").asText());
+        assertTrue(update.at("/users/0/disabled").asBoolean());
+        assertFalse(update.at("/users/1/disabled").asBoolean());
+        assertFalse(update.at("/users/0").has("expiryDate"));
+    }
+
+    @Test
+    void expiryChangeCarriesUtcAndDisplayTime() throws Exception {
+        dashboardUpdateService.expiryChanged("home", List.of("user-1"),
+                ZonedDateTime.of(2026, 4, 15, 17, 0, 0, 0, ZoneId.of("UTC")));
+
+        JsonNode update = publishedUpdate();
+        assertEquals("EXPIRY", update.get("type").asText());
+        assertEquals("2026-04-15T17:00Z", update.at("/users/0/expiryDate").asText());
+        assertTrue(update.at("/users/0/expiryDateFormatted").asText().startsWith("2026-04-16 01:00:00"));
+        assertFalse(update.at("/users/0").has("disabled"));
+    }
+
+    @Test
+    void clearedExpiryHasNoDate() throws Exception {
+        dashboardUpdateService.expiryChanged("home", List.of("user-1"), null);
+
+        JsonNode user = publishedUpdate().at("/users/0");
+        assertEquals("user-1", user.get("userId").asText());
+        assertFalse(user.has("expiryDate"));
+        assertFalse(user.has("expiryDateFormatted"));
+    }
+
+    @Test
+    void syncFinishedCarriesPhaseAndSummary() throws Exception {
+        dashboardUpdateService.syncFinished("COMPLETED", new SyncSummary(1, 2, 3, 4));
+
+        JsonNode update = publishedUpdate();
+        assertEquals("SYNC", update.get("type").asText());
+        assertEquals("COMPLETED", update.get("phase").asText());
+        assertEquals(2, update.at("/summary/changed").asInt());
+        assertFalse(update.has("users"));
+    }
+
+    @Test
+    void emptyChangesAreNotPublished() {
+        dashboardUpdateService.statusChanged("home", Map.of());
+        dashboardUpdateService.expiryChanged("home", List.of(), null);
+
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void publishInsideTransactionWaitsForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            dashboardUpdateService.statusChanged("home", Map.of("user-1", true));
+            verifyNoInteractions(redisTemplate);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            verify(redisTemplate).convertAndSend(eq(DashboardUpdateService.CHANNEL), anyString());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void streamForwardsRelayedUpdatesAndHeartbeats() throws Exception {
+        MockHttpServletResponse response = openStream();
+
+        dashboardUpdateService.onMessage(new DefaultMessage(new byte[0], """
+                {"type":"STATUS","serverId":"home","users":[{"userId":"user-1","disabled":true}]}"""
+                .getBytes(StandardCharsets.UTF_8)), null);
+        dashboardUpdateService.heartbeat();
+
+        String stream = awaitStream(response, ":heartbeat\n");
+        assertTrue(stream.contains("event:status\ndata:{\"type\":\"STATUS\",\"serverId\":\"home\""), stream);
+        assertTrue(stream.contains(":heartbeat\n"), stream);
+    }
+
+    @Test
+    void streamStillGetsLocalUpdatesWhenRedisIsDown() throws Exception {
+        doThrow(new RedisConnectionFailureException("down"))
+                .when(redisTemplate).convertAndSend(eq(DashboardUpdateService.CHANNEL), anyString());
+        MockHttpServletResponse response = openStream();
+
+        dashboardUpdateService.statusChanged("home", Map.of("user-1", false));
+
+        String stream = awaitStream(response, "event:status\ndata:");
+        assertTrue(stream.contains("\"disabled\":false"), stream);
+    }
+
+    @Test
+    void malformedRelayedUpdateIsIgnored() throws Exception {
+        MockHttpServletResponse response = openStream();
+
+        dashboardUpdateService.onMessage(new DefaultMessage(new byte[0],
+                "{\"type\":\"BOGUS\"}".getBytes(StandardCharsets.UTF_8)), null);
+        dashboardUpdateService.heartbeat();
+
+        String stream = awaitStream(response, ":heartbeat\n");
+        assertFalse(stream.contains("event:"), stream);
+    }
+
+    @Test
+    void slowDashboardDoesNotHoldUpTheOthers() throws Exception {
+        StuckEmitter slow = new StuckEmitter();
+        dashboardUpdateService.register(slow);
+        assertTrue(slow.writing.await(5, TimeUnit.SECONDS));
+        MockHttpServletResponse response = openStream();
+
+        dashboardUpdateService.onMessage(new DefaultMessage(new byte[0],
+                "{\"type\":\"SYNC\",\"phase\":\"COMPLETED\"}".getBytes(StandardCharsets.UTF_8)), null);
+
+        awaitStream(response, "event:sync\n");
+    }
+
+    @Test
+    void dashboardStuckInAWriteIsDroppedAfterSendTimeout() throws Exception {
+        StuckEmitter slow = new StuckEmitter();
+        dashboardUpdateService.register(slow);
+        assertTrue(slow.writing.await(5, TimeUnit.SECONDS));
+
+        dashboardUpdateService.heartbeat();
+        assertEquals(1, dashboardUpdateService.openConnections());
+
+        Thread.sleep(150);
+        dashboardUpdateService.heartbeat();
+
+        assertEquals(0, dashboardUpdateService.openConnections());
+        assertTrue(slow.interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void dashboardThatFallsBehindIsDropped() throws Exception {
+        StuckEmitter slow = new StuckEmitter();
+        dashboardUpdateService.register(slow);
+        assertTrue(slow.writing.await(5, TimeUnit.SECONDS));
+
+        DefaultMessage update = new DefaultMessage(new byte[0],
+                "{\"type\":\"SYNC\",\"phase\":\"FAILED\"}".getBytes(StandardCharsets.UTF_8));
+        // The queue holds four events behind the one being written
+        for (int i = 0; i < 4; i++) {
+            dashboardUpdateService.onMessage(update, null);
+        }
+        assertEquals(1, dashboardUpdateService.openConnections());
+
+        dashboardUpdateService.onMessage(update, null);
+
+        assertEquals(0, dashboardUpdateService.openConnections());
+        assertEquals(1, slow.sends.get());
+    }
+
+    @Test
+    void streamsBeyondLimitAreRefused() throws Exception {
+        openStream();
+        openStream();
+        assertEquals(2, dashboardUpdateService.openConnections());
+
+        mockMvc.perform(get("/api/dashboard/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    private MockHttpServletResponse openStream() throws Exception {
+        return mockMvc.perform(get("/api/dashboard/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().string("X-Accel-Buffering", "no"))
+                .andReturn()
+                .getResponse();
+    }
+
+    /**
+     * Each stream is written on its own thread, so waits for {@code expected} to show up in it.
+     */
+    private String awaitStream(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String stream = response.getContentAsString();
+        while (!stream.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            stream = response.getContentAsString();
+        }
+        assertTrue(stream.contains(expected), stream);
+        return stream;
+    }
+
+    /**
+     * A dashboard whose first write never finishes, like one behind a dead connection.
+     */
+    private static class StuckEmitter extends SseEmitter {
+
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+        private final AtomicInteger sends = new AtomicInteger();
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sends.incrementAndGet();
+            writing.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    private JsonNode publishedUpdate() throws Exception {
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq(DashboardUpdateService.CHANNEL), body.capture());
+        return objectMapper.readTree(body.getValue());
+    }
+}
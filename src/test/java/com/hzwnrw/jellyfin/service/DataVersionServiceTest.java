@@ -0,0 +1,98 @@
+package com.hzwnrw.jellyfin.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DataVersionServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @InjectMocks
+    private DataVersionService dataVersionService;
+
+    @Test
+    void currentVersionReadsCounter() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(DataVersionService.VERSION_KEY)).thenReturn("42");
+
+        assertEquals(Optional.of(42L), dataVersionService.currentVersion());
+        verify(valueOperations, never()).setIfAbsent(anyString(), anyString());
+    }
+
+    @Test
+    void currentVersionStartsMissingCounterFromClock() {
+        long before = System.currentTimeMillis();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(DataVersionService.VERSION_KEY)).thenReturn(null, "1760000000000");
+        when(valueOperations.setIfAbsent(eq(DataVersionService.VERSION_KEY), anyString())).thenReturn(true);
+
+        assertEquals(Optional.of(1760000000000L), dataVersionService.currentVersion());
+        verify(valueOperations).setIfAbsent(eq(DataVersionService.VERSION_KEY),
+                argThat(value -> Long.parseLong(value) >= before));
+    }
+
+    @Test
+    void currentVersionIsEmptyWhenRedisFails() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(DataVersionService.VERSION_KEY))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        assertTrue(dataVersionService.currentVersion().isEmpty());
+    }
+
+    @Test
+    void bumpIncrementsExistingCounter() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(DataVersionService.VERSION_KEY), anyString())).thenReturn(false);
+
+        dataVersionService.bump();
+
+        verify(valueOperations).increment(DataVersionService.VERSION_KEY);
+    }
+
+    @Test
+    void bumpSwallowsRedisFailures() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(DataVersionService.VERSION_KEY), anyString()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        assertDoesNotThrow(() -> dataVersionService.bump());
+    }
+
+    @Test
+    void bumpInsideTransactionWaitsForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            dataVersionService.bump();
+            verifyNoInteractions(redisTemplate);
+
+            when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+            when(valueOperations.setIfAbsent(eq(DataVersionService.VERSION_KEY), anyString())).thenReturn(false);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            verify(valueOperations).increment(DataVersionService.VERSION_KEY);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.config.JellyfinHttpClientFactory;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exercises the guard against a local stub Jellyfin that injects latency and errors.
+ */
+class JellyfinApiGuardTest {
+
+    private record Reply(int status, long delayMillis) {
+    }
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private JellyfinHttpClientFactory httpClientFactory;
+    private RestClient client;
+    private SimpleMeterRegistry meterRegistry;
+    private final ConcurrentLinkedQueue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private volatile CountDownLatch inFlight = new CountDownLatch(0);
+
+    /**
+     * A guard that never retries and never rejects, for tests of code that calls Jellyfin.
+     */
+    static JellyfinApiGuard passThroughGuard() {
+        return new JellyfinApiGuard(1, Duration.ofMillis(1), 1.0, 100, 100, 100, Duration.ofSeconds(1),
+                100, Duration.ofSeconds(1), new SimpleMeterRegistry());
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            inFlight.countDown();
+            Reply reply = replies.isEmpty() ? new Reply(200, 0) : replies.poll();
+            sleep(reply.delayMillis());
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(reply.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (IOException ignored) {
+                // client gave up on a delayed reply
+            }
+        });
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        httpClientFactory = new JellyfinHttpClientFactory(10, Duration.ofSeconds(1), Duration.ofSeconds(1),
+                Duration.ofMillis(300), Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(5),
+                meterRegistry);
+        client = httpClientFactory.create("main", "http://localhost:" + server.getAddress().getPort(), "key",
+                JellyfinHttpClientFactory.Operation.INTERACTIVE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpClientFactory.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void readRetriesServerErrorsUntilSuccess() {
+        JellyfinApiGuard guard = guard(3, 100, 10);
+        replies.add(new Reply(503, 0));
+        replies.add(new Reply(502, 0));
+
+        assertEquals("{}", guard.read("main", this::get));
+
+        assertEquals(3, hits.get());
+        assertEquals(1.0, meterRegistry.get("resilience4j.retry.calls")
+                .tag("name", "main").tag("kind", "successful_with_retry").functionCounter().count());
+    }
+
+    @Test
+    void readRetriesTimeouts() {
+        JellyfinApiGuard guard = guard(3, 100, 10);
+        replies.add(new Reply(200, 1000));
+
+        assertEquals("{}", guard.read("main", this::get));
+
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void readDoesNotRetryClientErrors() {
+        JellyfinApiGuard guard = guard(3, 100, 10);
+        replies.add(new Reply(404, 0));
+
+        assertThrows(HttpClientErrorException.class, () -> guard.read("main", this::get));
+
+        assertEquals(1, hits.get());
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitState("main"));
+    }
+
+    @Test
+    void writeIsNeverRetried() {
+        JellyfinApiGuard guard = guard(3, 100, 10);
+        replies.add(new Reply(503, 0));
+
+        assertThrows(HttpServerErrorException.class, () -> guard.write("main", this::post));
+
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    void circuitOpensAfterRepeatedFailuresAndFailsFast() {
+        JellyfinApiGuard guard = guard(1, 4, 10);
+        for (int i = 0; i < 4; i++) {
+            replies.add(new Reply(500, 0));
+            assertThrows(HttpServerErrorException.class, () -> guard.read("main", this::get));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitState("main"));
+        assertThrows(CallNotPermittedException.class, () -> guard.read("main", this::get));
+        assertEquals(4, hits.get());
+        assertEquals(1.0, meterRegistry.get("resilience4j.circuitbreaker.state")
+                .tag("name", "main").tag("state", "open").gauge().value());
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondTheConcurrencyLimit() throws Exception {
+        JellyfinApiGuard guard = guard(1, 100, 2);
+        replies.add(new Reply(200, 250));
+        replies.add(new Reply(200, 250));
+        inFlight = new CountDownLatch(2);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> guard.read("main", this::get));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> guard.read("main", this::get));
+        assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+
+        assertEquals(0.0, meterRegistry.get("resilience4j.bulkhead.available.concurrent.calls")
+                .tag("name", "main").gauge().value());
+        assertThrows(BulkheadFullException.class, () -> guard.read("main", this::get));
+
+        assertEquals("{}", first.get(5, TimeUnit.SECONDS));
+        assertEquals("{}", second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, hits.get());
+    }
+
+    private JellyfinApiGuard guard(int maxAttempts, int minimumCalls, int maxConcurrentCalls) {
+        return new JellyfinApiGuard(maxAttempts, Duration.ofMillis(10), 2.0, 50, minimumCalls, minimumCalls,
+                Duration.ofMinutes(1), maxConcurrentCalls, Duration.ZERO, meterRegistry);
+    }
+
+    private String get() {
+        return client.get().uri("/Users").retrieve().body(String.class);
+    }
+
+    private String post() {
+        return client.post().uri("/Users/user-1/Policy").body("{}").retrieve().body(String.class);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
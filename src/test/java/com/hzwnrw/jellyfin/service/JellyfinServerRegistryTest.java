@@ -0,0 +1,61 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.config.JellyfinHttpClientFactory;
+import com.hzwnrw.jellyfin.config.JellyfinServerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JellyfinServerRegistryTest {
+
+    private final JellyfinHttpClientFactory httpClientFactory = new JellyfinHttpClientFactory(4,
+            Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofMinutes(2),
+            Duration.ofSeconds(30), Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+    @AfterEach
+    void closeFactory() {
+        httpClientFactory.close();
+    }
+
+    @Test
+    void legacyUrlBecomesDefaultServer() {
+        JellyfinServerProperties properties = new JellyfinServerProperties();
+        properties.setUrl("http://localhost:8096");
+        properties.setApiKey("key");
+
+        JellyfinServerRegistry registry = new JellyfinServerRegistry(properties, httpClientFactory);
+
+        assertEquals(List.of(JellyfinServerProperties.DEFAULT_SERVER_ID),
+                registry.getAll().stream().map(JellyfinServerClient::id).toList());
+        assertNotNull(registry.get(JellyfinServerProperties.DEFAULT_SERVER_ID).restClient());
+    }
+
+    @Test
+    void serversListTakesPrecedenceOverLegacyUrl() {
+        JellyfinServerProperties properties = new JellyfinServerProperties();
+        properties.setUrl("http://localhost:8096");
+        properties.setServers(List.of(
+                new JellyfinServerProperties.Server("home", "http://localhost:8096", "a"),
+                new JellyfinServerProperties.Server("cabin", "http://localhost:8097", "b")));
+
+        JellyfinServerRegistry registry = new JellyfinServerRegistry(properties, httpClientFactory);
+
+        assertEquals(List.of("home", "cabin"), registry.getAll().stream().map(JellyfinServerClient::id).toList());
+        assertThrows(IllegalArgumentException.class, () -> registry.get(JellyfinServerProperties.DEFAULT_SERVER_ID));
+    }
+
+    @Test
+    void duplicateServerIdsAreRejected() {
+        JellyfinServerProperties properties = new JellyfinServerProperties();
+        properties.setServers(List.of(
+                new JellyfinServerProperties.Server("home", "http://localhost:8096", "a"),
+                new JellyfinServerProperties.Server("home", "http://localhost:8097", "b")));
+
+        assertThrows(IllegalStateException.class, () -> new JellyfinServerRegistry(properties, httpClientFactory));
+    }
+}
@@ -0,0 +1,193 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.config.JellyfinHttpClientFactory;
+import com.hzwnrw.jellyfin.config.JellyfinServerProperties;
+import com.hzwnrw.jellyfin.dto.BulkStatusResponse;
+import com.hzwnrw.jellyfin.dto.BulkStatusResponse.Outcome;
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs a bulk disable against a stub Jellyfin server with per-request latency and checks
+ * that policy updates run in parallel without exceeding the configured concurrency.
+ */
+class JellyfinServiceBulkStatusTest {
+
+    private static final int CONCURRENCY = 4;
+    private static final long LATENCY_MILLIS = 100;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final List<String> postedPolicies = new ArrayList<>();
+    private final DashboardUpdateService dashboardUpdateService = mock(DashboardUpdateService.class);
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private JellyfinHttpClientFactory httpClientFactory;
+
+    @BeforeEach
+    void startStubServer() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/Users/", exchange -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(LATENCY_MILLIS);
+                // Leave before responding, so the client cannot start its next call while we still count this one
+                inFlight.decrementAndGet();
+                String[] path = exchange.getRequestURI().getPath().split("/");
+                String userId = path[2];
+                if (userId.equals("missing")) {
+                    respond(exchange, 404, "");
+                } else if (exchange.getRequestMethod().equals("POST")) {
+                    synchronized (postedPolicies) {
+                        postedPolicies.add(userId);
+                    }
+                    respond(exchange, userId.equals("broken") ? 500 : 204, "");
+                } else {
+                    respond(exchange, 200, """
+                            {"Id":"%s","Name":"%s","Policy":{"IsDisabled":false,"AuthenticationProviderId":"a"}}"""
+                            .formatted(userId, userId));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        httpClientFactory = new JellyfinHttpClientFactory(20, Duration.ofSeconds(2), Duration.ofSeconds(2),
+                Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(5),
+                new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void stopStubServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        httpClientFactory.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateDisableStatusRunsBoundedInParallelAndWritesOnce() {
+        JellyfinUserSyncService syncService = mock(JellyfinUserSyncService.class);
+        JellyfinUserCacheService cacheService = mock(JellyfinUserCacheService.class);
+        JellyfinService jellyfinService = buildService(syncService, cacheService);
+        List<String> userIds = new ArrayList<>(IntStream.range(0, 20).mapToObj(i -> "user" + i).toList());
+        userIds.add("missing");
+        userIds.add("broken");
+        userIds.add("user0");
+
+        long started = System.nanoTime();
+        BulkStatusResponse response = jellyfinService.updateDisableStatus("home", userIds, true);
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+
+        // 20 users need a GET and a POST each; one at a time that is at least 4s
+        assertTrue(elapsedMillis < 20 * 2 * LATENCY_MILLIS / 2,
+                "updates were not run in parallel: took " + elapsedMillis + " ms");
+        assertTrue(peakInFlight.get() > 1, "updates were not run in parallel");
+        assertTrue(peakInFlight.get() <= CONCURRENCY, "concurrency exceeded: " + peakInFlight.get());
+
+        assertTrue(response.isDisable());
+        assertEquals(20, response.getUpdated());
+        assertEquals(2, response.getFailed());
+        assertEquals(22, response.getResults().size());
+        assertEquals(userIds.subList(0, 22), response.getResults().stream()
+                .map(BulkStatusResponse.UserStatusResult::userId).toList());
+        assertEquals(Outcome.NOT_FOUND, response.getResults().get(20).outcome());
+        assertEquals(Outcome.FAILED, response.getResults().get(21).outcome());
+        assertNotNull(response.getResults().get(21).error());
+
+        ArgumentCaptor<List<JellyfinUser>> saved = ArgumentCaptor.forClass(List.class);
+        verify(syncService, times(1)).applyUserChanges(saved.capture(), eq(List.of()));
+        assertEquals(20, saved.getValue().size());
+        assertTrue(saved.getValue().stream().allMatch(user -> user.getPolicy().isDisabled()
+                && "home".equals(user.getServerId())
+                && user.computeContentHash().equals(user.getContentHash())));
+        verify(cacheService, times(1)).invalidateUsers(eq("home"), anyCollection());
+        verify(cacheService, never()).invalidateUserCache(any(), any());
+        ArgumentCaptor<Map<String, Boolean>> pushed = ArgumentCaptor.forClass(Map.class);
+        verify(dashboardUpdateService).statusChanged(eq("home"), pushed.capture());
+        assertEquals(userIds.subList(0, 20), List.copyOf(pushed.getValue().keySet()));
+        assertTrue(pushed.getValue().values().stream().allMatch(Boolean.TRUE::equals));
+        assertEquals(21, postedPolicies.size());
+    }
+
+    @Test
+    void updateDisableStatusSkipsWriteWhenNothingWasUpdated() {
+        JellyfinUserSyncService syncService = mock(JellyfinUserSyncService.class);
+        JellyfinUserCacheService cacheService = mock(JellyfinUserCacheService.class);
+
+        BulkStatusResponse response = buildService(syncService, cacheService)
+                .updateDisableStatus("home", List.of("missing"), false);
+
+        assertEquals(0, response.getUpdated());
+        verify(syncService, never()).applyUserChanges(anyList(), anyList());
+        verifyNoInteractions(cacheService);
+        verifyNoInteractions(dashboardUpdateService);
+    }
+
+    @Test
+    void updateDisableStatusRejectsUnknownServer() {
+        JellyfinService jellyfinService = buildService(mock(JellyfinUserSyncService.class),
+                mock(JellyfinUserCacheService.class));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> jellyfinService.updateDisableStatus("nope", List.of("user0"), true));
+    }
+
+    private JellyfinService buildService(JellyfinUserSyncService syncService, JellyfinUserCacheService cacheService) {
+        JellyfinServerProperties properties = new JellyfinServerProperties();
+        properties.setServers(List.of(new JellyfinServerProperties.Server("home",
+                "http://localhost:" + server.getAddress().getPort(), "key")));
+        return new JellyfinService(
+                500,
+                CONCURRENCY,
+                Duration.ZERO,
+                new JellyfinServerRegistry(properties, httpClientFactory),
+                mock(JellyfinUserRepository.class),
+                cacheService,
+                syncService,
+                new JellyfinUserStreamReader(),
+                mock(SyncFingerprintService.class),
+                JellyfinApiGuardTest.passThroughGuard(),
+                dashboardUpdateService
+        );
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.config.JellyfinHttpClientFactory;
+import com.hzwnrw.jellyfin.config.JellyfinServerProperties;
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Syncs several stub Jellyfin servers with injected latency and checks that they run
+ * concurrently and independently.
+ */
+class JellyfinServiceFederatedSyncTest {
+
+    private static final long LATENCY_MILLIS = 800;
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private JellyfinHttpClientFactory httpClientFactory;
+
+    @AfterEach
+    void stopServers() {
+        servers.forEach(server -> server.stop(0));
+        if (httpClientFactory != null) {
+            httpClientFactory.close();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void syncUsersSyncsAllServersConcurrentlyAndIsolatesFailures() throws Exception {
+        JellyfinServerProperties properties = new JellyfinServerProperties();
+        properties.setServers(List.of(
+                server("home", 200, usersJson("alice", "bob")),
+                server("cabin", 200, usersJson("alice", "carol", "dave")),
+                server("broken", 500, "[]")));
+        httpClientFactory = new JellyfinHttpClientFactory(4, Duration.ofSeconds(2), Duration.ofSeconds(2),
+                Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(5),
+                new SimpleMeterRegistry());
+        JellyfinUserRepository repository = mock(JellyfinUserRepository.class);
+        JellyfinUserCacheService cacheService = mock(JellyfinUserCacheService.class);
+        JellyfinService jellyfinService = new JellyfinService(
+                500,
+                4,
+                Duration.ZERO,
+                new JellyfinServerRegistry(properties, httpClientFactory),
+                repository,
+                cacheService,
+                new JellyfinUserSyncService(repository),
+                new JellyfinUserStreamReader(),
+                mock(SyncFingerprintService.class),
+                JellyfinApiGuardTest.passThroughGuard(),
+                mock(DashboardUpdateService.class)
+        );
+        SyncProgress progress = new SyncProgress("test");
+
+        long started = System.nanoTime();
+        SyncSummary summary = jellyfinService.syncUsers(progress);
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+
+        assertEquals(5, summary.getAdded());
+        assertTrue(elapsedMillis < 2 * LATENCY_MILLIS,
+                "servers were not synced concurrently: took " + elapsedMillis + " ms");
+        assertEquals(SyncProgress.Phase.COMPLETED, progress.getPhase());
+        assertEquals(Map.of(
+                "home", SyncProgress.Phase.COMPLETED,
+                "cabin", SyncProgress.Phase.COMPLETED,
+                "broken", SyncProgress.Phase.FAILED), progress.getServerPhases());
+        verify(cacheService).clearAllJellyfinUserCache();
+
+        ArgumentCaptor<Collection<JellyfinUser>> upserts = ArgumentCaptor.forClass(Collection.class);
+        verify(repository, times(2)).upsertAll(upserts.capture());
+        Map<String, List<String>> namesByServer = upserts.getAllValues().stream()
+                .flatMap(Collection::stream)
+                .collect(Collectors.groupingBy(JellyfinUser::getServerId,
+                        Collectors.mapping(JellyfinUser::getName, Collectors.toList())));
+        assertEquals(Map.of("home", List.of("alice", "bob"), "cabin", List.of("alice", "carol", "dave")),
+                namesByServer);
+        verify(repository).findActiveIds("home");
+        verify(repository).findActiveIds("cabin");
+        verify(repository, never()).findActiveIds("broken");
+    }
+
+    private JellyfinServerProperties.Server server(String id, int status, String body) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/Users", exchange -> {
+            try {
+                Thread.sleep(LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        servers.add(server);
+        return new JellyfinServerProperties.Server(id, "http://localhost:" + server.getAddress().getPort(), "key");
+    }
+
+    private static String usersJson(String... names) {
+        return "[" + Arrays.stream(names)
+                .map(name -> "{\"Id\":\"id-" + name + "\",\"Name\":\"" + name + "\",\"Policy\":{\"IsDisabled\":false}}")
+                .collect(Collectors.joining(",")) + "]";
+    }
+}
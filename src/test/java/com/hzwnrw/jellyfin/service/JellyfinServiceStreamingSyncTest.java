@@ -0,0 +1,176 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.config.JellyfinHttpClientFactory;
+import com.hzwnrw.jellyfin.config.JellyfinServerProperties;
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Syncs a synthetic 100k-user payload from a local stub server and checks that
+ * retained heap stays far below the payload size, i.e. nothing buffers the whole response.
+ */
+class JellyfinServiceStreamingSyncTest {
+
+    private static final int USER_COUNT = 100_000;
+    private static final int BATCH_SIZE = 500;
+    private static final long MAX_HEAP_GROWTH_BYTES = 32L * 1024 * 1024;
+
+    private static final String POLICY = """
+            "Policy":{"IsAdministrator":false,"IsHidden":true,"IsDisabled":%s,"BlockedTags":[],\
+            "EnableUserPreferenceAccess":true,"AccessSchedules":[],"BlockUnratedItems":[],\
+            "EnableRemoteControlOfOtherUsers":false,"EnableSharedDeviceControl":true,"EnableRemoteAccess":true,\
+            "EnableLiveTvManagement":true,"EnableLiveTvAccess":true,"EnableMediaPlayback":true,\
+            "EnableAudioPlaybackTranscoding":true,"EnableVideoPlaybackTranscoding":true,\
+            "EnablePlaybackRemuxing":true,"EnableContentDeletion":false,"EnableContentDownloading":true,\
+            "EnableSyncTranscoding":true,"EnableMediaConversion":true,"EnabledDevices":[],"EnableAllDevices":true,\
+            "EnabledChannels":[],"EnableAllChannels":true,"EnabledFolders":[],"EnableAllFolders":true,\
+            "InvalidLoginAttemptCount":0,"LoginAttemptsBeforeLockout":-1,"MaxActiveSessions":0,\
+            "EnablePublicSharing":true,"BlockedMediaFolders":[],"BlockedChannels":[],"RemoteClientBitrateLimit":0,\
+            "AuthenticationProviderId":"Jellyfin.Server.Implementations.Users.DefaultAuthenticationProvider",\
+            "PasswordResetProviderId":"Jellyfin.Server.Implementations.Users.DefaultPasswordResetProvider",\
+            "SyncPlayAccess":"CreateAndJoinGroups"}""";
+
+    private static final String USER = """
+            {"Name":"user-%1$d","ServerId":"4f9a7c0d2e6b4b1d8f3a5c7e9b1d3f5a","Id":"%2$032x",\
+            "HasPassword":true,"HasConfiguredPassword":true,"HasConfiguredEasyPassword":false,\
+            "EnableAutoLogin":false,"LastLoginDate":"2026-10-01T12:00:00.0000000Z",\
+            "LastActivityDate":"2026-10-01T12:30:00.0000000Z",\
+            "Configuration":{"PlayDefaultAudioTrack":true,"SubtitleLanguagePreference":"",\
+            "DisplayMissingEpisodes":false,"GroupedFolders":[],"SubtitleMode":"Default",\
+            "DisplayCollectionsView":false,"EnableLocalPassword":false,"OrderedViews":[],\
+            "LatestItemsExcludes":[],"MyMediaExcludes":[],"HidePlayedInLatest":true,\
+            "RememberAudioSelections":true,"RememberSubtitleSelections":true,"EnableNextEpisodeAutoPlay":true},\
+            %3$s}""";
+
+    private HttpServer server;
+    private final AtomicLong payloadBytes = new AtomicLong();
+
+    @BeforeEach
+    void startStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/Users", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024)) {
+                write(out, "[");
+                for (int i = 0; i < USER_COUNT; i++) {
+                    String policy = POLICY.formatted(i % 7 == 0);
+                    write(out, (i == 0 ? "" : ",") + USER.formatted(i, i, policy));
+                }
+                write(out, "]");
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStubServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void syncUsersKeepsRetainedHeapFlatForLargePayload() {
+        AtomicInteger savedUsers = new AtomicInteger();
+        AtomicInteger largestBatch = new AtomicInteger();
+        AtomicInteger batches = new AtomicInteger();
+        AtomicLong peakRetainedHeap = new AtomicLong();
+
+        JellyfinUserRepository repository = fakeRepository((method, args) -> switch (method) {
+            case "findSyncSnapshotByIdIn" -> {
+                if (batches.incrementAndGet() % 20 == 0) {
+                    peakRetainedHeap.accumulateAndGet(retainedHeap(), Math::max);
+                }
+                yield List.of();
+            }
+            case "upsertAll" -> {
+                int size = ((Collection<?>) args[0]).size();
+                savedUsers.addAndGet(size);
+                largestBatch.accumulateAndGet(size, Math::max);
+                yield null;
+            }
+            case "findActiveIds" -> List.of();
+            default -> throw new UnsupportedOperationException(method);
+        });
+
+        JellyfinService jellyfinService = new JellyfinService(
+                BATCH_SIZE,
+                4,
+                Duration.ZERO,
+                serverRegistry("http://localhost:" + server.getAddress().getPort()),
+                repository,
+                mock(JellyfinUserCacheService.class),
+                new JellyfinUserSyncService(repository),
+                new JellyfinUserStreamReader(),
+                mock(SyncFingerprintService.class),
+                JellyfinApiGuardTest.passThroughGuard(),
+                mock(DashboardUpdateService.class)
+        );
+
+        long baseline = retainedHeap();
+        SyncSummary summary = jellyfinService.syncUsers(new SyncProgress("test"));
+        peakRetainedHeap.accumulateAndGet(retainedHeap(), Math::max);
+
+        assertEquals(USER_COUNT, summary.getAdded());
+        assertEquals(USER_COUNT, savedUsers.get());
+        assertTrue(largestBatch.get() <= BATCH_SIZE, "batch exceeded configured size: " + largestBatch.get());
+
+        long growth = peakRetainedHeap.get() - baseline;
+        assertTrue(payloadBytes.get() > 4 * MAX_HEAP_GROWTH_BYTES,
+                "payload too small to be meaningful: " + payloadBytes.get());
+        assertTrue(growth < MAX_HEAP_GROWTH_BYTES,
+                "retained heap grew by " + growth + " bytes for a " + payloadBytes.get() + " byte payload");
+    }
+
+    private static JellyfinServerRegistry serverRegistry(String url) {
+        JellyfinServerProperties properties = new JellyfinServerProperties();
+        properties.setUrl(url);
+        properties.setApiKey("api-key");
+        return new JellyfinServerRegistry(properties, new JellyfinHttpClientFactory(4, Duration.ofSeconds(5),
+                Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofMinutes(2), Duration.ofSeconds(30),
+                Duration.ofMinutes(5), new SimpleMeterRegistry()));
+    }
+
+    private void write(OutputStream out, String chunk) throws IOException {
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        payloadBytes.addAndGet(bytes.length);
+        out.write(bytes);
+    }
+
+    private static long retainedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private interface RepositoryCall {
+        Object invoke(String method, Object[] args);
+    }
+
+    private static JellyfinUserRepository fakeRepository(RepositoryCall call) {
+        return (JellyfinUserRepository) Proxy.newProxyInstance(
+                JellyfinUserRepository.class.getClassLoader(),
+                new Class<?>[]{JellyfinUserRepository.class},
+                (proxy, method, args) -> call.invoke(method.getName(), args));
+    }
+}
@@ -1,33 +1,68 @@
 package com.hzwnrw.jellyfin.service;
 
+import com.hzwnrw.jellyfin.dto.BulkStatusResponse.Outcome;
+import com.hzwnrw.jellyfin.dto.BulkStatusResponse.UserStatusResult;
+import com.hzwnrw.jellyfin.dto.JellyfinUserRecord;
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import com.hzwnrw.jellyfin.dto.UserDashboardRow;
+import com.hzwnrw.jellyfin.dto.UserDashboardSlice;
+import com.hzwnrw.jellyfin.dto.UserPageCursor;
+import com.hzwnrw.jellyfin.dto.UserSearchFilter;
 import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.JellyfinUserKey;
 import com.hzwnrw.jellyfin.model.UserPolicy;
 import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.util.UriBuilder;
 
+import java.io.ByteArrayInputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class JellyfinServiceTest {
 
+    private static final String SERVER = "home";
+    private static final UserSearchFilter NO_FILTER = new UserSearchFilter();
+
+    private static final String USERS_JSON = """
+            [
+              {"Id": "user-1", "Name": "Alice", "Policy": {"IsDisabled": false}},
+              {"Id": "user-2", "Name": "Bob", "Policy": {"IsDisabled": true}},
+              {"Id": "user-3", "Name": "Carol", "Policy": {"IsDisabled": false}}
+            ]
+            """;
+
     private interface RequestHeadersSpecStub extends RestClient.RequestHeadersSpec<RequestHeadersSpecStub> {
     }
 
@@ -40,6 +75,15 @@ class JellyfinServiceTest {
     @Mock
     private JellyfinUserCacheService jellyfinUserCacheService;
 
+    @Mock
+    private JellyfinUserSyncService jellyfinUserSyncService;
+
+    @Mock
+    private SyncFingerprintService syncFingerprintService;
+
+    @Mock
+    private DashboardUpdateService dashboardUpdateService;
+
     @Mock
     private RestClient restClient;
 
@@ -52,6 +96,9 @@ class JellyfinServiceTest {
     @Mock
     private RestClient.ResponseSpec responseSpec;
 
+    @Mock
+    private RestClient.RequestHeadersSpec.ConvertibleClientHttpResponse usersResponse;
+
     @Mock
     private RestClient.RequestBodyUriSpec requestBodyUriSpec;
 
@@ -59,45 +106,100 @@ class JellyfinServiceTest {
     private RestClient.RequestBodySpec requestBodySpec;
 
     @Test
-    void syncAndGetAllUsersSavesFetchedUsersAndReturnsDatabaseState() {
+    void syncUsersStreamsFetchedUsersThroughSyncServiceInBatches() throws Exception {
         JellyfinService jellyfinService = buildService();
-        JellyfinUser fetchedUser = new JellyfinUser();
-        fetchedUser.setId("user-1");
-        fetchedUser.setName("Alice");
+        stubUsersResponse(HttpStatus.OK, USERS_JSON);
+        SyncProgress progress = new SyncProgress("test");
+
+        SyncSummary result = jellyfinService.syncUsers(progress);
+
+        assertEquals(SyncProgress.Phase.COMPLETED, progress.getPhase());
+        assertEquals(3, progress.getProcessedUsers());
+        ArgumentCaptor<SyncRun> run = ArgumentCaptor.forClass(SyncRun.class);
+        InOrder inOrder = inOrder(jellyfinUserSyncService);
+        inOrder.verify(jellyfinUserSyncService).applyBatch(eq(List.of(
+                record("user-1", "Alice", false),
+                record("user-2", "Bob", true))), run.capture());
+        inOrder.verify(jellyfinUserSyncService).applyBatch(eq(List.of(
+                record("user-3", "Carol", false))), same(run.getValue()));
+        inOrder.verify(jellyfinUserSyncService).removeMissing(run.getValue());
+        verify(jellyfinUserRepository, never()).findAll();
+        verify(syncFingerprintService).recordApplied(SERVER, sha256(USERS_JSON));
+        verify(jellyfinUserCacheService, never()).clearAllJellyfinUserCache();
+        assertEquals(SERVER, run.getValue().getServerId());
+        assertEquals(run.getValue().getSummary(), result);
+        assertEquals(Map.of(SERVER, SyncProgress.Phase.COMPLETED), progress.getServerPhases());
+    }
 
-        doReturn(requestHeadersUriSpec).when(restClient).get();
-        when(requestHeadersUriSpec.uri(org.mockito.ArgumentMatchers.<Function<UriBuilder, URI>>any()))
-                .thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.body(org.mockito.ArgumentMatchers.<ParameterizedTypeReference<List<JellyfinUser>>>any()))
-                .thenReturn(List.of(fetchedUser));
-        when(jellyfinUserRepository.findAll()).thenReturn(List.of(fetchedUser));
+    @Test
+    void syncUsersClearsUserCacheOnlyWhenSomethingChanged() throws Exception {
+        JellyfinService jellyfinService = buildService();
+        stubUsersResponse(HttpStatus.OK, USERS_JSON);
+        doAnswer(invocation -> {
+            SyncRun run = invocation.getArgument(1);
+            run.getSummary().setChanged(run.getSummary().getChanged() + 1);
+            return null;
+        }).when(jellyfinUserSyncService).applyBatch(anyList(), any(SyncRun.class));
+
+        SyncSummary result = jellyfinService.syncUsers(new SyncProgress("test"));
+
+        assertEquals(2, result.getChanged());
+        verify(jellyfinUserCacheService).clearAllJellyfinUserCache();
+    }
 
-        List<JellyfinUser> result = jellyfinService.syncAndGetAllUsers();
+    @Test
+    void syncUsersSkipsEverythingWhenPayloadFingerprintMatchesLastSync() throws Exception {
+        JellyfinService jellyfinService = buildService();
+        stubUsersResponse(HttpStatus.OK, USERS_JSON);
+        when(syncFingerprintService.getFingerprint(SERVER)).thenReturn(Optional.of(sha256(USERS_JSON)));
+        SyncProgress progress = new SyncProgress("test");
 
-        verify(jellyfinUserRepository).saveAll(List.of(fetchedUser));
-        verify(jellyfinUserRepository).findAll();
-        assertEquals(List.of(fetchedUser), result);
+        SyncSummary result = jellyfinService.syncUsers(progress);
+
+        assertEquals(SyncProgress.Phase.SKIPPED, progress.getPhase());
+        assertFalse(result.hasChanges());
+        verifyNoInteractions(jellyfinUserSyncService, jellyfinUserRepository, jellyfinUserCacheService);
+        verify(syncFingerprintService).recordUnchanged(SERVER);
+        verify(syncFingerprintService, never()).recordApplied(anyString(), anyString());
     }
 
     @Test
-    void syncAndGetAllUsersStillReturnsRepositoryDataWhenApiFails() {
+    void syncUsersThrowsWhenEveryServerFails() {
         JellyfinService jellyfinService = buildService();
-        JellyfinUser existingUser = new JellyfinUser();
-        existingUser.setId("user-1");
 
         doReturn(requestHeadersUriSpec).when(restClient).get();
         when(requestHeadersUriSpec.uri(org.mockito.ArgumentMatchers.<Function<UriBuilder, URI>>any()))
                 .thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.body(org.mockito.ArgumentMatchers.<ParameterizedTypeReference<List<JellyfinUser>>>any()))
-                .thenThrow(new RuntimeException("api failure"));
-        when(jellyfinUserRepository.findAll()).thenReturn(List.of(existingUser));
+        when(requestHeadersSpec.exchange(any())).thenThrow(new RuntimeException("api failure"));
+        SyncProgress progress = new SyncProgress("test");
+
+        assertThrows(IllegalStateException.class, () -> jellyfinService.syncUsers(progress));
+
+        assertEquals(SyncProgress.Phase.FAILED, progress.getPhase());
+        verifyNoInteractions(jellyfinUserSyncService);
+    }
+
+    @Test
+    void syncUsersDoesNotApplyAnythingWhenApiReturnsErrorStatus() throws Exception {
+        JellyfinService jellyfinService = buildService();
+        stubUsersResponse(HttpStatus.INTERNAL_SERVER_ERROR, "[]");
+
+        assertThrows(IllegalStateException.class, () -> jellyfinService.syncUsers(new SyncProgress("test")));
+
+        verifyNoInteractions(jellyfinUserSyncService);
+        verify(syncFingerprintService, never()).recordApplied(anyString(), anyString());
+    }
+
+    @Test
+    void syncUsersDoesNotRemoveUsersWhenApiReturnsEmptyList() throws Exception {
+        JellyfinService jellyfinService = buildService();
+        stubUsersResponse(HttpStatus.OK, "[]");
 
-        List<JellyfinUser> result = jellyfinService.syncAndGetAllUsers();
+        SyncSummary result = jellyfinService.syncUsers(new SyncProgress("test"));
 
-        verify(jellyfinUserRepository, never()).saveAll(anyList());
-        assertEquals(List.of(existingUser), result);
+        verifyNoInteractions(jellyfinUserSyncService);
+        verify(syncFingerprintService, never()).recordApplied(anyString(), anyString());
+        assertFalse(result.hasChanges());
     }
 
     @Test
@@ -105,7 +207,7 @@ class JellyfinServiceTest {
         JellyfinService jellyfinService = buildService();
         JellyfinUser user = new JellyfinUser();
         user.setId("user-1");
-        when(jellyfinUserRepository.findAll()).thenReturn(List.of(user));
+        when(jellyfinUserRepository.findByDeletedFalse()).thenReturn(List.of(user));
 
         List<JellyfinUser> result = jellyfinService.getAllUsers();
 
@@ -117,7 +219,7 @@ class JellyfinServiceTest {
         JellyfinService jellyfinService = buildService();
         PageRequest pageRequest = PageRequest.of(0, 10);
         Page<JellyfinUser> page = new PageImpl<>(List.of(new JellyfinUser()), pageRequest, 1);
-        when(jellyfinUserRepository.findAll(pageRequest)).thenReturn(page);
+        when(jellyfinUserRepository.findByDeletedFalse(pageRequest)).thenReturn(page);
 
         Page<JellyfinUser> result = jellyfinService.getAllUsers(pageRequest);
 
@@ -125,73 +227,288 @@ class JellyfinServiceTest {
     }
 
     @Test
-    void updateDisableStatusPostsUpdatedPolicySavesUserAndInvalidatesCache() {
+    void getDashboardSliceReadsOneExtraRowToFindTheNextPage() {
         JellyfinService jellyfinService = buildService();
-        JellyfinUser user = new JellyfinUser();
-        user.setId("user-1");
-        user.setPolicy(new UserPolicy());
+        UserDashboardRow alice = dashboardRow("user-1", "Alice");
+        UserDashboardRow bob = dashboardRow("user-2", "Bob");
+        when(jellyfinUserRepository.findDashboardSlice("name", Sort.Direction.ASC, NO_FILTER, null, 0, 3))
+                .thenReturn(List.of(alice, bob, dashboardRow("user-3", "Carol")));
+        when(jellyfinUserCacheService.countActiveUsers()).thenReturn(3L);
+
+        UserDashboardSlice slice = jellyfinService.getDashboardSlice("name", Sort.Direction.ASC, NO_FILTER, 2, null, 0);
+
+        assertEquals(List.of(alice, bob), slice.getContent());
+        assertEquals(new UserPageCursor("name", Sort.Direction.ASC, false, List.of("Bob", SERVER, "user-2")),
+                slice.getNextCursor());
+        assertFalse(slice.hasPrevious());
+        assertEquals(3, slice.getTotalElements());
+    }
 
-        doReturn(requestHeadersUriSpec).when(restClient).get();
-        when(requestHeadersUriSpec.uri("/Users/{id}", "user-1")).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.body(JellyfinUser.class)).thenReturn(user);
+    @Test
+    void getDashboardSliceRejectsASkipPastTheIntRange() {
+        JellyfinService jellyfinService = buildService();
+        UserPageCursor after = new UserPageCursor("name", Sort.Direction.ASC, false, List.of("Bob", SERVER, "user-2"));
 
-        when(restClient.post()).thenReturn(requestBodyUriSpec);
-        when(requestBodyUriSpec.uri("/Users/{id}/Policy", "user-1")).thenReturn(requestBodySpec);
-        when(requestBodySpec.contentType(MediaType.APPLICATION_JSON)).thenReturn(requestBodySpec);
-        when(requestBodySpec.body(any(UserPolicy.class))).thenReturn(requestBodySpec);
-        when(requestBodySpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.toBodilessEntity()).thenReturn(ResponseEntity.ok().build());
+        assertThrows(IllegalArgumentException.class, () -> jellyfinService.getDashboardSlice(
+                "name", Sort.Direction.ASC, NO_FILTER, 100, after, Integer.MAX_VALUE));
+        verifyNoInteractions(jellyfinUserRepository);
+    }
 
-        jellyfinService.updateDisableStatus("user-1", true);
+    @Test
+    void getDashboardSliceReversesRowsReadBeforeTheCursor() {
+        JellyfinService jellyfinService = buildService();
+        UserPageCursor before = new UserPageCursor("id", Sort.Direction.DESC, true, List.of("user-2", SERVER));
+        // Nearest first: user-3, user-4, and user-5 shows there is more before them
+        when(jellyfinUserRepository.findDashboardSlice("id", Sort.Direction.DESC, NO_FILTER, before, 4, 3))
+                .thenReturn(List.of(dashboardRow("user-3", "Carol"), dashboardRow("user-4", "Dave"),
+                        dashboardRow("user-5", "Erin")));
+
+        UserDashboardSlice slice = jellyfinService.getDashboardSlice("id", Sort.Direction.DESC, NO_FILTER, 2, before, 2);
+
+        assertEquals(List.of("user-4", "user-3"), slice.getContent().stream().map(UserDashboardRow::getId).toList());
+        assertEquals(new UserPageCursor("id", Sort.Direction.DESC, true, List.of("user-4", SERVER)),
+                slice.getPreviousCursor());
+        assertEquals(new UserPageCursor("id", Sort.Direction.DESC, false, List.of("user-3", SERVER)),
+                slice.getNextCursor());
+    }
 
-        assertEquals(true, user.getPolicy().isDisabled());
-        verify(jellyfinUserRepository).save(user);
-        verify(jellyfinUserCacheService).invalidateUserCache("user-1");
-        verify(jellyfinUserCacheService).invalidateAllUsersCache();
+    @Test
+    void getDashboardSliceRestartsAtTheTopWhenPreviousPageIsShort() {
+        JellyfinService jellyfinService = buildService();
+        UserPageCursor before = new UserPageCursor("name", Sort.Direction.ASC, true, List.of("Bob", SERVER, "user-2"));
+        when(jellyfinUserRepository.findDashboardSlice("name", Sort.Direction.ASC, NO_FILTER, before, 0, 3))
+                .thenReturn(List.of(dashboardRow("user-1", "Alice")));
+        when(jellyfinUserRepository.findDashboardSlice("name", Sort.Direction.ASC, NO_FILTER, null, 0, 3))
+                .thenReturn(List.of(dashboardRow("user-1", "Alice"), dashboardRow("user-2", "Bob")));
+
+        UserDashboardSlice slice = jellyfinService.getDashboardSlice("name", Sort.Direction.ASC, NO_FILTER, 2, before, 0);
+
+        assertEquals(List.of("Alice", "Bob"), slice.getContent().stream().map(UserDashboardRow::getName).toList());
+        assertFalse(slice.hasPrevious());
+        assertFalse(slice.hasNext());
     }
 
     @Test
-    void updateDisableStatusDoesNothingWhenFetchedUserHasNoPolicy() {
+    void getDashboardSliceIgnoresCursorOfAnotherSortOrder() {
         JellyfinService jellyfinService = buildService();
-        JellyfinUser user = new JellyfinUser();
-        user.setId("user-1");
-        user.setPolicy(null);
+        UserPageCursor byId = new UserPageCursor("id", Sort.Direction.ASC, false, List.of("user-1", SERVER));
+        when(jellyfinUserRepository.findDashboardSlice("name", Sort.Direction.ASC, NO_FILTER, null, 0, 3)).thenReturn(List.of());
 
-        doReturn(requestHeadersUriSpec).when(restClient).get();
-        when(requestHeadersUriSpec.uri("/Users/{id}", "user-1")).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.body(JellyfinUser.class)).thenReturn(user);
+        UserDashboardSlice slice = jellyfinService.getDashboardSlice("name", Sort.Direction.ASC, NO_FILTER, 2, byId, 1);
+
+        assertEquals(List.of(), slice.getContent());
+        assertFalse(slice.hasNext());
+        assertFalse(slice.hasPrevious());
+    }
+
+    @Test
+    void getDashboardSliceIgnoresCursorWithTooFewKeyValues() {
+        JellyfinService jellyfinService = buildService();
+        String token = new UserPageCursor("name", Sort.Direction.ASC, false, List.of("Alice")).encode();
+        UserPageCursor truncated = UserPageCursor.decode(token).orElseThrow();
+        when(jellyfinUserRepository.findDashboardSlice("name", Sort.Direction.ASC, NO_FILTER, null, 0, 3))
+                .thenReturn(List.of(dashboardRow("user-1", "Alice")));
+
+        UserDashboardSlice slice = jellyfinService.getDashboardSlice("name", Sort.Direction.ASC, NO_FILTER, 2, truncated, 1);
+
+        assertEquals(List.of("user-1"), slice.getContent().stream().map(UserDashboardRow::getId).toList());
+        assertFalse(slice.hasPrevious());
+        verify(jellyfinUserRepository, never()).findDashboardSlice(any(), any(), any(), eq(truncated), anyInt(), anyInt());
+    }
+
+    @Test
+    void getDashboardSliceCountsMatchesOfAFilterInsteadOfTheCachedTotal() {
+        JellyfinService jellyfinService = buildService();
+        UserSearchFilter disabled = new UserSearchFilter(null, null, true, null, null);
+        when(jellyfinUserRepository.findDashboardSlice("name", Sort.Direction.ASC, disabled, null, 0, 3))
+                .thenReturn(List.of(dashboardRow("user-2", "Bob")));
+        when(jellyfinUserRepository.countDashboard(disabled)).thenReturn(1L);
+
+        UserDashboardSlice slice = jellyfinService.getDashboardSlice("name", Sort.Direction.ASC, disabled, 2, null, 0);
+
+        assertEquals(1, slice.getTotalElements());
+        verify(jellyfinUserCacheService, never()).countActiveUsers();
+    }
+
+    @Test
+    void userPageCursorRoundTripsAndRejectsTamperedTokens() {
+        UserPageCursor cursor = new UserPageCursor("name", Sort.Direction.DESC, true, List.of("Zoë & co", SERVER, "u/1"));
+
+        assertEquals(Optional.of(cursor), UserPageCursor.decode(cursor.encode()));
+        assertEquals(Optional.empty(), UserPageCursor.decode(cursor.encode() + "AA"));
+        assertEquals(Optional.empty(), UserPageCursor.decode("not a cursor"));
+        assertEquals(Optional.empty(), UserPageCursor.decode(""));
+    }
+
+    @Test
+    void applyDisableStatusPostsFullPolicySavesUserAndInvalidatesCache() {
+        JellyfinService jellyfinService = buildService();
+        stubGetUser("""
+                {"Id":"user-1","Name":"Alice","Policy":{"IsDisabled":false,"EnableAllFolders":false,\
+                "AuthenticationProviderId":"auth"}}""");
+        stubPost();
+
+        List<UserStatusResult> results = jellyfinService.applyDisableStatus(SERVER, Map.of("user-1", true));
+
+        assertEquals(List.of(new UserStatusResult("user-1", Outcome.UPDATED, null)), results);
+        String expectedPolicy = "{\"IsDisabled\":true,\"EnableAllFolders\":false,\"AuthenticationProviderId\":\"auth\"}";
+        verify(requestBodySpec).body(expectedPolicy);
+        ArgumentCaptor<List<JellyfinUser>> saved = ArgumentCaptor.captor();
+        verify(jellyfinUserSyncService).applyUserChanges(saved.capture(), eq(List.of()));
+        JellyfinUser user = saved.getValue().getFirst();
+        assertEquals(SERVER, user.getServerId());
+        assertEquals(true, user.getPolicy().isDisabled());
+        assertEquals(expectedPolicy, user.getPolicyJson());
+        assertEquals(user.computeContentHash(), user.getContentHash());
+        verify(jellyfinUserCacheService).invalidateUsers(SERVER, List.of("user-1"));
+        verify(dashboardUpdateService).statusChanged(SERVER, Map.of("user-1", true));
+    }
+
+    @Test
+    void applyDisableStatusReportsFetchedUserWithoutPolicyAsNotFound() {
+        JellyfinService jellyfinService = buildService();
+        stubGetUser("{\"Id\":\"user-1\",\"Name\":\"Alice\"}");
 
-        jellyfinService.updateDisableStatus("user-1", true);
+        List<UserStatusResult> results = jellyfinService.applyDisableStatus(SERVER, Map.of("user-1", true));
 
-        verify(jellyfinUserRepository, never()).save(any());
-        verifyNoInteractions(jellyfinUserCacheService);
+        assertEquals(Outcome.NOT_FOUND, results.getFirst().outcome());
+        verifyNoInteractions(jellyfinUserSyncService, jellyfinUserCacheService);
         verify(restClient, never()).post();
     }
 
     @Test
-    void updateDisableStatusSwallowsRemoteErrors() {
+    void applyDisableStatusPostsLocalPolicyWithinMaxAgeWithoutReadingJellyfin() {
+        JellyfinService jellyfinService = buildService(Duration.ofMinutes(15));
+        JellyfinUser local = localUser(ZonedDateTime.now(ZoneOffset.UTC).minusMinutes(1));
+        when(jellyfinUserRepository.findById(new JellyfinUserKey(SERVER, "user-1"))).thenReturn(Optional.of(local));
+        stubPost();
+
+        jellyfinService.applyDisableStatus(SERVER, Map.of("user-1", true));
+
+        verify(restClient, never()).get();
+        verify(requestBodySpec).body("{\"IsDisabled\":true,\"EnableAllFolders\":false}");
+        verify(jellyfinUserSyncService).applyUserChanges(List.of(local), List.of());
+        assertEquals(true, local.getPolicy().isDisabled());
+    }
+
+    @Test
+    void applyDisableStatusTrustsLocalPolicyConfirmedByRecentSync() {
+        JellyfinService jellyfinService = buildService(Duration.ofMinutes(15));
+        JellyfinUser local = localUser(ZonedDateTime.now(ZoneOffset.UTC).minusDays(3));
+        when(jellyfinUserRepository.findById(new JellyfinUserKey(SERVER, "user-1"))).thenReturn(Optional.of(local));
+        when(syncFingerprintService.getLastSyncAt(SERVER)).thenReturn(Optional.of(Instant.now().minusSeconds(60)));
+        stubPost();
+
+        jellyfinService.applyDisableStatus(SERVER, Map.of("user-1", true));
+
+        verify(restClient, never()).get();
+        verify(jellyfinUserSyncService).applyUserChanges(List.of(local), List.of());
+    }
+
+    @Test
+    void applyDisableStatusReadsJellyfinWhenLocalPolicyIsStale() {
+        JellyfinService jellyfinService = buildService(Duration.ofMinutes(15));
+        JellyfinUser local = localUser(ZonedDateTime.now(ZoneOffset.UTC).minusHours(1));
+        when(jellyfinUserRepository.findById(new JellyfinUserKey(SERVER, "user-1"))).thenReturn(Optional.of(local));
+        when(syncFingerprintService.getLastSyncAt(SERVER)).thenReturn(Optional.of(Instant.now().minusSeconds(3600)));
+        stubGetUser("{\"Id\":\"user-1\",\"Name\":\"Alice\",\"Policy\":{\"IsDisabled\":false,\"EnableAllFolders\":true}}");
+        stubPost();
+
+        jellyfinService.applyDisableStatus(SERVER, Map.of("user-1", true));
+
+        verify(restClient).get();
+        verify(requestBodySpec).body("{\"IsDisabled\":true,\"EnableAllFolders\":true}");
+    }
+
+    @Test
+    void fetchUserKeepsFullPolicyAndTreatsNotFoundAsMissing() {
         JellyfinService jellyfinService = buildService();
 
         doReturn(requestHeadersUriSpec).when(restClient).get();
-        when(requestHeadersUriSpec.uri("/Users/{id}", "user-1")).thenReturn(requestHeadersSpec);
+        when(requestHeadersUriSpec.uri(eq("/Users/{id}"), anyString())).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.body(JellyfinUser.class)).thenThrow(new RuntimeException("remote failure"));
+        when(responseSpec.body(String.class))
+                .thenReturn("{\"Id\":\"user-1\",\"Name\":\"Alice\",\"Policy\":{\"IsDisabled\":true,\"MaxActiveSessions\":2}}")
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+
+        JellyfinUser user = jellyfinService.fetchUser(SERVER, "user-1").orElseThrow();
+        assertEquals(SERVER, user.getServerId());
+        assertEquals("Alice", user.getName());
+        assertEquals(true, user.getPolicy().isDisabled());
+        assertEquals("{\"IsDisabled\":true,\"MaxActiveSessions\":2}", user.getPolicyJson());
+        assertEquals(Optional.empty(), jellyfinService.fetchUser(SERVER, "user-2"));
+    }
 
-        jellyfinService.updateDisableStatus("user-1", true);
+    private JellyfinUser localUser(ZonedDateTime policySyncedAt) {
+        JellyfinUser local = record("user-1", "Alice", false).toEntity(SERVER);
+        local.setPolicyJson("{\"IsDisabled\":false,\"EnableAllFolders\":false}");
+        local.setPolicySyncedAt(policySyncedAt);
+        return local;
+    }
+
+    private void stubGetUser(String body) {
+        doReturn(requestHeadersUriSpec).when(restClient).get();
+        when(requestHeadersUriSpec.uri("/Users/{id}", "user-1")).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.body(String.class)).thenReturn(body);
+    }
 
-        verify(jellyfinUserRepository, never()).save(any());
+    private void stubPost() {
+        when(restClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri("/Users/{id}/Policy", "user-1")).thenReturn(requestBodySpec);
+        when(requestBodySpec.contentType(MediaType.APPLICATION_JSON)).thenReturn(requestBodySpec);
+        when(requestBodySpec.body(anyString())).thenReturn(requestBodySpec);
+        when(requestBodySpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.toBodilessEntity()).thenReturn(ResponseEntity.ok().build());
     }
 
     private JellyfinService buildService() {
+        return buildService(Duration.ZERO);
+    }
+
+    private JellyfinService buildService(Duration policyMaxAge) {
         JellyfinService jellyfinService = new JellyfinService(
-                "http://localhost:8096",
-                "api-key",
+                2,
+                4,
+                policyMaxAge,
+                new JellyfinServerRegistry(List.of(new JellyfinServerClient(SERVER, restClient, restClient))),
                 jellyfinUserRepository,
-                jellyfinUserCacheService
+                jellyfinUserCacheService,
+                jellyfinUserSyncService,
+                new JellyfinUserStreamReader(),
+                syncFingerprintService,
+                JellyfinApiGuardTest.passThroughGuard(),
+                dashboardUpdateService
         );
-        ReflectionTestUtils.setField(jellyfinService, "restClient", restClient);
         return jellyfinService;
     }
+
+    private void stubUsersResponse(HttpStatus status, String body) throws Exception {
+        doReturn(requestHeadersUriSpec).when(restClient).get();
+        when(requestHeadersUriSpec.uri(org.mockito.ArgumentMatchers.<Function<UriBuilder, URI>>any()))
+                .thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.exchange(any())).thenAnswer(invocation -> {
+            RestClient.RequestHeadersSpec.ExchangeFunction<?> exchangeFunction = invocation.getArgument(0);
+            return exchangeFunction.exchange(null, usersResponse);
+        });
+        when(usersResponse.getStatusCode()).thenReturn(status);
+        lenient().when(usersResponse.getBody())
+                .thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String sha256(String body) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private JellyfinUserRecord record(String id, String name, boolean disabled) {
+        UserPolicy defaults = new UserPolicy();
+        return new JellyfinUserRecord(id, name, disabled,
+                defaults.getAuthenticationProviderId(), defaults.getPasswordResetProviderId(),
+                "{\"IsDisabled\":" + disabled + "}");
+    }
+
+    private static UserDashboardRow dashboardRow(String id, String name) {
+        return new UserDashboardRow(SERVER, id, name, false, null);
+    }
 }
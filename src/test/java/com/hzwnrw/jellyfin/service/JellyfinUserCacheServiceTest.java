@@ -1,6 +1,7 @@
 package com.hzwnrw.jellyfin.service;
 
 import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.JellyfinUserKey;
 import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -31,6 +32,9 @@ class JellyfinUserCacheServiceTest {
     @Mock
     private Cache cache;
 
+    @Mock
+    private DataVersionService dataVersionService;
+
     @InjectMocks
     private JellyfinUserCacheService jellyfinUserCacheService;
 
@@ -38,18 +42,30 @@ class JellyfinUserCacheServiceTest {
     void getUserByIdDelegatesToRepository() {
         JellyfinUser user = new JellyfinUser();
         user.setId("user-1");
-        when(jellyfinUserRepository.findById("user-1")).thenReturn(Optional.of(user));
+        when(jellyfinUserRepository.findById(new JellyfinUserKey("home", "user-1"))).thenReturn(Optional.of(user));
 
-        Optional<JellyfinUser> result = jellyfinUserCacheService.getUserById("user-1");
+        Optional<JellyfinUser> result = jellyfinUserCacheService.getUserById("home", "user-1");
 
         assertEquals(Optional.of(user), result);
     }
 
+    @Test
+    void getUserByIdHidesSoftDeletedUsers() {
+        JellyfinUser user = new JellyfinUser();
+        user.setId("user-1");
+        user.setDeleted(true);
+        when(jellyfinUserRepository.findById(new JellyfinUserKey("home", "user-1"))).thenReturn(Optional.of(user));
+
+        Optional<JellyfinUser> result = jellyfinUserCacheService.getUserById("home", "user-1");
+
+        assertEquals(Optional.empty(), result);
+    }
+
     @Test
     void getAllUsersDelegatesToRepository() {
         JellyfinUser user = new JellyfinUser();
         user.setId("user-1");
-        when(jellyfinUserRepository.findAll()).thenReturn(List.of(user));
+        when(jellyfinUserRepository.findByDeletedFalse()).thenReturn(List.of(user));
 
         List<JellyfinUser> result = jellyfinUserCacheService.getAllUsers();
 
@@ -60,7 +76,7 @@ class JellyfinUserCacheServiceTest {
     void getPaginatedUsersDelegatesToRepository() {
         PageRequest pageRequest = PageRequest.of(0, 5);
         Page<JellyfinUser> page = new PageImpl<>(List.of(new JellyfinUser()), pageRequest, 1);
-        when(jellyfinUserRepository.findAll(pageRequest)).thenReturn(page);
+        when(jellyfinUserRepository.findByDeletedFalse(pageRequest)).thenReturn(page);
 
         Page<JellyfinUser> result = jellyfinUserCacheService.getPaginatedUsers(pageRequest);
 
@@ -71,9 +87,9 @@ class JellyfinUserCacheServiceTest {
     void invalidateUserCacheEvictsSpecificUserWhenCacheExists() {
         when(cacheManager.getCache("jellyfinUsers")).thenReturn(cache);
 
-        jellyfinUserCacheService.invalidateUserCache("user-1");
+        jellyfinUserCacheService.invalidateUserCache("home", "user-1");
 
-        verify(cache).evict("userId::user-1");
+        verify(cache).evict("userId::home::user-1");
     }
 
     @Test
@@ -84,6 +100,21 @@ class JellyfinUserCacheServiceTest {
 
         verify(cache).evict("allUsers");
         verify(cache).evict("allUsersWithPolicy");
+        verify(dataVersionService).bump();
+    }
+
+    @Test
+    void invalidateUsersEvictsEachUserAndAggregateKeys() {
+        when(cacheManager.getCache("jellyfinUsers")).thenReturn(cache);
+
+        jellyfinUserCacheService.invalidateUsers("home", List.of("user-1", "user-2"));
+
+        verify(cache).evict("userId::home::user-1");
+        verify(cache).evict("userId::home::user-2");
+        verify(cache).evict("allUsers");
+        verify(cache).evict("allUsersWithPolicy");
+        verify(cache, never()).clear();
+        verify(dataVersionService).bump();
     }
 
     @Test
@@ -93,5 +124,6 @@ class JellyfinUserCacheServiceTest {
         jellyfinUserCacheService.clearAllJellyfinUserCache();
 
         verify(cache).clear();
+        verify(dataVersionService).bump();
     }
 }
@@ -0,0 +1,110 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.dto.JellyfinUserRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JellyfinUserStreamReaderTest {
+
+    private final JellyfinUserStreamReader reader = new JellyfinUserStreamReader();
+
+    @Test
+    void readExtractsPersistedFieldsAndSkipsEverythingElse() throws IOException {
+        List<List<JellyfinUserRecord>> batches = new ArrayList<>();
+
+        int count = reader.read(json("""
+                [{
+                  "Name": "Alice",
+                  "ServerId": "server",
+                  "Configuration": {"OrderedViews": ["a", "b"], "SubtitleMode": "Default"},
+                  "Policy": {
+                    "IsAdministrator": true,
+                    "BlockedTags": [],
+                    "IsDisabled": true,
+                    "AccessSchedules": [{"DayOfWeek": "Sunday"}],
+                    "AuthenticationProviderId": "custom-auth",
+                    "PasswordResetProviderId": null
+                  },
+                  "Id": "user-1"
+                }]
+                """), 10, batches::add);
+
+        assertEquals(1, count);
+        assertEquals(List.of(List.of(new JellyfinUserRecord("user-1", "Alice", true, "custom-auth", null,
+                "{\"IsAdministrator\":true,\"BlockedTags\":[],\"IsDisabled\":true,"
+                        + "\"AccessSchedules\":[{\"DayOfWeek\":\"Sunday\"}],"
+                        + "\"AuthenticationProviderId\":\"custom-auth\",\"PasswordResetProviderId\":null}"))), batches);
+    }
+
+    @Test
+    void readKeepsDefaultProvidersWhenPolicyIsMissing() throws IOException {
+        List<JellyfinUserRecord> users = new ArrayList<>();
+
+        reader.read(json("[{\"Id\": \"user-1\", \"Name\": \"Alice\"}]"), 10, users::addAll);
+
+        JellyfinUserRecord user = users.get(0);
+        assertFalse(user.isDisabled());
+        assertEquals("com.jellyfin.authentication.providers.DefaultAuthenticationProvider",
+                user.authenticationProviderId());
+        assertEquals("com.jellyfin.passwordreset.providers.DefaultPasswordResetProvider",
+                user.passwordResetProviderId());
+    }
+
+    @Test
+    void readStoresAMissingOrNullNameAsEmpty() throws IOException {
+        List<JellyfinUserRecord> users = new ArrayList<>();
+
+        reader.read(json("[{\"Id\": \"user-1\"}, {\"Id\": \"user-2\", \"Name\": null}]"), 10, users::addAll);
+
+        assertEquals(List.of("", ""), users.stream().map(JellyfinUserRecord::name).toList());
+    }
+
+    @Test
+    void readSplitsUsersIntoBatchesOfAtMostBatchSize() throws IOException {
+        List<Integer> batchSizes = new ArrayList<>();
+
+        int count = reader.read(json("""
+                [{"Id": "1"}, {"Id": "2"}, {"Id": "3"}, {"Id": "4"}, {"Id": "5"}]
+                """), 2, batch -> batchSizes.add(batch.size()));
+
+        assertEquals(5, count);
+        assertEquals(List.of(2, 2, 1), batchSizes);
+    }
+
+    @Test
+    void readReturnsZeroForEmptyArray() throws IOException {
+        List<List<JellyfinUserRecord>> batches = new ArrayList<>();
+
+        assertEquals(0, reader.read(json("[]"), 10, batches::add));
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    void readUserParsesSingleUserObject() throws IOException {
+        JellyfinUserRecord user = reader.readUser("""
+                {"Id": "user-1", "Name": "Alice", "Policy": {"IsDisabled": false, "MaxActiveSessions": 3}}
+                """);
+
+        assertEquals("user-1", user.id());
+        assertFalse(user.isDisabled());
+        assertEquals("{\"IsDisabled\":false,\"MaxActiveSessions\":3}", user.policyJson());
+        assertThrows(IOException.class, () -> reader.readUser("[]"));
+    }
+
+    @Test
+    void readRejectsNonArrayPayload() {
+        assertThrows(IOException.class, () -> reader.read(json("{\"Id\": \"user-1\"}"), 10, batch -> { }));
+    }
+
+    private InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
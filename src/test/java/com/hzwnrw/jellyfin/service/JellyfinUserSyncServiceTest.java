@@ -0,0 +1,159 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.dto.JellyfinUserRecord;
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.JellyfinUserKey;
+import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
+import com.hzwnrw.jellyfin.repository.JellyfinUserRepository.SyncSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JellyfinUserSyncServiceTest {
+
+    private static final String SERVER = "home";
+
+    @Mock
+    private JellyfinUserRepository jellyfinUserRepository;
+
+    @InjectMocks
+    private JellyfinUserSyncService jellyfinUserSyncService;
+
+    @Test
+    void applyBatchWritesNothingWhenEveryUserIsUnchanged() {
+        JellyfinUserRecord alice = record("user-1", "Alice");
+        when(jellyfinUserRepository.findSyncSnapshotByIdIn(SERVER, List.of("user-1")))
+                .thenReturn(List.of(snapshot("user-1", alice.toEntity(SERVER).getContentHash(), false)));
+        SyncRun run = new SyncRun(SERVER);
+
+        jellyfinUserSyncService.applyBatch(List.of(alice), run);
+
+        assertEquals(new SyncSummary(0, 0, 0, 1), run.getSummary());
+        assertFalse(run.getSummary().hasChanges());
+        verify(jellyfinUserRepository, never()).upsertAll(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void applyBatchSavesOnlyAddedChangedAndRevivedUsers() {
+        JellyfinUserRecord alice = record("user-1", "Alice");
+        JellyfinUserRecord bob = record("user-2", "Bob");
+        JellyfinUserRecord carol = record("user-3", "Carol");
+        JellyfinUserRecord dave = record("user-4", "Dave");
+        when(jellyfinUserRepository.findSyncSnapshotByIdIn(SERVER, List.of("user-1", "user-2", "user-3", "user-4")))
+                .thenReturn(List.of(
+                        snapshot("user-1", alice.toEntity(SERVER).getContentHash(), false),
+                        snapshot("user-2", "stale-hash", false),
+                        snapshot("user-4", dave.toEntity(SERVER).getContentHash(), true)
+                ));
+        SyncRun run = new SyncRun(SERVER);
+
+        jellyfinUserSyncService.applyBatch(List.of(alice, bob, carol, dave), run);
+
+        assertEquals(new SyncSummary(1, 2, 0, 1), run.getSummary());
+        ArgumentCaptor<List<JellyfinUser>> saved = ArgumentCaptor.forClass(List.class);
+        verify(jellyfinUserRepository).upsertAll(saved.capture());
+        assertEquals(List.of("user-2", "user-3", "user-4"),
+                saved.getValue().stream().map(JellyfinUser::getId).toList());
+        saved.getValue().forEach(user -> {
+            assertEquals(SERVER, user.getServerId());
+            assertFalse(user.isDeleted());
+            assertEquals(user.computeContentHash(), user.getContentHash());
+        });
+    }
+
+    @Test
+    void applyBatchIgnoresUsersAlreadySeenInEarlierBatchesAndIdlessUsers() {
+        SyncRun run = new SyncRun(SERVER);
+        when(jellyfinUserRepository.findSyncSnapshotByIdIn(eq(SERVER), anyCollection())).thenReturn(List.of());
+
+        jellyfinUserSyncService.applyBatch(List.of(record("user-1", "Alice")), run);
+        jellyfinUserSyncService.applyBatch(List.of(record("user-1", "Alice again"), record(null, "Ghost")), run);
+
+        assertEquals(new SyncSummary(1, 0, 0, 0), run.getSummary());
+        assertEquals(1, run.getSeenCount());
+        verify(jellyfinUserRepository, times(1)).findSyncSnapshotByIdIn(eq(SERVER), anyCollection());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void removeMissingSoftDeletesActiveUsersNotSeenInRun() {
+        SyncRun run = new SyncRun(SERVER);
+        run.markSeen("user-1");
+        when(jellyfinUserRepository.findActiveIds(SERVER)).thenReturn(List.of("user-1", "user-2"));
+
+        jellyfinUserSyncService.removeMissing(run);
+
+        ArgumentCaptor<Collection<String>> removed = ArgumentCaptor.forClass(Collection.class);
+        verify(jellyfinUserRepository).markDeleted(eq(SERVER), removed.capture());
+        assertEquals(List.of("user-2"), List.copyOf(removed.getValue()));
+        assertEquals(1, run.getSummary().getRemoved());
+    }
+
+    @Test
+    void removeMissingDoesNothingWhenEveryActiveUserWasSeen() {
+        SyncRun run = new SyncRun(SERVER);
+        run.markSeen("user-1");
+        when(jellyfinUserRepository.findActiveIds(SERVER)).thenReturn(List.of("user-1"));
+
+        jellyfinUserSyncService.removeMissing(run);
+
+        verify(jellyfinUserRepository, never()).markDeleted(anyString(), anyCollection());
+        assertEquals(0, run.getSummary().getRemoved());
+    }
+
+    @Test
+    void applyUserChangesUpsertsAndSoftDeletesPerServer() {
+        JellyfinUser alice = record("user-1", "Alice").toEntity(SERVER);
+
+        jellyfinUserSyncService.applyUserChanges(List.of(alice), List.of(
+                new JellyfinUserKey(SERVER, "user-2"),
+                new JellyfinUserKey("cabin", "user-3"),
+                new JellyfinUserKey(SERVER, "user-4")));
+
+        verify(jellyfinUserRepository).upsertAll(List.of(alice));
+        verify(jellyfinUserRepository).markDeleted(SERVER, List.of("user-2", "user-4"));
+        verify(jellyfinUserRepository).markDeleted("cabin", List.of("user-3"));
+    }
+
+    private JellyfinUserRecord record(String id, String name) {
+        return new JellyfinUserRecord(id, name, false,
+                "com.jellyfin.authentication.providers.DefaultAuthenticationProvider",
+                "com.jellyfin.passwordreset.providers.DefaultPasswordResetProvider",
+                "{\"IsDisabled\":false}");
+    }
+
+    private SyncSnapshot snapshot(String id, String contentHash, boolean deleted) {
+        return new SyncSnapshot() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getContentHash() {
+                return contentHash;
+            }
+
+            @Override
+            public boolean isDeleted() {
+                return deleted;
+            }
+        };
+    }
+}
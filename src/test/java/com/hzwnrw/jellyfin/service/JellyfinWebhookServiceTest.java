@@ -0,0 +1,151 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.dto.JellyfinWebhookEvent;
+import com.hzwnrw.jellyfin.model.JellyfinUser;
+import com.hzwnrw.jellyfin.model.JellyfinUserKey;
+import com.hzwnrw.jellyfin.service.UserChangeQueue.ChangeType;
+import com.hzwnrw.jellyfin.service.UserChangeQueue.Offer;
+import com.hzwnrw.jellyfin.service.UserChangeQueue.PendingChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JellyfinWebhookServiceTest {
+
+    private static final String SERVER = "home";
+
+    @Mock
+    private JellyfinServerRegistry serverRegistry;
+
+    @Mock
+    private JellyfinService jellyfinService;
+
+    @Mock
+    private JellyfinUserSyncService jellyfinUserSyncService;
+
+    @Mock
+    private JellyfinUserCacheService jellyfinUserCacheService;
+
+    @Mock
+    private DashboardUpdateService dashboardUpdateService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private JellyfinWebhookService webhookService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        webhookService = new JellyfinWebhookService(serverRegistry, jellyfinService, jellyfinUserSyncService,
+                jellyfinUserCacheService, dashboardUpdateService, 2, 50, meterRegistry);
+    }
+
+    @Test
+    void submitQueuesUserEventsAndCoalescesDuplicates() {
+        JellyfinWebhookEvent updated = new JellyfinWebhookEvent("UserUpdated",
+                "0b9c4a3e-1f2d-4c5b-8a7e-6d5c4b3a2f10", "alice");
+
+        assertEquals(Optional.of(Offer.ACCEPTED), webhookService.submit(SERVER, updated));
+        assertEquals(Optional.of(Offer.COALESCED), webhookService.submit(SERVER, updated));
+        assertEquals(1, webhookService.pendingChanges());
+        assertEquals(1.0, meterRegistry.get("jellyfin.webhook.events").tag("outcome", "coalesced").counter().count());
+    }
+
+    @Test
+    void submitIgnoresNotificationsThatAreNotAboutUsers() {
+        assertEquals(Optional.empty(),
+                webhookService.submit(SERVER, new JellyfinWebhookEvent("PlaybackStart", "user-1", "alice")));
+        assertEquals(Optional.empty(),
+                webhookService.submit(SERVER, new JellyfinWebhookEvent("UserCreated", null, null)));
+        assertEquals(0, webhookService.pendingChanges());
+    }
+
+    @Test
+    void submitRejectsWhenQueueIsFull() {
+        webhookService.submit(SERVER, new JellyfinWebhookEvent("UserCreated", "user-1", "a"));
+        webhookService.submit(SERVER, new JellyfinWebhookEvent("UserCreated", "user-2", "b"));
+
+        assertEquals(Optional.of(Offer.REJECTED),
+                webhookService.submit(SERVER, new JellyfinWebhookEvent("UserCreated", "user-3", "c")));
+        assertEquals(2.0, meterRegistry.get("jellyfin.webhook.queue.size").gauge().value());
+    }
+
+    @Test
+    void submitRejectsUnknownServer() {
+        when(serverRegistry.get("nope")).thenThrow(new IllegalArgumentException("Unknown Jellyfin server: nope"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> webhookService.submit("nope", new JellyfinWebhookEvent("UserCreated", "user-1", "a")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void applyCommitsBatchOnceAndEvictsOnlyAffectedUsers() {
+        JellyfinUser alice = new JellyfinUser();
+        alice.setServerId(SERVER);
+        alice.setId("user-1");
+        alice.setName("Alice");
+        alice.getPolicy().setDisabled(true);
+        when(jellyfinService.fetchUser(SERVER, "user-1")).thenReturn(Optional.of(alice));
+        when(jellyfinService.fetchUser(SERVER, "user-2")).thenReturn(Optional.empty());
+
+        webhookService.apply(List.of(
+                new PendingChange(SERVER, "user-1", ChangeType.REFRESH),
+                new PendingChange(SERVER, "user-2", ChangeType.REFRESH),
+                new PendingChange(SERVER, "user-3", ChangeType.DELETE)));
+
+        ArgumentCaptor<List<JellyfinUser>> upserts = ArgumentCaptor.forClass(List.class);
+        verify(jellyfinUserSyncService).applyUserChanges(upserts.capture(), eq(List.of(
+                new JellyfinUserKey(SERVER, "user-2"), new JellyfinUserKey(SERVER, "user-3"))));
+        assertEquals(List.of(alice), upserts.getValue());
+        verify(jellyfinService, never()).fetchUser(SERVER, "user-3");
+
+        verify(jellyfinUserCacheService).invalidateUserCache(SERVER, "user-1");
+        verify(jellyfinUserCacheService).invalidateUserCache(SERVER, "user-2");
+        verify(jellyfinUserCacheService).invalidateUserCache(SERVER, "user-3");
+        verify(jellyfinUserCacheService).invalidateAllUsersCache();
+        verify(jellyfinUserCacheService, never()).clearAllJellyfinUserCache();
+        verify(dashboardUpdateService).statusChanged(SERVER, Map.of("user-1", true));
+    }
+
+    @Test
+    void applySkipsUsersThatCannotBeReadAndLeavesThemToTheSync() {
+        when(jellyfinService.fetchUser(SERVER, "user-1")).thenThrow(new ResourceAccessException("timeout"));
+
+        webhookService.apply(List.of(new PendingChange(SERVER, "user-1", ChangeType.REFRESH)));
+
+        verify(jellyfinUserSyncService, never()).applyUserChanges(any(), any());
+        verify(jellyfinUserCacheService, never()).invalidateUserCache(anyString(), anyString());
+        verifyNoInteractions(dashboardUpdateService);
+        assertEquals(1.0, meterRegistry.get("jellyfin.webhook.events").tag("outcome", "failed").counter().count());
+    }
+
+    @Test
+    void workerAppliesQueuedChangesWithJellyfinIdFormat() {
+        webhookService.start();
+        try {
+            webhookService.submit(SERVER, new JellyfinWebhookEvent("UserDeleted",
+                    "0B9C4A3E-1F2D-4C5B-8A7E-6D5C4B3A2F10", "alice"));
+
+            verify(jellyfinUserSyncService, timeout(5000)).applyUserChanges(List.of(),
+                    List.of(new JellyfinUserKey(SERVER, "0b9c4a3e1f2d4c5b8a7e6d5c4b3a2f10")));
+        } finally {
+            webhookService.stop();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.model.PolicyChange;
+import com.hzwnrw.jellyfin.model.UserExpiration;
+import com.hzwnrw.jellyfin.model.UserExpirationKey;
+import com.hzwnrw.jellyfin.repository.ExpirationRepository;
+import com.hzwnrw.jellyfin.repository.PolicyChangeRepository;
+import com.hzwnrw.jellyfin.support.JpaTestConfig;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@ContextConfiguration(classes = JpaTestConfig.class)
+@Import(PolicyChangeOutbox.class)
+class PolicyChangeOutboxTest {
+
+    @Autowired
+    private PolicyChangeOutbox outbox;
+
+    @Autowired
+    private PolicyChangeRepository policyChangeRepository;
+
+    @Autowired
+    private ExpirationRepository expirationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockitoBean
+    private DataVersionService dataVersionService;
+
+    @MockitoBean
+    private DashboardUpdateService dashboardUpdateService;
+
+    @Test
+    void requestToggleQueuesChangeAndClearsExpiryWhenEnabling() {
+        expirationRepository.saveAndFlush(buildExpiration("user-1"));
+
+        PolicyChange change = outbox.requestToggle("home", "user-1", false);
+        entityManager.flush();
+        entityManager.clear();
+
+        PolicyChange stored = policyChangeRepository.findById(change.getId()).orElseThrow();
+        assertEquals(PolicyChange.Status.PENDING, stored.getStatus());
+        assertFalse(stored.isTargetDisabled());
+        assertEquals("toggle", stored.getSource());
+        assertFalse(expirationRepository.existsById(new UserExpirationKey("home", "user-1")));
+        verify(dataVersionService).bump();
+        verify(dashboardUpdateService).expiryChanged("home", List.of("user-1"), null);
+    }
+
+    @Test
+    void recordAppliedSupersedesPendingChangesOfThoseUsersAndClearsExpiriesWhenEnabling() {
+        expirationRepository.saveAndFlush(buildExpiration("user-1"));
+        PolicyChange toggle = outbox.requestToggle("home", "user-1", true);
+        PolicyChange other = outbox.requestToggle("home", "user-2", true);
+        PolicyChange otherServer = outbox.requestToggle("cabin", "user-1", true);
+        entityManager.flush();
+
+        outbox.recordApplied("home", List.of("user-1"), false);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(PolicyChange.Status.SUPERSEDED,
+                policyChangeRepository.findById(toggle.getId()).orElseThrow().getStatus());
+        assertEquals(PolicyChange.Status.PENDING,
+                policyChangeRepository.findById(other.getId()).orElseThrow().getStatus());
+        assertEquals(PolicyChange.Status.PENDING,
+                policyChangeRepository.findById(otherServer.getId()).orElseThrow().getStatus());
+        assertFalse(expirationRepository.existsById(new UserExpirationKey("home", "user-1")));
+        verify(dashboardUpdateService).expiryChanged("home", List.of("user-1"), null);
+    }
+
+    @Test
+    void requestExpiriesQueuesDisablesAndFlagsExpiriesQueuedButNotProcessed() {
+        UserExpiration first = expirationRepository.save(buildExpiration("user-1"));
+        UserExpiration second = expirationRepository.save(buildExpiration("user-2"));
+        UserExpiration later = expirationRepository.save(buildExpiration("user-3"));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<PolicyChange> queued = outbox.requestExpiries(List.of(first, second));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(2, queued.size());
+        assertTrue(first.isDisableQueued());
+        for (String userId : List.of("user-1", "user-2")) {
+            UserExpiration stored = expirationRepository.findById(new UserExpirationKey("home", userId)).orElseThrow();
+            assertTrue(stored.isDisableQueued());
+            // Still enabled in Jellyfin until the dispatcher pushes the disable
+            assertFalse(stored.isProcessed());
+        }
+        assertFalse(expirationRepository.findById(new UserExpirationKey("home", later.getJellyfinUserId()))
+                .orElseThrow().isDisableQueued());
+        for (PolicyChange stored : policyChangeRepository.findAll()) {
+            assertTrue(stored.isTargetDisabled());
+            assertEquals("expiration", stored.getSource());
+            assertEquals(PolicyChange.Status.PENDING, stored.getStatus());
+        }
+    }
+
+    @Test
+    void requestExpiriesSkipsExpiriesRedatedWhileTheBatchWasInFlight() {
+        UserExpiration first = expirationRepository.save(buildExpiration("user-1"));
+        UserExpiration redated = expirationRepository.save(buildExpiration("user-2"));
+        entityManager.flush();
+        entityManager.clear();
+        // An admin moves user-2's expiry after the expiration run read the batch
+        UserExpiration moved = expirationRepository.findById(new UserExpirationKey("home", "user-2")).orElseThrow();
+        moved.setExpiryDate(moved.getExpiryDate().plusDays(30));
+        expirationRepository.saveAndFlush(moved);
+        entityManager.clear();
+
+        List<PolicyChange> queued = outbox.requestExpiries(List.of(first, redated));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(1, queued.size());
+        assertEquals("user-1", queued.getFirst().getJellyfinUserId());
+        assertFalse(redated.isDisableQueued());
+        assertTrue(expirationRepository.findById(new UserExpirationKey("home", "user-1")).orElseThrow().isDisableQueued());
+        UserExpiration stored = expirationRepository.findById(new UserExpirationKey("home", "user-2")).orElseThrow();
+        assertFalse(stored.isDisableQueued());
+        assertEquals(moved.getExpiryDate().toInstant(), stored.getExpiryDate().toInstant());
+        assertEquals(1, policyChangeRepository.count());
+    }
+
+    @Test
+    void completeMarksExpiriesProcessedOnceTheirDisableIsApplied() {
+        UserExpiration applied = expirationRepository.save(buildExpiration("user-1"));
+        UserExpiration retrying = expirationRepository.save(buildExpiration("user-2"));
+        entityManager.flush();
+        entityManager.clear();
+        List<PolicyChange> changes = outbox.requestExpiries(List.of(applied, retrying));
+        changes.getFirst().setStatus(PolicyChange.Status.DONE);
+        changes.getLast().setAttempts(1);
+
+        outbox.complete(changes, List.of());
+        entityManager.flush();
+        entityManager.clear();
+
+        UserExpiration done = expirationRepository.findById(new UserExpirationKey("home", "user-1")).orElseThrow();
+        assertTrue(done.isProcessed());
+        assertFalse(done.isDisableQueued());
+        UserExpiration pending = expirationRepository.findById(new UserExpirationKey("home", "user-2")).orElseThrow();
+        assertFalse(pending.isProcessed());
+        assertTrue(pending.isDisableQueued());
+    }
+
+    @Test
+    void completeReleasesExpiriesWhoseDisableWasNeverApplied() {
+        UserExpiration expiration = expirationRepository.save(buildExpiration("user-1"));
+        entityManager.flush();
+        entityManager.clear();
+        PolicyChange change = outbox.requestExpiries(List.of(expiration)).getFirst();
+        change.setStatus(PolicyChange.Status.FAILED);
+
+        outbox.complete(List.of(change), List.of(change));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(PolicyChange.Status.FAILED, policyChangeRepository.findById(change.getId()).orElseThrow().getStatus());
+        UserExpiration stored = expirationRepository.findById(new UserExpirationKey("home", "user-1")).orElseThrow();
+        assertFalse(stored.isProcessed());
+        assertFalse(stored.isDisableQueued());
+    }
+
+    @Test
+    void recordAppliedDisableMarksQueuedExpiriesProcessed() {
+        UserExpiration expiration = expirationRepository.save(buildExpiration("user-1"));
+        entityManager.flush();
+        entityManager.clear();
+        outbox.requestExpiries(List.of(expiration));
+        entityManager.flush();
+
+        outbox.recordApplied("home", List.of("user-1"), true);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(expirationRepository.findById(new UserExpirationKey("home", "user-1")).orElseThrow().isProcessed());
+        assertEquals(PolicyChange.Status.SUPERSEDED, policyChangeRepository.findAll().getFirst().getStatus());
+    }
+
+    @Test
+    void nextBatchKeepsOnlyTheLatestChangePerUser() {
+        PolicyChange disable = outbox.requestToggle("home", "user-1", true);
+        PolicyChange other = outbox.requestToggle("home", "user-2", true);
+        PolicyChange enable = outbox.requestToggle("home", "user-1", false);
+        PolicyChange retrying = outbox.requestToggle("home", "user-3", true);
+        retrying.setNextAttemptAt(ZonedDateTime.now(ZoneId.of("UTC")).plusMinutes(5));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<PolicyChange> batch = outbox.nextBatch(10);
+        entityManager.clear();
+
+        assertEquals(List.of(enable.getId(), other.getId()), batch.stream().map(PolicyChange::getId).toList());
+        assertEquals(PolicyChange.Status.SUPERSEDED,
+                policyChangeRepository.findById(disable.getId()).orElseThrow().getStatus());
+        assertEquals(PolicyChange.Status.PENDING,
+                policyChangeRepository.findById(retrying.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void purgeFinishedKeepsPendingAndFailedChanges() {
+        PolicyChange done = outbox.requestToggle("home", "user-1", true);
+        PolicyChange failed = outbox.requestToggle("home", "user-2", true);
+        PolicyChange pending = outbox.requestToggle("home", "user-3", true);
+        done.setStatus(PolicyChange.Status.DONE);
+        failed.setStatus(PolicyChange.Status.FAILED);
+        outbox.complete(List.of(done, failed), List.of());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(1, outbox.purgeFinished(ZonedDateTime.now(ZoneId.of("UTC")).plusMinutes(1)));
+        entityManager.clear();
+
+        assertEquals(List.of(failed.getId(), pending.getId()),
+                policyChangeRepository.findAll().stream().map(PolicyChange::getId).sorted().toList());
+    }
+
+    private UserExpiration buildExpiration(String userId) {
+        UserExpiration expiration = new UserExpiration();
+        expiration.setServerId("home");
+        expiration.setJellyfinUserId(userId);
+        expiration.setUsername(userId);
+        expiration.setExpiryDate(ZonedDateTime.now(ZoneId.of("UTC")).truncatedTo(ChronoUnit.SECONDS).minusMinutes(5));
+        return expiration;
+    }
+}
@@ -1,5 +1,6 @@
 package com.hzwnrw.jellyfin.service;
 
+import com.hzwnrw.jellyfin.dto.AppUserSummary;
 import com.hzwnrw.jellyfin.dto.PasswordChangeRequest;
 import com.hzwnrw.jellyfin.dto.ProfileResponse;
 import com.hzwnrw.jellyfin.dto.ProfileUpdateRequest;
@@ -10,8 +11,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -30,18 +29,15 @@ class ProfileServiceTest {
     private PasswordEncoder passwordEncoder;
 
     @Mock
-    private CacheManager cacheManager;
-
-    @Mock
-    private Cache cache;
+    private AppUserCacheService appUserCacheService;
 
     @InjectMocks
     private ProfileService profileService;
 
     @Test
     void getProfileReturnsMappedResponse() {
-        AppUser user = buildUser();
-        when(appUserRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+        AppUserSummary user = AppUserSummary.from(buildUser());
+        when(appUserCacheService.getUserByUsername("alice")).thenReturn(Optional.of(user));
 
         ProfileResponse result = profileService.getProfile("alice");
 
@@ -52,7 +48,7 @@ class ProfileServiceTest {
 
     @Test
     void getProfileThrowsWhenUserMissing() {
-        when(appUserRepository.findByUsername("missing")).thenReturn(Optional.empty());
+        when(appUserCacheService.getUserByUsername("missing")).thenReturn(Optional.empty());
 
         assertThrows(UsernameNotFoundException.class, () -> profileService.getProfile("missing"));
     }
@@ -62,14 +58,13 @@ class ProfileServiceTest {
         AppUser user = buildUser();
         ProfileUpdateRequest request = new ProfileUpdateRequest("Alice Updated", "updated@example.com");
         when(appUserRepository.findByUsername("alice")).thenReturn(Optional.of(user));
-        when(cacheManager.getCache("appUsers")).thenReturn(cache);
 
         ProfileResponse result = profileService.updateProfile("alice", request);
 
         assertEquals("Alice Updated", result.getName());
         assertEquals("updated@example.com", result.getEmail());
         verify(appUserRepository).save(user);
-        verify(cache).evict("userByUsername::alice");
+        verify(appUserCacheService).invalidateUserCache(user, "alice@example.com");
     }
 
     @Test
@@ -118,14 +113,13 @@ class ProfileServiceTest {
         when(appUserRepository.findByUsername("alice")).thenReturn(Optional.of(user));
         when(passwordEncoder.matches("current-password", "encoded-password")).thenReturn(true);
         when(passwordEncoder.encode("new-pass")).thenReturn("re-encoded");
-        when(cacheManager.getCache("appUsers")).thenReturn(cache);
 
         profileService.changePassword("alice",
                 new PasswordChangeRequest("current-password", "new-pass", "new-pass"));
 
         assertEquals("re-encoded", user.getPassword());
         verify(appUserRepository).save(user);
-        verify(cache).evict("userByUsername::alice");
+        verify(appUserCacheService).invalidateUserCache(user, "alice@example.com");
     }
 
     private AppUser buildUser() {
@@ -0,0 +1,109 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.dto.SyncStatusResponse;
+import com.hzwnrw.jellyfin.dto.SyncSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SyncCoordinatorTest {
+
+    @Mock
+    private JellyfinService jellyfinService;
+
+    @Mock
+    private DashboardUpdateService dashboardUpdateService;
+
+    @InjectMocks
+    private SyncCoordinator syncCoordinator;
+
+    @Test
+    void syncRunsSyncAndRecordsLastResult() {
+        SyncSummary summary = new SyncSummary(1, 2, 3, 4);
+        when(jellyfinService.syncUsers(any(SyncProgress.class))).thenAnswer(invocation -> {
+            invocation.<SyncProgress>getArgument(0).enter(SyncProgress.Phase.COMPLETED);
+            return summary;
+        });
+
+        assertSame(summary, syncCoordinator.sync("manual"));
+
+        SyncStatusResponse status = syncCoordinator.getStatus();
+        assertFalse(status.isRunning());
+        assertEquals("COMPLETED", status.getLastPhase());
+        assertSame(summary, status.getLastSummary());
+        assertNotNull(status.getLastFinishedAt());
+        verify(dashboardUpdateService).syncFinished("COMPLETED", summary);
+    }
+
+    @Test
+    void concurrentRequestsJoinTheRunningSync() throws Exception {
+        SyncSummary summary = new SyncSummary(5, 0, 0, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(jellyfinService.syncUsers(any(SyncProgress.class))).thenAnswer(invocation -> {
+            SyncProgress progress = invocation.getArgument(0);
+            progress.enter(SyncProgress.Phase.APPLYING);
+            progress.addProcessed(42);
+            started.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return summary;
+        });
+
+        CompletableFuture<SyncSummary> leader = CompletableFuture.supplyAsync(() -> syncCoordinator.sync("scheduler"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        SyncStatusResponse status = syncCoordinator.getStatus();
+        assertTrue(status.isRunning());
+        assertEquals("scheduler", status.getTrigger());
+        assertEquals("APPLYING", status.getPhase());
+        assertEquals(42, status.getProcessedUsers());
+        assertNotNull(status.getStartedAt());
+
+        CompletableFuture<SyncSummary> follower = CompletableFuture.supplyAsync(() -> syncCoordinator.sync("manual"));
+        Thread.sleep(100);
+        assertFalse(follower.isDone());
+
+        release.countDown();
+
+        assertSame(summary, leader.get(5, TimeUnit.SECONDS));
+        assertSame(summary, follower.get(5, TimeUnit.SECONDS));
+        verify(jellyfinService, times(1)).syncUsers(any(SyncProgress.class));
+        assertFalse(syncCoordinator.getStatus().isRunning());
+    }
+
+    @Test
+    void syncAfterCompletionStartsNewSync() {
+        when(jellyfinService.syncUsers(any(SyncProgress.class))).thenReturn(SyncSummary.empty());
+
+        syncCoordinator.sync("manual");
+        syncCoordinator.sync("manual");
+
+        verify(jellyfinService, times(2)).syncUsers(any(SyncProgress.class));
+    }
+
+    @Test
+    void failedSyncIsReportedAndReleasesTheSlot() {
+        when(jellyfinService.syncUsers(any(SyncProgress.class)))
+                .thenThrow(new IllegalStateException("boom"))
+                .thenReturn(SyncSummary.empty());
+
+        assertThrows(IllegalStateException.class, () -> syncCoordinator.sync("manual"));
+
+        SyncStatusResponse status = syncCoordinator.getStatus();
+        assertEquals("FAILED", status.getLastPhase());
+        assertNull(status.getLastSummary());
+        verify(dashboardUpdateService).syncFinished("FAILED", null);
+        assertNotNull(syncCoordinator.sync("manual"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.hzwnrw.jellyfin.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SyncFingerprintServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private SyncFingerprintService syncFingerprintService;
+
+    @BeforeEach
+    void setUp() {
+        syncFingerprintService = new SyncFingerprintService(redisTemplate, Duration.ofHours(6));
+    }
+
+    @Test
+    void getFingerprintReadsStoredValue() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.get("jellyfin_sync:state:home", "fingerprint")).thenReturn("abc");
+
+        assertEquals(Optional.of("abc"), syncFingerprintService.getFingerprint("home"));
+    }
+
+    @Test
+    void getFingerprintTreatsRedisErrorsAsUnknown() {
+        when(redisTemplate.opsForHash()).thenThrow(new RuntimeException("redis down"));
+
+        assertEquals(Optional.empty(), syncFingerprintService.getFingerprint("home"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordAppliedStoresFingerprintAndTimestampWithTtl() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+
+        syncFingerprintService.recordApplied("home", "abc");
+
+        ArgumentCaptor<Map<Object, Object>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(hashOperations).putAll(eq("jellyfin_sync:state:home"), fields.capture());
+        assertEquals("abc", fields.getValue().get("fingerprint"));
+        assertNotNull(Instant.parse(fields.getValue().get("lastSyncAt").toString()));
+        verify(redisTemplate).expire("jellyfin_sync:state:home", Duration.ofHours(6));
+    }
+
+    @Test
+    void recordUnchangedOnlyTouchesTimestamp() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+
+        syncFingerprintService.recordUnchanged("home");
+
+        verify(hashOperations).put(eq("jellyfin_sync:state:home"), eq("lastSyncAt"), anyString());
+        verify(redisTemplate, never()).expire(anyString(), any(Duration.class));
+    }
+
+    @Test
+    void getLastSyncAtParsesStoredTimestamp() {
+        Instant now = Instant.parse("2026-10-18T10:00:00Z");
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.get("jellyfin_sync:state:home", "lastSyncAt")).thenReturn(now.toString());
+
+        assertEquals(Optional.of(now), syncFingerprintService.getLastSyncAt("home"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.hzwnrw.jellyfin.service.UserChangeQueue.ChangeType;
+import com.hzwnrw.jellyfin.service.UserChangeQueue.Offer;
+import com.hzwnrw.jellyfin.service.UserChangeQueue.PendingChange;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserChangeQueueTest {
+
+    @Test
+    void repeatedChangesForOneUserCollapseIntoTheLatestInPlace() throws InterruptedException {
+        UserChangeQueue queue = new UserChangeQueue(10);
+
+        assertEquals(Offer.ACCEPTED, queue.offer(change("home", "user-1", ChangeType.REFRESH)));
+        assertEquals(Offer.ACCEPTED, queue.offer(change("home", "user-2", ChangeType.REFRESH)));
+        assertEquals(Offer.COALESCED, queue.offer(change("home", "user-1", ChangeType.DELETE)));
+        assertEquals(Offer.ACCEPTED, queue.offer(change("cabin", "user-1", ChangeType.REFRESH)));
+
+        assertEquals(List.of(
+                change("home", "user-1", ChangeType.DELETE),
+                change("home", "user-2", ChangeType.REFRESH),
+                change("cabin", "user-1", ChangeType.REFRESH)), queue.drain(10, Duration.ZERO));
+    }
+
+    @Test
+    void fullQueueRejectsNewUsersButStillCoalesces() {
+        UserChangeQueue queue = new UserChangeQueue(2);
+        queue.offer(change("home", "user-1", ChangeType.REFRESH));
+        queue.offer(change("home", "user-2", ChangeType.REFRESH));
+
+        assertEquals(Offer.REJECTED, queue.offer(change("home", "user-3", ChangeType.REFRESH)));
+        assertEquals(Offer.COALESCED, queue.offer(change("home", "user-2", ChangeType.DELETE)));
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    void drainReturnsAtMostMaxInArrivalOrder() throws InterruptedException {
+        UserChangeQueue queue = new UserChangeQueue(10);
+        for (int i = 1; i <= 5; i++) {
+            queue.offer(change("home", "user-" + i, ChangeType.REFRESH));
+        }
+
+        assertEquals(List.of("user-1", "user-2", "user-3"),
+                queue.drain(3, Duration.ZERO).stream().map(PendingChange::userId).toList());
+        assertEquals(List.of("user-4", "user-5"),
+                queue.drain(3, Duration.ZERO).stream().map(PendingChange::userId).toList());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void drainWaitsForTheFirstChange() throws Exception {
+        UserChangeQueue queue = new UserChangeQueue(10);
+
+        assertEquals(List.of(), queue.drain(10, Duration.ofMillis(20)));
+
+        CompletableFuture<List<PendingChange>> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.drain(10, Duration.ofSeconds(5));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        queue.offer(change("home", "user-1", ChangeType.REFRESH));
+
+        assertEquals(List.of(change("home", "user-1", ChangeType.REFRESH)), waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    private static PendingChange change(String serverId, String userId, ChangeType type) {
+        return new PendingChange(serverId, userId, type);
+    }
+}
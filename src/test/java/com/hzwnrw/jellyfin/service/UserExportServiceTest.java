@@ -0,0 +1,205 @@
+package com.hzwnrw.jellyfin.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hzwnrw.jellyfin.controller.UserExportController;
+import com.hzwnrw.jellyfin.dto.UserExportRow;
+import com.hzwnrw.jellyfin.repository.JellyfinUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class UserExportServiceTest {
+
+    private static final Instant EXPIRY = Instant.parse("2026-11-01T00:00:00Z");
+
+    @Mock
+    private JellyfinUserRepository jellyfinUserRepository;
+
+    private UserExportService userExportService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        userExportService = new UserExportService(jellyfinUserRepository, 1);
+        mockMvc = MockMvcBuilders.standaloneSetup(new UserExportController(userExportService)).build();
+    }
+
+    @Test
+    void csvQuotesFieldsAndNeutralizesFormulas() throws Exception {
+        streamRows(
+                new UserExportRow("home", "user-1", "Alice", false, null, null),
+                new UserExportRow("home", "user-2", "Cooper, \"Bob\"", true, EXPIRY, true),
+                new UserExportRow("home", "user-3", "=HYPERLINK(\"x\")", false, EXPIRY, false));
+
+        assertEquals("""
+                server_id,user_id,name,disabled,expiry_date,expiry_processed\r
+                home,user-1,Alice,false,,\r
+                home,user-2,"Cooper, ""Bob\""",true,2026-11-01T00:00:00Z,true\r
+                home,user-3,"'=HYPERLINK(""x"")",false,2026-11-01T00:00:00Z,false\r
+                """, write(UserExportService.Format.CSV, false));
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() throws Exception {
+        streamRows(
+                new UserExportRow("home", "user-1", "Alice", false, null, null),
+                new UserExportRow("cabin", "user-2", "Bob\nBuilder", true, EXPIRY, false));
+
+        String[] lines = write(UserExportService.Format.NDJSON, false).split("\n");
+
+        assertEquals(2, lines.length);
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode alice = objectMapper.readTree(lines[0]);
+        assertEquals("user-1", alice.get("userId").asText());
+        assertTrue(alice.get("expiryDate").isNull());
+        assertTrue(alice.get("expiryProcessed").isNull());
+        JsonNode bob = objectMapper.readTree(lines[1]);
+        assertEquals("Bob\nBuilder", bob.get("name").asText());
+        assertTrue(bob.get("disabled").asBoolean());
+        assertEquals("2026-11-01T00:00:00Z", bob.get("expiryDate").asText());
+        assertFalse(bob.get("expiryProcessed").asBoolean());
+    }
+
+    @Test
+    void gzipCompressesTheWholeExport() throws Exception {
+        streamRows(new UserExportRow("home", "user-1", "Alice", false, null, null));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        userExportService.write(UserExportService.Format.CSV, true, out);
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertTrue(new String(in.readAllBytes(), StandardCharsets.UTF_8).endsWith("home,user-1,Alice,false,,\r\n"));
+        }
+    }
+
+    @Test
+    void clientDisconnectSurfacesAsIOException() {
+        streamRows(new UserExportRow("home", "user-1", "Alice", false, null, null));
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // Small enough to stay in the writer's buffer until the final flush
+        assertThrows(IOException.class, () -> userExportService.write(UserExportService.Format.CSV, false, broken));
+    }
+
+    @Test
+    void exportsBeyondLimitAreRefusedUntilOneFinishes() throws Exception {
+        Optional<UserExportService.Export> first = userExportService.open(UserExportService.Format.CSV, false);
+        assertTrue(first.isPresent());
+        assertTrue(userExportService.open(UserExportService.Format.CSV, false).isEmpty());
+        mockMvc.perform(get("/api/users/export")).andExpect(status().isServiceUnavailable());
+
+        first.get().writeTo(new ByteArrayOutputStream());
+
+        assertTrue(userExportService.open(UserExportService.Format.CSV, false).isPresent());
+    }
+
+    @Test
+    void closingAnExportThatNeverRanFreesItsSlotOnce() throws Exception {
+        UserExportService.Export abandoned = userExportService.open(UserExportService.Format.CSV, false).orElseThrow();
+
+        abandoned.close();
+        assertTrue(userExportService.open(UserExportService.Format.CSV, false).isPresent());
+        abandoned.close();
+        abandoned.writeTo(new ByteArrayOutputStream());
+
+        assertTrue(userExportService.open(UserExportService.Format.CSV, false).isEmpty());
+    }
+
+    @Test
+    void requestEndingBeforeTheExportFinishesFreesItsSlot() throws Exception {
+        CountDownLatch clientGone = new CountDownLatch(1);
+        // Whether the body starts before the request ends is up to the executor; the slot is freed either way
+        lenient().when(jellyfinUserRepository.streamExport(any())).thenAnswer(invocation -> {
+            clientGone.await(5, TimeUnit.SECONDS);
+            return 0L;
+        });
+        MvcResult started = mockMvc.perform(get("/api/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertTrue(userExportService.open(UserExportService.Format.CSV, false).isEmpty());
+
+        // As the container does when the async request times out or the client disconnects
+        started.getRequest().getAsyncContext().complete();
+        clientGone.countDown();
+
+        assertTrue(userExportService.open(UserExportService.Format.CSV, false).isPresent());
+    }
+
+    @Test
+    void endpointStreamsAttachment() throws Exception {
+        streamRows(new UserExportRow("home", "user-1", "Alice", false, null, null));
+
+        MvcResult started = mockMvc.perform(get("/api/users/export").param("format", "NDJSON").param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/gzip"))
+                .andExpect(header().string("X-Accel-Buffering", "no"))
+                .andReturn()
+                .getResponse();
+
+        assertTrue(response.getHeader("Content-Disposition").matches("attachment; filename=\"jellyfin-users-.*\\.ndjson\\.gz\""),
+                response.getHeader("Content-Disposition"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertTrue(new String(in.readAllBytes(), StandardCharsets.UTF_8).startsWith("{\"serverId\":\"home\""));
+        }
+    }
+
+    @Test
+    void unknownFormatIsRejected() throws Exception {
+        mockMvc.perform(get("/api/users/export").param("format", "xlsx")).andExpect(status().isBadRequest());
+
+        verifyNoInteractions(jellyfinUserRepository);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamRows(UserExportRow... rows) {
+        when(jellyfinUserRepository.streamExport(any())).thenAnswer(invocation -> {
+            Consumer<UserExportRow> sink = invocation.getArgument(0);
+            List.of(rows).forEach(sink);
+            return (long) rows.length;
+        });
+    }
+
+    private String write(UserExportService.Format format, boolean gzip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        userExportService.write(format, gzip, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
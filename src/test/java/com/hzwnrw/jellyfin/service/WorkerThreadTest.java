@@ -0,0 +1,53 @@
+package com.hzwnrw.jellyfin.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkerThreadTest {
+
+    @Test
+    void keepsRunningAfterAFailedStep() throws Exception {
+        BlockingQueue<String> work = new LinkedBlockingQueue<>();
+        CountDownLatch handled = new CountDownLatch(1);
+        WorkerThread worker = new WorkerThread("test-worker", () -> {
+            if (work.take().equals("bad")) {
+                throw new IllegalStateException("bad item");
+            }
+            handled.countDown();
+        });
+        worker.start();
+        try {
+            work.add("bad");
+            work.add("good");
+
+            assertTrue(handled.await(5, TimeUnit.SECONDS));
+        } finally {
+            worker.stop();
+        }
+    }
+
+    @Test
+    void stopInterruptsTheStepAndEndsTheThread() throws Exception {
+        CountDownLatch waiting = new CountDownLatch(1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        WorkerThread worker = new WorkerThread("test-worker", () -> {
+            thread.set(Thread.currentThread());
+            waiting.countDown();
+            new CountDownLatch(1).await();
+        });
+        worker.start();
+        assertTrue(waiting.await(5, TimeUnit.SECONDS));
+
+        worker.stop();
+
+        thread.get().join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(thread.get().isAlive());
+    }
+}
@@ -0,0 +1,15 @@
+package com.hzwnrw.jellyfin.support;
+
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Minimal JPA configuration for @DataJpaTest slices, so they do not pull in
+ * JellyfinManagerApplication and its Redis-dependent beans.
+ */
+@Configuration
+@EntityScan("com.hzwnrw.jellyfin.model")
+@EnableJpaRepositories("com.hzwnrw.jellyfin.repository")
+public class JpaTestConfig {
+}